@@ -0,0 +1,180 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares BinaryFoodMenuWriter and BinaryFoodMenuReader with Java serialization. Each operation writes or reads the
+ * food menus of all the layout versions (i.e. four canteens) as a single stream.
+ * Run the class's main() method to print the sizes of the serialized food menus:
+ * java -cp target/benchmarks.jar cz.vitlabuda.icanteenextractor.BinaryFormatBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryFormatBenchmark {
+    @Param({"small", "typical", "large"})
+    public String size;
+
+    private List<FoodMenu> foodMenus;
+    private byte[] binaryBytes;
+    private byte[] serializedBytes;
+
+    @Setup
+    public void setUp() throws Exception {
+        foodMenus = parseFoodMenus(size);
+        binaryBytes = writeBinary().toByteArray();
+        serializedBytes = writeSerialized().toByteArray();
+
+        // The round trip must not lose anything, or the comparison is meaningless.
+        if(!describe(readBinary()).equals(describe(foodMenus)) || !describe(readSerialized()).equals(describe(foodMenus)))
+            throw new IllegalStateException("The food menus have changed in the round trip!");
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream writeBinary() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (BinaryFoodMenuWriter writer = new BinaryFoodMenuWriter(outputStream)) {
+            for(FoodMenu foodMenu : foodMenus)
+                writer.writeFoodMenu(foodMenu);
+        }
+
+        return outputStream;
+    }
+
+    @Benchmark
+    public List<FoodMenu> readBinary() throws IOException {
+        List<FoodMenu> readFoodMenus = new ArrayList<>();
+        try (BinaryFoodMenuReader reader = new BinaryFoodMenuReader(new ByteArrayInputStream(binaryBytes))) {
+            FoodMenu foodMenu;
+            while((foodMenu = reader.readFoodMenu()) != null)
+                readFoodMenus.add(foodMenu);
+        }
+
+        return readFoodMenus;
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream writeSerialized() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+            for(FoodMenu foodMenu : foodMenus)
+                objectOutputStream.writeObject(foodMenu);
+        }
+
+        return outputStream;
+    }
+
+    @Benchmark
+    public List<FoodMenu> readSerialized() throws IOException, ClassNotFoundException {
+        List<FoodMenu> readFoodMenus = new ArrayList<>();
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(serializedBytes))) {
+            for(int i = 0; i < foodMenus.size(); i++)
+                readFoodMenus.add((FoodMenu) objectInputStream.readObject());
+        }
+
+        return readFoodMenus;
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%-8s %6s %14s %14s %8s%n", "size", "days", "binary (B)", "Java (B)", "ratio");
+        for(String size : new String[] {"small", "typical", "large"}) {
+            BinaryFormatBenchmark benchmark = new BinaryFormatBenchmark();
+            benchmark.size = size;
+            benchmark.setUp();
+
+            int dayCount = 0;
+            for(FoodMenu foodMenu : benchmark.foodMenus)
+                dayCount += foodMenu.getDays().size();
+
+            System.out.printf("%-8s %6d %14d %14d %8.2f%n", size, dayCount, benchmark.binaryBytes.length, benchmark.serializedBytes.length, benchmark.serializedBytes.length / (double) benchmark.binaryBytes.length);
+        }
+    }
+
+    private static List<FoodMenu> parseFoodMenus(String size) throws Exception {
+        List<FoodMenu> foodMenus = new ArrayList<>();
+        for(String version : Fixtures.VERSIONS)
+            foodMenus.add(StreamingMenuParser.parse(new StringReader(Fixtures.load(version, size))));
+
+        return foodMenus;
+    }
+
+    private static String describe(List<FoodMenu> foodMenus) {
+        StringBuilder stringBuilder = new StringBuilder();
+        for(FoodMenu foodMenu : foodMenus) {
+            for(FoodMenu.Day day : foodMenu.getDays()) {
+                stringBuilder.append(day.getLocalDate()).append(' ').append(day.getDate().getTime()).append('\n');
+                for(FoodMenu.Dish dish : day.getDishes())
+                    stringBuilder.append(dish.getDishName()).append('|').append(dish.getDishPlace()).append('|').append(dish.getDishDescription()).append('\n');
+            }
+            stringBuilder.append('\n');
+        }
+
+        return stringBuilder.toString();
+    }
+}
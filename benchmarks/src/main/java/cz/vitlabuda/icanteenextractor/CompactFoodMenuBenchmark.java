@@ -0,0 +1,152 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of converting the parsed food menus to CompactFoodMenu and back (e.g. when MenuCache stores and
+ * returns them).
+ *
+ * The memory saved by the compact representation can't be measured by JMH - run the class's main() method to print
+ * the live heap taken by 10,000 days of food menus in each of the representations:
+ * java -cp target/benchmarks.jar cz.vitlabuda.icanteenextractor.CompactFoodMenuBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactFoodMenuBenchmark {
+    private static final int MEASURED_DAY_COUNT = 10000;
+
+    @Param({"typical", "large"})
+    public String size;
+
+    private FoodMenu foodMenu;
+    private CompactFoodMenu compactFoodMenu;
+
+    @Setup
+    public void setUp() throws Exception {
+        foodMenu = parse(Fixtures.VERSIONS[0], size);
+        compactFoodMenu = CompactFoodMenu.of(foodMenu);
+    }
+
+    @Benchmark
+    public CompactFoodMenu toCompact() {
+        return CompactFoodMenu.of(foodMenu);
+    }
+
+    @Benchmark
+    public FoodMenu toFoodMenu() {
+        return compactFoodMenu.toFoodMenu();
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Every food menu is parsed again, so that its strings aren't shared with the other ones - just like the food
+        // menus of different canteens, or of the same canteen downloaded at different times.
+        long baseline = LiveHeap.measure();
+        List<FoodMenu> foodMenus = parseDays(MEASURED_DAY_COUNT);
+        long foodMenuBytes = LiveHeap.measure() - baseline;
+        foodMenus.clear();
+
+        baseline = LiveHeap.measure();
+        List<CompactFoodMenu> compactFoodMenus = compactDays(MEASURED_DAY_COUNT);
+        long compactFoodMenuBytes = LiveHeap.measure() - baseline; // including the interned strings
+
+        System.out.printf("Live heap taken by %d days (%d food menus):%n", MEASURED_DAY_COUNT, compactFoodMenus.size());
+        System.out.printf("%-16s %10.1f kB %8.1f B/day%n", "FoodMenu", foodMenuBytes / 1024.0, foodMenuBytes / (double) MEASURED_DAY_COUNT);
+        System.out.printf("%-16s %10.1f kB %8.1f B/day%n", "CompactFoodMenu", compactFoodMenuBytes / 1024.0, compactFoodMenuBytes / (double) MEASURED_DAY_COUNT);
+        System.out.printf("Saved: %.1f %%%n", 100.0 * (foodMenuBytes - compactFoodMenuBytes) / foodMenuBytes);
+    }
+
+    // Parses the large fixtures of all the versions in turn, until there are exactly dayCount days.
+    private static List<FoodMenu> parseDays(int dayCount) throws Exception {
+        List<FoodMenu> foodMenus = new ArrayList<>();
+        int remainingDayCount = dayCount;
+        for(int i = 0; remainingDayCount > 0; i++) {
+            FoodMenu parsedFoodMenu = parse(Fixtures.VERSIONS[i % Fixtures.VERSIONS.length], "large");
+
+            List<FoodMenu.Day> days = parsedFoodMenu.getDays();
+            if(days.size() > remainingDayCount)
+                days.subList(remainingDayCount, days.size()).clear();
+            days.forEach(day -> day.getDishes().trimToSize()); // as if the days were collected for a long time
+            parsedFoodMenu.getDays().trimToSize();
+
+            remainingDayCount -= days.size();
+            foodMenus.add(parsedFoodMenu);
+        }
+
+        return foodMenus;
+    }
+
+    // A separate method, so that no local variable keeps the parsed food menus alive during the measurement.
+    private static List<CompactFoodMenu> compactDays(int dayCount) throws Exception {
+        List<CompactFoodMenu> compactFoodMenus = new ArrayList<>();
+        for(FoodMenu parsedFoodMenu : parseDays(dayCount))
+            compactFoodMenus.add(CompactFoodMenu.of(parsedFoodMenu));
+
+        return compactFoodMenus;
+    }
+
+    private static FoodMenu parse(String version, String size) throws Exception {
+        return StreamingMenuParser.parse(new StringReader(Fixtures.load(version, size)));
+    }
+}
@@ -0,0 +1,183 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks that a single ICanteenExtractor instance can be shared by many threads: the threads extract the food menus
+ * of all the fixtures from StubICanteenServer at once, using extract(), extractDays() and extractAsync() at random,
+ * through a shared MenuCache and HistogramExtractionMetrics. Every extracted food menu is compared with the one
+ * extracted by a single thread beforehand, and the extractor's and the metrics' counters are checked at the end. The
+ * process exits with status 1 if anything doesn't match. A bounded version without the HTTP server runs with the unit
+ * tests (ICanteenExtractorConcurrencyTest). The options are passed as name=value arguments, e.g.:
+ * java -cp target/benchmarks.jar cz.vitlabuda.icanteenextractor.ConcurrencyStressTest threads=64 extractions=500
+ *
+ * threads (64), extractions (per thread; 100)
+ */
+public class ConcurrencyStressTest {
+    public static void main(String[] args) throws Exception {
+        int threadCount = 64;
+        int extractionsPerThread = 100;
+        for(String arg : args) {
+            String[] option = arg.split("=", 2);
+            if(option.length != 2)
+                throw new IllegalArgumentException("Invalid option: " + arg + " (expected name=value)");
+
+            switch(option[0]) {
+                case "threads": threadCount = Integer.parseInt(option[1]); break;
+                case "extractions": extractionsPerThread = Integer.parseInt(option[1]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + option[0]);
+            }
+        }
+
+        try (StubICanteenServer server = new StubICanteenServer(new StubICanteenServer.Conditions(0, 0, 8192, 0, 0, 0))) {
+            // The expected food menus and page sizes, extracted by a single thread
+            Map<URL, FoodMenu> expectedFoodMenus = new LinkedHashMap<>();
+            Map<URL, Integer> pageLengths = new LinkedHashMap<>();
+            for(String version : Fixtures.VERSIONS) {
+                for(String size : new String[] {"small", "typical", "large"}) {
+                    URL url = server.getURL(version, size);
+                    expectedFoodMenus.put(url, new ICanteenExtractor().extract(url));
+                    pageLengths.put(url, Fixtures.loadBytes(version, size).length);
+                }
+            }
+            List<URL> urls = new ArrayList<>(expectedFoodMenus.keySet());
+
+            MenuCache menuCache = new MenuCache(urls.size());
+            HistogramExtractionMetrics metrics = new HistogramExtractionMetrics();
+            ICanteenExtractor extractor = new ICanteenExtractor.Builder()
+                    .setHTTPTransport(new PooledHTTPTransport(threadCount, PooledHTTPTransport.DEFAULT_IDLE_TIMEOUT_MILLISECONDS))
+                    .setMenuCache(menuCache)
+                    .setMetrics(metrics)
+                    .setCompressionEnabled(false) // so that the received bytes can be checked
+                    .build();
+
+            AtomicInteger mismatchCount = new AtomicInteger();
+            AtomicLong expectedReceivedBytes = new AtomicLong();
+            CountDownLatch startLatch = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>(threadCount);
+            int finalExtractionsPerThread = extractionsPerThread;
+            for(int i = 0; i < threadCount; i++) {
+                Thread thread = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    try {
+                        startLatch.await();
+                        for(int j = 0; j < finalExtractionsPerThread; j++) {
+                            URL url = urls.get(random.nextInt(urls.size()));
+                            FoodMenu foodMenu = extract(extractor, url, random.nextInt(3));
+                            expectedReceivedBytes.addAndGet(pageLengths.get(url));
+
+                            FoodMenuDiff diff = FoodMenuDiff.compare(expectedFoodMenus.get(url), foodMenu);
+                            if(!diff.isEmpty() && mismatchCount.getAndIncrement() < 10)
+                                System.out.printf("mismatch: %s (%d added, %d removed, %d changed days)%n", url, diff.getAddedDays().size(), diff.getRemovedDays().size(), diff.getChangedDays().size());
+
+                            foodMenu.getDays().clear(); // mustn't affect the other threads' food menus
+                        }
+                    } catch (Exception e) {
+                        mismatchCount.incrementAndGet();
+                        e.printStackTrace();
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+
+            long startTime = System.nanoTime();
+            startLatch.countDown();
+            for(Thread thread : threads)
+                thread.join();
+            double elapsedSeconds = (System.nanoTime() - startTime) / 1e9;
+
+            long extractionCount = (long) threadCount * extractionsPerThread;
+            System.out.printf("%d extractions by %d threads sharing one extractor in %.2f s = %.0f extractions/s%n", extractionCount, threadCount, elapsedSeconds, extractionCount / elapsedSeconds);
+
+            boolean failed = mismatchCount.get() != 0;
+            failed |= check("mismatched food menus", mismatchCount.get(), 0);
+            failed |= check("extractions counted by the metrics", metrics.getExtractionTimes().getCount(), extractionCount);
+            failed |= check("failures counted by the metrics", metrics.getFailureCount(), 0);
+            failed |= check("received bytes", extractor.getReceivedBodyBytes(), expectedReceivedBytes.get());
+            failed |= check("decoded bytes", extractor.getDecodedBodyBytes(), expectedReceivedBytes.get());
+            failed |= check("bytes counted by the metrics", metrics.getReceivedBytes(), expectedReceivedBytes.get());
+            System.out.printf("menu cache: %d unchanged pages (not parsed again)%n", menuCache.getUnchangedContentCount());
+
+            if(failed) {
+                System.out.println("FAILED");
+                System.exit(1);
+            }
+            System.out.println("OK");
+        }
+    }
+
+    private static FoodMenu extract(ICanteenExtractor extractor, URL url, int method) throws Exception {
+        switch(method) {
+            case 0:
+                return extractor.extract(url);
+
+            case 1:
+                FoodMenu foodMenu = new FoodMenu();
+                extractor.extractDays(url, day -> foodMenu.getDays().add(day));
+                return foodMenu;
+
+            default:
+                return extractor.extractAsync(url).get(1, TimeUnit.MINUTES);
+        }
+    }
+
+    private static boolean check(String name, long actual, long expected) {
+        boolean matches = actual == expected;
+        System.out.printf("%s: %d%s%n", name, actual, matches ? "" : " (expected " + expected + ")");
+
+        return !matches;
+    }
+}
@@ -0,0 +1,112 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the hand-written "day-YYYY-MM-DD" parser with the shared SimpleDateFormat used before.
+ * The concurrent benchmark doubles as a stress test - it fails if any thread gets a wrong date. The rejected date
+ * strings and a bounded concurrent check are covered by the unit tests (FoodMenuParserBaseTest).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateParsingBenchmark {
+    private static final String[] DATE_STRINGS = new String[366];
+    private static final LocalDate[] EXPECTED_DATES = new LocalDate[DATE_STRINGS.length];
+
+    static {
+        LocalDate date = LocalDate.of(2020, 1, 1);
+        for(int i = 0; i < DATE_STRINGS.length; i++) {
+            DATE_STRINGS[i] = "day-" + date;
+            EXPECTED_DATES[i] = date;
+            date = date.plusDays(1);
+        }
+    }
+
+    private final SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd");
+    private final FoodMenuParserBase foodMenuParser = new SimpleMenuParser();
+
+    @Benchmark
+    public Date simpleDateFormat() throws ParseException {
+        return simpleDateFormat.parse(DATE_STRINGS[ThreadLocalRandom.current().nextInt(DATE_STRINGS.length)].trim().substring(4));
+    }
+
+    @Benchmark
+    public LocalDate handWrittenParser() throws FoodMenuParserBase.FoodMenuParserException {
+        return foodMenuParser.parseDateString(DATE_STRINGS[ThreadLocalRandom.current().nextInt(DATE_STRINGS.length)]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public LocalDate handWrittenParserConcurrent() throws FoodMenuParserBase.FoodMenuParserException {
+        int index = ThreadLocalRandom.current().nextInt(DATE_STRINGS.length);
+
+        LocalDate date = foodMenuParser.parseDateString(DATE_STRINGS[index]);
+        if(!date.equals(EXPECTED_DATES[index]))
+            throw new IllegalStateException("Wrong date parsed from " + DATE_STRINGS[index] + ": " + date);
+
+        return date;
+    }
+}
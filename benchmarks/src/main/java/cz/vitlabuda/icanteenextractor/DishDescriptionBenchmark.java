@@ -0,0 +1,169 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares DishDescriptionNormalizer with the regex-based code it has replaced, on all the dish descriptions from
+ * the fixtures and on a few edge cases. The setup fails if the two ever produce a different result; the same
+ * comparison (with more edge cases and random strings) runs with the unit tests (DishDescriptionNormalizerTest).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DishDescriptionBenchmark {
+    private static final String[] EDGE_CASES = new String[] {
+        "",
+        "   ",
+        "*",
+        "-- Polévka",
+        " -- --  -- Polévka -- hovězí",
+        "Polévka,knedlík ,  zelí , , ,",
+        ",,, ,a",
+        "* ,*, *",
+        "Rizoto *1,3,7*\n\t\tokurka\r\n",
+        "\u0001 *Guláš\u0001",
+        "Svíčková na smetaně , knedlík",
+        "a\u000bb\fc",
+    };
+
+    private String[] corpus;
+    private boolean[] stripLeadingDashes;
+
+    @Setup
+    public void setUp() {
+        List<String> descriptions = new ArrayList<>();
+        List<Boolean> dashes = new ArrayList<>();
+
+        for(String version : Fixtures.VERSIONS) {
+            boolean oldLayout = version.startsWith("2.14.");
+
+            for(Element jidelnicekDen : Jsoup.parse(Fixtures.load(version, "typical")).select(".jidelnicekDen")) {
+                if(oldLayout) {
+                    for(Element dishDiv : jidelnicekDen.child(1).children()) {
+                        descriptions.add(dishDiv.ownText());
+                        dashes.add(true);
+                    }
+                } else {
+                    for(Element container : jidelnicekDen.select(".container")) {
+                        descriptions.add(container.select(".jidelnicekItem").last().text());
+                        dashes.add(false);
+                    }
+                }
+            }
+        }
+
+        for(String edgeCase : EDGE_CASES) {
+            for(boolean stripDashes : new boolean[] {false, true}) {
+                descriptions.add(edgeCase);
+                dashes.add(stripDashes);
+            }
+        }
+
+        corpus = descriptions.toArray(new String[0]);
+        stripLeadingDashes = new boolean[dashes.size()];
+        for(int i = 0; i < stripLeadingDashes.length; i++)
+            stripLeadingDashes[i] = dashes.get(i);
+
+        for(int i = 0; i < corpus.length; i++) {
+            String expected = regexBased(corpus[i], stripLeadingDashes[i]);
+            String actual = singlePass(corpus[i], stripLeadingDashes[i]);
+
+            if(!expected.equals(actual))
+                throw new IllegalStateException("The normalizer's output differs: \"" + corpus[i] + "\" -> \"" + actual + "\" instead of \"" + expected + "\"");
+        }
+    }
+
+    @Benchmark
+    public void regexBased(Blackhole blackhole) {
+        for(int i = 0; i < corpus.length; i++)
+            blackhole.consume(regexBased(corpus[i], stripLeadingDashes[i]));
+    }
+
+    @Benchmark
+    public void singlePass(Blackhole blackhole) {
+        for(int i = 0; i < corpus.length; i++)
+            blackhole.consume(singlePass(corpus[i], stripLeadingDashes[i]));
+    }
+
+    private static String regexBased(String dishDescription, boolean stripLeadingDashes) {
+        if(stripLeadingDashes)
+            dishDescription = dishDescription.replaceAll("^(\\s*--)+", "");
+
+        dishDescription = dishDescription.trim();
+        dishDescription = dishDescription.replace("*", "");
+        dishDescription = dishDescription.replace(",", ", ");
+        dishDescription = dishDescription.replaceAll("\\s+,", ",");
+        dishDescription = dishDescription.replaceAll("\\s+", " ");
+
+        return dishDescription.trim();
+    }
+
+    private static String singlePass(String dishDescription, boolean stripLeadingDashes) {
+        if(stripLeadingDashes)
+            dishDescription = DishDescriptionNormalizer.stripLeadingDashes(dishDescription);
+
+        return DishDescriptionNormalizer.normalize(dishDescription);
+    }
+}
@@ -0,0 +1,134 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares extracting many food menus at once with ICanteenExtractor.extractAll() on a pool of platform threads and on
+ * virtual threads (Java 21+), against StubICanteenServer with a high latency - i.e. when the threads spend nearly all
+ * their time blocked. It reports the throughput and the peak number of live threads of each mode. The options are
+ * passed as name=value arguments, e.g.:
+ * java -cp target/benchmarks.jar cz.vitlabuda.icanteenextractor.FanOutBenchmark extractions=20000 latency=500 (mind the open files limit)
+ *
+ * extractions (5000), latency (ms; 200), pool (the size of the platform thread pool; 200), rounds (3)
+ *
+ * The "platform" mode uses a pool of the specified size, "platform-per-fetch" uses a platform thread for each of the
+ * extractions, and "virtual" uses a virtual thread for each of them. The last two are limited only by the connections.
+ */
+public class FanOutBenchmark {
+    public static void main(String[] args) throws Exception {
+        int extractionCount = 5000;
+        int latencyMilliseconds = 200;
+        int poolSize = 200;
+        int roundCount = 3;
+        for(String arg : args) {
+            String[] option = arg.split("=", 2);
+            if(option.length != 2)
+                throw new IllegalArgumentException("Invalid option: " + arg + " (expected name=value)");
+
+            switch(option[0]) {
+                case "extractions": extractionCount = Integer.parseInt(option[1]); break;
+                case "latency": latencyMilliseconds = Integer.parseInt(option[1]); break;
+                case "pool": poolSize = Integer.parseInt(option[1]); break;
+                case "rounds": roundCount = Integer.parseInt(option[1]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + option[0]);
+            }
+        }
+
+        StubICanteenServer.Conditions conditions = new StubICanteenServer.Conditions(latencyMilliseconds, 0, 8192, 0, 0, 0);
+        try (StubICanteenServer server = new StubICanteenServer(conditions)) {
+            List<URL> urls = new ArrayList<>(extractionCount);
+            for(int i = 0; i < extractionCount; i++)
+                urls.add(server.getURL(Fixtures.VERSIONS[i % Fixtures.VERSIONS.length], "small"));
+
+            System.out.printf("server: %s%n", conditions);
+            System.out.printf("load: %d extractions at once, Java %s%n", extractionCount, System.getProperty("java.version"));
+
+            for(int round = 1; round <= roundCount; round++) {
+                run("platform", false, urls, poolSize, round);
+                run("platform-per-fetch", false, urls, extractionCount, round);
+                if(ICanteenExtractor.isVirtualThreadSupported())
+                    run("virtual", true, urls, extractionCount, round);
+                else if(round == 1)
+                    System.out.println("virtual: not supported by this Java version (21+ is needed)");
+            }
+        }
+    }
+
+    private static void run(String mode, boolean virtualThreadsEnabled, List<URL> urls, int maxConcurrentFetches, int round) {
+        ICanteenExtractor extractor = new ICanteenExtractor.Builder()
+                .setHTTPTransport(new PooledHTTPTransport(maxConcurrentFetches, PooledHTTPTransport.DEFAULT_IDLE_TIMEOUT_MILLISECONDS))
+                .setTimeoutMilliseconds(60000)
+                .setVirtualThreadsEnabled(virtualThreadsEnabled)
+                .build();
+
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean(); // counts only the platform threads
+        System.gc();
+        threadMXBean.resetPeakThreadCount();
+
+        long startTime = System.nanoTime();
+        List<ExtractionResult> results;
+        try {
+            results = extractor.extractAll(urls, maxConcurrentFetches);
+        } catch (OutOfMemoryError e) { // "unable to create native thread"
+            System.out.printf("round %d, %-18s: failed (%s)%n", round, mode, e.getMessage());
+            return;
+        }
+        double elapsedSeconds = (System.nanoTime() - startTime) / 1e9;
+
+        int failedCount = 0;
+        for(ExtractionResult result : results) {
+            if(result.getException() != null)
+                failedCount++;
+        }
+
+        System.out.printf("round %d, %-18s: %d extractions (%d failed) in %.2f s = %.0f extractions/s, peak %d platform threads%n",
+                round, mode, results.size(), failedCount, elapsedSeconds, results.size() / elapsedSeconds, threadMXBean.getPeakThreadCount());
+    }
+}
@@ -0,0 +1,235 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing and reading a JSON Lines dump of the food menus of many canteens (the large fixtures of all the
+ * layout versions in turn, i.e. 130 days per canteen). JSONFoodMenuWriter is compared with the usual hand-written
+ * conversion, which builds a tree of maps and lists for each food menu and then serializes it.
+ * Run with "-prof gc" to see the allocation of each of the approaches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JSONFormatBenchmark {
+    @Param({"1", "100"})
+    public int canteenCount;
+
+    private List<FoodMenu> foodMenus;
+    private byte[] jsonBytes;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<FoodMenu> parsedFoodMenus = new ArrayList<>();
+        for(String version : Fixtures.VERSIONS)
+            parsedFoodMenus.add(StreamingMenuParser.parse(new StringReader(Fixtures.load(version, "large"))));
+
+        foodMenus = new ArrayList<>();
+        for(int i = 0; i < canteenCount; i++)
+            foodMenus.add(parsedFoodMenus.get(i % parsedFoodMenus.size()));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (JSONFoodMenuWriter writer = new JSONFoodMenuWriter(outputStream)) {
+            for(FoodMenu foodMenu : foodMenus)
+                writer.writeFoodMenu(foodMenu);
+        }
+        jsonBytes = outputStream.toByteArray();
+
+        // Both of the writers must produce the same JSON, or the comparison is meaningless.
+        ByteArrayOutputStream treeOutputStream = new ByteArrayOutputStream();
+        writeMapTree(treeOutputStream);
+        if(!new String(jsonBytes, StandardCharsets.UTF_8).equals(new String(treeOutputStream.toByteArray(), StandardCharsets.UTF_8)))
+            throw new IllegalStateException("The JSON written from the map trees differs from JSONFoodMenuWriter's one!");
+    }
+
+    @Benchmark
+    public long writeStreaming() throws IOException {
+        CountingOutputStream outputStream = new CountingOutputStream();
+        try (JSONFoodMenuWriter writer = new JSONFoodMenuWriter(outputStream)) {
+            for(FoodMenu foodMenu : foodMenus)
+                writer.writeFoodMenu(foodMenu);
+        }
+
+        return outputStream.count;
+    }
+
+    @Benchmark
+    public long writeMapTree() throws IOException {
+        CountingOutputStream outputStream = new CountingOutputStream();
+        writeMapTree(outputStream);
+
+        return outputStream.count;
+    }
+
+    @Benchmark
+    public int readStreaming() throws IOException {
+        int dayCount = 0;
+        try (JSONFoodMenuReader reader = new JSONFoodMenuReader(new ByteArrayInputStream(jsonBytes))) {
+            FoodMenu foodMenu;
+            while((foodMenu = reader.readFoodMenu()) != null)
+                dayCount += foodMenu.getDays().size();
+        }
+
+        return dayCount;
+    }
+
+    private void writeMapTree(OutputStream outputStream) throws IOException {
+        try (Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)) {
+            for(FoodMenu foodMenu : foodMenus) {
+                StringBuilder stringBuilder = new StringBuilder();
+                appendJSON(stringBuilder, toMapTree(foodMenu));
+                writer.write(stringBuilder.append('\n').toString());
+            }
+        }
+    }
+
+    private static Map<String, Object> toMapTree(FoodMenu foodMenu) {
+        List<Object> days = new ArrayList<>();
+        for(FoodMenu.Day day : foodMenu.getDays()) {
+            List<Object> dishes = new ArrayList<>();
+            for(FoodMenu.Dish dish : day.getDishes()) {
+                Map<String, Object> dishMap = new LinkedHashMap<>();
+                dishMap.put("name", dish.getDishName());
+                dishMap.put("place", dish.getDishPlace());
+                dishMap.put("description", dish.getDishDescription());
+                dishes.add(dishMap);
+            }
+
+            Map<String, Object> dayMap = new LinkedHashMap<>();
+            dayMap.put("date", day.getLocalDate().toString());
+            dayMap.put("dishes", dishes);
+            days.add(dayMap);
+        }
+
+        Map<String, Object> foodMenuMap = new LinkedHashMap<>();
+        foodMenuMap.put("days", days);
+
+        return foodMenuMap;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void appendJSON(StringBuilder stringBuilder, Object value) {
+        if(value instanceof Map) {
+            stringBuilder.append('{');
+            boolean first = true;
+            for(Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                if(!first)
+                    stringBuilder.append(',');
+                first = false;
+
+                appendJSON(stringBuilder, entry.getKey());
+                stringBuilder.append(':');
+                appendJSON(stringBuilder, entry.getValue());
+            }
+            stringBuilder.append('}');
+
+        } else if(value instanceof List) {
+            stringBuilder.append('[');
+            boolean first = true;
+            for(Object element : (List<Object>) value) {
+                if(!first)
+                    stringBuilder.append(',');
+                first = false;
+
+                appendJSON(stringBuilder, element);
+            }
+            stringBuilder.append(']');
+
+        } else {
+            stringBuilder.append('"');
+            for(char currentChar : ((String) value).toCharArray()) {
+                if(currentChar == '"' || currentChar == '\\')
+                    stringBuilder.append('\\').append(currentChar);
+                else if(currentChar < 0x20 || currentChar == '\u2028' || currentChar == '\u2029')
+                    stringBuilder.append(String.format("\\u%04x", (int) currentChar));
+                else
+                    stringBuilder.append(currentChar);
+            }
+            stringBuilder.append('"');
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        long count = 0;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs many concurrent extractions against StubICanteenServer and reports their latency percentiles, the throughput
+ * and the errors (grouped by the exception's type and message). The options are passed as name=value arguments, e.g.:
+ * java -cp target/benchmarks.jar cz.vitlabuda.icanteenextractor.LoadTest concurrency=64 latency=50 bandwidth=100000
+ *
+ * Load:      concurrency (16), requests (2000), warmup (500), versions (all of them), size (typical)
+ * Extractor: transport (pooled or urlconnection), connections (per host, pooled transport only; the concurrency),
+ *            timeout (ms; 5000), coalescing (the time to live of CoalescingMenuCache in ms, or off; off),
+ *            retries (the maximum number of attempts; 1), backoff (the initial and maximum backoff in ms; 10,1000),
+ *            breaker (the failure threshold of the circuit breakers; 0 = off), ratelimit (requests/s per host; 0 = off)
+ * Server:    latency (ms; 0), bandwidth (B/s; 0 = unlimited), chunk (B; 8192), interval (ms between chunks; 0),
+ *            errors (the fraction of HTTP 503 responses; 0), disconnects (the fraction of cut off bodies; 0)
+ */
+public class LoadTest {
+    private static final String[] OPTION_NAMES = new String[] {
+        "concurrency", "requests", "warmup", "versions", "size", "transport", "connections", "timeout",
+        "coalescing", "retries", "backoff", "breaker", "ratelimit",
+        "latency", "bandwidth", "chunk", "interval", "errors", "disconnects"
+    };
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+        int requestCount = Integer.parseInt(options.getOrDefault("requests", "2000"));
+        int warmupRequestCount = Integer.parseInt(options.getOrDefault("warmup", "500"));
+        String[] versions = options.containsKey("versions") ? options.get("versions").split(",") : Fixtures.VERSIONS;
+        String size = options.getOrDefault("size", "typical");
+
+        StubICanteenServer.Conditions conditions = new StubICanteenServer.Conditions(
+                Integer.parseInt(options.getOrDefault("latency", "0")),
+                Long.parseLong(options.getOrDefault("bandwidth", "0")),
+                Integer.parseInt(options.getOrDefault("chunk", "8192")),
+                Integer.parseInt(options.getOrDefault("interval", "0")),
+                Double.parseDouble(options.getOrDefault("errors", "0")),
+                Double.parseDouble(options.getOrDefault("disconnects", "0"))
+        );
+
+        HTTPTransport httpTransport;
+        String transportName = options.getOrDefault("transport", "pooled");
+        if(transportName.equals("pooled"))
+            httpTransport = new PooledHTTPTransport(Integer.parseInt(options.getOrDefault("connections", String.valueOf(concurrency))), PooledHTTPTransport.DEFAULT_IDLE_TIMEOUT_MILLISECONDS);
+        else if(transportName.equals("urlconnection"))
+            httpTransport = new URLConnectionHTTPTransport();
+        else
+            throw new IllegalArgumentException("Unknown transport: " + transportName);
+
+        ResilientHTTPTransport resilientHTTPTransport = null;
+        int failureThreshold = Integer.parseInt(options.getOrDefault("breaker", "0"));
+        double requestsPerSecond = Double.parseDouble(options.getOrDefault("ratelimit", "0"));
+        if(failureThreshold > 0 || requestsPerSecond > 0) {
+            resilientHTTPTransport = new ResilientHTTPTransport.Builder(httpTransport)
+                    .setCircuitBreaker(failureThreshold, 1000)
+                    .setRateLimit(requestsPerSecond, Math.max((int) requestsPerSecond / 10, 1))
+                    .build();
+        }
+
+        String[] backoff = options.getOrDefault("backoff", "10,1000").split(",");
+        RetryPolicy retryPolicy = new RetryPolicy(Integer.parseInt(options.getOrDefault("retries", "1")), Long.parseLong(backoff[0]), Long.parseLong(backoff[1]));
+
+        LongAdder retryCount = new LongAdder();
+        ExtractionMetrics metrics = new ExtractionMetrics() {
+            @Override
+            public void retrying(URL url, int failedAttempt, ICanteenExtractorException exception, long backoffNanoseconds) {
+                retryCount.increment();
+            }
+        };
+
+        CoalescingMenuCache coalescingMenuCache = null;
+        String coalescing = options.getOrDefault("coalescing", "off");
+        if(!coalescing.equals("off"))
+            coalescingMenuCache = new CoalescingMenuCache(CoalescingMenuCache.DEFAULT_MAX_ENTRIES, Long.parseLong(coalescing));
+
+        ICanteenExtractor extractor = new ICanteenExtractor.Builder()
+                .setHTTPTransport((resilientHTTPTransport != null) ? resilientHTTPTransport : httpTransport)
+                .setTimeoutMilliseconds(Integer.parseInt(options.getOrDefault("timeout", "5000")))
+                .setRetryPolicy(retryPolicy)
+                .setMetrics(metrics)
+                .setCoalescingMenuCache(coalescingMenuCache)
+                .build();
+
+        try (StubICanteenServer server = new StubICanteenServer(conditions)) {
+            URL[] urls = new URL[versions.length];
+            for(int i = 0; i < versions.length; i++)
+                urls[i] = server.getURL(versions[i], size);
+
+            System.out.printf("server: %s%n", conditions);
+            System.out.printf("load: %d concurrent extractions, %s transport, %s pages of %s%n", concurrency, transportName, size, String.join(", ", versions));
+
+            run(extractor, urls, warmupRequestCount, concurrency);
+            Result result = run(extractor, urls, requestCount, concurrency);
+            result.print();
+
+            if(httpTransport instanceof PooledHTTPTransport) {
+                PooledHTTPTransport pooledHTTPTransport = (PooledHTTPTransport) httpTransport;
+                System.out.printf("connections: %d opened, %d reused (including the warmup)%n", pooledHTTPTransport.getConnectionsOpened(), pooledHTTPTransport.getConnectionsReused());
+            }
+
+            System.out.printf("retries: %d (including the warmup)%n", retryCount.sum());
+            if(resilientHTTPTransport != null)
+                System.out.printf("resilience: %d requests rejected by open circuits, %d delayed by the rate limit (including the warmup)%n", resilientHTTPTransport.getRejectedRequestCount(), resilientHTTPTransport.getDelayedRequestCount());
+
+            if(coalescingMenuCache != null)
+                System.out.printf("coalescing: %d hits, %d misses, %d coalesced (including the warmup)%n", coalescingMenuCache.getHitCount(), coalescingMenuCache.getMissCount(), coalescingMenuCache.getCoalescedCount());
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        List<String> optionNames = Arrays.asList(OPTION_NAMES);
+
+        Map<String, String> options = new LinkedHashMap<>();
+        for(String arg : args) {
+            int equalsIndex = arg.indexOf('=');
+            if(equalsIndex == -1 || !optionNames.contains(arg.substring(0, equalsIndex)))
+                throw new IllegalArgumentException("Invalid option: " + arg + " (expected name=value, where name is one of " + optionNames + ")");
+
+            options.put(arg.substring(0, equalsIndex), arg.substring(equalsIndex + 1));
+        }
+
+        return options;
+    }
+
+    // The URLs are requested in turns.
+    private static Result run(ICanteenExtractor extractor, URL[] urls, int requestCount, int concurrency) throws InterruptedException {
+        long[] latencies = new long[requestCount]; // in nanoseconds
+        ConcurrentHashMap<String, LongAdder> errorCounts = new ConcurrentHashMap<>();
+        AtomicInteger nextRequest = new AtomicInteger();
+
+        ExecutorService executorService = Executors.newFixedThreadPool(concurrency);
+        long startTime = System.nanoTime();
+
+        for(int i = 0; i < concurrency; i++) {
+            executorService.execute(() -> {
+                int request;
+                while((request = nextRequest.getAndIncrement()) < requestCount) {
+                    long requestStartTime = System.nanoTime();
+                    try {
+                        extractor.extract(urls[request % urls.length]);
+                    } catch (ICanteenExtractorException | RuntimeException e) {
+                        errorCounts.computeIfAbsent(describeError(e), key -> new LongAdder()).increment();
+                    }
+
+                    latencies[request] = System.nanoTime() - requestStartTime;
+                }
+            });
+        }
+
+        executorService.shutdown();
+        executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS); // also makes the latencies visible
+
+        return new Result(latencies, System.nanoTime() - startTime, errorCounts);
+    }
+
+    private static String describeError(Exception exception) {
+        String description = exception.getClass().getSimpleName() + ": " + exception.getMessage();
+
+        Throwable cause = (exception instanceof ICanteenExtractorException) ? ((ICanteenExtractorException) exception).getCarriedError() : exception.getCause();
+        if(cause != null)
+            description += " (" + cause.getClass().getSimpleName() + ": " + cause.getMessage() + ")";
+
+        return description;
+    }
+
+    private static final class Result {
+        private final long[] sortedLatencies;
+        private final long elapsedNanoseconds;
+        private final Map<String, LongAdder> errorCounts;
+
+        Result(long[] latencies, long elapsedNanoseconds, Map<String, LongAdder> errorCounts) {
+            this.sortedLatencies = latencies.clone();
+            Arrays.sort(sortedLatencies);
+
+            this.elapsedNanoseconds = elapsedNanoseconds;
+            this.errorCounts = errorCounts;
+        }
+
+        void print() {
+            long failedCount = 0;
+            for(LongAdder errorCount : errorCounts.values())
+                failedCount += errorCount.sum();
+
+            double elapsedSeconds = elapsedNanoseconds / 1e9;
+            System.out.printf("requests: %d (%d succeeded, %d failed) in %.2f s = %.1f extractions/s%n",
+                    sortedLatencies.length, sortedLatencies.length - failedCount, failedCount, elapsedSeconds, sortedLatencies.length / elapsedSeconds);
+            System.out.printf("latency: p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms%n",
+                    percentile(0.5), percentile(0.99), percentile(0.999), percentile(1.0));
+
+            List<Map.Entry<String, LongAdder>> errors = new ArrayList<>(errorCounts.entrySet());
+            errors.sort((entry1, entry2) -> Long.compare(entry2.getValue().sum(), entry1.getValue().sum()));
+            for(Map.Entry<String, LongAdder> error : errors)
+                System.out.printf("error: %6d x %s%n", error.getValue().sum(), error.getKey());
+        }
+
+        // The nearest-rank percentile, in milliseconds.
+        private double percentile(double fraction) {
+            if(sortedLatencies.length == 0)
+                return 0;
+
+            int rank = (int) Math.ceil(fraction * sortedLatencies.length);
+
+            return sortedLatencies[Math.max(rank, 1) - 1] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the lookups in a MenuArchive holding ten years of history of 50 canteens (about 180,000 days). The date
+ * range lookup is compared with what the archive replaces - a serialized FoodMenu per canteen, which has to be read
+ * and deserialized as a whole to find the days in the range.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MenuArchiveBenchmark {
+    private static final int CANTEEN_COUNT = 50;
+    private static final int HISTORY_DAY_COUNT = 3650;
+    private static final LocalDate HISTORY_START = LocalDate.of(2012, 1, 1);
+
+    private Path directory;
+    private MenuArchive menuArchive;
+    private URL[] urls;
+    private FoodMenu storedFoodMenu;
+
+    @Setup
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("menu-archive-benchmark");
+        menuArchive = new MenuArchive(directory.resolve("archive"));
+
+        // The large fixtures (130 days each) are shifted to cover the whole history.
+        FoodMenu[] foodMenus = new FoodMenu[Fixtures.VERSIONS.length];
+        for(int i = 0; i < foodMenus.length; i++)
+            foodMenus[i] = StreamingMenuParser.parse(new StringReader(Fixtures.load(Fixtures.VERSIONS[i], "large")));
+
+        urls = new URL[CANTEEN_COUNT];
+        for(int canteen = 0; canteen < CANTEEN_COUNT; canteen++) {
+            urls[canteen] = new URL("https://strav.nasejidelna.cz/" + canteen + "/login");
+
+            FoodMenu history = new FoodMenu();
+            for(int block = 0; block * 130 < HISTORY_DAY_COUNT; block++) {
+                FoodMenu foodMenu = shift(foodMenus[(canteen + block) % foodMenus.length], block * 130);
+                menuArchive.store(urls[canteen], foodMenu);
+                history.getDays().addAll(foodMenu.getDays());
+            }
+
+            try (OutputStream outputStream = Files.newOutputStream(getSerializedPath(canteen)); ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+                objectOutputStream.writeObject(history);
+            }
+        }
+        menuArchive.flush();
+
+        storedFoodMenu = shift(foodMenus[0], 0); // stored for the canteen 0 above
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        menuArchive.close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public FoodMenu.Day archiveDay() throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        return menuArchive.getDay(urls[random.nextInt(CANTEEN_COUNT)], HISTORY_START.plusDays(random.nextInt(HISTORY_DAY_COUNT)));
+    }
+
+    @Benchmark
+    public FoodMenu archiveMonth() throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate from = HISTORY_START.plusDays(random.nextInt(HISTORY_DAY_COUNT - 30));
+
+        return menuArchive.getDays(urls[random.nextInt(CANTEEN_COUNT)], from, from.plusDays(30));
+    }
+
+    @Benchmark
+    public FoodMenu serializedMonth() throws IOException, ClassNotFoundException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate from = HISTORY_START.plusDays(random.nextInt(HISTORY_DAY_COUNT - 30));
+        LocalDate to = from.plusDays(30);
+
+        FoodMenu history;
+        try (InputStream inputStream = Files.newInputStream(getSerializedPath(random.nextInt(CANTEEN_COUNT))); ObjectInputStream objectInputStream = new ObjectInputStream(inputStream)) {
+            history = (FoodMenu) objectInputStream.readObject();
+        }
+
+        history.getDays().removeIf(day -> day.getLocalDate().isBefore(from) || day.getLocalDate().isAfter(to));
+        return history;
+    }
+
+    // Storing a food menu which is already in the archive, which is what the archive does most of the time.
+    @Benchmark
+    public int archiveStoreUnchanged() throws IOException {
+        return menuArchive.store(urls[0], storedFoodMenu);
+    }
+
+    private Path getSerializedPath(int canteen) {
+        return directory.resolve("history-" + canteen + ".ser");
+    }
+
+    private static FoodMenu shift(FoodMenu foodMenu, int dayCount) {
+        LocalDate firstDate = foodMenu.getDays().get(0).getLocalDate();
+
+        FoodMenu shiftedFoodMenu = new FoodMenu();
+        for(FoodMenu.Day day : foodMenu.getDays()) {
+            LocalDate date = HISTORY_START.plusDays(dayCount + (day.getLocalDate().toEpochDay() - firstDate.toEpochDay()));
+
+            FoodMenu.Day shiftedDay = new FoodMenu.Day(date);
+            shiftedDay.getDishes().addAll(day.getDishes());
+            shiftedFoodMenu.getDays().add(shiftedDay);
+        }
+
+        return shiftedFoodMenu;
+    }
+}
@@ -0,0 +1,178 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of the individual food menu parsers, of the parser fallback in ICanteenExtractor and of the
+ * food menu's verification, on every fixture. The parsers' benchmarks use an already built Document; a parser which
+ * doesn't support the fixture's layout returns the exception it has failed with, as failing fast is a part of the
+ * fallback's cost too.
+ *
+ * The main() method runs the benchmarks with the GC profiler, which reports the allocation rate (the same as running
+ * the benchmarks' jar with "-prof gc"):
+ * java -cp target/benchmarks.jar cz.vitlabuda.icanteenextractor.MenuParsingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MenuParsingBenchmark {
+    @Param({"2.17.20", "2.17.15", "2.17.14", "2.14.18"})
+    public String version;
+
+    @Param({"small", "typical", "large"})
+    public String size;
+
+    private final NewExtendedMenuParser newExtendedMenuParser = new NewExtendedMenuParser();
+    private final SimpleMenuParser simpleMenuParser = new SimpleMenuParser();
+    private final OldExtendedMenuParser oldExtendedMenuParser = new OldExtendedMenuParser();
+
+    private URL url;
+    private String canteenKey;
+    private PageContent content;
+    private Document document;
+    private ICanteenExtractor warmExtractor;
+    private FoodMenu foodMenu;
+
+    @Setup
+    public void setUp() throws Exception {
+        url = new URL("https://strav.nasejidelna.cz/0051/login");
+        canteenKey = url.getAuthority() + url.getPath();
+
+        byte[] bytes = Fixtures.loadBytes(version, size);
+        content = PageContent.read(new ByteArrayInputStream(bytes), bytes.length, "UTF-8");
+        document = Jsoup.parse(content.asInputStream(), content.getCharsetName(), url.toString());
+
+        // The extractor remembers which parser has succeeded on the canteen, so the layout isn't detected again.
+        warmExtractor = new ICanteenExtractor();
+        warmExtractor.parseHTMLToFoodMenuUsingDOM(content, url, canteenKey, System.nanoTime(), 0);
+
+        // The fixtures contain no incomplete dishes, so the verification doesn't change the food menu - it can be
+        // verified over and over again.
+        foodMenu = warmExtractor.parseHTMLToFoodMenu(content, url, canteenKey);
+        warmExtractor.verifyParsedFoodMenu(url, foodMenu);
+    }
+
+    @Benchmark
+    public Object newExtendedMenuParser() {
+        return parse(newExtendedMenuParser);
+    }
+
+    @Benchmark
+    public Object simpleMenuParser() {
+        return parse(simpleMenuParser);
+    }
+
+    @Benchmark
+    public Object oldExtendedMenuParser() {
+        return parse(oldExtendedMenuParser);
+    }
+
+    // The first extraction from a canteen - the layout has to be detected. Includes parsing the webpage into a Document.
+    @Benchmark
+    public FoodMenu fallbackDetectingLayout() throws ICanteenExtractorException {
+        return new ICanteenExtractor().parseHTMLToFoodMenuUsingDOM(content, url, canteenKey, System.nanoTime(), 0);
+    }
+
+    // The parser which has succeeded the last time is tried first. Includes parsing the webpage into a Document.
+    @Benchmark
+    public FoodMenu fallbackWithCachedParser() throws ICanteenExtractorException {
+        return warmExtractor.parseHTMLToFoodMenuUsingDOM(content, url, canteenKey, System.nanoTime(), 0);
+    }
+
+    // What extract() does - the streaming parser first, with the DOM-based parsers as the fallback.
+    @Benchmark
+    public FoodMenu streamingWithFallback() throws ICanteenExtractorException {
+        return warmExtractor.parseHTMLToFoodMenu(content, url, canteenKey);
+    }
+
+    @Benchmark
+    public FoodMenu verifyParsedFoodMenu() throws ICanteenExtractorException {
+        warmExtractor.verifyParsedFoodMenu(url, foodMenu);
+
+        return foodMenu;
+    }
+
+    private Object parse(FoodMenuParserBase foodMenuParser) {
+        try {
+            return foodMenuParser.parseHTMLToFoodMenu(document);
+        } catch (Exception | Error e) {
+            return e;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MenuParsingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
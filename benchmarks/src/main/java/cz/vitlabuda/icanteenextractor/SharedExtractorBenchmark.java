@@ -0,0 +1,123 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of 64 threads extracting the food menus from StubICanteenServer, either all through a
+ * single shared ICanteenExtractor, or each extraction through a new instance (with the same HTTP transport). The two
+ * should be the same - i.e. the threads sharing an instance shouldn't contend on anything - or the shared instance
+ * faster, as it remembers the parsers of the canteens.
+ * java -jar target/benchmarks.jar SharedExtractorBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(64)
+@Fork(1)
+public class SharedExtractorBenchmark {
+    @Param({"small", "typical"})
+    public String size;
+
+    // Each thread goes through the fixtures in turns.
+    @State(Scope.Thread)
+    public static class Turn {
+        private int index = 0;
+    }
+
+    private StubICanteenServer server;
+    private URL[] urls;
+    private PooledHTTPTransport httpTransport;
+    private ICanteenExtractor sharedExtractor;
+
+    @Setup
+    public void setUp() throws Exception {
+        server = new StubICanteenServer(new StubICanteenServer.Conditions(0, 0, 8192, 0, 0, 0));
+
+        urls = new URL[Fixtures.VERSIONS.length];
+        for(int i = 0; i < urls.length; i++)
+            urls[i] = server.getURL(Fixtures.VERSIONS[i], size);
+
+        httpTransport = new PooledHTTPTransport(64, PooledHTTPTransport.DEFAULT_IDLE_TIMEOUT_MILLISECONDS);
+        sharedExtractor = new ICanteenExtractor.Builder().setHTTPTransport(httpTransport).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+        httpTransport.closeIdleConnections();
+    }
+
+    @Benchmark
+    public FoodMenu sharedExtractor(Turn turn) throws ICanteenExtractorException {
+        return sharedExtractor.extract(nextURL(turn));
+    }
+
+    @Benchmark
+    public FoodMenu extractorPerCall(Turn turn) throws ICanteenExtractorException {
+        return new ICanteenExtractor.Builder().setHTTPTransport(httpTransport).build().extract(nextURL(turn));
+    }
+
+    private URL nextURL(Turn turn) {
+        return urls[turn.index++ % urls.length];
+    }
+}
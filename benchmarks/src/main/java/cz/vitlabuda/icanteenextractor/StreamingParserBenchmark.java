@@ -0,0 +1,224 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the streaming parser with building the DOM and running the DOM-based parsers on it. Both of them start
+ * from the raw bytes of the webpage. Run with "-prof gc" to see the allocation per extraction.
+ *
+ * The peak heap use can't be measured by JMH - run the class's main() method to print the live heap (measured after
+ * a full GC) that each of the approaches needs in the middle of parsing. To filter out the noise, the webpage is
+ * parsed by many threads at once, which all stop at the same point:
+ * java -cp target/benchmarks.jar cz.vitlabuda.icanteenextractor.StreamingParserBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamingParserBenchmark {
+    @Param({"2.17.20", "2.17.15", "2.17.14", "2.14.18"})
+    public String version;
+
+    private static final FoodMenuParserBase[] FOOD_MENU_PARSERS = new FoodMenuParserBase[] {
+        new NewExtendedMenuParser(),
+        new SimpleMenuParser(),
+        new OldExtendedMenuParser()
+    };
+
+    private PageContent content;
+
+    @Setup
+    public void setUp() throws Exception {
+        content = readContent(version);
+
+        // Both of the approaches must produce the same food menu, or the comparison is meaningless.
+        if(!describe(streaming()).equals(describe(dom())))
+            throw new IllegalStateException("The streaming parser's output differs from the DOM-based parsers' one! (" + version + ")");
+    }
+
+    @Benchmark
+    public FoodMenu dom() throws IOException {
+        return parseDOM(Jsoup.parse(content.asInputStream(), content.getCharsetName(), ""));
+    }
+
+    @Benchmark
+    public FoodMenu streaming() throws Exception {
+        try (Reader reader = content.openReader()) {
+            return StreamingMenuParser.parse(reader);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%-10s %16s %16s%n", "version", "DOM (kB)", "streaming (kB)");
+        for(String version : Fixtures.VERSIONS) {
+            PageContent content = readContent(version);
+            int dayCount = parseDOM(Jsoup.parse(content.asInputStream(), content.getCharsetName(), "")).getDays().size();
+
+            // The DOM is complete (and the food menu not yet extracted from it) when the thread stops.
+            double domPeak = measurePeakHeapUse(pause -> {
+                Document document = Jsoup.parse(content.asInputStream(), content.getCharsetName(), "");
+                pause.run();
+                parseDOM(document);
+            });
+
+            // The streaming parser stops in the middle of the webpage.
+            double streamingPeak = measurePeakHeapUse(pause -> {
+                int[] parsedDayCount = new int[1];
+                try (Reader reader = content.openReader()) {
+                    StreamingMenuParser.parse(reader, day -> {
+                        if(++parsedDayCount[0] == dayCount / 2)
+                            pause.run();
+                    });
+                }
+            });
+
+            System.out.printf("%-10s %16.1f %16.1f%n", version, domPeak / 1024.0, streamingPeak / 1024.0);
+        }
+    }
+
+    private interface HeapUseMeasurement {
+        void parse(Runnable pause) throws Exception;
+    }
+
+    // Returns the live heap per parsing thread, in bytes.
+    private static double measurePeakHeapUse(HeapUseMeasurement measurement) throws Exception {
+        final int threadCount = 32;
+        CyclicBarrier cyclicBarrier = new CyclicBarrier(threadCount + 1);
+        Runnable barrier = () -> {
+            try {
+                cyclicBarrier.await();
+            } catch (InterruptedException | BrokenBarrierException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        Runnable pause = () -> { // the main thread measures the heap between the two barriers
+            barrier.run();
+            barrier.run();
+        };
+
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for(int i = 0; i < threadCount; i++) {
+                futures.add(executorService.submit(() -> {
+                    pause.run(); // the baseline
+                    measurement.parse(pause); // the peak
+                    return null;
+                }));
+            }
+
+            barrier.run();
+            long baseline = LiveHeap.measure();
+            barrier.run();
+
+            barrier.run();
+            long peak = LiveHeap.measure();
+            barrier.run();
+
+            for(Future<?> future : futures)
+                future.get();
+
+            return (peak - baseline) / (double) threadCount;
+        } finally {
+            // The threads of the previous measurement must not be alive during the next one's baseline.
+            executorService.shutdown();
+            executorService.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    private static PageContent readContent(String version) throws IOException {
+        byte[] bytes = Fixtures.loadBytes(version, "typical");
+
+        return PageContent.read(new ByteArrayInputStream(bytes), bytes.length, "UTF-8");
+    }
+
+    private static FoodMenu parseDOM(Document document) {
+        for(FoodMenuParserBase foodMenuParser : FOOD_MENU_PARSERS) {
+            try {
+                return foodMenuParser.parseHTMLToFoodMenu(document);
+            } catch (Exception | Error ignored) {}
+        }
+
+        throw new IllegalStateException("No parser has succeeded!");
+    }
+
+    private static String describe(FoodMenu foodMenu) {
+        StringBuilder stringBuilder = new StringBuilder();
+        for(FoodMenu.Day day : foodMenu.getDays()) {
+            stringBuilder.append(day.getLocalDate()).append('\n');
+            for(FoodMenu.Dish dish : day.getDishes())
+                stringBuilder.append(dish.getDishName()).append('|').append(dish.getDishPlace()).append('|').append(dish.getDishDescription()).append('\n');
+        }
+
+        return stringBuilder.toString();
+    }
+}
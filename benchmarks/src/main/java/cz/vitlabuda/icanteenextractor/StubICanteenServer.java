@@ -0,0 +1,213 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A local HTTP server which serves the fixture login pages (at /version/size/login, e.g. /2.17.20/typical/login) under
+ * simulated network conditions. Every request is handled by its own thread, so the server doesn't limit the load.
+ */
+final class StubICanteenServer implements AutoCloseable {
+    static final class Conditions {
+        private final int latencyMilliseconds;
+        private final long bandwidthBytesPerSecond;
+        private final int chunkBytes;
+        private final int chunkIntervalMilliseconds;
+        private final double errorRate;
+        private final double disconnectRate;
+
+        /**
+         * @param latencyMilliseconds The delay before the response's headers are sent.
+         * @param bandwidthBytesPerSecond The maximum speed at which the body is sent, or 0 if it's unlimited.
+         * @param chunkBytes The size of the chunks in which the body is sent.
+         * @param chunkIntervalMilliseconds The pause after every chunk (a slow, drip-fed body), or 0.
+         * @param errorRate The fraction of the requests answered with HTTP error 503.
+         * @param disconnectRate The fraction of the responses whose body is cut off at a random point.
+         */
+        Conditions(int latencyMilliseconds, long bandwidthBytesPerSecond, int chunkBytes, int chunkIntervalMilliseconds, double errorRate, double disconnectRate) {
+            if(chunkBytes < 1)
+                throw new IllegalArgumentException("The chunk size must be at least 1 byte!");
+
+            this.latencyMilliseconds = latencyMilliseconds;
+            this.bandwidthBytesPerSecond = bandwidthBytesPerSecond;
+            this.chunkBytes = chunkBytes;
+            this.chunkIntervalMilliseconds = chunkIntervalMilliseconds;
+            this.errorRate = errorRate;
+            this.disconnectRate = disconnectRate;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("latency=%d ms, bandwidth=%s, chunks=%d B every %d ms, errors=%.2f %%, disconnects=%.2f %%",
+                    latencyMilliseconds, (bandwidthBytesPerSecond > 0) ? (bandwidthBytesPerSecond + " B/s") : "unlimited",
+                    chunkBytes, chunkIntervalMilliseconds, errorRate * 100, disconnectRate * 100);
+        }
+    }
+
+    private final Conditions conditions;
+    private final ConcurrentHashMap<String, byte[]> pages = new ConcurrentHashMap<>();
+    private final ExecutorService executorService;
+    private final HttpServer httpServer;
+
+    StubICanteenServer(Conditions conditions) throws IOException {
+        // Otherwise, Nagle's algorithm and the client's delayed ACKs add ~40 ms to every response.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+
+        this.conditions = conditions;
+
+        // With virtual threads (Java 21+), the server doesn't need an OS thread for each of the thousands of the slow
+        // responses in FanOutBenchmark.
+        if(VirtualThreads.isSupported()) {
+            executorService = VirtualThreads.newExecutor("stub-icanteen-server");
+        } else {
+            executorService = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "stub-icanteen-server");
+                thread.setDaemon(true);
+
+                return thread;
+            });
+        }
+
+        httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        httpServer.setExecutor(executorService);
+        httpServer.createContext("/", this::handle);
+        httpServer.start();
+    }
+
+    URL getURL(String version, String size) throws MalformedURLException {
+        InetSocketAddress address = httpServer.getAddress();
+
+        return new URL("http", address.getAddress().getHostAddress(), address.getPort(), "/" + version + "/" + size + "/login");
+    }
+
+    @Override
+    public void close() {
+        httpServer.stop(0);
+        executorService.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] page = findPage(exchange.getRequestURI().getPath());
+            if(page == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            sleep(conditions.latencyMilliseconds);
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if(random.nextDouble() < conditions.errorRate) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            // The Content-Length is always the full one, so the client can tell that the body is incomplete.
+            int sentLength = (random.nextDouble() < conditions.disconnectRate) ? random.nextInt(page.length) : page.length;
+
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
+            exchange.sendResponseHeaders(200, page.length);
+            sendBody(exchange.getResponseBody(), page, sentLength);
+
+        } finally {
+            exchange.close(); // closes the connection if the body is incomplete
+        }
+    }
+
+    private byte[] findPage(String path) {
+        String[] pathParts = path.split("/"); // "", version, size, "login"
+        if(pathParts.length != 4 || !pathParts[3].equals("login"))
+            return null;
+
+        try {
+            return pages.computeIfAbsent(pathParts[1] + "/" + pathParts[2], key -> Fixtures.loadBytes(pathParts[1], pathParts[2]));
+        } catch (IllegalArgumentException e) { // no such fixture
+            return null;
+        }
+    }
+
+    private void sendBody(OutputStream body, byte[] page, int length) throws IOException {
+        long startTime = System.nanoTime();
+
+        for(int offset = 0; offset < length; offset += conditions.chunkBytes) {
+            int chunkLength = Math.min(conditions.chunkBytes, length - offset);
+            body.write(page, offset, chunkLength);
+            body.flush();
+
+            long delayMilliseconds = conditions.chunkIntervalMilliseconds;
+            if(conditions.bandwidthBytesPerSecond > 0) {
+                long dueTime = startTime + (TimeUnit.SECONDS.toNanos(1) * (offset + chunkLength) / conditions.bandwidthBytesPerSecond);
+                delayMilliseconds = Math.max(delayMilliseconds, TimeUnit.NANOSECONDS.toMillis(dueTime - System.nanoTime()));
+            }
+
+            sleep(delayMilliseconds);
+        }
+    }
+
+    private static void sleep(long milliseconds) throws IOException {
+        if(milliseconds <= 0)
+            return;
+
+        try {
+            Thread.sleep(milliseconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("The server has been stopped!", e);
+        }
+    }
+}
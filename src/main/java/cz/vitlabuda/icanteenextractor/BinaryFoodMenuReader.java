@@ -0,0 +1,252 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+
+/**
+ * Reads the food menus written by BinaryFoodMenuWriter from a stream, either whole or day by day.
+ * The reader buffers the input, so it may read past the last food menu; the stream should contain nothing else.
+ * The class isn't thread-safe.
+ */
+public final class BinaryFoodMenuReader implements Closeable {
+    private final InputStream inputStream;
+    private final byte[] buffer;
+    private int bufferPosition = 0;
+    private int bufferLimit = 0;
+
+    private final ArrayList<String> dictionary = new ArrayList<>();
+    private long previousEpochDay = 0;
+
+    /**
+     * Instantiates the BinaryFoodMenuReader class and reads the format's header from the stream.
+     *
+     * @param inputStream The stream to read the food menus from.
+     * @throws IOException If the header can't be read, or if the stream isn't in a supported format.
+     */
+    public BinaryFoodMenuReader(InputStream inputStream) throws IOException {
+        this(inputStream, 8192);
+    }
+
+    // A small buffer is better for reading short streams, e.g. the single days stored by MenuArchive.
+    BinaryFoodMenuReader(InputStream inputStream, int bufferSize) throws IOException {
+        this.inputStream = inputStream;
+        this.buffer = new byte[bufferSize];
+
+        for(byte magicByte : BinaryFoodMenuFormat.MAGIC) {
+            if(readByte() != (magicByte & 0xFF))
+                throw new StreamCorruptedException("The stream doesn't contain serialized food menus!");
+        }
+
+        int version = readByte();
+        if(version != BinaryFoodMenuFormat.VERSION)
+            throw new StreamCorruptedException("Unsupported version of the food menu format! (" + version + ")");
+    }
+
+    /**
+     * Reads a whole food menu (or the rest of the current one, if some of its days have been read by readDay()).
+     *
+     * @return The food menu, or null if the end of the stream has been reached.
+     * @throws IOException If an I/O error occurs, or if the stream is corrupted or truncated.
+     */
+    public FoodMenu readFoodMenu() throws IOException {
+        if(bufferPosition == bufferLimit && !fillBuffer())
+            return null;
+
+        FoodMenu foodMenu = new FoodMenu();
+        FoodMenu.Day day;
+        while((day = readDay()) != null)
+            foodMenu.getDays().add(day);
+
+        return foodMenu;
+    }
+
+    /**
+     * Reads the next day of the current food menu.
+     *
+     * @return The day, or null if the end of the current food menu has been reached (the next call reads the first
+     *         day of the next food menu).
+     * @throws IOException If an I/O error occurs, or if the stream is corrupted or truncated.
+     */
+    public FoodMenu.Day readDay() throws IOException {
+        long dishCountPlusOne = readVarLong();
+        if(dishCountPlusOne == BinaryFoodMenuFormat.END_OF_FOOD_MENU) {
+            previousEpochDay = 0;
+            return null;
+        }
+
+        if(dishCountPlusOne < 0)
+            throw new StreamCorruptedException("The stream contains an invalid number of dishes!");
+
+        long epochDay = previousEpochDay + BinaryFoodMenuFormat.decodeZigZag(readVarLong());
+        previousEpochDay = epochDay;
+
+        FoodMenu.Day day;
+        try {
+            day = new FoodMenu.Day(LocalDate.ofEpochDay(epochDay));
+        } catch (DateTimeException e) {
+            throw new StreamCorruptedException("The stream contains an invalid date! (" + epochDay + ")");
+        }
+
+        // The count isn't used to size the list, since a corrupted one could be huge.
+        for(long i = 1; i < dishCountPlusOne; i++)
+            day.getDishes().add(FoodMenu.Dish.createNormalized(readString(), readString(), readString()));
+
+        return day;
+    }
+
+    /**
+     * Closes the underlying stream.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+
+    private String readString() throws IOException {
+        long reference = readVarLong();
+        if(reference != BinaryFoodMenuFormat.STRING_LITERAL) {
+            if(reference < 0 || reference > dictionary.size())
+                throw new StreamCorruptedException("The stream refers to a nonexistent string! (" + reference + ")");
+
+            return dictionary.get((int) reference - 1);
+        }
+
+        long length = readVarLong();
+        if(length < 0 || length > BinaryFoodMenuFormat.MAX_STRING_BYTES)
+            throw new StreamCorruptedException("The stream contains a too long string! (" + length + " bytes)");
+
+        String string;
+        if(length <= buffer.length) {
+            ensureBuffered((int) length);
+            string = new String(buffer, bufferPosition, (int) length, BinaryFoodMenuFormat.CHARSET);
+            bufferPosition += (int) length;
+        } else {
+            byte[] bytes = new byte[(int) length];
+            readBytes(bytes);
+            string = new String(bytes, BinaryFoodMenuFormat.CHARSET);
+        }
+
+        if(dictionary.size() < BinaryFoodMenuFormat.MAX_DICTIONARY_SIZE)
+            dictionary.add(string);
+
+        return string;
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for(int shift = 0; shift < 64; shift += 7) {
+            int currentByte = readByte();
+            value |= (long) (currentByte & 0x7F) << shift;
+            if((currentByte & 0x80) == 0)
+                return value;
+        }
+
+        throw new StreamCorruptedException("The stream contains an invalid number!");
+    }
+
+    private int readByte() throws IOException {
+        if(bufferPosition == bufferLimit && !fillBuffer())
+            throw new EOFException("The food menu stream has ended unexpectedly!");
+
+        return buffer[bufferPosition++] & 0xFF;
+    }
+
+    private void readBytes(byte[] bytes) throws IOException {
+        int offset = Math.min(bufferLimit - bufferPosition, bytes.length);
+        System.arraycopy(buffer, bufferPosition, bytes, 0, offset);
+        bufferPosition += offset;
+
+        while(offset < bytes.length) {
+            int readCount = inputStream.read(bytes, offset, bytes.length - offset);
+            if(readCount == -1)
+                throw new EOFException("The food menu stream has ended unexpectedly!");
+
+            offset += readCount;
+        }
+    }
+
+    // Makes the next length bytes (at most the buffer's size) available in the buffer.
+    private void ensureBuffered(int length) throws IOException {
+        if(bufferLimit - bufferPosition >= length)
+            return;
+
+        System.arraycopy(buffer, bufferPosition, buffer, 0, bufferLimit - bufferPosition);
+        bufferLimit -= bufferPosition;
+        bufferPosition = 0;
+
+        while(bufferLimit < length) {
+            int readCount = inputStream.read(buffer, bufferLimit, buffer.length - bufferLimit);
+            if(readCount == -1)
+                throw new EOFException("The food menu stream has ended unexpectedly!");
+
+            bufferLimit += readCount;
+        }
+    }
+
+    // Returns false at the end of the stream.
+    private boolean fillBuffer() throws IOException {
+        int readCount;
+        do {
+            readCount = inputStream.read(buffer, 0, buffer.length);
+        } while(readCount == 0);
+
+        if(readCount == -1)
+            return false;
+
+        bufferPosition = 0;
+        bufferLimit = readCount;
+
+        return true;
+    }
+}
@@ -0,0 +1,208 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+
+/**
+ * Writes food menus to a stream in a compact binary format, which can be read back by BinaryFoodMenuReader.
+ * Compared with Java serialization, the output is about half the size and several times faster to write and read -
+ * the dates are written as day numbers, the numbers as variable-length integers, and each string (e.g. a dish name, or
+ * a soup which is served every week) is written only once per stream; its later occurrences just refer to it.
+ * Multiple food menus can be written to the same stream, either whole or day by day. The output is buffered - call
+ * flush() or close() when done. The class isn't thread-safe.
+ */
+public final class BinaryFoodMenuWriter implements Closeable, Flushable {
+    private final OutputStream outputStream;
+    private final byte[] buffer;
+    private int bufferPosition = 0;
+
+    private final HashMap<String, Integer> dictionary = new HashMap<>();
+    private long previousEpochDay = 0;
+
+    /**
+     * Instantiates the BinaryFoodMenuWriter class and writes the format's header to the stream.
+     *
+     * @param outputStream The stream to write the food menus to.
+     * @throws IOException If the header can't be written.
+     */
+    public BinaryFoodMenuWriter(OutputStream outputStream) throws IOException {
+        this(outputStream, 8192);
+    }
+
+    // A small buffer is better for writing short streams, e.g. the single days stored by MenuArchive.
+    BinaryFoodMenuWriter(OutputStream outputStream, int bufferSize) throws IOException {
+        this.outputStream = outputStream;
+        this.buffer = new byte[Math.max(bufferSize, 16)]; // a varint must fit in
+
+        writeBytes(BinaryFoodMenuFormat.MAGIC, 0, BinaryFoodMenuFormat.MAGIC.length);
+        writeByte(BinaryFoodMenuFormat.VERSION);
+    }
+
+    /**
+     * Writes a whole food menu.
+     *
+     * @param foodMenu The food menu to write.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writeFoodMenu(FoodMenu foodMenu) throws IOException {
+        for(FoodMenu.Day day : foodMenu.getDays())
+            writeDay(day);
+
+        endFoodMenu();
+    }
+
+    /**
+     * Writes a single day of the current food menu. Call endFoodMenu() after the food menu's last day.
+     *
+     * @param day The day to write.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writeDay(FoodMenu.Day day) throws IOException {
+        long epochDay = day.getLocalDate().toEpochDay();
+
+        writeVarLong(day.getDishes().size() + 1L); // 0 marks the end of the food menu
+        writeVarLong(BinaryFoodMenuFormat.encodeZigZag(epochDay - previousEpochDay));
+        previousEpochDay = epochDay;
+
+        for(FoodMenu.Dish dish : day.getDishes()) {
+            writeString(dish.getDishName());
+            writeString(dish.getDishPlace());
+            writeString(dish.getDishDescription());
+        }
+    }
+
+    /**
+     * Ends the current food menu; the next written day will belong to a new food menu.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    public void endFoodMenu() throws IOException {
+        writeByte(BinaryFoodMenuFormat.END_OF_FOOD_MENU);
+        previousEpochDay = 0;
+    }
+
+    /**
+     * Writes the buffered data to the underlying stream and flushes it.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        outputStream.flush();
+    }
+
+    /**
+     * Writes the buffered data to the underlying stream and closes it.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private void writeString(String string) throws IOException {
+        Integer dictionaryIndex = dictionary.get(string);
+        if(dictionaryIndex != null) {
+            writeVarLong(dictionaryIndex + 1L);
+            return;
+        }
+
+        byte[] bytes = string.getBytes(BinaryFoodMenuFormat.CHARSET);
+        writeByte(BinaryFoodMenuFormat.STRING_LITERAL);
+        writeVarLong(bytes.length);
+        writeBytes(bytes, 0, bytes.length);
+
+        if(dictionary.size() < BinaryFoodMenuFormat.MAX_DICTIONARY_SIZE)
+            dictionary.put(string, dictionary.size());
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        if(buffer.length - bufferPosition < 10) // the longest varint
+            flushBuffer();
+
+        while((value & ~0x7FL) != 0) {
+            buffer[bufferPosition++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[bufferPosition++] = (byte) value;
+    }
+
+    private void writeByte(int value) throws IOException {
+        if(bufferPosition == buffer.length)
+            flushBuffer();
+
+        buffer[bufferPosition++] = (byte) value;
+    }
+
+    private void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+        if(length > buffer.length - bufferPosition) {
+            flushBuffer();
+            if(length > buffer.length) { // not worth copying
+                outputStream.write(bytes, offset, length);
+                return;
+            }
+        }
+
+        System.arraycopy(bytes, offset, buffer, bufferPosition, length);
+        bufferPosition += length;
+    }
+
+    private void flushBuffer() throws IOException {
+        if(bufferPosition > 0) {
+            outputStream.write(buffer, 0, bufferPosition);
+            bufferPosition = 0;
+        }
+    }
+}
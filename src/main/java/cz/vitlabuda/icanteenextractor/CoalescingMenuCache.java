@@ -0,0 +1,303 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A short-lived cache of the food menus extracted by ICanteenExtractor.extract(), extractAsync() and extractAll(), which
+ * also makes the concurrent extractions of the same canteen share a single download and parse ("single-flight").
+ * When a food menu is requested while another thread is already extracting it, the request waits for that extraction
+ * and gets its result (or its exception) instead of starting its own one. The successfully extracted food menus are
+ * then kept for the specified time to live, so the requests which come shortly after are served from memory. When the
+ * cache is full, the oldest entries are discarded.
+ * The URLs are normalized before being compared, so e.g. https://STRAV.nasejidelna.cz:443/0051/login#top and
+ * https://strav.nasejidelna.cz/0051/login are the same canteen. If an extraction started by extractAsync() is
+ * cancelled, the requests waiting for it start a new one instead of failing.
+ * ICanteenExtractor.extractDays() doesn't use the cache, as it delivers the days while the login page is still being
+ * downloaded.
+ *
+ * Unlike MenuCache, which saves the work only if the login page hasn't changed and still sends a request each time,
+ * this cache doesn't contact the server at all while an entry is fresh - the food menu may be up to the time to live
+ * out of date. The two caches can be used together.
+ */
+public class CoalescingMenuCache {
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    public static final long DEFAULT_TIME_TO_LIVE_MILLISECONDS = TimeUnit.MINUTES.toMillis(1);
+
+    interface Extraction {
+        FoodMenu extract() throws ICanteenExtractorException;
+    }
+
+    private static final class Entry {
+        private final CompactFoodMenu foodMenu;
+        private final long expirationTime; // System.nanoTime()
+
+        Entry(CompactFoodMenu foodMenu, long expirationTime) {
+            this.foodMenu = foodMenu;
+            this.expirationTime = expirationTime;
+        }
+
+        boolean isExpired(long now) {
+            return now - expirationTime >= 0;
+        }
+    }
+
+    private final int maxEntries;
+    private final long timeToLiveNanoseconds;
+
+    // Guarded by this; insertion order = expiration order, so the expired entries are always at the beginning.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private final ConcurrentHashMap<String, CompletableFuture<CompactFoodMenu>> inFlightExtractions = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /**
+     * Instantiates the CoalescingMenuCache class with the default maximum number of entries and time to live.
+     */
+    public CoalescingMenuCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TIME_TO_LIVE_MILLISECONDS);
+    }
+
+    /**
+     * Instantiates the CoalescingMenuCache class.
+     *
+     * @param maxEntries The maximum number of cached food menus (one per canteen).
+     * @param timeToLiveMilliseconds How long the extracted food menus are kept, in milliseconds. If it's 0, the
+     *                               concurrent extractions are still shared, but their results aren't kept.
+     */
+    public CoalescingMenuCache(int maxEntries, long timeToLiveMilliseconds) {
+        if(maxEntries < 1)
+            throw new IllegalArgumentException("The maximum number of entries must be at least 1!");
+        if(timeToLiveMilliseconds < 0)
+            throw new IllegalArgumentException("The time to live mustn't be negative!");
+
+        this.maxEntries = maxEntries;
+        this.timeToLiveNanoseconds = TimeUnit.MILLISECONDS.toNanos(timeToLiveMilliseconds);
+    }
+
+    /**
+     * Gets the number of cached food menus, including the expired ones which haven't been discarded yet.
+     *
+     * @return The number of entries.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all the cached food menus. The extractions which are in progress aren't affected.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Gets the number of requests which have been served from the cache.
+     *
+     * @return The number of hits.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Gets the number of requests which have extracted the food menu themselves.
+     *
+     * @return The number of misses.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Gets the number of requests which have waited for the same canteen's extraction started by another request.
+     *
+     * @return The number of coalesced requests.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    // Each caller gets its own copy of the food menu. If the extraction fails because the caller has been cancelled,
+    // the requests waiting for it aren't failed too.
+    FoodMenu extract(URL url, Extraction extraction, BooleanSupplier cancelled) throws ICanteenExtractorException {
+        String key = normalizeURL(url);
+
+        CompletableFuture<CompactFoodMenu> ownExtraction;
+        while(true) {
+            CompactFoodMenu cachedFoodMenu = getCachedFoodMenu(key);
+            if(cachedFoodMenu != null) {
+                hitCount.incrementAndGet();
+                return cachedFoodMenu.toFoodMenu();
+            }
+
+            ownExtraction = new CompletableFuture<>();
+            CompletableFuture<CompactFoodMenu> inFlightExtraction = inFlightExtractions.putIfAbsent(key, ownExtraction);
+            if(inFlightExtraction == null)
+                break;
+
+            coalescedCount.incrementAndGet();
+            CompactFoodMenu extractedFoodMenu = awaitExtraction(inFlightExtraction);
+            if(extractedFoodMenu != null)
+                return extractedFoodMenu.toFoodMenu();
+            // Otherwise the extraction has been cancelled by its caller, so it's tried again.
+        }
+
+        // The extraction is removed from the in-flight ones before it's completed, so the requests which come after
+        // its completion don't get its result once the time to live is over.
+        try {
+            // Another thread may have finished the extraction between the cache lookup and putIfAbsent().
+            CompactFoodMenu cachedFoodMenu = getCachedFoodMenu(key);
+            if(cachedFoodMenu != null) {
+                hitCount.incrementAndGet();
+                inFlightExtractions.remove(key, ownExtraction);
+                ownExtraction.complete(cachedFoodMenu);
+                return cachedFoodMenu.toFoodMenu();
+            }
+
+            missCount.incrementAndGet();
+            FoodMenu foodMenu = extraction.extract();
+
+            CompactFoodMenu compactFoodMenu = CompactFoodMenu.of(foodMenu); // a copy, so the caller can modify the food menu
+            putCachedFoodMenu(key, compactFoodMenu);
+            inFlightExtractions.remove(key, ownExtraction);
+            ownExtraction.complete(compactFoodMenu);
+
+            return foodMenu;
+
+        } catch (ICanteenExtractorException | RuntimeException | Error e) {
+            inFlightExtractions.remove(key, ownExtraction);
+            if(cancelled.getAsBoolean())
+                ownExtraction.complete(null);
+            else
+                ownExtraction.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // Returns null if the extraction has been cancelled.
+    private CompactFoodMenu awaitExtraction(CompletableFuture<CompactFoodMenu> extraction) throws ICanteenExtractorException {
+        try {
+            return extraction.get();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ICanteenExtractorException("Interrupted while waiting for the food menu to be extracted by another thread!", e);
+
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof ICanteenExtractorException)
+                throw (ICanteenExtractorException) cause;
+            if(cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if(cause instanceof Error)
+                throw (Error) cause;
+
+            throw new ICanteenExtractorException("An unexpected error occurred while extracting the food menu!", cause);
+        }
+    }
+
+    private synchronized CompactFoodMenu getCachedFoodMenu(String key) {
+        Entry entry = entries.get(key);
+        if(entry == null)
+            return null;
+
+        if(entry.isExpired(System.nanoTime())) {
+            entries.remove(key);
+            return null;
+        }
+
+        return entry.foodMenu;
+    }
+
+    private synchronized void putCachedFoodMenu(String key, CompactFoodMenu foodMenu) {
+        if(timeToLiveNanoseconds == 0)
+            return;
+
+        long now = System.nanoTime();
+        entries.remove(key); // re-inserted at the end, so the insertion order stays the expiration order
+        entries.put(key, new Entry(foodMenu, now + timeToLiveNanoseconds));
+
+        Iterator<Entry> iterator = entries.values().iterator();
+        while(iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if(!entry.isExpired(now) && entries.size() <= maxEntries)
+                break;
+
+            iterator.remove();
+        }
+    }
+
+    // scheme://host[:port]/path[?query], with the scheme and host in lower case, without the default port and the fragment
+    static String normalizeURL(URL url) {
+        String protocol = url.getProtocol().toLowerCase(Locale.ROOT);
+        int port = url.getPort();
+        if(port == url.getDefaultPort())
+            port = -1;
+
+        StringBuilder builder = new StringBuilder(protocol).append("://").append(url.getHost().toLowerCase(Locale.ROOT));
+        if(port != -1)
+            builder.append(':').append(port);
+
+        String path = url.getPath();
+        builder.append(path.isEmpty() ? "/" : path);
+
+        if(url.getQuery() != null)
+            builder.append('?').append(url.getQuery());
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,237 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * An immutable, memory-efficient copy of a food menu, meant for keeping many food menus in memory for a long time.
+ * The dates are stored as epoch days, the days and dishes in arrays of the exact size, and the dish names and places,
+ * which repeat in almost every day, are shared between all the compact food menus. The dishes themselves are the
+ * (immutable) FoodMenu.Dish objects.
+ */
+public final class CompactFoodMenu implements Serializable {
+    /**
+     * An immutable day of a compact food menu, containing one or more dishes.
+     */
+    public static final class Day implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final long epochDay;
+        private final FoodMenu.Dish[] dishes;
+
+        private Day(long epochDay, FoodMenu.Dish[] dishes) {
+            this.epochDay = epochDay;
+            this.dishes = dishes;
+        }
+
+        /**
+         * Gets the date of the day as the number of days since 1970-01-01.
+         *
+         * @return The epoch day.
+         */
+        public long getEpochDay() {
+            return epochDay;
+        }
+
+        /**
+         * Gets the date of the day as a java.time.LocalDate.
+         *
+         * @return The date of the day.
+         */
+        public LocalDate getLocalDate() {
+            return LocalDate.ofEpochDay(epochDay);
+        }
+
+        /**
+         * Gets the number of the dishes of the day.
+         *
+         * @return The number of dishes.
+         */
+        public int getDishCount() {
+            return dishes.length;
+        }
+
+        /**
+         * Gets a dish of the day.
+         *
+         * @param index The index of the dish, from 0 to getDishCount() - 1.
+         * @return The dish.
+         */
+        public FoodMenu.Dish getDish(int index) {
+            return dishes[index];
+        }
+
+        /**
+         * Gets the dishes of the day.
+         *
+         * @return An unmodifiable view of the dishes.
+         */
+        public List<FoodMenu.Dish> getDishes() {
+            return new ArrayView<>(dishes);
+        }
+
+        /**
+         * Gets a hash of the day's date and dishes, which is the same as the one of the equivalent FoodMenu.Day
+         * (see FoodMenu.Day.getContentHash()).
+         *
+         * @return The 64-bit content hash.
+         */
+        public long getContentHash() {
+            return FoodMenuDiff.hashDay(epochDay, getDishes());
+        }
+
+        FoodMenu.Day toDay() {
+            FoodMenu.Day day = new FoodMenu.Day(getLocalDate());
+            day.getDishes().ensureCapacity(dishes.length);
+            for(FoodMenu.Dish dish : dishes)
+                day.getDishes().add(dish);
+
+            return day;
+        }
+    }
+
+    // Arrays.asList() would let the caller replace the elements.
+    private static final class ArrayView<E> extends AbstractList<E> {
+        private final E[] elements;
+
+        ArrayView(E[] elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        public E get(int index) {
+            return elements[index];
+        }
+
+        @Override
+        public int size() {
+            return elements.length;
+        }
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    private final Day[] days;
+
+    private CompactFoodMenu(Day[] days) {
+        this.days = days;
+    }
+
+    /**
+     * Creates a compact copy of a food menu. The food menu itself is left untouched.
+     *
+     * @param foodMenu The food menu to copy.
+     * @return The compact food menu.
+     */
+    public static CompactFoodMenu of(FoodMenu foodMenu) {
+        Day[] days = new Day[foodMenu.getDays().size()];
+        for(int i = 0; i < days.length; i++) {
+            FoodMenu.Day day = foodMenu.getDays().get(i);
+
+            FoodMenu.Dish[] dishes = new FoodMenu.Dish[day.getDishes().size()];
+            for(int j = 0; j < dishes.length; j++)
+                dishes[j] = day.getDishes().get(j).withInternedStrings(StringInterner.SHARED);
+
+            days[i] = new Day(day.getLocalDate().toEpochDay(), dishes);
+        }
+
+        return new CompactFoodMenu(days);
+    }
+
+    // Deserialization creates new copies of the strings, so the dish names and places are interned again.
+    private Object readResolve() {
+        for(Day day : days) {
+            for(int i = 0; i < day.dishes.length; i++)
+                day.dishes[i] = day.dishes[i].withInternedStrings(StringInterner.SHARED);
+        }
+
+        return this;
+    }
+
+    /**
+     * Gets the number of the days of the food menu.
+     *
+     * @return The number of days.
+     */
+    public int getDayCount() {
+        return days.length;
+    }
+
+    /**
+     * Gets a day of the food menu.
+     *
+     * @param index The index of the day, from 0 to getDayCount() - 1.
+     * @return The day.
+     */
+    public Day getDay(int index) {
+        return days[index];
+    }
+
+    /**
+     * Gets the days of the food menu.
+     *
+     * @return An unmodifiable view of the days.
+     */
+    public List<Day> getDays() {
+        return new ArrayView<>(days);
+    }
+
+    /**
+     * Creates a new (mutable) FoodMenu with the same days and dishes.
+     *
+     * @return The food menu.
+     */
+    public FoodMenu toFoodMenu() {
+        FoodMenu foodMenu = new FoodMenu();
+        foodMenu.getDays().ensureCapacity(days.length);
+        for(Day day : days)
+            foodMenu.getDays().add(day.toDay());
+
+        return foodMenu;
+    }
+}
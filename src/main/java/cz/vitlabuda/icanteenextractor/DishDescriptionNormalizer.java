@@ -0,0 +1,129 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+/*
+ * Cleans up the dish descriptions in a single pass over their characters. The result is the same as of the
+ * following regex-based code, which was used before:
+ *
+ *   description = description.replaceAll("^(\\s*--)+", ""); // stripLeadingDashes(), only OldExtendedMenuParser
+ *   description = description.trim(); // normalize() from here on
+ *   description = description.replace("*", "");
+ *   description = description.replace(",", ", ");
+ *   description = description.replaceAll("\\s+,", ",");
+ *   description = description.replaceAll("\\s+", " ");
+ *   description = description.trim();
+ */
+final class DishDescriptionNormalizer {
+    private DishDescriptionNormalizer() {}
+
+    static String normalize(String dishDescription) {
+        int start = 0;
+        int end = dishDescription.length();
+
+        // trim()
+        while(start < end && dishDescription.charAt(start) <= ' ')
+            start++;
+        while(end > start && dishDescription.charAt(end - 1) <= ' ')
+            end--;
+
+        // Every comma may become two characters.
+        char[] output = new char[(end - start) * 2];
+        int outputLength = 0;
+        boolean pendingWhitespace = false;
+
+        for(int i = start; i < end; i++) {
+            char currentChar = dishDescription.charAt(i);
+
+            if(currentChar == '*') {
+                continue; // removed, so the whitespace around it forms a single run
+
+            } else if(isRegexWhitespace(currentChar)) {
+                pendingWhitespace = true;
+
+            } else if(currentChar == ',') {
+                // The whitespace before a comma is dropped and a single space follows it.
+                output[outputLength++] = ',';
+                pendingWhitespace = true;
+
+            } else {
+                if(pendingWhitespace) {
+                    output[outputLength++] = ' ';
+                    pendingWhitespace = false;
+                }
+                output[outputLength++] = currentChar;
+            }
+        }
+
+        // The trailing whitespace would be trimmed anyway; however, the leading one has been kept (like in the regex-based
+        // code), since removing an asterisk may reveal characters which trim() removes as well (e.g. control characters).
+        int outputStart = 0;
+        while(outputStart < outputLength && output[outputStart] <= ' ')
+            outputStart++;
+        while(outputLength > outputStart && output[outputLength - 1] <= ' ')
+            outputLength--;
+
+        return new String(output, outputStart, outputLength - outputStart);
+    }
+
+    // The equivalent of replaceAll("^(\\s*--)+", "")
+    static String stripLeadingDashes(String dishDescription) {
+        int start = 0;
+        while(true) {
+            int position = start;
+            while(position < dishDescription.length() && isRegexWhitespace(dishDescription.charAt(position)))
+                position++;
+
+            if(!dishDescription.startsWith("--", position))
+                return dishDescription.substring(start); // doesn't create a new string if start == 0
+
+            start = position + 2;
+        }
+    }
+
+    // \s in the default (non-Unicode) mode of java.util.regex
+    private static boolean isRegexWhitespace(char character) {
+        return (character == ' ' || character == '\t' || character == '\n' || character == 0x0B || character == '\f' || character == '\r');
+    }
+}
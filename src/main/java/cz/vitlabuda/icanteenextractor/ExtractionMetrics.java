@@ -0,0 +1,125 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import java.net.URL;
+
+/**
+ * Receives measurements of the stages of every food menu extraction done by ICanteenExtractor (see
+ * ICanteenExtractor.Builder.setMetrics()). All the methods do nothing by default, so an implementation overrides just
+ * the ones it's interested in. The methods are called on the thread doing the extraction, so they must be thread-safe, fast,
+ * and they must not throw any exceptions. All the times are in nanoseconds.
+ */
+public interface ExtractionMetrics {
+    /**
+     * The metrics which ignore all the measurements, used by default.
+     */
+    ExtractionMetrics NONE = new ExtractionMetrics() {};
+
+    /**
+     * Called when the status code and the headers of the response have been received.
+     *
+     * @param url The URL of the login page.
+     * @param statusCode The HTTP status code of the response, e.g. 200, or 304 if the cached food menu is up to date.
+     * @param connectNanoseconds How long it has taken to connect to the server (including the TLS handshake), 0 if an
+     *                           existing connection has been reused, or -1 if the HTTP transport doesn't know it.
+     * @param timeToFirstByteNanoseconds The time from the start of the request to the receipt of the headers,
+     *                                   including the connect time.
+     */
+    default void responseReceived(URL url, int statusCode, long connectNanoseconds, long timeToFirstByteNanoseconds) {}
+
+    /**
+     * Called when a fetch of the login page has failed and is going to be retried (see RetryPolicy).
+     *
+     * @param url The URL of the login page.
+     * @param failedAttempt The number of the failed attempt, starting from 1.
+     * @param exception The exception which the attempt has failed with.
+     * @param backoffNanoseconds How long the extraction waits before the next attempt.
+     */
+    default void retrying(URL url, int failedAttempt, ICanteenExtractorException exception, long backoffNanoseconds) {}
+
+    /**
+     * Called when the whole body of the response has been downloaded.
+     *
+     * @param url The URL of the login page.
+     * @param receivedBytes The size of the body as transferred (i.e. compressed, if the server has compressed it).
+     * @param decodedBytes The size of the body after decompression.
+     * @param nanoseconds The time the download has taken, after the headers had been received. With
+     *                    ICanteenExtractor.extractDays(), it includes the parsing done while downloading.
+     */
+    default void bodyDownloaded(URL url, long receivedBytes, long decodedBytes, long nanoseconds) {}
+
+    /**
+     * Called when a parser has parsed the food menu successfully.
+     *
+     * @param url The URL of the login page.
+     * @param parserName The name of the parser which has succeeded, e.g. "StreamingMenuParser" or "SimpleMenuParser".
+     * @param fallbackCount The number of parsers which have failed before it.
+     * @param nanoseconds The time spent parsing, including the failed parsers. If the parsing has been done while
+     *                    downloading the body (ICanteenExtractor.extractDays()), the time spent waiting for the body
+     *                    isn't included.
+     */
+    default void parsed(URL url, String parserName, int fallbackCount, long nanoseconds) {}
+
+    /**
+     * Called when the parsed food menu has been verified, i.e. the incomplete dishes and the days without any dishes
+     * have been dropped from it.
+     *
+     * @param url The URL of the login page.
+     * @param droppedDishCount The number of dropped dishes, including the ones from the dropped days.
+     * @param droppedDayCount The number of dropped days.
+     * @param nanoseconds The time the verification has taken.
+     */
+    default void verified(URL url, int droppedDishCount, int droppedDayCount, long nanoseconds) {}
+
+    /**
+     * Called when the extraction has finished, successfully or not.
+     *
+     * @param url The URL of the login page.
+     * @param nanoseconds The duration of the whole extraction. With ICanteenExtractor.extractAll(), it also includes
+     *                    the time spent waiting for a free thread.
+     * @param exception The exception which the extraction has failed with, or null if it has succeeded.
+     */
+    default void extractionFinished(URL url, long nanoseconds, ICanteenExtractorException exception) {}
+}
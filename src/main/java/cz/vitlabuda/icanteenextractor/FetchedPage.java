@@ -0,0 +1,106 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import java.net.URL;
+
+// A login page downloaded by ICanteenExtractor, waiting to be parsed.
+final class FetchedPage {
+    private final URL url;
+    private final PageContent content;
+    private final String entityTag;
+    private final String lastModified;
+    private final byte[] contentHash;
+    private final MenuCache menuCache;
+    private final FoodMenu unchangedFoodMenu;
+
+    private FetchedPage(URL url, PageContent content, String entityTag, String lastModified, byte[] contentHash, MenuCache menuCache, FoodMenu unchangedFoodMenu) {
+        this.url = url;
+        this.content = content;
+        this.entityTag = entityTag;
+        this.lastModified = lastModified;
+        this.contentHash = contentHash;
+        this.menuCache = menuCache;
+        this.unchangedFoodMenu = unchangedFoodMenu;
+    }
+
+    static FetchedPage downloaded(URL url, PageContent content, String entityTag, String lastModified, byte[] contentHash, MenuCache menuCache) {
+        return new FetchedPage(url, content, entityTag, lastModified, contentHash, menuCache, null);
+    }
+
+    // The page hasn't changed since the food menu was cached, so it doesn't have to be parsed.
+    static FetchedPage unchanged(URL url, FoodMenu cachedFoodMenu) {
+        return new FetchedPage(url, null, null, null, null, null, cachedFoodMenu);
+    }
+
+    URL getURL() {
+        return url;
+    }
+
+    PageContent getContent() {
+        return content;
+    }
+
+    String getEntityTag() {
+        return entityTag;
+    }
+
+    String getLastModified() {
+        return lastModified;
+    }
+
+    byte[] getContentHash() {
+        return contentHash;
+    }
+
+    // Null if the food menu shouldn't be cached.
+    MenuCache getMenuCache() {
+        return menuCache;
+    }
+
+    // Null if the page has to be parsed.
+    FoodMenu getUnchangedFoodMenu() {
+        return unchangedFoodMenu;
+    }
+}
@@ -43,7 +43,11 @@ COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER I
 OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 */
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Date;
 
@@ -55,9 +59,17 @@ public class FoodMenu implements Serializable {
      * A class representing a single day, containing one or more dishes.
      */
     public static final class Day implements Serializable {
+        private static final long serialVersionUID = -7770747244351667637L; // the one of version 2.0
+
         private final Date date;
+        private transient LocalDate localDate; // derived from the date, so the serialized form stays the same
         private final ArrayList<Dish> dishes = new ArrayList<>();
 
+        private Day(Date date, LocalDate localDate) {
+            this.date = date;
+            this.localDate = localDate;
+        }
+
         /**
          * Instantiates the FoodMenu.Day class.
          *
@@ -65,10 +77,21 @@ public class FoodMenu implements Serializable {
          */
         public Day(Date date) {
             this.date = date;
+            this.localDate = date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
         }
 
         /**
-         * Gets the date of the day.
+         * Instantiates the FoodMenu.Day class.
+         *
+         * @param localDate The date of the day
+         */
+        public Day(LocalDate localDate) {
+            this.date = Date.from(localDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
+            this.localDate = localDate;
+        }
+
+        /**
+         * Gets the date of the day (midnight in the system's default time zone).
          *
          * @return The date of the day.
          */
@@ -76,6 +99,15 @@ public class FoodMenu implements Serializable {
             return date;
         }
 
+        /**
+         * Gets the date of the day as a java.time.LocalDate.
+         *
+         * @return The date of the day.
+         */
+        public LocalDate getLocalDate() {
+            return localDate;
+        }
+
         /**
          * Gets the dishes wrapped inside the instance.
          *
@@ -84,12 +116,38 @@ public class FoodMenu implements Serializable {
         public ArrayList<Dish> getDishes() {
             return dishes;
         }
+
+        /**
+         * Gets a hash of the day's date and dishes (their names, places and descriptions, in order), which can be used to
+         * find out quickly whether the day has changed (see FoodMenuDiff). The hash is stable - the same content always
+         * has the same hash, even in different program runs. It's computed from the current dishes on every call.
+         *
+         * @return The 64-bit content hash.
+         */
+        public long getContentHash() {
+            return FoodMenuDiff.hashDay(localDate.toEpochDay(), dishes);
+        }
+
+        private void readObject(ObjectInputStream objectInputStream) throws IOException, ClassNotFoundException {
+            objectInputStream.defaultReadObject();
+            localDate = date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        }
+
+        // The dishes are immutable, so they can be shared.
+        Day copy() {
+            Day copy = new Day(new Date(date.getTime()), localDate);
+            copy.dishes.addAll(dishes);
+
+            return copy;
+        }
     }
 
     /**
      * A class representing a single dish, containing its name and content (description).
      */
     public static final class Dish implements Serializable {
+        private static final long serialVersionUID = -1514247184057918446L; // the one of version 2.0
+
         private final String dishName;
         private final String dishPlace;
         private final String dishDescription;
@@ -103,16 +161,14 @@ public class FoodMenu implements Serializable {
         public Dish(String dishName, String dishPlace, String dishDescription) {
             this.dishName = dishName.trim();
             this.dishPlace = dishPlace.trim();
-            this.dishDescription = prettifyDishDescription(dishDescription.trim()).trim();
+            this.dishDescription = DishDescriptionNormalizer.normalize(dishDescription);
         }
 
-        private String prettifyDishDescription(String dishDescription) {
-            dishDescription = dishDescription.replace("*", "");
-            dishDescription = dishDescription.replace(",", ", ");
-            dishDescription = dishDescription.replaceAll("\\s+,", ",");
-            dishDescription = dishDescription.replaceAll("\\s+", " ");
-
-            return dishDescription;
+        // The strings have been normalized already.
+        private Dish(String dishName, String dishPlace, String dishDescription, StringInterner stringInterner) {
+            this.dishName = stringInterner.intern(dishName);
+            this.dishPlace = stringInterner.intern(dishPlace);
+            this.dishDescription = dishDescription;
         }
 
         /**
@@ -141,6 +197,19 @@ public class FoodMenu implements Serializable {
         public String getDishDescription() {
             return dishDescription;
         }
+
+        // The names and places repeat in almost every day of every food menu, unlike the descriptions.
+        Dish withInternedStrings(StringInterner stringInterner) {
+            if(stringInterner.isInterned(dishName) && stringInterner.isInterned(dishPlace))
+                return this;
+
+            return new Dish(dishName, dishPlace, dishDescription, stringInterner);
+        }
+
+        // For the strings which have been normalized before, e.g. the ones read back from a serialized food menu.
+        static Dish createNormalized(String dishName, String dishPlace, String dishDescription) {
+            return new Dish(dishName, dishPlace, dishDescription, StringInterner.SHARED);
+        }
     }
 
     private final ArrayList<Day> days = new ArrayList<>();
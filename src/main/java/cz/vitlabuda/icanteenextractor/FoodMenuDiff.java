@@ -0,0 +1,358 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * The differences between two food menus (e.g. the ones extracted from the same canteen by two successive polls),
+ * compared day by day and dish by dish.
+ *
+ * The days are matched by their dates and compared using their content hashes first (see FoodMenu.Day.getContentHash())
+ * - if the hashes of all the days are the same, the food menus are considered equal without comparing any dishes, so
+ * an unchanged food menu is detected with a single pass over it. The dishes of the changed days are matched by their
+ * names and places (e.g. "Oběd 1" in "Hlavní jídelna"), then by their descriptions (i.e. renamed dishes); the dishes
+ * which remain unmatched have been added or removed.
+ */
+public final class FoodMenuDiff {
+    private static final long HASH_SEED = 0x27d4eb2f165667c5L;
+    private static final long HASH_PRIME_1 = 0x9e3779b185ebca87L;
+    private static final long HASH_PRIME_2 = 0xc2b2ae3d27d4eb4fL;
+
+    /**
+     * A dish which is present in both of the compared versions of a day, but with a different name, place or
+     * description.
+     */
+    public static final class DishChange {
+        private final FoodMenu.Dish oldDish;
+        private final FoodMenu.Dish newDish;
+
+        private DishChange(FoodMenu.Dish oldDish, FoodMenu.Dish newDish) {
+            this.oldDish = oldDish;
+            this.newDish = newDish;
+        }
+
+        /**
+         * Gets the dish from the old food menu.
+         *
+         * @return The old version of the dish.
+         */
+        public FoodMenu.Dish getOldDish() {
+            return oldDish;
+        }
+
+        /**
+         * Gets the dish from the new food menu.
+         *
+         * @return The new version of the dish.
+         */
+        public FoodMenu.Dish getNewDish() {
+            return newDish;
+        }
+
+        /**
+         * Checks whether the dish's name (e.g. "Oběd 1") has changed.
+         *
+         * @return True if the name differs between the versions.
+         */
+        public boolean isNameChanged() {
+            return !oldDish.getDishName().equals(newDish.getDishName());
+        }
+
+        /**
+         * Checks whether the dish's place has changed.
+         *
+         * @return True if the place differs between the versions.
+         */
+        public boolean isPlaceChanged() {
+            return !oldDish.getDishPlace().equals(newDish.getDishPlace());
+        }
+
+        /**
+         * Checks whether the dish's description has changed.
+         *
+         * @return True if the description differs between the versions.
+         */
+        public boolean isDescriptionChanged() {
+            return !oldDish.getDishDescription().equals(newDish.getDishDescription());
+        }
+    }
+
+    /**
+     * A day which is present in both of the compared food menus, but with different dishes.
+     */
+    public static final class DayChange {
+        private final FoodMenu.Day oldDay;
+        private final FoodMenu.Day newDay;
+        private final List<FoodMenu.Dish> addedDishes = new ArrayList<>();
+        private final List<FoodMenu.Dish> removedDishes = new ArrayList<>();
+        private final List<DishChange> changedDishes = new ArrayList<>();
+
+        private DayChange(FoodMenu.Day oldDay, FoodMenu.Day newDay) {
+            this.oldDay = oldDay;
+            this.newDay = newDay;
+        }
+
+        /**
+         * Gets the date of the changed day.
+         *
+         * @return The date of the day.
+         */
+        public LocalDate getLocalDate() {
+            return newDay.getLocalDate();
+        }
+
+        /**
+         * Gets the day from the old food menu.
+         *
+         * @return The old version of the day.
+         */
+        public FoodMenu.Day getOldDay() {
+            return oldDay;
+        }
+
+        /**
+         * Gets the day from the new food menu.
+         *
+         * @return The new version of the day.
+         */
+        public FoodMenu.Day getNewDay() {
+            return newDay;
+        }
+
+        /**
+         * Gets the dishes which are only in the new version of the day.
+         *
+         * @return An unmodifiable list of the added dishes.
+         */
+        public List<FoodMenu.Dish> getAddedDishes() {
+            return Collections.unmodifiableList(addedDishes);
+        }
+
+        /**
+         * Gets the dishes which are only in the old version of the day.
+         *
+         * @return An unmodifiable list of the removed dishes.
+         */
+        public List<FoodMenu.Dish> getRemovedDishes() {
+            return Collections.unmodifiableList(removedDishes);
+        }
+
+        /**
+         * Gets the dishes which are in both versions of the day, but which differ.
+         *
+         * @return An unmodifiable list of the changed dishes.
+         */
+        public List<DishChange> getChangedDishes() {
+            return Collections.unmodifiableList(changedDishes);
+        }
+    }
+
+    private final List<FoodMenu.Day> addedDays = new ArrayList<>();
+    private final List<FoodMenu.Day> removedDays = new ArrayList<>();
+    private final List<DayChange> changedDays = new ArrayList<>();
+
+    private FoodMenuDiff() {}
+
+    /**
+     * Compares two versions of a food menu. If a food menu contains more days with the same date, only the first one
+     * of them is compared.
+     *
+     * @param oldFoodMenu The old version of the food menu.
+     * @param newFoodMenu The new version of the food menu.
+     * @return The differences between the food menus.
+     */
+    public static FoodMenuDiff compare(FoodMenu oldFoodMenu, FoodMenu newFoodMenu) {
+        FoodMenuDiff diff = new FoodMenuDiff();
+
+        LinkedHashMap<LocalDate, FoodMenu.Day> oldDays = new LinkedHashMap<>();
+        for(FoodMenu.Day oldDay : oldFoodMenu.getDays())
+            oldDays.putIfAbsent(oldDay.getLocalDate(), oldDay);
+
+        HashMap<LocalDate, FoodMenu.Day> newDays = new HashMap<>();
+        for(FoodMenu.Day newDay : newFoodMenu.getDays()) {
+            if(newDays.putIfAbsent(newDay.getLocalDate(), newDay) != null)
+                continue;
+
+            FoodMenu.Day oldDay = oldDays.get(newDay.getLocalDate());
+            if(oldDay == null)
+                diff.addedDays.add(newDay);
+            else if(oldDay.getContentHash() != newDay.getContentHash())
+                diff.changedDays.add(compareDays(oldDay, newDay));
+        }
+
+        for(FoodMenu.Day oldDay : oldDays.values()) {
+            if(!newDays.containsKey(oldDay.getLocalDate()))
+                diff.removedDays.add(oldDay);
+        }
+
+        return diff;
+    }
+
+    /**
+     * Checks whether the food menus are the same.
+     *
+     * @return True if there are no added, removed or changed days.
+     */
+    public boolean isEmpty() {
+        return addedDays.isEmpty() && removedDays.isEmpty() && changedDays.isEmpty();
+    }
+
+    /**
+     * Gets the days which are only in the new food menu.
+     *
+     * @return An unmodifiable list of the added days, in the new food menu's order.
+     */
+    public List<FoodMenu.Day> getAddedDays() {
+        return Collections.unmodifiableList(addedDays);
+    }
+
+    /**
+     * Gets the days which are only in the old food menu.
+     *
+     * @return An unmodifiable list of the removed days, in the old food menu's order.
+     */
+    public List<FoodMenu.Day> getRemovedDays() {
+        return Collections.unmodifiableList(removedDays);
+    }
+
+    /**
+     * Gets the days which are in both of the food menus, but with different dishes.
+     *
+     * @return An unmodifiable list of the changed days, in the new food menu's order.
+     */
+    public List<DayChange> getChangedDays() {
+        return Collections.unmodifiableList(changedDays);
+    }
+
+    private static DayChange compareDays(FoodMenu.Day oldDay, FoodMenu.Day newDay) {
+        DayChange dayChange = new DayChange(oldDay, newDay);
+        List<FoodMenu.Dish> unmatchedOldDishes = new ArrayList<>(oldDay.getDishes());
+        List<FoodMenu.Dish> unmatchedNewDishes = new ArrayList<>();
+
+        // 1) The same name and place - the dish is the same, but its description may have changed.
+        for(FoodMenu.Dish newDish : newDay.getDishes()) {
+            FoodMenu.Dish oldDish = removeFirstMatch(unmatchedOldDishes, newDish, true);
+            if(oldDish == null)
+                unmatchedNewDishes.add(newDish);
+            else if(!oldDish.getDishDescription().equals(newDish.getDishDescription()))
+                dayChange.changedDishes.add(new DishChange(oldDish, newDish));
+        }
+
+        // 2) The same description - the dish has been renamed or moved to another place.
+        for(FoodMenu.Dish newDish : unmatchedNewDishes) {
+            FoodMenu.Dish oldDish = removeFirstMatch(unmatchedOldDishes, newDish, false);
+            if(oldDish == null)
+                dayChange.addedDishes.add(newDish);
+            else
+                dayChange.changedDishes.add(new DishChange(oldDish, newDish));
+        }
+
+        dayChange.removedDishes.addAll(unmatchedOldDishes);
+
+        return dayChange;
+    }
+
+    private static FoodMenu.Dish removeFirstMatch(List<FoodMenu.Dish> dishes, FoodMenu.Dish dish, boolean byNameAndPlace) {
+        for(int i = 0; i < dishes.size(); i++) {
+            FoodMenu.Dish candidate = dishes.get(i);
+            boolean matches = byNameAndPlace
+                    ? candidate.getDishName().equals(dish.getDishName()) && candidate.getDishPlace().equals(dish.getDishPlace())
+                    : candidate.getDishDescription().equals(dish.getDishDescription());
+
+            if(matches)
+                return dishes.remove(i);
+        }
+
+        return null;
+    }
+
+    // A 64-bit hash of the date and the dishes. The characters are mixed in four at a time (like in xxHash and
+    // MurmurHash), and every string is preceded by its length, so that e.g. the dishes "ab" + "c" and "a" + "bc" don't
+    // collide. Unlike String.hashCode(), it's 64-bit, and it doesn't depend on anything but the content.
+    static long hashDay(long epochDay, List<FoodMenu.Dish> dishes) {
+        long hash = mix(HASH_SEED, epochDay);
+        hash = mix(hash, dishes.size());
+        for(FoodMenu.Dish dish : dishes) {
+            hash = hashString(hash, dish.getDishName());
+            hash = hashString(hash, dish.getDishPlace());
+            hash = hashString(hash, dish.getDishDescription());
+        }
+
+        // The final mixing (from MurmurHash3) spreads the last words' bits over the whole hash.
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+
+    private static long hashString(long hash, String string) {
+        int length = string.length();
+        hash = mix(hash, length);
+
+        int i = 0;
+        for(; i + 4 <= length; i += 4) {
+            long word = string.charAt(i) | ((long) string.charAt(i + 1) << 16) | ((long) string.charAt(i + 2) << 32) | ((long) string.charAt(i + 3) << 48);
+            hash = mix(hash, word);
+        }
+
+        long lastWord = 0;
+        for(int shift = 0; i < length; i++, shift += 16)
+            lastWord |= (long) string.charAt(i) << shift;
+
+        return mix(hash, lastWord);
+    }
+
+    private static long mix(long hash, long word) {
+        return Long.rotateLeft(hash ^ (word * HASH_PRIME_1), 31) * HASH_PRIME_2;
+    }
+}
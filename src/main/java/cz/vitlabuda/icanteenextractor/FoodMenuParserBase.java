@@ -43,28 +43,85 @@ COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER I
 OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 */
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
 
 abstract class FoodMenuParserBase {
     static class FoodMenuParserException extends Exception {
+        private static final long serialVersionUID = 1L;
+
         FoodMenuParserException(String message) {
-            super(message);
+            // Parser failures are an expected part of the parser fallback, so no stack trace is filled in.
+            super(message, null, false, false);
         }
     }
 
-    private static final SimpleDateFormat DATE_FORMATTER = new SimpleDateFormat("yyyy-MM-dd");
+    private static final String DATE_STRING_PREFIX = "day-";
+    private static final int DATE_STRING_LENGTH = 14; // "day-YYYY-MM-DD"
 
-    abstract FoodMenu parseHTMLToFoodMenu(String html) throws Exception, Error; // it's not clear what Jsoup throws
+    // The document is shared between all the parsers, so they must not modify it.
+    abstract FoodMenu parseHTMLToFoodMenu(Document document) throws Exception, Error; // it's not clear what Jsoup throws
 
-    protected Date parseDateString(String dateString) throws FoodMenuParserException {
-        try {
-            String cutString = dateString.trim().substring(4); // cuts off the "day-" part
-            return DATE_FORMATTER.parse(cutString);
+    // Checks the markup of the first day of the food menu (a .jidelnicekDen element) without parsing the whole menu.
+    abstract boolean recognizesLayout(Element jidelnicekDen);
+
+    protected Element selectFirstElement(Element parentElement, String cssQuery) throws FoodMenuParserException {
+        Element element = parentElement.selectFirst(cssQuery);
+        if(element == null)
+            throw new FoodMenuParserException("The iCanteen webpage doesn't contain the expected element! (" + cssQuery + ")");
+
+        return element;
+    }
+
+    protected Elements selectElements(Element parentElement, String cssQuery, int minimumCount) throws FoodMenuParserException {
+        Elements elements = parentElement.select(cssQuery);
+        if(elements.size() < minimumCount)
+            throw new FoodMenuParserException("The iCanteen webpage doesn't contain enough expected elements! (" + cssQuery + ")");
 
-        } catch (IndexOutOfBoundsException | ParseException e) {
+        return elements;
+    }
+
+    // The date string is parsed by hand - it has a fixed format and SimpleDateFormat isn't thread-safe.
+    protected static LocalDate parseDateString(String dateString) throws FoodMenuParserException {
+        // Trimming without creating a new string
+        int start = 0;
+        int end = dateString.length();
+        while(start < end && dateString.charAt(start) <= ' ')
+            start++;
+        while(end > start && dateString.charAt(end - 1) <= ' ')
+            end--;
+
+        if(end - start != DATE_STRING_LENGTH || !dateString.startsWith(DATE_STRING_PREFIX, start) || dateString.charAt(start + 8) != '-' || dateString.charAt(start + 11) != '-')
+            throw new FoodMenuParserException("The iCanteen date string is invalid! (" + dateString + ")");
+
+        int year = parseDigits(dateString, start + 4, 4);
+        int month = parseDigits(dateString, start + 9, 2);
+        int dayOfMonth = parseDigits(dateString, start + 12, 2);
+        if(year < 0 || month < 0 || dayOfMonth < 0)
+            throw new FoodMenuParserException("The iCanteen date string is invalid! (" + dateString + ")");
+
+        try {
+            return LocalDate.of(year, month, dayOfMonth);
+        } catch (DateTimeException e) {
             throw new FoodMenuParserException("The iCanteen date string is invalid! (" + dateString + ")");
         }
     }
+
+    // Returns -1 if the string contains a non-digit character at the specified position.
+    private static int parseDigits(String string, int offset, int digitCount) {
+        int value = 0;
+        for(int i = offset; i < offset + digitCount; i++) {
+            char currentChar = string.charAt(i);
+            if(currentChar < '0' || currentChar > '9')
+                return -1;
+
+            value = (value * 10) + (currentChar - '0');
+        }
+
+        return value;
+    }
 }
@@ -0,0 +1,450 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.jsoup.parser.Parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+// A minimal HTML tokenizer, which reports only what's needed to follow the structure of a webpage - start and end
+// tags (with the values of a few selected attributes), text and the other nodes. It doesn't build any tree, so the
+// handler has to keep track of the open elements itself. The tokenization follows the one of jsoup closely enough for
+// the markup of the iCanteen webpages.
+final class HTMLTokenizer {
+    interface Handler {
+        // The array contains the values of the attributes passed to the tokenizer's constructor (null if missing).
+        // It's reused for the next tag, so it mustn't be stored.
+        void startTag(String tagName, String[] attributeValues, boolean selfClosing) throws FoodMenuParserBase.FoodMenuParserException;
+
+        void endTag(String tagName) throws FoodMenuParserBase.FoodMenuParserException;
+
+        // Character references are already decoded.
+        void text(String text) throws FoodMenuParserBase.FoodMenuParserException;
+
+        // Comments (including the bogus ones, e.g. processing instructions)
+        void comment();
+
+        // jsoup puts the content of a CDATA section into the document verbatim. The content isn't reported.
+        void cdataSection() throws FoodMenuParserBase.FoodMenuParserException;
+
+        // Text which isn't wanted is skipped without being converted into a String.
+        boolean wantsText();
+
+        // Once finished, the rest of the webpage isn't read at all.
+        boolean isFinished();
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+
+    // The content of these elements isn't markup. Neither is the rest of the webpage after a <plaintext> tag. It's
+    // skipped without being reported - jsoup either doesn't treat it as text, or doesn't normalize it (which the
+    // handler has to deal with on the element's start tag).
+    private static final String[] RAW_TEXT_ELEMENTS = {"iframe", "noembed", "noframes", "script", "style", "textarea", "title", "xmp"};
+
+    private final Reader reader;
+    private final String[] attributeNames;
+    private final String[] attributeValues;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+    private int pushedBackChar = -2; // -2 = none
+
+    private final StringBuilder textBuilder = new StringBuilder();
+    private final StringBuilder nameBuilder = new StringBuilder();
+    private final StringBuilder valueBuilder = new StringBuilder();
+
+    HTMLTokenizer(Reader reader, String... attributeNames) {
+        this.reader = reader;
+        this.attributeNames = attributeNames;
+        this.attributeValues = new String[attributeNames.length];
+    }
+
+    void tokenize(Handler handler) throws IOException, FoodMenuParserBase.FoodMenuParserException {
+        boolean textWanted = handler.wantsText();
+
+        while(!handler.isFinished()) {
+            int currentChar = read();
+            if(currentChar == -1) {
+                flushText(handler);
+                return;
+            }
+
+            if(currentChar != '<') {
+                if(textWanted)
+                    textBuilder.append((char) currentChar);
+                continue;
+            }
+
+            int nextChar = read();
+            if(isLetter(nextChar)) {
+                flushText(handler);
+                readStartTag(nextChar, handler);
+
+            } else if(nextChar == '/') {
+                int tagNameChar = read();
+                if(isLetter(tagNameChar)) {
+                    flushText(handler);
+                    readEndTag(tagNameChar, handler);
+                } else if(tagNameChar == '>') {
+                    continue; // "</>" is ignored
+                } else if(tagNameChar == -1) {
+                    if(textWanted)
+                        textBuilder.append("</");
+                    continue;
+                } else {
+                    flushText(handler);
+                    pushBack(tagNameChar);
+                    skipUntil('>'); // bogus comment
+                    handler.comment();
+                }
+
+            } else if(nextChar == '!') {
+                flushText(handler);
+                if(skipExpected("--")) {
+                    skipComment();
+                    handler.comment();
+                } else if(skipExpected("DOCTYPE")) {
+                    skipUntil('>'); // a doctype inside the document is ignored by the tree builder
+                } else if(skipExpected("[CDATA[")) {
+                    skipCDATASection();
+                    handler.cdataSection();
+                } else {
+                    skipUntil('>'); // bogus comment
+                    handler.comment();
+                }
+
+            } else if(nextChar == '?') {
+                flushText(handler);
+                skipUntil('>'); // processing instructions are bogus comments in HTML
+                handler.comment();
+
+            } else {
+                if(textWanted)
+                    textBuilder.append('<');
+                pushBack(nextChar);
+                continue;
+            }
+
+            textWanted = handler.wantsText();
+        }
+    }
+
+    private void readStartTag(int firstChar, Handler handler) throws IOException, FoodMenuParserBase.FoodMenuParserException {
+        String tagName = readTagName(firstChar);
+        Arrays.fill(attributeValues, null);
+
+        int tagEnd = readAttributes(true);
+        if(tagEnd == -1)
+            return; // a tag which isn't finished before the end of the webpage is dropped
+
+        boolean selfClosing = (tagEnd == '/');
+        handler.startTag(tagName, attributeValues, selfClosing);
+
+        if(selfClosing)
+            return;
+
+        if(tagName.equals("plaintext")) {
+            while(read() != -1);
+        } else if(Arrays.binarySearch(RAW_TEXT_ELEMENTS, tagName) >= 0) {
+            skipRawText(tagName);
+            handler.endTag(tagName);
+        }
+    }
+
+    private void readEndTag(int firstChar, Handler handler) throws IOException, FoodMenuParserBase.FoodMenuParserException {
+        String tagName = readTagName(firstChar);
+        if(readAttributes(false) == -1)
+            return;
+
+        handler.endTag(tagName);
+    }
+
+    private String readTagName(int firstChar) throws IOException {
+        nameBuilder.setLength(0);
+
+        int currentChar = firstChar;
+        while(currentChar != -1 && !isWhitespace(currentChar) && currentChar != '/' && currentChar != '>' && currentChar != '<') {
+            nameBuilder.append(toLowerCase(currentChar));
+            currentChar = read();
+        }
+        pushBack(currentChar);
+
+        return nameBuilder.toString();
+    }
+
+    // Returns '>' at the end of the tag, '/' at the end of a self-closing tag, or -1 at the end of the webpage.
+    private int readAttributes(boolean storeValues) throws IOException {
+        boolean afterAttributeName = false;
+
+        while(true) {
+            int currentChar = skipWhitespace();
+            if(currentChar == -1 || currentChar == '>')
+                return currentChar;
+
+            if(currentChar == '<' && !afterAttributeName) { // like in jsoup, a '<' ends an unfinished tag (unless it follows an attribute's name)
+                pushBack(currentChar);
+                return '>';
+            }
+            afterAttributeName = false;
+
+            if(currentChar == '/') {
+                int nextChar = read();
+                if(nextChar == '>')
+                    return '/';
+
+                pushBack(nextChar);
+                continue;
+            }
+
+            // The attribute's name
+            nameBuilder.setLength(0);
+            while(currentChar != -1 && !isWhitespace(currentChar) && currentChar != '/' && currentChar != '>' && (currentChar != '=' || nameBuilder.length() == 0)) {
+                nameBuilder.append(toLowerCase(currentChar));
+                currentChar = read();
+            }
+
+            int attributeIndex = (storeValues ? findWantedAttribute() : -1);
+            if(isWhitespace(currentChar))
+                currentChar = skipWhitespace();
+
+            if(currentChar != '=') { // an attribute without a value
+                if(attributeIndex != -1)
+                    attributeValues[attributeIndex] = "";
+                afterAttributeName = (currentChar != '/');
+                pushBack(currentChar);
+                continue;
+            }
+
+            // The attribute's value
+            valueBuilder.setLength(0);
+            currentChar = skipWhitespace();
+            if(currentChar == '"' || currentChar == '\'') {
+                int quoteChar = currentChar;
+                while((currentChar = read()) != quoteChar) {
+                    if(currentChar == -1)
+                        return -1;
+
+                    if(attributeIndex != -1)
+                        valueBuilder.append((char) currentChar);
+                }
+
+            } else {
+                while(currentChar != -1 && !isWhitespace(currentChar) && currentChar != '>') {
+                    if(attributeIndex != -1)
+                        valueBuilder.append((char) currentChar);
+                    currentChar = read();
+                }
+                pushBack(currentChar);
+            }
+
+            if(attributeIndex != -1)
+                attributeValues[attributeIndex] = decodeCharacterReferences(valueBuilder, true);
+        }
+    }
+
+    // Returns -1 if the attribute isn't wanted or if it's a repeated one (the first occurrence is used, like in jsoup).
+    private int findWantedAttribute() {
+        for(int i = 0; i < attributeNames.length; i++) {
+            String attributeName = attributeNames[i];
+            if(attributeValues[i] == null && attributeName.length() == nameBuilder.length() && attributeName.contentEquals(nameBuilder))
+                return i;
+        }
+
+        return -1;
+    }
+
+    private void skipRawText(String tagName) throws IOException {
+        int currentChar;
+        do {
+            currentChar = read();
+        } while(currentChar != -1 && (currentChar != '<' || !skipMatchingEndTag(tagName)));
+    }
+
+    // Called after a '<' character. If it doesn't start the end tag, the last read character is pushed back, so that
+    // it can start the end tag itself.
+    private boolean skipMatchingEndTag(String tagName) throws IOException {
+        int currentChar = read();
+        if(currentChar != '/') {
+            pushBack(currentChar);
+            return false;
+        }
+
+        for(int i = 0; i < tagName.length(); i++) {
+            currentChar = read();
+            if(toLowerCase(currentChar) != tagName.charAt(i)) {
+                pushBack(currentChar);
+                return false;
+            }
+        }
+
+        currentChar = read();
+        if(!isWhitespace(currentChar) && currentChar != '/' && currentChar != '>') {
+            pushBack(currentChar);
+            return false;
+        }
+
+        if(currentChar != '>')
+            skipUntil('>');
+
+        return true;
+    }
+
+    // Consumes the expected (ASCII, case-insensitive) characters. If another character is found, it's pushed back,
+    // while the ones before it are lost - the callers then skip to the end of the tag anyway.
+    private boolean skipExpected(String expectedChars) throws IOException {
+        for(int i = 0; i < expectedChars.length(); i++) {
+            int currentChar = read();
+            if(toLowerCase(currentChar) != toLowerCase(expectedChars.charAt(i))) {
+                pushBack(currentChar);
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void skipComment() throws IOException {
+        // Like in jsoup, "<!-->" and "<!--->" are complete comments, and "--!>" ends a comment as well.
+        int thirdToLastChar = 0;
+        int secondToLastChar = '-';
+        int lastChar = '-';
+
+        int currentChar;
+        while((currentChar = read()) != -1) {
+            if(currentChar == '>' && ((lastChar == '-' && secondToLastChar == '-') || (lastChar == '!' && secondToLastChar == '-' && thirdToLastChar == '-')))
+                return;
+
+            thirdToLastChar = secondToLastChar;
+            secondToLastChar = lastChar;
+            lastChar = currentChar;
+        }
+    }
+
+    private void skipCDATASection() throws IOException {
+        int secondToLastChar = 0;
+        int lastChar = 0;
+
+        int currentChar;
+        while((currentChar = read()) != -1) {
+            if(currentChar == '>' && lastChar == ']' && secondToLastChar == ']')
+                return;
+
+            secondToLastChar = lastChar;
+            lastChar = currentChar;
+        }
+    }
+
+    private void skipUntil(char endChar) throws IOException {
+        int currentChar;
+        do {
+            currentChar = read();
+        } while(currentChar != -1 && currentChar != endChar);
+    }
+
+    private int skipWhitespace() throws IOException {
+        int currentChar;
+        do {
+            currentChar = read();
+        } while(isWhitespace(currentChar));
+
+        return currentChar;
+    }
+
+    private void flushText(Handler handler) throws FoodMenuParserBase.FoodMenuParserException {
+        if(textBuilder.length() == 0)
+            return;
+
+        String text = decodeCharacterReferences(textBuilder, false);
+        textBuilder.setLength(0);
+
+        handler.text(text);
+    }
+
+    private static String decodeCharacterReferences(StringBuilder builder, boolean inAttribute) {
+        String string = builder.toString();
+
+        return (string.indexOf('&') == -1) ? string : Parser.unescapeEntities(string, inAttribute);
+    }
+
+    private int read() throws IOException {
+        if(pushedBackChar != -2) {
+            int currentChar = pushedBackChar;
+            pushedBackChar = -2;
+            return currentChar;
+        }
+
+        if(position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if(limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+
+        return buffer[position++];
+    }
+
+    private void pushBack(int currentChar) {
+        pushedBackChar = currentChar;
+    }
+
+    private static boolean isWhitespace(int currentChar) {
+        return (currentChar == ' ' || currentChar == '\t' || currentChar == '\n' || currentChar == '\r' || currentChar == '\f');
+    }
+
+    private static boolean isLetter(int currentChar) {
+        return ((currentChar >= 'a' && currentChar <= 'z') || (currentChar >= 'A' && currentChar <= 'Z') || (currentChar > 127 && Character.isLetter((char) currentChar)));
+    }
+
+    private static char toLowerCase(int currentChar) {
+        if(currentChar >= 'A' && currentChar <= 'Z')
+            return (char) (currentChar + ('a' - 'A'));
+
+        return (currentChar > 127) ? Character.toLowerCase((char) currentChar) : (char) currentChar;
+    }
+}
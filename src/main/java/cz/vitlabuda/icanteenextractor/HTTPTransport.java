@@ -0,0 +1,116 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * The HTTP client used by ICanteenExtractor to download the iCanteen login pages.
+ * Implementations must be safe to use from multiple threads at once.
+ */
+public interface HTTPTransport {
+    /**
+     * A response to an HTTP GET request. It must be closed once its body has been read.
+     */
+    interface Response extends Closeable {
+        /**
+         * Gets the HTTP status code of the response, e.g. 200.
+         *
+         * @return The status code.
+         */
+        int getStatusCode();
+
+        /**
+         * Gets the value of a response header.
+         *
+         * @param name The name of the header (case-insensitive).
+         * @return The value of the header, or null if the response doesn't contain it.
+         */
+        String getHeader(String name);
+
+        /**
+         * Gets the stream containing the body of the response.
+         *
+         * @return The body of the response.
+         * @throws IOException If the body cannot be read.
+         */
+        InputStream getBody() throws IOException;
+
+        /**
+         * Gets how long it has taken to connect to the server (including the TLS handshake) for this request.
+         *
+         * @return The connect time in nanoseconds, 0 if an existing connection has been reused, or -1 if it's unknown.
+         */
+        default long getConnectNanoseconds() {
+            return -1;
+        }
+
+        /**
+         * Closes the underlying connection immediately, without waiting for the body to be read.
+         * Unlike the other methods, it can be called from any thread, e.g. to cancel a blocked read.
+         */
+        void abort();
+
+        /**
+         * Releases the response. The underlying connection may be kept open and reused by other requests.
+         */
+        @Override
+        void close();
+    }
+
+    /**
+     * Sends an HTTP GET request to the specified URL. Redirects are not followed.
+     *
+     * @param url The URL to request (http or https).
+     * @param requestHeaders The headers to send with the request.
+     * @param timeoutMilliseconds The connect and read timeout in milliseconds, or 0 or less for no timeout.
+     * @return The response, whose status code and headers have already been received.
+     * @throws IOException If the request cannot be sent or the response cannot be received.
+     */
+    Response get(URL url, Map<String, String> requestHeaders, int timeoutMilliseconds) throws IOException;
+}
@@ -0,0 +1,420 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ExtractionMetrics which aggregate the measurements in memory - the times of each stage of the extractions are
+ * recorded into histograms, and the rest of the measurements into counters. The total extraction times are also
+ * recorded per canteen (i.e. per login page), so that the slow canteens can be found.
+ * The class is thread-safe and recording a measurement doesn't block, so one instance can be shared between multiple
+ * ICanteenExtractor instances.
+ */
+public class HistogramExtractionMetrics implements ExtractionMetrics {
+    /**
+     * A thread-safe histogram of non-negative values (e.g. times in nanoseconds) with a fixed memory footprint.
+     * The values are counted in logarithmic buckets, each of which is split into 16 linear sub-buckets, so the
+     * percentiles are accurate to about 6 %. The values below 32 are counted exactly.
+     */
+    public static final class Histogram {
+        private static final int SUB_BUCKET_BITS = 4;
+        private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+        private static final int EXACT_VALUE_COUNT = 2 * SUB_BUCKET_COUNT;
+        private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT; // enough for Long.MAX_VALUE
+
+        private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_COUNT);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        Histogram() {}
+
+        /**
+         * Records a value. Negative values (i.e. unknown measurements) are ignored.
+         *
+         * @param value The value to record.
+         */
+        public void record(long value) {
+            if(value < 0)
+                return;
+
+            bucketCounts.incrementAndGet(getBucketIndex(value));
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        /**
+         * Gets the number of the recorded values.
+         *
+         * @return The number of values.
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Gets the arithmetic mean of the recorded values.
+         *
+         * @return The mean, or 0 if no value has been recorded yet.
+         */
+        public double getMean() {
+            long currentCount = count.sum();
+
+            return (currentCount == 0) ? 0 : (double) sum.sum() / currentCount;
+        }
+
+        /**
+         * Gets the largest recorded value (exactly).
+         *
+         * @return The largest value, or 0 if no value has been recorded yet.
+         */
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * Gets a percentile of the recorded values (e.g. 50 for the median, or 99).
+         * The returned value is the upper bound of the bucket containing the percentile, so it's never lower than the
+         * exact percentile.
+         *
+         * @param percentile The percentile, from 0 to 100.
+         * @return The value at the percentile, or 0 if no value has been recorded yet.
+         */
+        public long getPercentile(double percentile) {
+            if(percentile < 0 || percentile > 100)
+                throw new IllegalArgumentException("The percentile must be between 0 and 100!");
+
+            // The buckets are read one by one without any locking, so their total is used instead of the count.
+            long[] snapshot = new long[BUCKET_COUNT];
+            long totalCount = 0;
+            for(int i = 0; i < BUCKET_COUNT; i++) {
+                snapshot[i] = bucketCounts.get(i);
+                totalCount += snapshot[i];
+            }
+            if(totalCount == 0)
+                return 0;
+
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount)); // nearest-rank
+            long cumulativeCount = 0;
+            for(int i = 0; i < BUCKET_COUNT; i++) {
+                cumulativeCount += snapshot[i];
+                if(cumulativeCount >= rank)
+                    return Math.min(getBucketUpperBound(i), getMax());
+            }
+
+            return getMax();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d mean=%.0f p50=%d p90=%d p99=%d max=%d", getCount(), getMean(), getPercentile(50), getPercentile(90), getPercentile(99), getMax());
+        }
+
+        private static int getBucketIndex(long value) {
+            if(value < EXACT_VALUE_COUNT)
+                return (int) value;
+
+            int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+
+            return (shift * SUB_BUCKET_COUNT) + (int) (value >>> shift); // the second operand is between 16 and 31
+        }
+
+        private static long getBucketUpperBound(int bucketIndex) {
+            if(bucketIndex < EXACT_VALUE_COUNT)
+                return bucketIndex;
+
+            int shift = (bucketIndex / SUB_BUCKET_COUNT) - 1;
+            long subBucket = (bucketIndex % SUB_BUCKET_COUNT) + SUB_BUCKET_COUNT;
+
+            return ((subBucket + 1) << shift) - 1;
+        }
+    }
+
+    private final Histogram connectTimes = new Histogram();
+    private final Histogram timesToFirstByte = new Histogram();
+    private final Histogram downloadTimes = new Histogram();
+    private final Histogram parseTimes = new Histogram();
+    private final Histogram verificationTimes = new Histogram();
+    private final Histogram extractionTimes = new Histogram();
+    private final ConcurrentHashMap<String, Histogram> canteenExtractionTimes = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, LongAdder> parserSuccessCounts = new ConcurrentHashMap<>();
+    private final LongAdder fallbackCount = new LongAdder();
+    private final LongAdder reusedConnectionCount = new LongAdder();
+    private final LongAdder receivedBytes = new LongAdder();
+    private final LongAdder decodedBytes = new LongAdder();
+    private final LongAdder droppedDishCount = new LongAdder();
+    private final LongAdder droppedDayCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+    private final LongAdder retryCount = new LongAdder();
+
+    /**
+     * Instantiates the HistogramExtractionMetrics class.
+     */
+    public HistogramExtractionMetrics() {}
+
+    @Override
+    public void responseReceived(URL url, int statusCode, long connectNanoseconds, long timeToFirstByteNanoseconds) {
+        if(connectNanoseconds == 0)
+            reusedConnectionCount.increment();
+        else
+            connectTimes.record(connectNanoseconds); // -1 (unknown) is ignored
+
+        timesToFirstByte.record(timeToFirstByteNanoseconds);
+    }
+
+    @Override
+    public void retrying(URL url, int failedAttempt, ICanteenExtractorException exception, long backoffNanoseconds) {
+        retryCount.increment();
+    }
+
+    @Override
+    public void bodyDownloaded(URL url, long receivedBytes, long decodedBytes, long nanoseconds) {
+        this.receivedBytes.add(receivedBytes);
+        this.decodedBytes.add(decodedBytes);
+        downloadTimes.record(nanoseconds);
+    }
+
+    @Override
+    public void parsed(URL url, String parserName, int fallbackCount, long nanoseconds) {
+        parserSuccessCounts.computeIfAbsent(parserName, key -> new LongAdder()).increment();
+        this.fallbackCount.add(fallbackCount);
+        parseTimes.record(nanoseconds);
+    }
+
+    @Override
+    public void verified(URL url, int droppedDishCount, int droppedDayCount, long nanoseconds) {
+        this.droppedDishCount.add(droppedDishCount);
+        this.droppedDayCount.add(droppedDayCount);
+        verificationTimes.record(nanoseconds);
+    }
+
+    @Override
+    public void extractionFinished(URL url, long nanoseconds, ICanteenExtractorException exception) {
+        if(exception != null)
+            failureCount.increment();
+
+        extractionTimes.record(nanoseconds);
+        canteenExtractionTimes.computeIfAbsent(url.getAuthority() + url.getPath(), key -> new Histogram()).record(nanoseconds);
+    }
+
+    /**
+     * Gets the histogram of the times it has taken to connect to the servers (the reused connections aren't included).
+     *
+     * @return The histogram of times in nanoseconds.
+     */
+    public Histogram getConnectTimes() {
+        return connectTimes;
+    }
+
+    /**
+     * Gets the histogram of the times from the start of the requests to the receipt of the response headers.
+     *
+     * @return The histogram of times in nanoseconds.
+     */
+    public Histogram getTimesToFirstByte() {
+        return timesToFirstByte;
+    }
+
+    /**
+     * Gets the histogram of the times it has taken to download the response bodies.
+     *
+     * @return The histogram of times in nanoseconds.
+     */
+    public Histogram getDownloadTimes() {
+        return downloadTimes;
+    }
+
+    /**
+     * Gets the histogram of the times it has taken to parse the login pages (including the failed parsers).
+     *
+     * @return The histogram of times in nanoseconds.
+     */
+    public Histogram getParseTimes() {
+        return parseTimes;
+    }
+
+    /**
+     * Gets the histogram of the times it has taken to verify the parsed food menus.
+     *
+     * @return The histogram of times in nanoseconds.
+     */
+    public Histogram getVerificationTimes() {
+        return verificationTimes;
+    }
+
+    /**
+     * Gets the histogram of the durations of the whole extractions, both successful and failed.
+     *
+     * @return The histogram of times in nanoseconds.
+     */
+    public Histogram getExtractionTimes() {
+        return extractionTimes;
+    }
+
+    /**
+     * Gets the histograms of the durations of the whole extractions, per canteen.
+     *
+     * @return An unmodifiable view of the histograms, keyed by the login page's host and path
+     *         (e.g. "strav.nasejidelna.cz/0051/login").
+     */
+    public Map<String, Histogram> getCanteenExtractionTimes() {
+        return Collections.unmodifiableMap(canteenExtractionTimes);
+    }
+
+    /**
+     * Gets the canteens whose extractions have taken the longest time at the specified percentile.
+     *
+     * @param percentile The percentile to compare the canteens by, from 0 to 100 (e.g. 99).
+     * @param maxCount The maximum number of the returned canteens.
+     * @return The keys of the canteens (see getCanteenExtractionTimes()), the slowest one first.
+     */
+    public List<String> getSlowestCanteens(double percentile, int maxCount) {
+        HashMap<String, Long> canteenPercentiles = new HashMap<>();
+        for(Map.Entry<String, Histogram> entry : canteenExtractionTimes.entrySet())
+            canteenPercentiles.put(entry.getKey(), entry.getValue().getPercentile(percentile));
+
+        ArrayList<String> canteenKeys = new ArrayList<>(canteenPercentiles.keySet());
+        canteenKeys.sort((first, second) -> Long.compare(canteenPercentiles.get(second), canteenPercentiles.get(first)));
+
+        return new ArrayList<>(canteenKeys.subList(0, Math.min(maxCount, canteenKeys.size())));
+    }
+
+    /**
+     * Gets how many times each parser has parsed a food menu successfully. A sudden shift from one parser to another
+     * usually means that the canteens' iCanteen has been updated.
+     *
+     * @return A copy of the counts, keyed by the parsers' names (e.g. "StreamingMenuParser").
+     */
+    public Map<String, Long> getParserSuccessCounts() {
+        HashMap<String, Long> counts = new HashMap<>();
+        for(Map.Entry<String, LongAdder> entry : parserSuccessCounts.entrySet())
+            counts.put(entry.getKey(), entry.getValue().sum());
+
+        return counts;
+    }
+
+    /**
+     * Gets the total number of the parsers which have failed before another parser has succeeded.
+     *
+     * @return The number of parser fallbacks.
+     */
+    public long getFallbackCount() {
+        return fallbackCount.sum();
+    }
+
+    /**
+     * Gets the number of the requests which have reused an existing connection to the server.
+     *
+     * @return The number of reused connections.
+     */
+    public long getReusedConnectionCount() {
+        return reusedConnectionCount.sum();
+    }
+
+    /**
+     * Gets the total size of the response bodies, as transferred (i.e. compressed, if the servers have compressed them).
+     *
+     * @return The number of received bytes.
+     */
+    public long getReceivedBytes() {
+        return receivedBytes.sum();
+    }
+
+    /**
+     * Gets the total size of the response bodies, after decompression.
+     *
+     * @return The number of decompressed bytes.
+     */
+    public long getDecodedBytes() {
+        return decodedBytes.sum();
+    }
+
+    /**
+     * Gets the total number of the incomplete dishes dropped from the parsed food menus.
+     *
+     * @return The number of dropped dishes.
+     */
+    public long getDroppedDishCount() {
+        return droppedDishCount.sum();
+    }
+
+    /**
+     * Gets the total number of the days without any (complete) dish dropped from the parsed food menus.
+     *
+     * @return The number of dropped days.
+     */
+    public long getDroppedDayCount() {
+        return droppedDayCount.sum();
+    }
+
+    /**
+     * Gets the number of the extractions which have failed.
+     *
+     * @return The number of failures.
+     */
+    public long getFailureCount() {
+        return failureCount.sum();
+    }
+
+    /**
+     * Gets the number of the failed fetches which have been retried.
+     *
+     * @return The number of retries.
+     */
+    public long getRetryCount() {
+        return retryCount.sum();
+    }
+}
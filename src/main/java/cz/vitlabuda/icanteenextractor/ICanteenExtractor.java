@@ -43,56 +43,325 @@ COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER I
 OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 */
 
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
 import javax.net.ssl.SSLException;
-import java.io.BufferedReader;
+import java.io.FilterReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
+import java.io.InputStream;
+import java.io.Reader;
 import java.net.MalformedURLException;
 import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 /**
  * The main class used to extract food menus from the iCanteen login page.
+ * The class is immutable (it's configured using ICanteenExtractor.Builder) and thread-safe, so a single instance can
+ * be shared by the whole application and used from any number of threads at once - which is also the most efficient
+ * way to use it, as the parser of each canteen is remembered by the instance (see the Builder's settings for the
+ * other shared state, like the HTTP connections and the caches).
  */
 public class ICanteenExtractor {
-    public static final int LIBRARY_VERSION = 2;
-    public static final String LIBRARY_VERSION_STRING = "2.0";
+    public static final int LIBRARY_VERSION = 3;
+    public static final String LIBRARY_VERSION_STRING = "3.0";
+
+    // Used by extractAsync(URL); at most ASYNC_THREAD_COUNT fetches run at once and the rest wait in the queue. The threads
+    // are created on demand and discarded after being idle for a minute.
+    private static final int ASYNC_THREAD_COUNT = 16;
+    private static final ExecutorService ASYNC_EXECUTOR = createAsyncExecutor();
+
+    private static final BooleanSupplier NOT_CANCELLED = () -> false;
 
-    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static ExecutorService createAsyncExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(ASYNC_THREAD_COUNT, ASYNC_THREAD_COUNT, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new ExtractorThreadFactory("async"));
+        executor.allowCoreThreadTimeOut(true);
 
-    private final FoodMenuParserBase[] foodMenuParsers = new FoodMenuParserBase[] {
+        return executor;
+    }
+
+    // Created on first use, as the virtual threads may not be supported.
+    private static final class VirtualThreadExecutorHolder {
+        private static final ExecutorService ASYNC_EXECUTOR = VirtualThreads.newExecutor("async-virtual");
+    }
+
+    // The DOM parsers have no state, so they are shared by all the instances (and threads).
+    private static final FoodMenuParserBase[] FOOD_MENU_PARSERS = new FoodMenuParserBase[] {
         new NewExtendedMenuParser(),
         new SimpleMenuParser(),
         new OldExtendedMenuParser()
     };
 
-    private String userAgent = null;
-    private int timeoutMilliseconds = -1;
+    /**
+     * Builds the ICanteenExtractor instances. All the settings are optional. A builder can be used to build multiple
+     * instances, but it isn't thread-safe itself.
+     */
+    public static final class Builder {
+        private HTTPTransport httpTransport = new URLConnectionHTTPTransport();
+        private MenuCache menuCache = null;
+        private CoalescingMenuCache coalescingMenuCache = null;
+        private String userAgent = null;
+        private int timeoutMilliseconds = -1;
+        private boolean compressionEnabled = true;
+        private int maxBodyBytes = PageContent.DEFAULT_MAX_LENGTH;
+        private ExtractionMetrics metrics = ExtractionMetrics.NONE;
+        private RetryPolicy retryPolicy = RetryPolicy.NONE;
+        private boolean virtualThreadsEnabled = false;
+
+        /**
+         * Instantiates the Builder class with the default settings.
+         */
+        public Builder() {}
+
+        /**
+         * Sets the HTTP client used to download the iCanteen login pages. By default, URLConnectionHTTPTransport is used,
+         * which respects the JVM's proxy, authentication and TLS settings. PooledHTTPTransport (e.g.
+         * PooledHTTPTransport.getSharedInstance()) is faster when polling many canteens, but it doesn't support proxies.
+         *
+         * @param httpTransport The new HTTP client.
+         * @return This builder.
+         */
+        public Builder setHTTPTransport(HTTPTransport httpTransport) {
+            this.httpTransport = httpTransport;
+
+            return this;
+        }
+
+        /**
+         * Sets the cache of the extracted food menus, which makes it possible to skip downloading and parsing login
+         * pages which haven't changed (see MenuCache). The cache can be shared between multiple ICanteenExtractor
+         * instances. There is no cache by default.
+         *
+         * @param menuCache The new cache, or null to disable caching.
+         * @return This builder.
+         */
+        public Builder setMenuCache(MenuCache menuCache) {
+            this.menuCache = menuCache;
+
+            return this;
+        }
+
+        /**
+         * Sets the cache which makes the concurrent extractions of the same canteen (by extract(), extractAsync() and
+         * extractAll(), but not extractDays()) share a single download and parse, and keeps the extracted food menus
+         * for a short time (see CoalescingMenuCache). The cache can be shared between
+         * multiple ICanteenExtractor instances, but they should be configured the same way then.
+         * There is no such cache by default.
+         *
+         * @param coalescingMenuCache The new cache, or null to extract the food menu on every call.
+         * @return This builder.
+         */
+        public Builder setCoalescingMenuCache(CoalescingMenuCache coalescingMenuCache) {
+            this.coalescingMenuCache = coalescingMenuCache;
+
+            return this;
+        }
+
+        /**
+         * Sets the User-Agent HTTP header sent to the iCanteen server.
+         *
+         * @param userAgent The new User-Agent.
+         * @return This builder.
+         */
+        public Builder setUserAgent(String userAgent) {
+            if(userAgent != null && !isValidHeaderValue(userAgent))
+                throw new IllegalArgumentException("The User-Agent mustn't contain line breaks or NUL characters!");
+
+            this.userAgent = userAgent;
+
+            return this;
+        }
+
+        /**
+         * Sets the timeout of the iCanteen server connection.
+         *
+         * @param timeoutMilliseconds The new timeout in milliseconds.
+         * @return This builder.
+         */
+        public Builder setTimeoutMilliseconds(int timeoutMilliseconds) {
+            this.timeoutMilliseconds = timeoutMilliseconds;
+
+            return this;
+        }
+
+        /**
+         * Sets whether the iCanteen server is asked to compress the login page (using gzip or deflate). Enabled by
+         * default.
+         *
+         * @param compressionEnabled Whether to request compressed responses.
+         * @return This builder.
+         */
+        public Builder setCompressionEnabled(boolean compressionEnabled) {
+            this.compressionEnabled = compressionEnabled;
+
+            return this;
+        }
+
+        /**
+         * Sets the maximum size of a login page, after decompression. Downloading a larger page fails, so that a small
+         * compressed body can't expand until the memory runs out. 16 MiB by default.
+         *
+         * @param maxBodyBytes The new maximum size in bytes.
+         * @return This builder.
+         */
+        public Builder setMaxBodyBytes(int maxBodyBytes) {
+            if(maxBodyBytes < 1)
+                throw new IllegalArgumentException("The maximum body size must be at least 1 byte!");
+
+            this.maxBodyBytes = maxBodyBytes;
+
+            return this;
+        }
+
+        /**
+         * Sets the receiver of the measurements of every extraction's stages (see ExtractionMetrics and
+         * HistogramExtractionMetrics). The metrics can be shared between multiple ICanteenExtractor instances.
+         * No measurements are reported by default.
+         *
+         * @param metrics The new metrics, or null to stop reporting the measurements.
+         * @return This builder.
+         */
+        public Builder setMetrics(ExtractionMetrics metrics) {
+            this.metrics = (metrics != null) ? metrics : ExtractionMetrics.NONE;
+
+            return this;
+        }
+
+        /**
+         * Sets how the failed fetches of the login pages are retried (see RetryPolicy). The fetches done by
+         * extractDays() aren't retried, as some of the days may have been delivered already. There are no retries by
+         * default. To protect the iCanteen servers from the retries, use ResilientHTTPTransport with a circuit breaker.
+         *
+         * @param retryPolicy The new retry policy, or null to disable the retries.
+         * @return This builder.
+         */
+        public Builder setRetryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = (retryPolicy != null) ? retryPolicy : RetryPolicy.NONE;
+
+            return this;
+        }
+
+        /**
+         * Sets whether extractAsync(URL) and extractAll() run each extraction on its own virtual thread (Java 21+)
+         * instead of using a pool of platform threads. A blocked virtual thread doesn't tie up an OS thread, so tens of
+         * thousands of login pages can be fetched at once - the number of concurrent fetches is then limited only by
+         * extractAll()'s maxConcurrentFetches and by the HTTP transport (e.g. PooledHTTPTransport's connections per
+         * host). Disabled by default.
+         *
+         * @param virtualThreadsEnabled Whether to use virtual threads.
+         * @return This builder.
+         * @throws UnsupportedOperationException If enabling them on a Java version which doesn't support virtual
+         *                                       threads (see ICanteenExtractor.isVirtualThreadSupported()).
+         */
+        public Builder setVirtualThreadsEnabled(boolean virtualThreadsEnabled) {
+            if(virtualThreadsEnabled)
+                VirtualThreads.checkSupported();
+
+            this.virtualThreadsEnabled = virtualThreadsEnabled;
+
+            return this;
+        }
+
+        /**
+         * Builds an ICanteenExtractor with the current settings.
+         *
+         * @return The new extractor.
+         */
+        public ICanteenExtractor build() {
+            return new ICanteenExtractor(this);
+        }
+    }
+
+    // Remembers which parser has succeeded for each canteen ("host:port/path" -> parser), so the layout doesn't have to be detected again.
+    private final ConcurrentHashMap<String, FoodMenuParserBase> foodMenuParserCache = new ConcurrentHashMap<>();
+
+    private final HTTPTransport httpTransport;
+    private final MenuCache menuCache;
+    private final CoalescingMenuCache coalescingMenuCache;
+    private final String userAgent;
+    private final int timeoutMilliseconds;
+    private final boolean compressionEnabled;
+    private final int maxBodyBytes;
+    private final ExtractionMetrics metrics;
+    private final RetryPolicy retryPolicy;
+    private final boolean virtualThreadsEnabled;
+
+    // Added to by every extraction, so LongAdder is used instead of AtomicLong to keep the threads from contending.
+    private final LongAdder receivedBodyBytes = new LongAdder();
+    private final LongAdder decodedBodyBytes = new LongAdder();
+
+    /**
+     * Instantiates the ICanteenExtractor class with the default settings (see Builder).
+     */
+    public ICanteenExtractor() {
+        this(new Builder());
+    }
+
+    private ICanteenExtractor(Builder builder) {
+        this.httpTransport = builder.httpTransport;
+        this.menuCache = builder.menuCache;
+        this.coalescingMenuCache = builder.coalescingMenuCache;
+        this.userAgent = builder.userAgent;
+        this.timeoutMilliseconds = builder.timeoutMilliseconds;
+        this.compressionEnabled = builder.compressionEnabled;
+        this.maxBodyBytes = builder.maxBodyBytes;
+        this.metrics = builder.metrics;
+        this.retryPolicy = builder.retryPolicy;
+        this.virtualThreadsEnabled = builder.virtualThreadsEnabled;
+    }
 
     /**
-     * Instantiates the ICanteenExtractor class.
+     * Checks whether the running Java version supports virtual threads (see Builder.setVirtualThreadsEnabled()).
+     *
+     * @return Whether virtual threads are supported.
      */
-    public ICanteenExtractor() {}
+    public static boolean isVirtualThreadSupported() {
+        return VirtualThreads.isSupported();
+    }
 
     /**
-     * Sets the User-Agent HTTP header sent to the iCanteen server.
+     * Gets the total size of the response bodies received from the iCanteen servers, as transferred (i.e. compressed,
+     * if the server has compressed them).
      *
-     * @param userAgent The new User-Agent.
+     * @return The number of received bytes.
      */
-    public void setUserAgent(String userAgent) {
-        this.userAgent = userAgent;
+    public long getReceivedBodyBytes() {
+        return receivedBodyBytes.sum();
     }
 
     /**
-     * Sets the timeout of the iCanteen server connection.
+     * Gets the total size of the response bodies received from the iCanteen servers, after decompression.
+     * Compared with getReceivedBodyBytes(), it shows how much bandwidth the compression has saved.
      *
-     * @param timeoutMilliseconds The new timeout in milliseconds.
+     * @return The number of decompressed bytes.
      */
-    public void setTimeoutMilliseconds(int timeoutMilliseconds) {
-        this.timeoutMilliseconds = timeoutMilliseconds;
+    public long getDecodedBodyBytes() {
+        return decodedBodyBytes.sum();
     }
 
     /**
@@ -123,93 +392,785 @@ public class ICanteenExtractor {
      * @throws ICanteenExtractorException If anything goes wrong while fetching and parsing the food menu.
      */
     public FoodMenu extract(URL url) throws ICanteenExtractorException {
+        long startTime = System.nanoTime();
+        try {
+            FoodMenu foodMenu = extractUsingCoalescingCache(url, () -> fetchAndParseHTML(url), NOT_CANCELLED);
+
+            metrics.extractionFinished(url, System.nanoTime() - startTime, null);
+            return foodMenu;
+
+        } catch (ICanteenExtractorException e) {
+            metrics.extractionFinished(url, System.nanoTime() - startTime, e);
+            throw e;
+        }
+    }
+
+    private FoodMenu fetchAndParseHTML(URL url) throws ICanteenExtractorException {
+        return parseHTML(fetchHTMLWithRetries(url, null, NOT_CANCELLED));
+    }
+
+    private FoodMenu extractUsingCoalescingCache(URL url, CoalescingMenuCache.Extraction extraction, BooleanSupplier cancelled) throws ICanteenExtractorException {
+        return (coalescingMenuCache != null) ? coalescingMenuCache.extract(url, extraction, cancelled) : extraction.extract();
+    }
+
+    /**
+     * Fetches and parses the food menu from an iCanteen login page, delivering each of its days to the consumer as soon
+     * as the day has been parsed and verified (usually while the rest of the page is still being downloaded).
+     * See extractDays(URL, Consumer) for details.
+     *
+     * @param urlString The URL to fetch the food menu from.
+     * @param dayConsumer The consumer which the days are delivered to.
+     * @throws ICanteenExtractorException If anything goes wrong while fetching and parsing the food menu.
+     */
+    public void extractDays(String urlString, Consumer<FoodMenu.Day> dayConsumer) throws ICanteenExtractorException {
+        URL url;
+        try {
+            url = new URL(urlString);
+        } catch (MalformedURLException e) {
+            throw new ICanteenExtractorException("Failed to parse the supplied URL string!", e);
+        }
+
+        extractDays(url, dayConsumer);
+    }
+
+    /**
+     * Fetches and parses the food menu from an iCanteen login page, delivering each of its days to the consumer as soon
+     * as the day has been parsed and verified (usually while the rest of the page is still being downloaded).
+     * The days are delivered in the order in which they are on the webpage, each date only once, and on the calling
+     * thread. If the webpage has to be parsed using the DOM in the end, only the days which haven't been delivered yet
+     * are delivered after the whole page has been downloaded. An exception thrown by the consumer stops the extraction
+     * and is propagated.
+     *
+     * @param url The URL to fetch the food menu from.
+     * @param dayConsumer The consumer which the days are delivered to.
+     * @throws ICanteenExtractorException If anything goes wrong while fetching and parsing the food menu - the days
+     *                                    delivered before that are still valid.
+     */
+    public void extractDays(URL url, Consumer<FoodMenu.Day> dayConsumer) throws ICanteenExtractorException {
+        long startTime = System.nanoTime();
+        try {
+            streamDays(url, dayConsumer);
+            metrics.extractionFinished(url, System.nanoTime() - startTime, null);
+
+        } catch (ICanteenExtractorException e) {
+            metrics.extractionFinished(url, System.nanoTime() - startTime, e);
+            throw e;
+        }
+    }
+
+    private void streamDays(URL url, Consumer<FoodMenu.Day> dayConsumer) throws ICanteenExtractorException {
+        DayStreamer dayStreamer = new DayStreamer(dayConsumer);
+        FetchedPage fetchedPage = fetchHTML(url, null, dayStreamer);
+
+        FoodMenu foodMenu = fetchedPage.getUnchangedFoodMenu();
+        if(foodMenu == null) {
+            foodMenu = dayStreamer.getStreamedFoodMenu();
+            if(foodMenu != null)
+                metrics.parsed(url, StreamingMenuParser.class.getSimpleName(), 0, dayStreamer.getParseNanoseconds());
+            else
+                foodMenu = parseHTMLToFoodMenuUsingDOM(fetchedPage.getContent(), url, url.getAuthority() + url.getPath(), System.nanoTime(), 1);
+        }
+
+        try {
+            for(FoodMenu.Day day : foodMenu.getDays())
+                dayStreamer.deliver(day); // the already delivered days are skipped
+
+            if(dayStreamer.getDeliveredFoodMenu().getDays().isEmpty())
+                throw new ICanteenExtractorException.NoFoodMenuException("No food menu was present on the supplied URL!");
+
+        } finally {
+            if(fetchedPage.getUnchangedFoodMenu() == null) // the cached food menus have been verified before
+                dayStreamer.reportVerification(url);
+        }
+
+        cacheFoodMenu(fetchedPage, dayStreamer.getDeliveredFoodMenu());
+    }
+
+    /**
+     * Fetches and parses the food menu from an iCanteen login page asynchronously, using a shared pool of 16 daemon
+     * threads (or a new virtual thread, see Builder.setVirtualThreadsEnabled()). If more extractions are requested at
+     * once, they wait until a thread is free - use extractAsync(URL, Executor) to run more of them concurrently.
+     * The same User-Agent and timeout settings as with extract() are used. Cancelling the returned future closes the
+     * connection to the iCanteen server and interrupts the waiting for a free connection, a retry or a rate limiter.
+     * A connection attempt which is already in progress can't be interrupted, so it ends within the timeout.
+     *
+     * @param url The URL to fetch the food menu from.
+     * @return A future completed with the parsed food menu, or exceptionally with an ICanteenExtractorException.
+     */
+    public CompletableFuture<FoodMenu> extractAsync(URL url) {
+        return extractAsync(url, virtualThreadsEnabled ? VirtualThreadExecutorHolder.ASYNC_EXECUTOR : ASYNC_EXECUTOR);
+    }
+
+    /**
+     * Fetches and parses the food menu from an iCanteen login page asynchronously, using the supplied executor.
+     * The same User-Agent and timeout settings as with extract() are used. Cancelling the returned future closes the
+     * connection to the iCanteen server and interrupts the waiting for a free connection, a retry or a rate limiter.
+     * A connection attempt which is already in progress can't be interrupted, so it ends within the timeout.
+     *
+     * @param url The URL to fetch the food menu from.
+     * @param executor The executor to fetch and parse the food menu on.
+     * @return A future completed with the parsed food menu, or exceptionally with an ICanteenExtractorException.
+     */
+    public CompletableFuture<FoodMenu> extractAsync(URL url, Executor executor) {
+        AsyncExtraction asyncExtraction = new AsyncExtraction(url);
+        executor.execute(asyncExtraction);
+
+        return asyncExtraction;
+    }
+
+    /**
+     * Fetches and parses the food menus from multiple iCanteen login pages concurrently. The webpages are downloaded by
+     * up to maxConcurrentFetches threads at once, while the parsing is done by a pool of at most as many threads as
+     * there are available processors. If virtual threads are enabled (see Builder.setVirtualThreadsEnabled()), each
+     * food menu is fetched and parsed on its own virtual thread instead, while up to maxConcurrentFetches webpages are
+     * downloaded at once. With a coalescing cache (see Builder.setCoalescingMenuCache()), the food menus are parsed by
+     * the threads which have fetched them, so that the extractions of the same canteen can be shared.
+     * The method blocks until all the food menus have been extracted.
+     *
+     * @param urls The URLs to fetch the food menus from.
+     * @param maxConcurrentFetches The maximum number of webpages downloaded at once.
+     * @return The results of the extractions, in the same order as the supplied URLs.
+     */
+    public List<ExtractionResult> extractAll(Collection<URL> urls, int maxConcurrentFetches) {
+        if(maxConcurrentFetches < 1)
+            throw new IllegalArgumentException("The maximum number of concurrent fetches must be at least 1!");
+
+        if(virtualThreadsEnabled)
+            return extractAllOnVirtualThreads(urls, maxConcurrentFetches);
+
+        int parserThreadCount = Math.min(maxConcurrentFetches, Runtime.getRuntime().availableProcessors());
+
+        ExecutorService fetchExecutor = Executors.newFixedThreadPool(maxConcurrentFetches, new ExtractorThreadFactory("fetch"));
+        ExecutorService parseExecutor = Executors.newFixedThreadPool(parserThreadCount, new ExtractorThreadFactory("parse"));
+        try {
+            List<CompletableFuture<ExtractionResult>> futures = new ArrayList<>(urls.size());
+            for(URL url : urls) {
+                long startTime = System.nanoTime();
+                CompletableFuture<FoodMenu> foodMenuFuture = (coalescingMenuCache != null)
+                        ? CompletableFuture.supplyAsync(() -> extractUnchecked(url, () -> fetchAndParseHTML(url)), fetchExecutor)
+                        : CompletableFuture.supplyAsync(() -> fetchHTMLUnchecked(url), fetchExecutor).thenApplyAsync(this::parseHTMLUnchecked, parseExecutor);
+
+                CompletableFuture<ExtractionResult> future = foodMenuFuture
+                        .handle((foodMenu, throwable) -> {
+                            ExtractionResult result = createExtractionResult(url, foodMenu, throwable);
+                            metrics.extractionFinished(url, System.nanoTime() - startTime, result.getException());
+
+                            return result;
+                        });
+
+                futures.add(future);
+            }
+
+            List<ExtractionResult> results = new ArrayList<>(futures.size());
+            for(CompletableFuture<ExtractionResult> future : futures)
+                results.add(future.join()); // handle() makes sure the futures never complete exceptionally
+
+            return results;
+
+        } finally {
+            fetchExecutor.shutdownNow();
+            parseExecutor.shutdownNow();
+        }
+    }
+
+    // The parsing needs no separate pool - the virtual threads are run by as many OS threads as there are processors.
+    private List<ExtractionResult> extractAllOnVirtualThreads(Collection<URL> urls, int maxConcurrentFetches) {
+        Semaphore fetchPermits = new Semaphore(maxConcurrentFetches);
+
+        ExecutorService executor = VirtualThreads.newExecutor("all-virtual");
+        try {
+            List<CompletableFuture<ExtractionResult>> futures = new ArrayList<>(urls.size());
+            for(URL url : urls) {
+                long startTime = System.nanoTime();
+                CompletableFuture<ExtractionResult> future = CompletableFuture
+                        .supplyAsync(() -> extractUnchecked(url, () -> parseHTML(fetchHTMLWithPermit(url, fetchPermits))), executor)
+                        .handle((foodMenu, throwable) -> {
+                            ExtractionResult result = createExtractionResult(url, foodMenu, throwable);
+                            metrics.extractionFinished(url, System.nanoTime() - startTime, result.getException());
+
+                            return result;
+                        });
+
+                futures.add(future);
+            }
+
+            List<ExtractionResult> results = new ArrayList<>(futures.size());
+            for(CompletableFuture<ExtractionResult> future : futures)
+                results.add(future.join()); // handle() makes sure the futures never complete exceptionally
+
+            return results;
+
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // The day streamer is null, unless the webpage should be parsed while it's being downloaded.
+    private FetchedPage fetchHTML(URL url, Consumer<HTTPTransport.Response> responseListener, DayStreamer dayStreamer) throws ICanteenExtractorException {
         String protocol = url.getProtocol();
         if(!protocol.equals("https") && !protocol.equals("http"))
             throw new ICanteenExtractorException("The supplied URL has an invalid protocol!");
 
-        String html = fetchHTMLFromURL(url);
+        return fetchHTMLFromURL(url, responseListener, dayStreamer);
+    }
+
+    private FetchedPage fetchHTMLWithRetries(URL url, Consumer<HTTPTransport.Response> responseListener, BooleanSupplier cancelled) throws ICanteenExtractorException {
+        RetryPolicy currentRetryPolicy = retryPolicy;
+        for(int attempt = 1; ; attempt++) {
+            try {
+                return fetchHTML(url, responseListener, null);
+
+            } catch (ICanteenExtractorException e) {
+                if(attempt >= currentRetryPolicy.getMaxAttempts() || !RetryPolicy.isRetryable(e) || cancelled.getAsBoolean())
+                    throw e;
+
+                long backoffMilliseconds = currentRetryPolicy.computeBackoffMilliseconds(attempt);
+                metrics.retrying(url, attempt, e, TimeUnit.MILLISECONDS.toNanos(backoffMilliseconds));
+
+                try {
+                    Thread.sleep(backoffMilliseconds);
+                } catch (InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    throw e; // the last failure is what the caller is interested in
+                }
+
+                if(cancelled.getAsBoolean())
+                    throw e;
+            }
+        }
+    }
+
+    private FoodMenu parseHTML(FetchedPage fetchedPage) throws ICanteenExtractorException {
+        if(fetchedPage.getUnchangedFoodMenu() != null)
+            return fetchedPage.getUnchangedFoodMenu();
 
-        FoodMenu foodMenu = parseHTMLToFoodMenu(html);
-        verifyParsedFoodMenu(foodMenu);
+        URL url = fetchedPage.getURL();
+        FoodMenu foodMenu = parseHTMLToFoodMenu(fetchedPage.getContent(), url, url.getAuthority() + url.getPath());
+        verifyParsedFoodMenu(url, foodMenu);
+        cacheFoodMenu(fetchedPage, foodMenu);
 
         return foodMenu;
     }
 
-    private String fetchHTMLFromURL(URL url) throws ICanteenExtractorException {
-        StringBuilder htmlBuilder = new StringBuilder();
+    // The cache stores a compact copy of the food menu, so it isn't shared with the caller.
+    private void cacheFoodMenu(FetchedPage fetchedPage, FoodMenu foodMenu) {
+        MenuCache pageMenuCache = fetchedPage.getMenuCache();
+        if(pageMenuCache != null)
+            pageMenuCache.put(fetchedPage.getURL().toString(), new MenuCache.CachedPage(fetchedPage.getEntityTag(), fetchedPage.getLastModified(), fetchedPage.getContentHash(), foodMenu));
+    }
+
+    // The lambdas in extractAll() can't throw checked exceptions.
+    private FetchedPage fetchHTMLUnchecked(URL url) {
+        try {
+            return fetchHTMLWithRetries(url, null, NOT_CANCELLED);
+        } catch (ICanteenExtractorException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    // The permit is acquired by the extraction itself, so that the ones waiting for another extraction of the same
+    // canteen (see CoalescingMenuCache) don't hold any.
+    private FetchedPage fetchHTMLWithPermit(URL url, Semaphore fetchPermits) throws ICanteenExtractorException {
+        try {
+            fetchPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ICanteenExtractorException("Interrupted while waiting for a free fetch slot!", e);
+        }
 
-        HttpURLConnection connection = null;
         try {
-            connection = (HttpURLConnection) url.openConnection();
-            connection.setInstanceFollowRedirects(false);
-            connection.setUseCaches(false);
-            connection.setDoOutput(false);
-            connection.setDoInput(true);
+            return fetchHTMLWithRetries(url, null, NOT_CANCELLED);
+        } finally {
+            fetchPermits.release();
+        }
+    }
 
-            if(userAgent != null)
-                connection.setRequestProperty("User-Agent", userAgent);
+    private FoodMenu extractUnchecked(URL url, CoalescingMenuCache.Extraction extraction) {
+        try {
+            return extractUsingCoalescingCache(url, extraction, NOT_CANCELLED);
+        } catch (ICanteenExtractorException e) {
+            throw new CompletionException(e);
+        }
+    }
 
-            if(timeoutMilliseconds > 0) {
-                connection.setConnectTimeout(timeoutMilliseconds);
-                connection.setReadTimeout(timeoutMilliseconds);
-            }
+    private FoodMenu parseHTMLUnchecked(FetchedPage fetchedPage) {
+        try {
+            return parseHTML(fetchedPage);
+        } catch (ICanteenExtractorException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private ExtractionResult createExtractionResult(URL url, FoodMenu foodMenu, Throwable throwable) {
+        if(throwable == null)
+            return new ExtractionResult(url, foodMenu, null);
+
+        if(throwable instanceof CompletionException && throwable.getCause() != null)
+            throwable = throwable.getCause();
+
+        if(throwable instanceof ICanteenExtractorException)
+            return new ExtractionResult(url, null, (ICanteenExtractorException) throwable);
+
+        return new ExtractionResult(url, null, new ICanteenExtractorException("An unexpected error occurred while extracting the food menu!", throwable));
+    }
+
+    private FetchedPage fetchHTMLFromURL(URL url, Consumer<HTTPTransport.Response> responseListener, DayStreamer dayStreamer) throws ICanteenExtractorException {
+        Map<String, String> requestHeaders = new LinkedHashMap<>();
+        if(userAgent != null)
+            requestHeaders.put("User-Agent", userAgent);
+        if(compressionEnabled)
+            requestHeaders.put("Accept-Encoding", ContentEncoding.ACCEPT_ENCODING);
+
+        MenuCache currentMenuCache = menuCache;
+        MenuCache.CachedPage cacheEntry = (currentMenuCache != null) ? currentMenuCache.get(url.toString()) : null;
+        if(cacheEntry != null) {
+            if(cacheEntry.getEntityTag() != null)
+                requestHeaders.put("If-None-Match", cacheEntry.getEntityTag());
+            if(cacheEntry.getLastModified() != null)
+                requestHeaders.put("If-Modified-Since", cacheEntry.getLastModified());
+        }
 
+        PageContent content;
+        String entityTag;
+        String lastModified;
+
+        long requestStartTime = System.nanoTime();
+        try (HTTPTransport.Response response = httpTransport.get(url, requestHeaders, timeoutMilliseconds)) {
+            if(responseListener != null)
+                responseListener.accept(response);
+
+            int responseCode = response.getStatusCode();
+            metrics.responseReceived(url, responseCode, response.getConnectNanoseconds(), System.nanoTime() - requestStartTime);
+
+            if(responseCode == 304 && cacheEntry != null) {
+                currentMenuCache.countNotModified();
+                return FetchedPage.unchanged(url, cacheEntry.getFoodMenuCopy());
+            }
 
-            int responseCode = connection.getResponseCode();
             if (responseCode != 200)
-                throw new ICanteenExtractorException("The iCanteen server has reported HTTP error " + responseCode + "!");
+                throw new ICanteenExtractorException.HTTPErrorException("The iCanteen server has reported HTTP error " + responseCode + "!", responseCode);
 
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-                String temp;
-                while ((temp = reader.readLine()) != null) {
-                    htmlBuilder.append(temp);
-                    htmlBuilder.append(LINE_SEPARATOR);
-                }
+            String contentEncoding = response.getHeader("Content-Encoding");
+            String charsetName = PageContent.parseCharsetName(response.getHeader("Content-Type"));
+
+            long downloadStartTime = System.nanoTime();
+            ContentEncoding.CountingInputStream receivedBody = new ContentEncoding.CountingInputStream(response.getBody());
+            try (InputStream decodedBody = ContentEncoding.decode(receivedBody, contentEncoding)) {
+                // Content-Length is the length of the compressed body, so it's useless when the body is compressed.
+                long expectedLength = (decodedBody == receivedBody) ? parseContentLength(response.getHeader("Content-Length")) : -1;
+
+                if(dayStreamer != null)
+                    content = dayStreamer.readAndParse(decodedBody, expectedLength, charsetName);
+                else
+                    content = PageContent.read(decodedBody, expectedLength, charsetName, maxBodyBytes);
+
+                // The decompressor may stop before the end of the body (e.g. the last chunk), which would prevent the connection's reuse.
+                ContentEncoding.drain(receivedBody);
             }
 
+            receivedBodyBytes.add(receivedBody.getCount());
+            decodedBodyBytes.add(content.getLength());
+            metrics.bodyDownloaded(url, receivedBody.getCount(), content.getLength(), System.nanoTime() - downloadStartTime);
+
+            // The validators are sent back to the server in the next request, so they mustn't be able to inject headers.
+            entityTag = response.getHeader("ETag");
+            if(entityTag != null && !isValidHeaderValue(entityTag))
+                entityTag = null;
+            lastModified = response.getHeader("Last-Modified");
+            if(lastModified != null && !isValidHeaderValue(lastModified))
+                lastModified = null;
+
+        } catch (PageContent.TooLargeException e) {
+            throw new ICanteenExtractorException("The login page is larger than the maximum of " + maxBodyBytes + " bytes!", e);
         } catch (SSLException e) {
             throw new ICanteenExtractorException("Failed to establish a secure connection to the iCanteen server!", e);
         } catch (SocketTimeoutException e) {
             throw new ICanteenExtractorException("The connection to the iCanteen server has timed out!", e);
         } catch (IOException e) {
             throw new ICanteenExtractorException("Failed to connect to the iCanteen server!", e);
-        } finally {
-            if(connection != null)
-                connection.disconnect();
         }
 
-        return htmlBuilder.toString();
+        if(currentMenuCache == null)
+            return FetchedPage.downloaded(url, content, null, null, null, null);
+
+        // If the server doesn't support conditional requests, the page's content is compared with the cached one.
+        byte[] contentHash = content.hash();
+        if(cacheEntry != null && Arrays.equals(contentHash, cacheEntry.getContentHash())) {
+            currentMenuCache.countUnchangedContent();
+            currentMenuCache.put(url.toString(), cacheEntry.withValidators(entityTag, lastModified));
+            return FetchedPage.unchanged(url, cacheEntry.getFoodMenuCopy());
+        }
+
+        return FetchedPage.downloaded(url, content, entityTag, lastModified, contentHash, currentMenuCache);
+    }
+
+    private static boolean isValidHeaderValue(String headerValue) {
+        return headerValue.indexOf('\r') == -1 && headerValue.indexOf('\n') == -1 && headerValue.indexOf('\0') == -1;
     }
 
-    private FoodMenu parseHTMLToFoodMenu(String html) throws ICanteenExtractorException {
+    private long parseContentLength(String contentLength) {
+        if(contentLength == null)
+            return -1;
+
+        try {
+            return Long.parseLong(contentLength.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // This and the following method are package-private, so that the benchmarks can call them.
+    FoodMenu parseHTMLToFoodMenu(PageContent content, URL url, String canteenKey) throws ICanteenExtractorException {
+        long startTime = System.nanoTime();
+
+        // The streaming parser doesn't build the webpage's DOM at all, but it gives up on any markup it isn't sure about.
+        FoodMenu streamedFoodMenu = parseHTMLStreaming(content);
+        if(streamedFoodMenu != null) {
+            metrics.parsed(url, StreamingMenuParser.class.getSimpleName(), 0, System.nanoTime() - startTime);
+            return streamedFoodMenu;
+        }
+
+        return parseHTMLToFoodMenuUsingDOM(content, url, canteenKey, startTime, 1);
+    }
+
+    // The start time and the number of the parsers which have already failed are reported to the metrics.
+    FoodMenu parseHTMLToFoodMenuUsingDOM(PageContent content, URL url, String canteenKey, long startTime, int fallbackCount) throws ICanteenExtractorException {
+        // The webpage is parsed only once - all the parsers then work with the same (read-only) document.
+        Document document;
+        try {
+            document = Jsoup.parse(content.asInputStream(), content.getCharsetName(), url.toString());
+        } catch (Exception | Error e) {
+            throw new ICanteenExtractorException("An error occurred while parsing the HTML webpage!", e);
+        }
+
         Throwable lastExceptionOrError = null;
+        Element firstJidelnicekDen = selectFirstJidelnicekDen(document);
+
+        // 1) The parser which has succeeded the last time on the same canteen, unless the canteen's iCanteen has been
+        // updated to another layout since then - a parser may "succeed" on another layout too, but with the wrong data
+        // (e.g. SimpleMenuParser would take the dish place of the 3-item layout for the description).
+        FoodMenuParserBase cachedFoodMenuParser = foodMenuParserCache.get(canteenKey);
+        if(cachedFoodMenuParser != null && firstJidelnicekDen != null && !cachedFoodMenuParser.recognizesLayout(firstJidelnicekDen)) {
+            foodMenuParserCache.remove(canteenKey, cachedFoodMenuParser);
+            cachedFoodMenuParser = null;
+        }
+
+        if(cachedFoodMenuParser != null) {
+            try {
+                return reportParsed(url, cachedFoodMenuParser, fallbackCount, startTime, cachedFoodMenuParser.parseHTMLToFoodMenu(document));
+            } catch (Exception | Error e) {
+                lastExceptionOrError = e;
+                fallbackCount++;
+                foodMenuParserCache.remove(canteenKey, cachedFoodMenuParser); // the canteen's iCanteen has probably been updated
+            }
+        }
+
+        // 2) The parser whose layout matches the webpage's markup
+        FoodMenuParserBase detectedFoodMenuParser = detectFoodMenuParser(firstJidelnicekDen);
+        if(detectedFoodMenuParser != null && detectedFoodMenuParser != cachedFoodMenuParser) {
+            try {
+                return reportParsed(url, detectedFoodMenuParser, fallbackCount, startTime, parseAndCacheParser(document, detectedFoodMenuParser, canteenKey));
+            } catch (Exception | Error e) {
+                lastExceptionOrError = e;
+                fallbackCount++;
+            }
+        }
+
+        // 3) The rest of the parsers, in the order in which they are registered in FOOD_MENU_PARSERS
+        for(FoodMenuParserBase foodMenuParser : FOOD_MENU_PARSERS) {
+            if(foodMenuParser == cachedFoodMenuParser || foodMenuParser == detectedFoodMenuParser)
+                continue;
 
-        // The parsers are registered & instantiated in the foodMenuParsers instance variable.
-        for(FoodMenuParserBase foodMenuParser : foodMenuParsers) {
             try {
-                return foodMenuParser.parseHTMLToFoodMenu(html);
+                return reportParsed(url, foodMenuParser, fallbackCount, startTime, parseAndCacheParser(document, foodMenuParser, canteenKey));
             } catch (Exception | Error e) {
                 lastExceptionOrError = e;
+                fallbackCount++;
             }
         }
 
         throw new ICanteenExtractorException("An error occurred while parsing the HTML webpage!", lastExceptionOrError);
     }
 
-    private void verifyParsedFoodMenu(FoodMenu foodMenu) throws ICanteenExtractorException {
-        Iterator<FoodMenu.Day> dayIterator = foodMenu.getDays().iterator();
-        while(dayIterator.hasNext()) {
-            ArrayList<FoodMenu.Dish> currentDishes = dayIterator.next().getDishes();
+    // Returns null if the DOM-based parsers have to be used.
+    private FoodMenu parseHTMLStreaming(PageContent content) {
+        try(Reader reader = content.openReader()) {
+            if(reader == null)
+                return null;
+
+            return StreamingMenuParser.parse(reader);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // Returns null if the webpage contains no food menu.
+    private Element selectFirstJidelnicekDen(Document document) {
+        Element jidelnicekWeb = document.selectFirst(".jidelnicekWeb");
+
+        return (jidelnicekWeb != null) ? jidelnicekWeb.selectFirst(".jidelnicekDen") : null;
+    }
 
-            currentDishes.removeIf(currentDish -> currentDish.getDishName().isEmpty() || currentDish.getDishDescription().isEmpty());
+    private FoodMenuParserBase detectFoodMenuParser(Element jidelnicekDen) {
+        if(jidelnicekDen == null)
+            return null;
 
-            if(currentDishes.isEmpty())
-                dayIterator.remove();
+        for(FoodMenuParserBase foodMenuParser : FOOD_MENU_PARSERS) {
+            if(foodMenuParser.recognizesLayout(jidelnicekDen))
+                return foodMenuParser;
         }
 
+        return null;
+    }
+
+    private FoodMenu reportParsed(URL url, FoodMenuParserBase foodMenuParser, int fallbackCount, long startTime, FoodMenu foodMenu) {
+        metrics.parsed(url, foodMenuParser.getClass().getSimpleName(), fallbackCount, System.nanoTime() - startTime);
+
+        return foodMenu;
+    }
+
+    private FoodMenu parseAndCacheParser(Document document, FoodMenuParserBase foodMenuParser, String canteenKey) throws Exception, Error {
+        FoodMenu foodMenu = foodMenuParser.parseHTMLToFoodMenu(document);
+
+        // Any parser can "succeed" on an empty food menu, so such a result says nothing about the canteen's layout.
+        if(!foodMenu.getDays().isEmpty())
+            foodMenuParserCache.put(canteenKey, foodMenuParser);
+
+        return foodMenu;
+    }
+
+    // Package-private because of the benchmarks, too.
+    void verifyParsedFoodMenu(URL url, FoodMenu foodMenu) throws ICanteenExtractorException {
+        long startTime = System.nanoTime();
+        int dayCount = foodMenu.getDays().size();
+        int dishCount = countDishes(foodMenu);
+
+        foodMenu.getDays().removeIf(day -> !verifyParsedDay(day));
+
+        metrics.verified(url, dishCount - countDishes(foodMenu), dayCount - foodMenu.getDays().size(), System.nanoTime() - startTime);
+
         // This can happen, if the canteen hasn't published any food menu - it doesn't have to be an error, if the program using the library wishes so
         // -> the reason why a special exception is thrown.
         if(foodMenu.getDays().isEmpty())
             throw new ICanteenExtractorException.NoFoodMenuException("No food menu was present on the supplied URL!"); // NoFoodMenuException extends ICanteenExtractorException
     }
+
+    private static int countDishes(FoodMenu foodMenu) {
+        int dishCount = 0;
+        for(FoodMenu.Day day : foodMenu.getDays())
+            dishCount += day.getDishes().size();
+
+        return dishCount;
+    }
+
+    // Removes the incomplete dishes from the day; returns false if none of them has remained.
+    private boolean verifyParsedDay(FoodMenu.Day day) {
+        ArrayList<FoodMenu.Dish> dishes = day.getDishes();
+        dishes.removeIf(dish -> dish.getDishName().isEmpty() || dish.getDishDescription().isEmpty());
+
+        return !dishes.isEmpty();
+    }
+
+    // Package-private, so that the other classes which run their own threads can name them the same way.
+    static final class ExtractorThreadFactory implements ThreadFactory {
+        private final String purpose;
+        private final AtomicInteger threadCounter = new AtomicInteger();
+
+        ExtractorThreadFactory(String purpose) {
+            this.purpose = purpose;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "icanteen-extractor-" + purpose + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        }
+    }
+
+    // Parses the webpage using the streaming parser while it's being downloaded, and delivers the days to the consumer.
+    private final class DayStreamer {
+        private final Consumer<FoodMenu.Day> dayConsumer;
+        private final HashSet<LocalDate> verifiedDates = new HashSet<>();
+        private final FoodMenu deliveredFoodMenu = new FoodMenu(); // copies of the delivered days
+        private FoodMenu streamedFoodMenu = null;
+        private boolean insideConsumer = false;
+
+        private int droppedDishCount = 0;
+        private int droppedDayCount = 0;
+        private long verificationNanoseconds = 0;
+        private long readingNanoseconds = 0; // waiting for the body, including the verification and the consumer
+        private long parseNanoseconds = 0;
+
+        DayStreamer(Consumer<FoodMenu.Day> dayConsumer) {
+            this.dayConsumer = dayConsumer;
+        }
+
+        PageContent readAndParse(InputStream body, long expectedLength, String charsetName) throws IOException {
+            PageContent.Recorder recorder = new PageContent.Recorder(body, expectedLength, charsetName, maxBodyBytes);
+
+            try(Reader reader = recorder.openReader()) {
+                if(reader != null) {
+                    FoodMenu foodMenu = new FoodMenu();
+                    long startTime = System.nanoTime();
+                    StreamingMenuParser.parse(new TimedReader(reader), day -> {
+                        long deliveryStartTime = System.nanoTime();
+                        foodMenu.getDays().add(day);
+                        deliver(day);
+                        readingNanoseconds += System.nanoTime() - deliveryStartTime;
+                    });
+
+                    // Only the time the parser has spent working is reported, not the time it's been blocked.
+                    parseNanoseconds = Math.max(0, System.nanoTime() - startTime - readingNanoseconds);
+                    streamedFoodMenu = foodMenu;
+                }
+            } catch (FoodMenuParserBase.FoodMenuParserException e) {
+                // The DOM-based parsers will parse the webpage once it has been downloaded completely.
+            } catch (RuntimeException e) {
+                if(insideConsumer) // the consumer's exceptions aren't parser failures
+                    throw e;
+            }
+
+            return recorder.finish();
+        }
+
+        void deliver(FoodMenu.Day day) {
+            if(!verifiedDates.add(day.getLocalDate())) // the day has been delivered (or dropped) already
+                return;
+
+            long startTime = System.nanoTime();
+            int dishCount = day.getDishes().size();
+            boolean dayComplete = verifyParsedDay(day);
+
+            verificationNanoseconds += System.nanoTime() - startTime;
+            droppedDishCount += dishCount - day.getDishes().size();
+            if(!dayComplete) {
+                droppedDayCount++;
+                return;
+            }
+
+            deliveredFoodMenu.getDays().add(day.copy());
+
+            insideConsumer = true; // stays set if the consumer throws an exception
+            dayConsumer.accept(day);
+            insideConsumer = false;
+        }
+
+        void reportVerification(URL url) {
+            metrics.verified(url, droppedDishCount, droppedDayCount, verificationNanoseconds);
+        }
+
+        long getParseNanoseconds() {
+            return parseNanoseconds;
+        }
+
+        // Null if the streaming parser has given up.
+        FoodMenu getStreamedFoodMenu() {
+            return streamedFoodMenu;
+        }
+
+        FoodMenu getDeliveredFoodMenu() {
+            return deliveredFoodMenu;
+        }
+
+        private final class TimedReader extends FilterReader {
+            TimedReader(Reader reader) {
+                super(reader);
+            }
+
+            @Override
+            public int read() throws IOException {
+                long startTime = System.nanoTime();
+                try {
+                    return super.read();
+                } finally {
+                    readingNanoseconds += System.nanoTime() - startTime;
+                }
+            }
+
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                long startTime = System.nanoTime();
+                try {
+                    return super.read(buffer, offset, length);
+                } finally {
+                    readingNanoseconds += System.nanoTime() - startTime;
+                }
+            }
+        }
+    }
+
+    private final class AsyncExtraction extends CompletableFuture<FoodMenu> implements Runnable {
+        private final URL url;
+        private volatile HTTPTransport.Response response = null;
+        private Thread runner = null; // guarded by this
+
+        AsyncExtraction(URL url) {
+            this.url = url;
+        }
+
+        @Override
+        public void run() {
+            synchronized(this) {
+                if(isDone()) // cancelled before it has even started
+                    return;
+
+                runner = Thread.currentThread();
+            }
+
+            long startTime = System.nanoTime();
+            try {
+                FoodMenu foodMenu = extractUsingCoalescingCache(url, () -> parseHTML(fetchHTMLWithRetries(url, this::setResponse, this::isDone)), this::isDone);
+
+                metrics.extractionFinished(url, System.nanoTime() - startTime, null);
+                complete(foodMenu);
+
+            } catch (ICanteenExtractorException e) {
+                completeExceptionally(url, startTime, e);
+            } catch (RuntimeException | Error e) {
+                completeExceptionally(url, startTime, new ICanteenExtractorException("An unexpected error occurred while extracting the food menu!", e));
+            } finally {
+                synchronized(this) {
+                    runner = null;
+                }
+
+                // The interrupt from cancel() mustn't be left to the executor's next task.
+                if(isCancelled())
+                    Thread.interrupted();
+            }
+        }
+
+        private void completeExceptionally(URL url, long startTime, ICanteenExtractorException exception) {
+            metrics.extractionFinished(url, System.nanoTime() - startTime, exception);
+            completeExceptionally(exception);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+
+            // The interrupt ends the waiting for a free connection, a rate limiter's token, a retry or another
+            // thread's extraction of the same canteen.
+            if(cancelled) {
+                synchronized(this) {
+                    if(runner != null)
+                        runner.interrupt();
+                }
+            }
+
+            HTTPTransport.Response currentResponse = response;
+            if(cancelled && currentResponse != null)
+                currentResponse.abort(); // makes the blocked fetch fail, as the future's result is no longer needed
+
+            return cancelled;
+        }
+
+        private void setResponse(HTTPTransport.Response response) {
+            this.response = response;
+
+            if(isCancelled()) // cancelled before the response has been published
+                response.abort();
+        }
+    }
 }
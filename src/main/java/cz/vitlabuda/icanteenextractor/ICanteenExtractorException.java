@@ -61,6 +61,35 @@ public class ICanteenExtractorException extends Exception {
         }
     }
 
+    /**
+     * Exception thrown when the iCanteen server responds with an HTTP status code other than 200.
+     */
+    public static class HTTPErrorException extends ICanteenExtractorException {
+        private static final long serialVersionUID = 1L;
+
+        private final int statusCode;
+
+        /**
+         * Instantiates the HTTPErrorException class.
+         *
+         * @param message The error message to carry.
+         * @param statusCode The HTTP status code of the response.
+         */
+        public HTTPErrorException(String message, int statusCode) {
+            super(message);
+            this.statusCode = statusCode;
+        }
+
+        /**
+         * Gets the HTTP status code of the response, e.g. 503.
+         *
+         * @return The status code.
+         */
+        public int getStatusCode() {
+            return statusCode;
+        }
+    }
+
     private final Throwable carriedError;
 
     /**
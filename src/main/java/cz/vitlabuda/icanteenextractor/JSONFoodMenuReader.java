@@ -0,0 +1,415 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+
+/**
+ * Reads the food menus written by JSONFoodMenuWriter, whole or day by day, without building any intermediate objects.
+ * The stream may contain any number of food menus (separated by whitespace, e.g. as JSON Lines); unknown object
+ * members are skipped. The class isn't thread-safe.
+ */
+public final class JSONFoodMenuReader implements Closeable {
+    private static final int MAX_NESTING_DEPTH = 64; // of the skipped values
+
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private int bufferPosition = 0;
+    private int bufferLimit = 0;
+    private long bufferOffset = 0; // the position of the buffer's start in the stream, for the error messages
+
+    private final StringBuilder stringBuilder = new StringBuilder();
+    private boolean insideDays = false;
+    private boolean firstDay = false;
+
+    /**
+     * Instantiates the JSONFoodMenuReader class.
+     *
+     * @param reader The reader to read the JSON from.
+     */
+    public JSONFoodMenuReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Instantiates the JSONFoodMenuReader class, which reads JSON encoded in UTF-8.
+     *
+     * @param inputStream The stream to read the JSON from.
+     */
+    public JSONFoodMenuReader(InputStream inputStream) {
+        this(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads a whole food menu (or the rest of the current one, if some of its days have been read by readDay()).
+     *
+     * @return The food menu, or null if the end of the stream has been reached.
+     * @throws IOException If an I/O error occurs, or if the stream doesn't contain valid food menus.
+     */
+    public FoodMenu readFoodMenu() throws IOException {
+        if(!insideDays && peekNonWhitespace() == -1)
+            return null;
+
+        FoodMenu foodMenu = new FoodMenu();
+        FoodMenu.Day day;
+        while((day = readDay()) != null)
+            foodMenu.getDays().add(day);
+
+        return foodMenu;
+    }
+
+    /**
+     * Reads the next day of the current food menu (or of the next one, if the current one has ended).
+     *
+     * @return The day, or null if the end of the current food menu has been reached (the next call reads the first
+     *         day of the next food menu).
+     * @throws IOException If an I/O error occurs, or if the stream doesn't contain valid food menus.
+     */
+    public FoodMenu.Day readDay() throws IOException {
+        if(!insideDays && !beginDays())
+            return null; // a food menu without the days member
+
+        if(!nextArrayElement(firstDay)) {
+            insideDays = false;
+            finishObject(); // the members after the days
+            return null;
+        }
+
+        firstDay = false;
+        return readDayObject();
+    }
+
+    /**
+     * Closes the underlying reader.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // Reads the food menu object up to the start of its days array; returns false if the object has ended before it.
+    private boolean beginDays() throws IOException {
+        expect('{');
+        boolean firstMember = true;
+        while(nextObjectMember(firstMember)) {
+            firstMember = false;
+            if(readString().equals("days")) {
+                expect(':');
+                expect('[');
+                insideDays = true;
+                firstDay = true;
+                return true;
+            }
+
+            expect(':');
+            skipValue(0);
+        }
+
+        return false;
+    }
+
+    private void finishObject() throws IOException {
+        while(nextObjectMember(false)) {
+            readString();
+            expect(':');
+            skipValue(0);
+        }
+    }
+
+    private FoodMenu.Day readDayObject() throws IOException {
+        LocalDate date = null;
+        ArrayList<FoodMenu.Dish> dishes = new ArrayList<>(); // the date may come after the dishes
+
+        expect('{');
+        boolean firstMember = true;
+        while(nextObjectMember(firstMember)) {
+            firstMember = false;
+            String name = readString();
+            expect(':');
+
+            switch(name) {
+                case "date":
+                    date = parseDate(readString());
+                    break;
+                case "dishes":
+                    expect('[');
+                    boolean firstDish = true;
+                    while(nextArrayElement(firstDish)) {
+                        firstDish = false;
+                        dishes.add(readDishObject());
+                    }
+                    break;
+                default:
+                    skipValue(0);
+            }
+        }
+
+        if(date == null)
+            throw error("A day without a date");
+
+        FoodMenu.Day day = new FoodMenu.Day(date);
+        day.getDishes().addAll(dishes);
+
+        return day;
+    }
+
+    private FoodMenu.Dish readDishObject() throws IOException {
+        String dishName = "";
+        String dishPlace = "";
+        String dishDescription = "";
+
+        expect('{');
+        boolean firstMember = true;
+        while(nextObjectMember(firstMember)) {
+            firstMember = false;
+            String name = readString();
+            expect(':');
+
+            switch(name) {
+                case "name":
+                    dishName = readString();
+                    break;
+                case "place":
+                    dishPlace = readString();
+                    break;
+                case "description":
+                    dishDescription = readString();
+                    break;
+                default:
+                    skipValue(0);
+            }
+        }
+
+        return new FoodMenu.Dish(dishName, dishPlace, dishDescription); // the JSON may come from anywhere, so it's normalized
+    }
+
+    private LocalDate parseDate(String string) throws IOException {
+        try {
+            return LocalDate.parse(string);
+        } catch (DateTimeException e) {
+            throw error("An invalid date (" + string + ")");
+        }
+    }
+
+    // Consumes the comma (if it isn't the first member) and returns true if a member follows, or consumes the closing
+    // brace and returns false.
+    private boolean nextObjectMember(boolean firstMember) throws IOException {
+        int nextChar = peekNonWhitespace();
+        if(nextChar == '}') {
+            bufferPosition++;
+            return false;
+        }
+
+        if(!firstMember)
+            expect(',');
+
+        return true;
+    }
+
+    private boolean nextArrayElement(boolean firstElement) throws IOException {
+        int nextChar = peekNonWhitespace();
+        if(nextChar == ']') {
+            bufferPosition++;
+            return false;
+        }
+
+        if(!firstElement)
+            expect(',');
+
+        return true;
+    }
+
+    private void skipValue(int depth) throws IOException {
+        if(depth > MAX_NESTING_DEPTH)
+            throw error("Too deeply nested JSON");
+
+        int nextChar = peekNonWhitespace();
+        if(nextChar == '"') {
+            readString();
+
+        } else if(nextChar == '{') {
+            bufferPosition++;
+            boolean firstMember = true;
+            while(nextObjectMember(firstMember)) {
+                firstMember = false;
+                readString();
+                expect(':');
+                skipValue(depth + 1);
+            }
+
+        } else if(nextChar == '[') {
+            bufferPosition++;
+            boolean firstElement = true;
+            while(nextArrayElement(firstElement)) {
+                firstElement = false;
+                skipValue(depth + 1);
+            }
+
+        } else if(nextChar == '-' || (nextChar >= '0' && nextChar <= '9') || nextChar == 't' || nextChar == 'f' || nextChar == 'n') {
+            // Numbers and literals - their exact syntax doesn't matter, as they are skipped.
+            while((nextChar = peek()) != -1 && (Character.isLetterOrDigit(nextChar) || nextChar == '-' || nextChar == '+' || nextChar == '.'))
+                bufferPosition++;
+
+        } else {
+            throw error("Expected a value");
+        }
+    }
+
+    private String readString() throws IOException {
+        expect('"');
+
+        // The fast path - the whole string is in the buffer and it contains no escape sequences.
+        for(int i = bufferPosition; i < bufferLimit; i++) {
+            char currentChar = buffer[i];
+            if(currentChar == '"') {
+                String string = new String(buffer, bufferPosition, i - bufferPosition);
+                bufferPosition = i + 1;
+                return string;
+            }
+            if(currentChar == '\\' || currentChar < 0x20)
+                break;
+        }
+
+        stringBuilder.setLength(0);
+        while(true) {
+            int currentChar = read();
+            if(currentChar == '"')
+                return stringBuilder.toString();
+
+            if(currentChar == -1)
+                throw error("An unterminated string");
+            if(currentChar < 0x20)
+                throw error("A control character in a string");
+
+            if(currentChar == '\\') {
+                int escapedChar = read();
+                switch(escapedChar) {
+                    case '"': case '\\': case '/': stringBuilder.append((char) escapedChar); break;
+                    case 'n': stringBuilder.append('\n'); break;
+                    case 'r': stringBuilder.append('\r'); break;
+                    case 't': stringBuilder.append('\t'); break;
+                    case 'b': stringBuilder.append('\b'); break;
+                    case 'f': stringBuilder.append('\f'); break;
+                    case 'u': stringBuilder.append(readHexChar()); break;
+                    default: throw error("An invalid escape sequence");
+                }
+            } else {
+                stringBuilder.append((char) currentChar);
+            }
+        }
+    }
+
+    private char readHexChar() throws IOException {
+        int value = 0;
+        for(int i = 0; i < 4; i++) {
+            int digit = Character.digit(read(), 16); // -1 (the end of the stream) is not a digit either
+            if(digit == -1)
+                throw error("An invalid \\u escape sequence");
+
+            value = (value << 4) | digit;
+        }
+
+        return (char) value;
+    }
+
+    private void expect(char expectedChar) throws IOException {
+        if(peekNonWhitespace() != expectedChar)
+            throw error("Expected '" + expectedChar + "'");
+
+        bufferPosition++;
+    }
+
+    private int peekNonWhitespace() throws IOException {
+        int nextChar;
+        while((nextChar = peek()) == ' ' || nextChar == '\n' || nextChar == '\r' || nextChar == '\t')
+            bufferPosition++;
+
+        return nextChar;
+    }
+
+    private int peek() throws IOException {
+        if(bufferPosition == bufferLimit && !fillBuffer())
+            return -1;
+
+        return buffer[bufferPosition];
+    }
+
+    private int read() throws IOException {
+        if(bufferPosition == bufferLimit && !fillBuffer())
+            return -1;
+
+        return buffer[bufferPosition++];
+    }
+
+    // Returns false at the end of the stream.
+    private boolean fillBuffer() throws IOException {
+        int readCount;
+        do {
+            readCount = reader.read(buffer, 0, buffer.length);
+        } while(readCount == 0);
+
+        if(readCount == -1)
+            return false;
+
+        bufferOffset += bufferLimit;
+        bufferPosition = 0;
+        bufferLimit = readCount;
+
+        return true;
+    }
+
+    private IOException error(String message) {
+        return new IOException(message + " at the character " + (bufferOffset + bufferPosition) + " of the food menu JSON!");
+    }
+}
@@ -0,0 +1,271 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Writes food menus as JSON straight to a stream, without building any intermediate objects. Each food menu is
+ * written on a separate line (i.e. multiple food menus form a JSON Lines stream), in the following format:
+ *
+ * {"days":[{"date":"2021-10-04","dishes":[{"name":"Oběd 1","place":"Hlavní jídelna","description":"Ham and eggs"}]}]}
+ *
+ * The food menus can be written whole or day by day, and they can be read back by JSONFoodMenuReader.
+ * The output is buffered - call flush() or close() when done. The class isn't thread-safe.
+ */
+public final class JSONFoodMenuWriter implements Closeable, Flushable {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final Writer writer;
+    private final char[] buffer = new char[8192];
+    private int bufferPosition = 0;
+
+    private boolean insideFoodMenu = false;
+    private boolean firstDay = true;
+
+    /**
+     * Instantiates the JSONFoodMenuWriter class.
+     *
+     * @param writer The writer to write the JSON to.
+     */
+    public JSONFoodMenuWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Instantiates the JSONFoodMenuWriter class, which writes the JSON encoded in UTF-8.
+     *
+     * @param outputStream The stream to write the JSON to.
+     */
+    public JSONFoodMenuWriter(OutputStream outputStream) {
+        this(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes a whole food menu.
+     *
+     * @param foodMenu The food menu to write.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writeFoodMenu(FoodMenu foodMenu) throws IOException {
+        beginFoodMenu();
+        for(FoodMenu.Day day : foodMenu.getDays())
+            writeDay(day);
+
+        endFoodMenu();
+    }
+
+    /**
+     * Begins a new food menu, whose days are then written by writeDay(). Call endFoodMenu() after the last day.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    public void beginFoodMenu() throws IOException {
+        if(insideFoodMenu)
+            throw new IllegalStateException("The previous food menu hasn't been ended!");
+
+        writeRaw("{\"days\":[");
+        insideFoodMenu = true;
+        firstDay = true;
+    }
+
+    /**
+     * Writes a single day of the current food menu.
+     *
+     * @param day The day to write.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writeDay(FoodMenu.Day day) throws IOException {
+        if(!insideFoodMenu)
+            throw new IllegalStateException("No food menu has been begun!");
+
+        writeRaw(firstDay ? "{\"date\":\"" : ",{\"date\":\"");
+        firstDay = false;
+        writeDate(day.getLocalDate());
+        writeRaw("\",\"dishes\":[");
+
+        boolean firstDish = true;
+        for(FoodMenu.Dish dish : day.getDishes()) {
+            writeRaw(firstDish ? "{\"name\":" : ",{\"name\":");
+            firstDish = false;
+            writeString(dish.getDishName());
+            writeRaw(",\"place\":");
+            writeString(dish.getDishPlace());
+            writeRaw(",\"description\":");
+            writeString(dish.getDishDescription());
+            writeChar('}');
+        }
+
+        writeRaw("]}");
+    }
+
+    /**
+     * Ends the current food menu.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    public void endFoodMenu() throws IOException {
+        if(!insideFoodMenu)
+            throw new IllegalStateException("No food menu has been begun!");
+
+        writeRaw("]}\n");
+        insideFoodMenu = false;
+    }
+
+    /**
+     * Writes the buffered JSON to the underlying writer and flushes it.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        writer.flush();
+    }
+
+    /**
+     * Writes the buffered JSON to the underlying writer and closes it.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            writer.close();
+        }
+    }
+
+    // ISO 8601 (YYYY-MM-DD), written without formatting a string first.
+    private void writeDate(LocalDate date) throws IOException {
+        int year = date.getYear();
+        if(year < 0 || year > 9999) {
+            writeRaw(date.toString()); // the expanded format, e.g. +10000-01-01
+            return;
+        }
+
+        writeDigits(year, 4);
+        writeChar('-');
+        writeDigits(date.getMonthValue(), 2);
+        writeChar('-');
+        writeDigits(date.getDayOfMonth(), 2);
+    }
+
+    private void writeDigits(int value, int digitCount) throws IOException {
+        if(buffer.length - bufferPosition < digitCount)
+            flushBuffer();
+
+        for(int i = bufferPosition + digitCount - 1; i >= bufferPosition; i--) {
+            buffer[i] = (char) ('0' + (value % 10));
+            value /= 10;
+        }
+        bufferPosition += digitCount;
+    }
+
+    private void writeString(String string) throws IOException {
+        writeChar('"');
+
+        int length = string.length();
+        for(int i = 0; i < length; i++) {
+            if(buffer.length - bufferPosition < 6) // the longest escape sequence
+                flushBuffer();
+
+            char currentChar = string.charAt(i);
+            if(currentChar >= 0x20 && currentChar != '"' && currentChar != '\\' && currentChar != '\u2028' && currentChar != '\u2029') {
+                buffer[bufferPosition++] = currentChar;
+                continue;
+            }
+
+            buffer[bufferPosition++] = '\\';
+            switch(currentChar) {
+                case '"': buffer[bufferPosition++] = '"'; break;
+                case '\\': buffer[bufferPosition++] = '\\'; break;
+                case '\n': buffer[bufferPosition++] = 'n'; break;
+                case '\r': buffer[bufferPosition++] = 'r'; break;
+                case '\t': buffer[bufferPosition++] = 't'; break;
+                case '\b': buffer[bufferPosition++] = 'b'; break;
+                case '\f': buffer[bufferPosition++] = 'f'; break;
+                default: // the other control characters, and the line separators which JavaScript doesn't allow in strings
+                    buffer[bufferPosition++] = 'u';
+                    buffer[bufferPosition++] = HEX_DIGITS[(currentChar >> 12) & 0xF];
+                    buffer[bufferPosition++] = HEX_DIGITS[(currentChar >> 8) & 0xF];
+                    buffer[bufferPosition++] = HEX_DIGITS[(currentChar >> 4) & 0xF];
+                    buffer[bufferPosition++] = HEX_DIGITS[currentChar & 0xF];
+            }
+        }
+
+        writeChar('"');
+    }
+
+    private void writeRaw(String string) throws IOException {
+        int length = string.length();
+        if(buffer.length - bufferPosition < length)
+            flushBuffer(); // the raw strings are short
+
+        string.getChars(0, length, buffer, bufferPosition);
+        bufferPosition += length;
+    }
+
+    private void writeChar(char character) throws IOException {
+        if(bufferPosition == buffer.length)
+            flushBuffer();
+
+        buffer[bufferPosition++] = character;
+    }
+
+    private void flushBuffer() throws IOException {
+        if(bufferPosition > 0) {
+            writer.write(buffer, 0, bufferPosition);
+            bufferPosition = 0;
+        }
+    }
+}
@@ -0,0 +1,633 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A persistent, append-only history of the food menus of many canteens, stored in a directory. Each day of a food
+ * menu is stored separately, keyed by the canteen's URL and the day's date; storing a day which is already in the
+ * archive with the same dishes does nothing, while a changed day is stored again and replaces the older version in the
+ * lookups (the older versions stay in the data file).
+ *
+ * The days are looked up using a sorted index, and both the index and the days are read from memory-mapped files, so
+ * looking up a date range of a single canteen reads (and decodes) just the days in that range, regardless of the size
+ * of the archive. The newly stored days are kept in an in-memory index until flush() or close() merges it into the
+ * index file; if the program crashes before that, the days are recovered from the data file the next time the archive
+ * is opened. The archive's data file is limited to 2 GiB.
+ *
+ * Every merge writes a new index file (index-1.dat, index-2.dat, ...) instead of replacing the mapped one, which
+ * Windows wouldn't allow; the older index files are deleted as soon as possible, at the latest when the archive is
+ * opened the next time.
+ *
+ * The class is thread-safe, but only one instance (in one process) may use the directory at a time.
+ */
+public class MenuArchive implements Closeable {
+    private static final byte[] DATA_MAGIC = new byte[] {'I', 'C', 'M', 'D'};
+    private static final byte[] INDEX_MAGIC = new byte[] {'I', 'C', 'M', 'I'};
+    private static final byte[] CANTEENS_MAGIC = new byte[] {'I', 'C', 'M', 'C'};
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_LENGTH = 8; // magic, version, 3 reserved bytes
+
+    // The data file: the header, then the records - payload length (int), canteen ID (int), epoch day (int), payload
+    // (the day encoded by BinaryFoodMenuWriter).
+    private static final int RECORD_HEADER_LENGTH = 12;
+    // The index file: the header, the length of the data file covered by the index (long), the entry count (int), and
+    // then the entries sorted by canteen ID and epoch day - canteen ID (int), epoch day (int), record offset (long).
+    private static final int INDEX_HEADER_LENGTH = FILE_HEADER_LENGTH + 12;
+    private static final int INDEX_ENTRY_LENGTH = 16;
+
+    private static final int CODEC_BUFFER_SIZE = 512; // a typical day takes about 300 bytes
+
+    private final Path directory;
+    private final FileChannel dataChannel;
+    private final FileChannel canteensChannel;
+
+    private final ArrayList<String> canteens = new ArrayList<>();
+    private final HashMap<String, Integer> canteenIDs = new HashMap<>();
+
+    private MappedByteBuffer dataMap; // may be shorter than the data file - see mapData()
+    private MappedByteBuffer indexMap;
+    private int indexEntryCount;
+    private long indexGeneration = 0; // the number in the name of the current index file; 0 = no index file yet
+    private final TreeMap<Long, Long> pendingIndex = new TreeMap<>(); // the index key -> the record offset
+    private boolean opened = false;
+    private boolean closed = false;
+
+    /**
+     * Opens the archive in a directory, or creates a new one if the directory doesn't contain any.
+     *
+     * @param directory The directory of the archive. It's created if it doesn't exist.
+     * @throws IOException If the archive can't be opened, or if its files are corrupted.
+     */
+    public MenuArchive(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+
+        dataChannel = FileChannel.open(directory.resolve("days.dat"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            canteensChannel = FileChannel.open(directory.resolve("canteens.dat"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            dataChannel.close();
+            throw e;
+        }
+
+        try {
+            initializeFile(dataChannel, DATA_MAGIC);
+            initializeFile(canteensChannel, CANTEENS_MAGIC);
+            loadCanteens();
+            loadIndex();
+        } catch (IOException | RuntimeException e) {
+            close(); // doesn't flush, since the archive hasn't been opened
+            throw e;
+        }
+
+        opened = true;
+    }
+
+    /**
+     * Stores the days of a food menu which aren't in the archive yet, or which have changed since they were stored.
+     *
+     * @param url The URL of the canteen's login page.
+     * @param foodMenu The food menu to store.
+     * @return The number of the stored (i.e. new or changed) days.
+     * @throws IOException If an I/O error occurs.
+     */
+    public synchronized int store(URL url, FoodMenu foodMenu) throws IOException {
+        ensureOpen();
+        int canteenID = getOrAddCanteenID(url.toString());
+
+        int storedDayCount = 0;
+        for(FoodMenu.Day day : foodMenu.getDays()) {
+            int epochDay = toIntEpochDay(day.getLocalDate());
+            byte[] payload = encodeDay(day);
+
+            long existingOffset = findRecordOffset(canteenID, epochDay);
+            if(existingOffset != -1 && readPayload(existingOffset).equals(ByteBuffer.wrap(payload)))
+                continue; // deduplicated
+
+            pendingIndex.put(toIndexKey(canteenID, epochDay), appendRecord(canteenID, epochDay, payload));
+            storedDayCount++;
+        }
+
+        return storedDayCount;
+    }
+
+    /**
+     * Gets the stored day of a canteen's food menu.
+     *
+     * @param url The URL of the canteen's login page.
+     * @param date The date of the day.
+     * @return The latest stored version of the day, or null if the day isn't in the archive.
+     * @throws IOException If an I/O error occurs, or if the archive is corrupted.
+     */
+    public synchronized FoodMenu.Day getDay(URL url, LocalDate date) throws IOException {
+        ensureOpen();
+        Integer canteenID = canteenIDs.get(url.toString());
+        if(canteenID == null)
+            return null;
+
+        long offset = findRecordOffset(canteenID, toIntEpochDay(date));
+
+        return (offset != -1) ? decodeDay(readPayload(offset)) : null;
+    }
+
+    /**
+     * Gets the stored days of a canteen's food menu in a date range.
+     *
+     * @param url The URL of the canteen's login page.
+     * @param from The first date of the range.
+     * @param to The last date of the range (inclusive).
+     * @return The food menu with the latest stored versions of the days in the range, sorted by their dates.
+     * @throws IOException If an I/O error occurs, or if the archive is corrupted.
+     */
+    public synchronized FoodMenu getDays(URL url, LocalDate from, LocalDate to) throws IOException {
+        ensureOpen();
+        FoodMenu foodMenu = new FoodMenu();
+        Integer canteenID = canteenIDs.get(url.toString());
+        if(canteenID == null || from.isAfter(to))
+            return foodMenu;
+
+        long fromKey = toIndexKey(canteenID, toIntEpochDay(from));
+        long toKey = toIndexKey(canteenID, toIntEpochDay(to));
+
+        // The index file and the pending index are merged; the pending one has the newer versions of the days.
+        Map<Long, Long> pendingEntries = pendingIndex.subMap(fromKey, true, toKey, true);
+        ArrayList<Long> offsets = new ArrayList<>();
+        int indexPosition = findIndexPosition(fromKey);
+        for(Map.Entry<Long, Long> pendingEntry : pendingEntries.entrySet()) {
+            for(; indexPosition < indexEntryCount && getIndexKey(indexPosition) < pendingEntry.getKey(); indexPosition++)
+                offsets.add(getIndexOffset(indexPosition));
+            if(indexPosition < indexEntryCount && getIndexKey(indexPosition) == pendingEntry.getKey())
+                indexPosition++; // replaced by the pending entry
+
+            offsets.add(pendingEntry.getValue());
+        }
+        for(; indexPosition < indexEntryCount && getIndexKey(indexPosition) <= toKey; indexPosition++)
+            offsets.add(getIndexOffset(indexPosition));
+
+        for(long offset : offsets)
+            foodMenu.getDays().add(decodeDay(readPayload(offset)));
+
+        return foodMenu;
+    }
+
+    /**
+     * Gets the URLs of all the canteens in the archive.
+     *
+     * @return The URLs of the canteens' login pages, in the order in which they were first stored.
+     */
+    public synchronized List<String> getCanteenURLs() {
+        return new ArrayList<>(canteens);
+    }
+
+    /**
+     * Writes the stored days to the disk and merges the in-memory index of the recently stored days into the index
+     * file. The merge rewrites the whole index file, so it's better to call this method after storing a batch of food
+     * menus than after each one.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    public synchronized void flush() throws IOException {
+        ensureOpen();
+        canteensChannel.force(false);
+        dataChannel.force(false);
+
+        if(!pendingIndex.isEmpty())
+            writeIndex();
+    }
+
+    /**
+     * Flushes the archive (see flush()) and closes its files.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if(closed)
+            return;
+
+        try {
+            if(opened)
+                flush();
+        } finally {
+            closed = true;
+            dataMap = null;
+            indexMap = null;
+            try {
+                dataChannel.close();
+            } finally {
+                canteensChannel.close();
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if(closed)
+            throw new IOException("The menu archive has been closed!");
+    }
+
+    // Writes the header to a new file, or checks the header of an existing one.
+    private static void initializeFile(FileChannel channel, byte[] magic) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_LENGTH);
+        if(channel.size() == 0) {
+            ((Buffer) header.put(magic).put((byte) VERSION)).rewind(); // including the reserved bytes
+            writeFully(channel, header, 0);
+            return;
+        }
+
+        readFully(channel, header, 0);
+        for(int i = 0; i < magic.length; i++) {
+            if(header.get(i) != magic[i])
+                throw new IOException("The menu archive's file is corrupted or it belongs to something else!");
+        }
+        if(header.get(magic.length) != VERSION)
+            throw new IOException("Unsupported version of the menu archive! (" + header.get(magic.length) + ")");
+    }
+
+    private void loadCanteens() throws IOException {
+        long fileSize = canteensChannel.size();
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(fileSize, Integer.MAX_VALUE));
+        readFully(canteensChannel, buffer, 0);
+        ((Buffer) buffer).position(FILE_HEADER_LENGTH);
+
+        while(buffer.remaining() >= 4) {
+            int length = buffer.getInt(buffer.position());
+            if(length < 0 || length > buffer.remaining() - 4)
+                break; // an incomplete entry - see below
+
+            ((Buffer) buffer).position(buffer.position() + 4);
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            addCanteen(new String(bytes, StandardCharsets.UTF_8));
+        }
+
+        // The program may have crashed in the middle of writing the last entry.
+        canteensChannel.truncate(buffer.position());
+    }
+
+    private void loadIndex() throws IOException {
+        // The newest index file is the current one. The older ones, and the temporary file of an interrupted merge, are
+        // left over from the last time the archive was open.
+        ArrayList<Path> obsoletePaths = new ArrayList<>();
+        try (DirectoryStream<Path> indexPaths = Files.newDirectoryStream(directory, "index-*.dat*")) {
+            for(Path path : indexPaths) {
+                long generation = parseIndexGeneration(path.getFileName().toString());
+                if(generation > indexGeneration) {
+                    if(indexGeneration != 0)
+                        obsoletePaths.add(getIndexPath(indexGeneration));
+                    indexGeneration = generation;
+                } else if(generation != 0 || path.getFileName().toString().endsWith(".tmp")) {
+                    obsoletePaths.add(path);
+                }
+            }
+        }
+        for(Path obsoletePath : obsoletePaths)
+            deleteIfPossible(obsoletePath);
+
+        long coveredDataLength = FILE_HEADER_LENGTH;
+        if(indexGeneration != 0) {
+            Path indexPath = getIndexPath(indexGeneration);
+            try (FileChannel indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+                initializeFile(indexChannel, INDEX_MAGIC);
+                indexMap = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexChannel.size());
+            }
+
+            coveredDataLength = indexMap.getLong(FILE_HEADER_LENGTH);
+            indexEntryCount = indexMap.getInt(FILE_HEADER_LENGTH + 8);
+            if(indexMap.capacity() != INDEX_HEADER_LENGTH + ((long) indexEntryCount * INDEX_ENTRY_LENGTH) || coveredDataLength > dataChannel.size())
+                throw new IOException("The menu archive's index is corrupted!");
+        }
+
+        recoverPendingIndex(coveredDataLength);
+    }
+
+    // Re-indexes the records which have been appended after the index file was written last time.
+    private void recoverPendingIndex(long offset) throws IOException {
+        long dataSize = dataChannel.size();
+        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_LENGTH);
+        while(offset + RECORD_HEADER_LENGTH <= dataSize) {
+            ((Buffer) recordHeader).clear();
+            readFully(dataChannel, recordHeader, offset);
+
+            int payloadLength = recordHeader.getInt(0);
+            int canteenID = recordHeader.getInt(4);
+            long recordEnd = offset + RECORD_HEADER_LENGTH + payloadLength;
+            if(payloadLength < 0 || recordEnd > dataSize || canteenID < 0 || canteenID >= canteens.size())
+                break; // an incomplete record - see below
+
+            pendingIndex.put(toIndexKey(canteenID, recordHeader.getInt(8)), offset);
+            offset = recordEnd;
+        }
+
+        // The program may have crashed in the middle of writing the last record.
+        dataChannel.truncate(offset);
+    }
+
+    private void writeIndex() throws IOException {
+        long dataSize = dataChannel.size();
+        int newEntryCount = 0;
+        long newIndexGeneration = indexGeneration + 1;
+        Path indexPath = getIndexPath(newIndexGeneration);
+        Path temporaryPath = directory.resolve(indexPath.getFileName() + ".tmp");
+        try (FileChannel indexChannel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            buffer.put(INDEX_MAGIC).put((byte) VERSION).put(new byte[3]).putLong(dataSize).putInt(0); // the count is written below
+            long position = 0;
+
+            // Merges the sorted index file with the sorted pending index.
+            int indexPosition = 0;
+            for(Map.Entry<Long, Long> pendingEntry : pendingIndex.entrySet()) {
+                for(; indexPosition < indexEntryCount && getIndexKey(indexPosition) < pendingEntry.getKey(); indexPosition++) {
+                    position = putIndexEntry(indexChannel, buffer, position, getIndexKey(indexPosition), getIndexOffset(indexPosition));
+                    newEntryCount++;
+                }
+                if(indexPosition < indexEntryCount && getIndexKey(indexPosition) == pendingEntry.getKey())
+                    indexPosition++; // replaced by the pending entry
+
+                position = putIndexEntry(indexChannel, buffer, position, pendingEntry.getKey(), pendingEntry.getValue());
+                newEntryCount++;
+            }
+            for(; indexPosition < indexEntryCount; indexPosition++) {
+                position = putIndexEntry(indexChannel, buffer, position, getIndexKey(indexPosition), getIndexOffset(indexPosition));
+                newEntryCount++;
+            }
+
+            ((Buffer) buffer).flip();
+            writeFully(indexChannel, buffer, position);
+
+            ByteBuffer entryCount = ByteBuffer.allocate(4).putInt(newEntryCount);
+            ((Buffer) entryCount).flip();
+            writeFully(indexChannel, entryCount, FILE_HEADER_LENGTH + 8);
+            indexChannel.force(false);
+        }
+
+        // The new index file becomes the current one once it's complete under its final name.
+        Files.move(temporaryPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        try (FileChannel indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            indexMap = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexChannel.size());
+        }
+        indexEntryCount = newEntryCount;
+        pendingIndex.clear();
+
+        // Windows doesn't delete a file while it's mapped (until the mapping is garbage-collected), so the old index
+        // file may have to wait for the next opening of the archive.
+        if(indexGeneration != 0)
+            deleteIfPossible(getIndexPath(indexGeneration));
+        indexGeneration = newIndexGeneration;
+    }
+
+    private Path getIndexPath(long generation) {
+        return directory.resolve("index-" + generation + ".dat");
+    }
+
+    // Returns 0 for the temporary files and the names which don't belong to an index file.
+    private static long parseIndexGeneration(String fileName) {
+        if(!fileName.startsWith("index-") || !fileName.endsWith(".dat"))
+            return 0;
+
+        try {
+            return Math.max(Long.parseLong(fileName.substring(6, fileName.length() - 4)), 0);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void deleteIfPossible(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {}
+    }
+
+    // Returns the new position of the buffer's start in the file.
+    private static long putIndexEntry(FileChannel channel, ByteBuffer buffer, long position, long indexKey, long offset) throws IOException {
+        if(buffer.remaining() < INDEX_ENTRY_LENGTH) {
+            ((Buffer) buffer).flip();
+            int length = buffer.remaining();
+            writeFully(channel, buffer, position);
+            ((Buffer) buffer).clear();
+            position += length;
+        }
+
+        buffer.putInt(getCanteenID(indexKey)).putInt(getEpochDay(indexKey)).putLong(offset);
+
+        return position;
+    }
+
+    private int getOrAddCanteenID(String canteenURL) throws IOException {
+        Integer canteenID = canteenIDs.get(canteenURL);
+        if(canteenID != null)
+            return canteenID;
+
+        byte[] bytes = canteenURL.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer entry = ByteBuffer.allocate(4 + bytes.length).putInt(bytes.length).put(bytes);
+        ((Buffer) entry).flip();
+        writeFully(canteensChannel, entry, canteensChannel.size());
+
+        // The canteen must reach the disk before the first record referring to it. Otherwise a crash could leave the
+        // record without its canteen, and the recovery would take it for an incomplete record and truncate the data
+        // file there (together with all the records after it).
+        canteensChannel.force(false);
+
+        return addCanteen(canteenURL);
+    }
+
+    private int addCanteen(String canteenURL) {
+        canteens.add(canteenURL);
+        canteenIDs.put(canteenURL, canteens.size() - 1);
+
+        return canteens.size() - 1;
+    }
+
+    private long appendRecord(int canteenID, int epochDay, byte[] payload) throws IOException {
+        long offset = dataChannel.size();
+        if(offset + RECORD_HEADER_LENGTH + payload.length > Integer.MAX_VALUE)
+            throw new IOException("The menu archive is full!");
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_LENGTH + payload.length);
+        ((Buffer) record.putInt(payload.length).putInt(canteenID).putInt(epochDay).put(payload)).flip();
+        writeFully(dataChannel, record, offset);
+
+        return offset;
+    }
+
+    // Returns -1 if the day isn't in the archive.
+    private long findRecordOffset(int canteenID, int epochDay) {
+        long indexKey = toIndexKey(canteenID, epochDay);
+        Long pendingOffset = pendingIndex.get(indexKey);
+        if(pendingOffset != null)
+            return pendingOffset;
+
+        int indexPosition = findIndexPosition(indexKey);
+
+        return (indexPosition < indexEntryCount && getIndexKey(indexPosition) == indexKey) ? getIndexOffset(indexPosition) : -1;
+    }
+
+    // Returns the position of the first index entry whose key is greater than or equal to the specified one.
+    private int findIndexPosition(long indexKey) {
+        int low = 0;
+        int high = indexEntryCount;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(getIndexKey(middle) < indexKey)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+
+        return low;
+    }
+
+    private long getIndexKey(int indexPosition) {
+        int entryOffset = INDEX_HEADER_LENGTH + (indexPosition * INDEX_ENTRY_LENGTH);
+
+        return toIndexKey(indexMap.getInt(entryOffset), indexMap.getInt(entryOffset + 4));
+    }
+
+    private long getIndexOffset(int indexPosition) {
+        return indexMap.getLong(INDEX_HEADER_LENGTH + (indexPosition * INDEX_ENTRY_LENGTH) + 8);
+    }
+
+    private ByteBuffer readPayload(long offset) throws IOException {
+        ByteBuffer data = mapData(offset + RECORD_HEADER_LENGTH);
+        int payloadLength = data.getInt((int) offset);
+        int payloadStart = (int) offset + RECORD_HEADER_LENGTH;
+        if(payloadLength < 0 || payloadStart + payloadLength > data.capacity())
+            data = mapData(payloadStart + (long) Math.max(payloadLength, 0));
+        if(payloadLength < 0 || payloadStart + payloadLength > data.capacity())
+            throw new IOException("The menu archive's data file is corrupted!");
+
+        ByteBuffer payload = data.duplicate();
+        ((Buffer) payload).limit(payloadStart + payloadLength).position(payloadStart);
+
+        return payload.slice();
+    }
+
+    // The data file is mapped again (as a whole) whenever a record beyond the end of the current mapping is read.
+    private ByteBuffer mapData(long requiredLength) throws IOException {
+        if(dataMap == null || dataMap.capacity() < requiredLength) {
+            long dataSize = dataChannel.size();
+            if(requiredLength > dataSize)
+                throw new IOException("The menu archive's data file is corrupted!");
+
+            dataMap = dataChannel.map(FileChannel.MapMode.READ_ONLY, 0, dataSize);
+        }
+
+        return dataMap;
+    }
+
+    private static byte[] encodeDay(FoodMenu.Day day) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(256);
+        try (BinaryFoodMenuWriter writer = new BinaryFoodMenuWriter(outputStream, CODEC_BUFFER_SIZE)) {
+            writer.writeDay(day);
+            writer.endFoodMenu();
+        }
+
+        return outputStream.toByteArray();
+    }
+
+    private static FoodMenu.Day decodeDay(ByteBuffer payload) throws IOException {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+
+        FoodMenu.Day day = new BinaryFoodMenuReader(new ByteArrayInputStream(bytes), CODEC_BUFFER_SIZE).readDay();
+        if(day == null)
+            throw new IOException("The menu archive's data file is corrupted!");
+
+        return day;
+    }
+
+    private static int toIntEpochDay(LocalDate date) {
+        return Math.toIntExact(date.toEpochDay()); // LocalDate's range fits into an int
+    }
+
+    // The keys are ordered by the canteen ID and then by the (signed) epoch day.
+    private static long toIndexKey(int canteenID, int epochDay) {
+        return ((long) canteenID << 32) | ((long) epochDay - Integer.MIN_VALUE);
+    }
+
+    private static int getCanteenID(long indexKey) {
+        return (int) (indexKey >>> 32);
+    }
+
+    private static int getEpochDay(long indexKey) {
+        return (int) ((indexKey & 0xFFFFFFFFL) + Integer.MIN_VALUE);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            int readCount = channel.read(buffer, position);
+            if(readCount == -1)
+                throw new IOException("The menu archive's file has ended unexpectedly!");
+
+            position += readCount;
+        }
+        ((Buffer) buffer).flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining())
+            position += channel.write(buffer, position);
+    }
+}
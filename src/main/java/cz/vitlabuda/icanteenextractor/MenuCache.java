@@ -0,0 +1,177 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of the food menus extracted by ICanteenExtractor, used to avoid downloading and parsing a login
+ * page which hasn't changed since the last extraction.
+ * The HTTP validators (ETag and Last-Modified) received with each page are stored and sent back with the next request
+ * to the same URL - if the server replies with "304 Not Modified", the cached food menu is returned. If the server
+ * doesn't support conditional requests, the page is downloaded, but it isn't parsed again if its content is the same.
+ * When the cache is full, the least recently used entries are discarded.
+ */
+public class MenuCache {
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    static final class CachedPage {
+        private final String entityTag;
+        private final String lastModified;
+        private final byte[] contentHash;
+        private final CompactFoodMenu foodMenu; // many food menus are kept for a long time
+
+        // A compact copy of the food menu is made, so the caller can go on using (and modifying) it.
+        CachedPage(String entityTag, String lastModified, byte[] contentHash, FoodMenu foodMenu) {
+            this(entityTag, lastModified, contentHash, CompactFoodMenu.of(foodMenu));
+        }
+
+        private CachedPage(String entityTag, String lastModified, byte[] contentHash, CompactFoodMenu foodMenu) {
+            this.entityTag = entityTag;
+            this.lastModified = lastModified;
+            this.contentHash = contentHash;
+            this.foodMenu = foodMenu;
+        }
+
+        CachedPage withValidators(String entityTag, String lastModified) {
+            return new CachedPage(entityTag, lastModified, contentHash, foodMenu);
+        }
+
+        String getEntityTag() {
+            return entityTag;
+        }
+
+        String getLastModified() {
+            return lastModified;
+        }
+
+        byte[] getContentHash() {
+            return contentHash;
+        }
+
+        FoodMenu getFoodMenuCopy() {
+            return foodMenu.toFoodMenu();
+        }
+    }
+
+    private final LinkedHashMap<String, CachedPage> entries;
+    private final AtomicLong notModifiedCount = new AtomicLong();
+    private final AtomicLong unchangedContentCount = new AtomicLong();
+
+    /**
+     * Instantiates the MenuCache class with the default maximum number of entries.
+     */
+    public MenuCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Instantiates the MenuCache class.
+     *
+     * @param maxEntries The maximum number of cached food menus (one per URL).
+     */
+    public MenuCache(int maxEntries) {
+        if(maxEntries < 1)
+            throw new IllegalArgumentException("The maximum number of entries must be at least 1!");
+
+        this.entries = new LinkedHashMap<String, CachedPage>(16, 0.75f, true) { // access order = LRU
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedPage> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Gets the number of cached food menus.
+     *
+     * @return The number of entries.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all the cached food menus.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Gets the number of extractions for which the server has replied with "304 Not Modified".
+     *
+     * @return The number of not modified responses.
+     */
+    public long getNotModifiedCount() {
+        return notModifiedCount.get();
+    }
+
+    /**
+     * Gets the number of extractions for which the downloaded page was the same as the cached one, so it wasn't parsed.
+     *
+     * @return The number of unchanged pages.
+     */
+    public long getUnchangedContentCount() {
+        return unchangedContentCount.get();
+    }
+
+    synchronized CachedPage get(String url) {
+        return entries.get(url);
+    }
+
+    synchronized void put(String url, CachedPage cachedPage) {
+        entries.put(url, cachedPage);
+    }
+
+    void countNotModified() {
+        notModifiedCount.incrementAndGet();
+    }
+
+    void countUnchangedContent() {
+        unchangedContentCount.incrementAndGet();
+    }
+}
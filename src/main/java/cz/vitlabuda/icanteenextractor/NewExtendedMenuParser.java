@@ -43,24 +43,30 @@ COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER I
 OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 */
 
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
 class NewExtendedMenuParser extends FoodMenuParserBase {
     @Override
-    FoodMenu parseHTMLToFoodMenu(String html) throws Exception, Error {
-        FoodMenu foodMenu = new FoodMenu();
+    boolean recognizesLayout(Element jidelnicekDen) {
+        if(jidelnicekDen.selectFirst(".jidelnicekTop") == null)
+            return false;
+
+        Element container = jidelnicekDen.selectFirst(".container");
+        return (container != null && container.select(".jidelnicekItem").size() >= 3); // name, place, content
+    }
 
-        Document document = Jsoup.parse(html);
+    @Override
+    FoodMenu parseHTMLToFoodMenu(Document document) throws Exception, Error {
+        FoodMenu foodMenu = new FoodMenu();
 
-        for(Element jidelnicekDen : document.selectFirst(".jidelnicekWeb").select(".jidelnicekDen")) { // day
-            String dateString = jidelnicekDen.selectFirst(".jidelnicekTop").attr("id");
+        for(Element jidelnicekDen : selectFirstElement(document, ".jidelnicekWeb").select(".jidelnicekDen")) { // day
+            String dateString = selectFirstElement(jidelnicekDen, ".jidelnicekTop").attr("id");
             FoodMenu.Day day = new FoodMenu.Day(parseDateString(dateString));
 
             for(Element container : jidelnicekDen.select(".container")) { // dish
-                Elements jidelnicekItems = container.select(".jidelnicekItem");
+                Elements jidelnicekItems = selectElements(container, ".jidelnicekItem", 3);
 
                 String dishName = jidelnicekItems.get(0).text();
                 String dishPlace = jidelnicekItems.get(1).text();
@@ -43,30 +43,39 @@ COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER I
 OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 */
 
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
 class OldExtendedMenuParser extends FoodMenuParserBase {
     @Override
-    FoodMenu parseHTMLToFoodMenu(String html) throws Exception, Error {
-        FoodMenu foodMenu = new FoodMenu();
+    boolean recognizesLayout(Element jidelnicekDen) {
+        if(jidelnicekDen.selectFirst(".container") != null)
+            return false;
 
-        Document document = Jsoup.parse(html);
+        Elements jidelnicekDenChildren = jidelnicekDen.children();
+        return (jidelnicekDenChildren.size() >= 2 && jidelnicekDenChildren.get(1).selectFirst(".smallBoldTitle") != null);
+    }
 
-        for(Element jidelnicekDen : document.selectFirst(".jidelnicekWeb").select(".jidelnicekDen")) {
+    @Override
+    FoodMenu parseHTMLToFoodMenu(Document document) throws Exception, Error {
+        FoodMenu foodMenu = new FoodMenu();
+
+        for(Element jidelnicekDen : selectFirstElement(document, ".jidelnicekWeb").select(".jidelnicekDen")) {
             Elements jidelnicekDenChildren = jidelnicekDen.children();
+            if(jidelnicekDenChildren.size() < 2)
+                throw new FoodMenuParserException("The iCanteen day element doesn't contain the date and the dishes!");
 
             String dateString = jidelnicekDenChildren.get(0).attr("id");
             FoodMenu.Day day = new FoodMenu.Day(parseDateString(dateString));
 
             for(Element dishDiv : jidelnicekDenChildren.get(1).children()) {
-                String dishName = dishDiv.selectFirst(".smallBoldTitle").text();
-                String dishPlace = dishDiv.child(1).text();
-                String dishDescription = dishDiv.ownText();
+                if(dishDiv.childrenSize() < 2)
+                    throw new FoodMenuParserException("The iCanteen dish element doesn't contain the name and the place!");
 
-                dishDescription = dishDescription.replaceAll("^(\\s*--)+", "");
+                String dishName = selectFirstElement(dishDiv, ".smallBoldTitle").text();
+                String dishPlace = dishDiv.child(1).text();
+                String dishDescription = DishDescriptionNormalizer.stripLeadingDashes(dishDiv.ownText());
 
                 FoodMenu.Dish dish = new FoodMenu.Dish(dishName, dishPlace, dishDescription);
                 day.getDishes().add(dish);
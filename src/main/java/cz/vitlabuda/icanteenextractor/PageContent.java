@@ -0,0 +1,378 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// The raw bytes of a downloaded webpage. They are handed over to the HTML parser as they are, so the whole page
+// is never decoded into an intermediate String.
+final class PageContent {
+    private static final int DEFAULT_INITIAL_CAPACITY = 32768;
+    private static final int MAX_INITIAL_CAPACITY = 8388608; // a server may lie about the body's length
+    static final int DEFAULT_MAX_LENGTH = 16777216;
+
+    // The same detection of the charset as jsoup does
+    private static final int CHARSET_DETECTION_LENGTH = 5119;
+    private static final Pattern META_CHARSET_PATTERN = Pattern.compile("(?i)\\bcharset=\\s*(?:[\"'])?([^\\s,;\"']*)");
+
+    private final byte[] bytes;
+    private final int length;
+    private final String charsetName;
+
+    private PageContent(byte[] bytes, int length, String charsetName) {
+        this.bytes = bytes;
+        this.length = length;
+        this.charsetName = charsetName;
+    }
+
+    // Thrown when the webpage is longer than the maximum length (e.g. a small compressed body which expands to gigabytes).
+    static final class TooLargeException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        TooLargeException(int maxLength) {
+            super("The webpage is longer than " + maxLength + " bytes!");
+        }
+    }
+
+    // Reads the whole stream (see Recorder.fill()).
+    static PageContent read(InputStream inputStream, long expectedLength, String charsetName) throws IOException {
+        return read(inputStream, expectedLength, charsetName, DEFAULT_MAX_LENGTH);
+    }
+
+    static PageContent read(InputStream inputStream, long expectedLength, String charsetName, int maxLength) throws IOException {
+        return new Recorder(inputStream, expectedLength, charsetName, maxLength).finish();
+    }
+
+    InputStream asInputStream() {
+        return new ByteArrayInputStream(bytes, 0, length);
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    // Null if the server hasn't specified the charset - the HTML parser then looks for a <meta charset> tag (or a BOM).
+    String getCharsetName() {
+        return charsetName;
+    }
+
+    /*
+     * Decodes the content the same way jsoup does - the charset is taken from a byte order mark, from the server's
+     * Content-Type header, from a <meta> tag at the beginning of the webpage, or it's UTF-8. Returns null if the webpage
+     * starts with an XML declaration, whose encoding isn't looked for here.
+     */
+    Reader openReader() throws IOException {
+        return openReader(asInputStream(), bytes, length, charsetName);
+    }
+
+    // The input stream must start at the beginning of the webpage, whose first bytes are passed in the array.
+    private static Reader openReader(InputStream inputStream, byte[] bytes, int length, String charsetName) throws IOException {
+        String readerCharsetName = charsetName;
+
+        if(length >= 4) {
+            int byte0 = bytes[0] & 0xFF, byte1 = bytes[1] & 0xFF, byte2 = bytes[2] & 0xFF, byte3 = bytes[3] & 0xFF;
+            if((byte0 == 0x00 && byte1 == 0x00 && byte2 == 0xFE && byte3 == 0xFF) || (byte0 == 0xFF && byte1 == 0xFE && byte2 == 0x00 && byte3 == 0x00)) {
+                readerCharsetName = "UTF-32";
+            } else if((byte0 == 0xFE && byte1 == 0xFF) || (byte0 == 0xFF && byte1 == 0xFE)) {
+                readerCharsetName = "UTF-16";
+            } else if(byte0 == 0xEF && byte1 == 0xBB && byte2 == 0xBF) {
+                readerCharsetName = "UTF-8";
+                if(inputStream.skip(3) != 3)
+                    throw new IOException("Failed to skip the byte order mark!");
+            }
+        }
+
+        if(readerCharsetName == null) {
+            String beginning = new String(bytes, 0, Math.min(length, CHARSET_DETECTION_LENGTH), StandardCharsets.UTF_8);
+            if(startsWithXMLDeclaration(beginning))
+                return null;
+
+            readerCharsetName = findMetaCharsetName(beginning);
+        }
+
+        return new InputStreamReader(inputStream, readerCharsetName);
+    }
+
+    private static boolean startsWithXMLDeclaration(String beginning) {
+        String trimmedBeginning = beginning.trim();
+
+        return (trimmedBeginning.startsWith("<?") || trimmedBeginning.startsWith("<!--?") || trimmedBeginning.startsWith("<!--!"));
+    }
+
+    private static String findMetaCharsetName(String beginning) throws IOException {
+        MetaCharsetFinder metaCharsetFinder = new MetaCharsetFinder();
+        try {
+            new HTMLTokenizer(new StringReader(beginning), MetaCharsetFinder.ATTRIBUTE_NAMES).tokenize(metaCharsetFinder);
+        } catch (FoodMenuParserBase.FoodMenuParserException e) { // the finder doesn't throw it
+            throw new IllegalStateException(e);
+        }
+
+        String metaCharsetName = validateMetaCharsetName(metaCharsetFinder.charsetName);
+
+        return (metaCharsetName != null) ? metaCharsetName : "UTF-8";
+    }
+
+    private static String validateMetaCharsetName(String charsetName) {
+        if(charsetName == null)
+            return null;
+
+        charsetName = charsetName.trim().replaceAll("[\"']", "");
+        if(charsetName.isEmpty())
+            return null;
+
+        try {
+            if(Charset.isSupported(charsetName))
+                return charsetName;
+
+            charsetName = charsetName.toUpperCase(Locale.ENGLISH);
+            return Charset.isSupported(charsetName) ? charsetName : null;
+        } catch (IllegalCharsetNameException e) {
+            return null;
+        }
+    }
+
+    byte[] hash() {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            messageDigest.update(bytes, 0, length);
+
+            return messageDigest.digest();
+        } catch (NoSuchAlgorithmException e) { // every Java implementation must support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Extracts the charset from a Content-Type header value, e.g. "text/html; charset=windows-1250".
+    static String parseCharsetName(String contentType) {
+        if(contentType == null)
+            return null;
+
+        int charsetIndex = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if(charsetIndex == -1)
+            return null;
+
+        String charsetName = contentType.substring(charsetIndex + 8);
+        int semicolonIndex = charsetName.indexOf(';');
+        if(semicolonIndex != -1)
+            charsetName = charsetName.substring(0, semicolonIndex);
+
+        charsetName = charsetName.trim();
+        if(charsetName.length() >= 2 && charsetName.startsWith("\"") && charsetName.endsWith("\""))
+            charsetName = charsetName.substring(1, charsetName.length() - 1);
+
+        try {
+            return Charset.isSupported(charsetName) ? charsetName : null;
+        } catch (IllegalCharsetNameException e) {
+            return null;
+        }
+    }
+
+    /*
+     * Keeps the bytes read through it from the underlying stream, so that the webpage can be parsed while it's being
+     * downloaded, and still be available as a whole afterwards (e.g. to the DOM-based parsers or the menu cache).
+     * The underlying stream is read in the chunks in which its data arrive, and it isn't closed. Reading more than
+     * maxLength bytes from it fails with TooLargeException.
+     */
+    static final class Recorder extends InputStream {
+        private final InputStream source;
+        private final String charsetName;
+        private final int maxLength;
+        private byte[] bytes;
+        private int length = 0;
+        private int position = 0;
+        private boolean sourceExhausted = false;
+
+        Recorder(InputStream source, long expectedLength, String charsetName, int maxLength) {
+            if(maxLength < 1)
+                throw new IllegalArgumentException("The maximum length must be at least 1!");
+
+            int capacity = (expectedLength >= 0) ? (int) Math.min(expectedLength, MAX_INITIAL_CAPACITY) : DEFAULT_INITIAL_CAPACITY;
+
+            this.source = source;
+            this.charsetName = charsetName;
+            this.maxLength = maxLength;
+            this.bytes = new byte[Math.max(Math.min(capacity, maxLength), 1)];
+        }
+
+        // Returns null in the same case as PageContent.openReader(). Only one reader may be opened.
+        Reader openReader() throws IOException {
+            while(length < CHARSET_DETECTION_LENGTH && fill()); // the charset detection needs the beginning of the webpage
+
+            return PageContent.openReader(this, bytes, length, charsetName);
+        }
+
+        // Reads the rest of the webpage (which hasn't been read through the recorder).
+        PageContent finish() throws IOException {
+            while(fill());
+
+            return new PageContent(bytes, length, charsetName);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if(position == length && !fill())
+                return -1;
+
+            return bytes[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            if(count == 0)
+                return 0;
+
+            if(position == length && !fill())
+                return -1;
+
+            int readCount = Math.min(count, length - position);
+            System.arraycopy(bytes, position, buffer, offset, readCount);
+            position += readCount;
+
+            return readCount;
+        }
+
+        @Override
+        public int available() {
+            return length - position;
+        }
+
+        /*
+         * Appends the next chunk of the underlying stream to the array; returns false at its end. If the length of the
+         * content is known in advance (from the Content-Length header), the bytes are read directly into an array of
+         * exactly that size, so they are neither copied nor reallocated.
+         */
+        private boolean fill() throws IOException {
+            if(sourceExhausted)
+                return false;
+
+            if(length == bytes.length) {
+                int nextByte = source.read(); // avoids growing the array if it already contains the whole content
+                if(nextByte == -1) {
+                    sourceExhausted = true;
+                    return false;
+                }
+
+                if(length >= maxLength)
+                    throw new TooLargeException(maxLength);
+
+                bytes = Arrays.copyOf(bytes, (int) Math.min((long) bytes.length * 2, maxLength)); // long, so that it doesn't overflow
+                bytes[length++] = (byte) nextByte;
+                return true;
+            }
+
+            int read = source.read(bytes, length, bytes.length - length);
+            if(read == -1) {
+                sourceExhausted = true;
+                return false;
+            }
+
+            length += read;
+            return true;
+        }
+    }
+
+    // Looks for <meta http-equiv="Content-Type" content="text/html; charset=..."> or <meta charset="...">.
+    private static final class MetaCharsetFinder implements HTMLTokenizer.Handler {
+        private static final String[] ATTRIBUTE_NAMES = {"http-equiv", "content", "charset"};
+
+        private String charsetName = null;
+
+        @Override
+        public void startTag(String tagName, String[] attributeValues, boolean selfClosing) {
+            if(!tagName.equals("meta"))
+                return;
+
+            String httpEquiv = attributeValues[0];
+            String content = attributeValues[1];
+            String charset = attributeValues[2];
+            if((httpEquiv == null || !httpEquiv.trim().equalsIgnoreCase("content-type")) && charset == null)
+                return;
+
+            if(httpEquiv != null && content != null) {
+                Matcher matcher = META_CHARSET_PATTERN.matcher(content);
+                if(matcher.find())
+                    charsetName = validateMetaCharsetName(matcher.group(1).trim().replace("charset=", ""));
+            }
+
+            if(charsetName == null && charset != null)
+                charsetName = charset;
+        }
+
+        @Override
+        public void endTag(String tagName) {}
+
+        @Override
+        public void text(String text) {}
+
+        @Override
+        public void comment() {}
+
+        @Override
+        public void cdataSection() {}
+
+        @Override
+        public boolean wantsText() {
+            return false;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return (charsetName != null);
+        }
+    }
+}
@@ -0,0 +1,745 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An HTTP/1.1 client keeping the connections to the iCanteen servers open between requests (keep-alive), so that
+ * polling many canteens on the same host (e.g. strav.nasejidelna.cz) doesn't need a new TCP and TLS handshake
+ * for every request. The number of connections to a single host is limited, and the connections which have been idle
+ * for too long are closed (by a background daemon thread, so even a process which has stopped extracting doesn't keep
+ * them open). Proxies, authenticators and the other HttpURLConnection-specific settings are not supported, which is why
+ * ICanteenExtractor uses URLConnectionHTTPTransport by default - this transport has to be chosen explicitly.
+ */
+public class PooledHTTPTransport implements HTTPTransport {
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 8;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLISECONDS = 15000;
+
+    private static final PooledHTTPTransport SHARED_INSTANCE = new PooledHTTPTransport();
+    private static final int MAX_LINE_LENGTH = 65536;
+
+    // Closes the idle connections of all the instances; it only holds weak references to them, so that an instance which
+    // is no longer used can be garbage-collected.
+    private static final ScheduledThreadPoolExecutor IDLE_CONNECTION_REAPER = createIdleConnectionReaper();
+
+    private final int maxConnectionsPerHost;
+    private final long idleTimeoutMilliseconds;
+
+    private final ConcurrentHashMap<String, HostPool> hostPools = new ConcurrentHashMap<>();
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong connectionsReused = new AtomicLong();
+    private final AtomicBoolean reaperScheduled = new AtomicBoolean(false);
+
+    /**
+     * Instantiates the PooledHTTPTransport class with the default limits.
+     */
+    public PooledHTTPTransport() {
+        this(DEFAULT_MAX_CONNECTIONS_PER_HOST, DEFAULT_IDLE_TIMEOUT_MILLISECONDS);
+    }
+
+    /**
+     * Instantiates the PooledHTTPTransport class.
+     *
+     * @param maxConnectionsPerHost The maximum number of connections (both in use and idle) to a single host.
+     * @param idleTimeoutMilliseconds The time after which an unused connection is closed.
+     */
+    public PooledHTTPTransport(int maxConnectionsPerHost, long idleTimeoutMilliseconds) {
+        if(maxConnectionsPerHost < 1)
+            throw new IllegalArgumentException("The maximum number of connections per host must be at least 1!");
+        if(idleTimeoutMilliseconds < 0)
+            throw new IllegalArgumentException("The idle timeout must not be negative!");
+
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.idleTimeoutMilliseconds = idleTimeoutMilliseconds;
+    }
+
+    /**
+     * Gets an instance with the default limits which can be shared by all the ICanteenExtractor instances in the process
+     * (see ICanteenExtractor.Builder.setHTTPTransport()).
+     *
+     * @return The shared instance.
+     */
+    public static PooledHTTPTransport getSharedInstance() {
+        return SHARED_INSTANCE;
+    }
+
+    /**
+     * Gets the number of new connections which have been opened.
+     *
+     * @return The number of opened connections.
+     */
+    public long getConnectionsOpened() {
+        return connectionsOpened.get();
+    }
+
+    /**
+     * Gets the number of requests which have been sent over an already open connection.
+     *
+     * @return The number of reused connections.
+     */
+    public long getConnectionsReused() {
+        return connectionsReused.get();
+    }
+
+    /**
+     * Closes all the connections which aren't being used at the moment.
+     */
+    public void closeIdleConnections() {
+        for(Map.Entry<String, HostPool> hostPoolEntry : hostPools.entrySet()) {
+            hostPoolEntry.getValue().closeIdleConnections();
+            removeIfUnused(hostPoolEntry.getKey(), hostPoolEntry.getValue());
+        }
+    }
+
+    @Override
+    public Response get(URL url, Map<String, String> requestHeaders, int timeoutMilliseconds) throws IOException {
+        String protocol = url.getProtocol();
+        if(!protocol.equals("http") && !protocol.equals("https"))
+            throw new IOException("Unsupported protocol: " + protocol);
+
+        // The header lines are written verbatim, so a line break would let e.g. a server's ETag inject its own headers.
+        for(Map.Entry<String, String> requestHeader : requestHeaders.entrySet()) {
+            if(!isValidHeaderField(requestHeader.getKey()) || !isValidHeaderField(requestHeader.getValue()))
+                throw new IOException("The request header contains a line break or a NUL character: " + requestHeader.getKey());
+        }
+
+        int port = (url.getPort() != -1) ? url.getPort() : url.getDefaultPort();
+        String hostKey = protocol + "://" + url.getHost().toLowerCase(Locale.ROOT) + ":" + port; // host names are case-insensitive
+
+        HostPool hostPool;
+        do { // the pool may have been removed by the reaper in the meantime
+            hostPool = hostPools.computeIfAbsent(hostKey, key -> new HostPool());
+        } while(!hostPool.acquirePermit(timeoutMilliseconds));
+
+        try {
+            PooledConnection connection = hostPool.pollIdleConnection();
+            if(connection != null) {
+                try {
+                    PooledResponse response = connection.sendRequest(url, requestHeaders, timeoutMilliseconds, hostPool);
+                    connectionsReused.incrementAndGet();
+                    return response;
+
+                } catch (SocketTimeoutException e) {
+                    connection.close();
+                    throw e;
+                } catch (IOException e) {
+                    connection.close();
+
+                    // The server may have closed the idle connection in the meantime - the request is then sent again
+                    // over a new connection (a GET request can be repeated safely).
+                    if(connection.hasReceivedResponse())
+                        throw e;
+                }
+            }
+
+            connection = openConnection(url.getHost(), port, protocol.equals("https"), timeoutMilliseconds);
+            connectionsOpened.incrementAndGet();
+
+            try {
+                return connection.sendRequest(url, requestHeaders, timeoutMilliseconds, hostPool);
+            } catch (IOException | RuntimeException | Error e) {
+                connection.close();
+                throw e;
+            }
+
+        } catch (IOException | RuntimeException | Error e) {
+            hostPool.releasePermit();
+            throw e;
+        }
+    }
+
+    private static boolean isValidHeaderField(String field) {
+        return field.indexOf('\r') == -1 && field.indexOf('\n') == -1 && field.indexOf('\0') == -1;
+    }
+
+    private static ScheduledThreadPoolExecutor createIdleConnectionReaper() {
+        ScheduledThreadPoolExecutor reaper = new ScheduledThreadPoolExecutor(1, new ICanteenExtractor.ExtractorThreadFactory("connection-reaper"));
+        reaper.setRemoveOnCancelPolicy(true);
+
+        return reaper;
+    }
+
+    // Called whenever a connection becomes idle; at most one reaping is scheduled per instance at a time.
+    private void scheduleReaper() {
+        if(!reaperScheduled.compareAndSet(false, true))
+            return;
+
+        WeakReference<PooledHTTPTransport> transportReference = new WeakReference<>(this);
+        IDLE_CONNECTION_REAPER.schedule(() -> reap(transportReference), idleTimeoutMilliseconds, TimeUnit.MILLISECONDS);
+    }
+
+    private static void reap(WeakReference<PooledHTTPTransport> transportReference) {
+        PooledHTTPTransport transport = transportReference.get();
+        if(transport == null)
+            return;
+
+        transport.reaperScheduled.set(false);
+        if(transport.evictIdleConnections())
+            transport.scheduleReaper(); // the remaining connections haven't been idle for long enough yet
+    }
+
+    // Returns whether any idle connections are left.
+    private boolean evictIdleConnections() {
+        long oldestAllowedReturnTime = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(idleTimeoutMilliseconds);
+
+        boolean idleConnectionsLeft = false;
+        for(Map.Entry<String, HostPool> hostPoolEntry : hostPools.entrySet()) {
+            idleConnectionsLeft |= hostPoolEntry.getValue().evictIdleConnections(oldestAllowedReturnTime);
+            removeIfUnused(hostPoolEntry.getKey(), hostPoolEntry.getValue());
+        }
+
+        return idleConnectionsLeft;
+    }
+
+    // The pools of the hosts which aren't being polled anymore mustn't pile up in a long-running process.
+    private void removeIfUnused(String hostKey, HostPool hostPool) {
+        if(hostPool.retireIfUnused())
+            hostPools.remove(hostKey, hostPool);
+    }
+
+    private PooledConnection openConnection(String host, int port, boolean secure, int timeoutMilliseconds) throws IOException {
+        // IPv6 addresses are enclosed in brackets in URLs
+        String hostAddress = (host.startsWith("[") && host.endsWith("]")) ? host.substring(1, host.length() - 1) : host;
+
+        long startTime = System.nanoTime();
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(hostAddress, port), Math.max(timeoutMilliseconds, 0));
+
+            if(secure) {
+                SSLSocketFactory sslSocketFactory = (SSLSocketFactory) SSLSocketFactory.getDefault();
+                SSLSocket sslSocket = (SSLSocket) sslSocketFactory.createSocket(socket, hostAddress, port, true);
+
+                SSLParameters sslParameters = sslSocket.getSSLParameters();
+                sslParameters.setEndpointIdentificationAlgorithm("HTTPS"); // verifies the server's hostname
+                sslSocket.setSSLParameters(sslParameters);
+
+                sslSocket.setSoTimeout(Math.max(timeoutMilliseconds, 0));
+                sslSocket.startHandshake();
+                socket = sslSocket;
+            }
+
+            return new PooledConnection(socket, System.nanoTime() - startTime);
+
+        } catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    private final class HostPool {
+        private final Semaphore permits = new Semaphore(maxConnectionsPerHost, true);
+        private final ArrayDeque<PooledConnection> idleConnections = new ArrayDeque<>();
+        private int userCount = 0; // the requests which are waiting for a permit or holding one
+        private boolean retired = false;
+
+        // Returns false if the pool has been removed from hostPools and mustn't be used anymore. The waiting is limited
+        // by the request's timeout, so that a host whose requests hang (e.g. with a timeout of 0) can't block the
+        // waiting requests forever.
+        boolean acquirePermit(int timeoutMilliseconds) throws IOException {
+            synchronized(this) {
+                if(retired)
+                    return false;
+
+                userCount++;
+            }
+
+            boolean acquired;
+            try {
+                if(timeoutMilliseconds > 0) {
+                    acquired = permits.tryAcquire(timeoutMilliseconds, TimeUnit.MILLISECONDS);
+                } else {
+                    permits.acquire(); // 0 means no timeout, like with the sockets
+                    acquired = true;
+                }
+            } catch (InterruptedException e) {
+                decrementUserCount();
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a free connection to the host!", e);
+            }
+
+            if(!acquired) {
+                decrementUserCount();
+                throw new SocketTimeoutException("Timed out while waiting for a free connection to the host!");
+            }
+
+            return true;
+        }
+
+        void releasePermit() {
+            permits.release();
+            decrementUserCount();
+        }
+
+        private synchronized void decrementUserCount() {
+            userCount--;
+        }
+
+        synchronized boolean retireIfUnused() {
+            if(userCount == 0 && idleConnections.isEmpty())
+                retired = true;
+
+            return retired;
+        }
+
+        synchronized PooledConnection pollIdleConnection() {
+            return idleConnections.pollFirst(); // the most recently used one
+        }
+
+        void returnIdleConnection(PooledConnection connection) {
+            synchronized(this) {
+                connection.lastReturnTime = System.nanoTime();
+                idleConnections.addFirst(connection);
+            }
+
+            scheduleReaper();
+        }
+
+        // Returns whether any idle connections are left.
+        synchronized boolean evictIdleConnections(long oldestAllowedReturnTime) {
+            Iterator<PooledConnection> iterator = idleConnections.iterator();
+            while(iterator.hasNext()) {
+                PooledConnection connection = iterator.next();
+                if(connection.lastReturnTime - oldestAllowedReturnTime < 0) { // nanoTime() values must be compared this way
+                    iterator.remove();
+                    connection.close();
+                }
+            }
+
+            return !idleConnections.isEmpty();
+        }
+
+        synchronized void closeIdleConnections() {
+            for(PooledConnection connection : idleConnections)
+                connection.close();
+
+            idleConnections.clear();
+        }
+    }
+
+    private static final class PooledConnection {
+        private final Socket socket;
+        private final BufferedInputStream inputStream;
+        private final OutputStream outputStream;
+        private final long connectNanoseconds;
+
+        private long lastReturnTime = 0;
+        private boolean usedBefore = false;
+        private volatile boolean receivedResponse = false;
+
+        PooledConnection(Socket socket, long connectNanoseconds) throws IOException {
+            this.socket = socket;
+            this.inputStream = new BufferedInputStream(socket.getInputStream());
+            this.outputStream = new BufferedOutputStream(socket.getOutputStream());
+            this.connectNanoseconds = connectNanoseconds;
+        }
+
+        boolean hasReceivedResponse() {
+            return receivedResponse;
+        }
+
+        PooledResponse sendRequest(URL url, Map<String, String> requestHeaders, int timeoutMilliseconds, HostPool hostPool) throws IOException {
+            receivedResponse = false;
+            long responseConnectNanoseconds = usedBefore ? 0 : connectNanoseconds; // only the first request has waited for the connection
+            usedBefore = true;
+
+            socket.setSoTimeout(Math.max(timeoutMilliseconds, 0));
+
+            String path = url.getFile().isEmpty() ? "/" : url.getFile();
+            StringBuilder request = new StringBuilder(256);
+            request.append("GET ").append(path).append(" HTTP/1.1\r\n");
+            request.append("Host: ").append(url.getHost());
+            if(url.getPort() != -1 && url.getPort() != url.getDefaultPort())
+                request.append(':').append(url.getPort());
+            request.append("\r\n");
+            request.append("Connection: keep-alive\r\n");
+            for(Map.Entry<String, String> requestHeader : requestHeaders.entrySet())
+                request.append(requestHeader.getKey()).append(": ").append(requestHeader.getValue()).append("\r\n");
+            request.append("\r\n");
+
+            outputStream.write(request.toString().getBytes(StandardCharsets.ISO_8859_1));
+            outputStream.flush();
+
+            int statusCode;
+            String httpVersion;
+            TreeMap<String, String> headers;
+            do { // informational (1xx) responses are skipped
+                String statusLine = readLine();
+                receivedResponse = true;
+
+                String[] statusLineParts = statusLine.split(" ", 3);
+                if(statusLineParts.length < 2 || !statusLineParts[0].startsWith("HTTP/"))
+                    throw new IOException("Invalid HTTP status line: " + statusLine);
+
+                httpVersion = statusLineParts[0];
+                try {
+                    statusCode = Integer.parseInt(statusLineParts[1]);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid HTTP status line: " + statusLine);
+                }
+
+                headers = readHeaders();
+            } while(statusCode >= 100 && statusCode < 200);
+
+            String connectionHeader = headers.get("Connection");
+            boolean keepAlive = httpVersion.equals("HTTP/1.1") ? !"close".equalsIgnoreCase(connectionHeader) : "keep-alive".equalsIgnoreCase(connectionHeader);
+
+            BodyInputStream body;
+            String transferEncoding = headers.get("Transfer-Encoding");
+            String contentLength = headers.get("Content-Length");
+            if(statusCode == 204 || statusCode == 304) {
+                body = new FixedLengthInputStream(inputStream, 0);
+            } else if(transferEncoding != null && transferEncoding.toLowerCase(Locale.ROOT).contains("chunked")) {
+                body = new ChunkedInputStream(inputStream);
+            } else if(contentLength != null) {
+                body = new FixedLengthInputStream(inputStream, parseContentLength(contentLength));
+            } else {
+                body = new UntilCloseInputStream(inputStream); // the end of the body is marked by closing the connection
+                keepAlive = false;
+            }
+
+            return new PooledResponse(this, hostPool, statusCode, headers, body, keepAlive, responseConnectNanoseconds);
+        }
+
+        // Repeated Content-Length headers are merged into a list, which is valid if all its values are the same
+        // (RFC 7230, section 3.3.2).
+        private long parseContentLength(String contentLength) throws IOException {
+            long length = -1;
+            for(String value : contentLength.split(",")) {
+                long currentLength;
+                try {
+                    currentLength = Long.parseLong(value.trim());
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid Content-Length: " + contentLength);
+                }
+
+                if(currentLength < 0 || (length != -1 && currentLength != length))
+                    throw new IOException("Invalid Content-Length: " + contentLength);
+
+                length = currentLength;
+            }
+
+            return length;
+        }
+
+        private TreeMap<String, String> readHeaders() throws IOException {
+            TreeMap<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+            String line;
+            while(!(line = readLine()).isEmpty()) {
+                int colonIndex = line.indexOf(':');
+                if(colonIndex <= 0)
+                    continue;
+
+                String name = line.substring(0, colonIndex).trim();
+                String value = line.substring(colonIndex + 1).trim();
+                headers.merge(name, value, (oldValue, newValue) -> oldValue + ", " + newValue);
+            }
+
+            return headers;
+        }
+
+        private String readLine() throws IOException {
+            return PooledHTTPTransport.readLine(inputStream);
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    private static final class PooledResponse implements Response {
+        private final PooledConnection connection;
+        private final HostPool hostPool;
+        private final int statusCode;
+        private final TreeMap<String, String> headers;
+        private final BodyInputStream body;
+        private final boolean keepAlive;
+        private final long connectNanoseconds;
+
+        private final AtomicBoolean released = new AtomicBoolean(false);
+        private volatile boolean aborted = false;
+
+        PooledResponse(PooledConnection connection, HostPool hostPool, int statusCode, TreeMap<String, String> headers, BodyInputStream body, boolean keepAlive, long connectNanoseconds) {
+            this.connection = connection;
+            this.hostPool = hostPool;
+            this.statusCode = statusCode;
+            this.headers = headers;
+            this.body = body;
+            this.keepAlive = keepAlive;
+            this.connectNanoseconds = connectNanoseconds;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return headers.get(name);
+        }
+
+        @Override
+        public InputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public long getConnectNanoseconds() {
+            return connectNanoseconds;
+        }
+
+        @Override
+        public void abort() {
+            aborted = true;
+            connection.close();
+            close();
+        }
+
+        @Override
+        public void close() {
+            if(!released.compareAndSet(false, true))
+                return;
+
+            // Only a connection whose response has been read completely can carry another request.
+            if(keepAlive && !aborted && body.isFullyRead())
+                hostPool.returnIdleConnection(connection);
+            else
+                connection.close();
+
+            hostPool.releasePermit();
+        }
+    }
+
+    private static String readLine(InputStream inputStream) throws IOException {
+        StringBuilder line = new StringBuilder(64);
+
+        int currentByte;
+        while((currentByte = inputStream.read()) != '\n') {
+            if(currentByte == -1)
+                throw new EOFException("The connection has been closed by the server!");
+            if(line.length() >= MAX_LINE_LENGTH)
+                throw new IOException("The HTTP header line is too long!");
+
+            line.append((char) currentByte); // ISO-8859-1
+        }
+
+        int length = line.length();
+        if(length > 0 && line.charAt(length - 1) == '\r')
+            line.setLength(length - 1);
+
+        return line.toString();
+    }
+
+    // The body streams don't close the connection - PooledResponse.close() takes care of it.
+    private static abstract class BodyInputStream extends InputStream {
+        protected final InputStream inputStream;
+
+        BodyInputStream(InputStream inputStream) {
+            this.inputStream = inputStream;
+        }
+
+        abstract boolean isFullyRead();
+
+        @Override
+        public int read() throws IOException {
+            byte[] singleByte = new byte[1];
+            return (read(singleByte, 0, 1) == -1) ? -1 : (singleByte[0] & 0xFF);
+        }
+
+        @Override
+        public void close() {}
+    }
+
+    private static final class FixedLengthInputStream extends BodyInputStream {
+        private long remaining;
+
+        FixedLengthInputStream(InputStream inputStream, long length) {
+            super(inputStream);
+            this.remaining = length;
+        }
+
+        @Override
+        boolean isFullyRead() {
+            return (remaining == 0);
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if(remaining == 0)
+                return -1;
+            if(length == 0)
+                return 0;
+
+            int read = inputStream.read(buffer, offset, (int) Math.min(length, remaining));
+            if(read == -1)
+                throw new EOFException("The connection has been closed before the whole body has been received!");
+
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(inputStream.available(), remaining);
+        }
+    }
+
+    private static final class ChunkedInputStream extends BodyInputStream {
+        private long remainingInChunk = 0;
+        private boolean finished = false;
+
+        ChunkedInputStream(InputStream inputStream) {
+            super(inputStream);
+        }
+
+        @Override
+        boolean isFullyRead() {
+            return finished;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if(finished)
+                return -1;
+            if(length == 0)
+                return 0;
+
+            if(remainingInChunk == 0) {
+                String chunkSizeLine = readLine(inputStream);
+                int extensionIndex = chunkSizeLine.indexOf(';');
+                if(extensionIndex != -1)
+                    chunkSizeLine = chunkSizeLine.substring(0, extensionIndex);
+
+                remainingInChunk = parseChunkSize(chunkSizeLine.trim());
+
+                if(remainingInChunk == 0) { // the last chunk, followed by optional trailers and an empty line
+                    while(!readLine(inputStream).isEmpty());
+                    finished = true;
+                    return -1;
+                }
+            }
+
+            int read = inputStream.read(buffer, offset, (int) Math.min(length, remainingInChunk));
+            if(read == -1)
+                throw new EOFException("The connection has been closed before the whole body has been received!");
+
+            remainingInChunk -= read;
+            if(remainingInChunk == 0)
+                readLine(inputStream); // the CRLF after the chunk's data
+
+            return read;
+        }
+    }
+
+    // Only hex digits are allowed - Long.parseLong() would also accept a sign, e.g. "-1".
+    private static long parseChunkSize(String chunkSize) throws IOException {
+        if(chunkSize.isEmpty() || chunkSize.length() > 15)
+            throw new IOException("Invalid chunk size: " + chunkSize);
+
+        long size = 0;
+        for(int i = 0; i < chunkSize.length(); i++) {
+            char character = chunkSize.charAt(i);
+            int digit;
+            if(character >= '0' && character <= '9')
+                digit = character - '0';
+            else if(character >= 'a' && character <= 'f')
+                digit = character - 'a' + 10;
+            else if(character >= 'A' && character <= 'F')
+                digit = character - 'A' + 10;
+            else
+                throw new IOException("Invalid chunk size: " + chunkSize);
+
+            size = (size << 4) | digit;
+        }
+
+        return size;
+    }
+
+    private static final class UntilCloseInputStream extends BodyInputStream {
+        UntilCloseInputStream(InputStream inputStream) {
+            super(inputStream);
+        }
+
+        @Override
+        boolean isFullyRead() {
+            return false; // the connection can't be reused anyway
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            return inputStream.read(buffer, offset, length);
+        }
+    }
+}
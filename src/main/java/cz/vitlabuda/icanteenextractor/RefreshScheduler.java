@@ -0,0 +1,568 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import java.io.Closeable;
+import java.net.URL;
+import java.time.Clock;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the food menus of a set of canteens up to date by extracting them periodically, and notifies the subscribers
+ * whenever one of them changes.
+ *
+ * The polls are spread out in time - the first polls of the added canteens are spread over the minimum interval, and
+ * every interval is randomly prolonged or shortened (see Builder.setJitter()), so the canteens hosted on the same
+ * server don't all hit it at the same moment. The interval of a canteen whose food menu hasn't changed (or whose
+ * extraction has failed) is doubled after every poll, up to the maximum interval; once the food menu changes, the
+ * interval drops back to the minimum. During the publication windows (the times of the day when the canteens usually
+ * publish their food menus, see Builder.addPublicationWindow()), the canteens are polled at the minimum interval, and
+ * the polls which would skip over the start of a window are moved to it. The number of concurrent polls of canteens on
+ * the same host is limited (see Builder.setMaxConcurrentPollsPerHost()).
+ *
+ * The class is thread-safe. The settings are given to the Builder, and they can't be changed afterwards.
+ */
+public class RefreshScheduler implements Closeable {
+    /**
+     * Receives the food menus polled by RefreshScheduler. The methods are called on the scheduler's threads, so they
+     * should return quickly; the exceptions they throw are ignored.
+     */
+    public interface Subscriber {
+        /**
+         * Called when a canteen's food menu has been extracted for the first time, or when it has changed since the
+         * last poll.
+         *
+         * @param url The URL of the canteen's login page.
+         * @param foodMenu The new food menu. Each subscriber gets its own copy.
+         * @param diff The differences from the previous food menu (all the days are added on the first poll).
+         */
+        void foodMenuChanged(URL url, FoodMenu foodMenu, FoodMenuDiff diff);
+
+        /**
+         * Called when a canteen's food menu couldn't be extracted. Does nothing by default.
+         *
+         * @param url The URL of the canteen's login page.
+         * @param exception The reason of the failure.
+         */
+        default void extractionFailed(URL url, ICanteenExtractorException exception) {}
+    }
+
+    private static final class PublicationWindow {
+        private final LocalTime start;
+        private final LocalTime end;
+
+        PublicationWindow(LocalTime start, LocalTime end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        boolean contains(LocalTime time) {
+            if(start.isBefore(end))
+                return !time.isBefore(start) && time.isBefore(end);
+
+            return !time.isBefore(start) || time.isBefore(end); // over midnight
+        }
+    }
+
+    /**
+     * Creates RefreshScheduler instances. The builder isn't thread-safe, but the built schedulers are.
+     */
+    public static final class Builder {
+        private final ICanteenExtractor extractor;
+        private final int threadCount;
+        private final ArrayList<PublicationWindow> publicationWindows = new ArrayList<>();
+        private long minIntervalMilliseconds = TimeUnit.MINUTES.toMillis(15);
+        private long maxIntervalMilliseconds = TimeUnit.HOURS.toMillis(12);
+        private double jitter = 0.2;
+        private int maxConcurrentPollsPerHost = 2;
+        private Clock clock = Clock.systemDefaultZone();
+        private Random random = null; // ThreadLocalRandom
+
+        /**
+         * Instantiates the Builder class with the default settings.
+         *
+         * @param extractor The extractor used to poll the canteens (with its HTTP transport, cache, timeouts etc.).
+         * @param threadCount The number of the threads which poll the canteens, i.e. the maximum number of concurrent
+         *                    polls.
+         */
+        public Builder(ICanteenExtractor extractor, int threadCount) {
+            if(threadCount < 1)
+                throw new IllegalArgumentException("The thread count must be at least 1!");
+
+            this.extractor = extractor;
+            this.threadCount = threadCount;
+        }
+
+        /**
+         * Sets the interval at which the changing food menus are polled, and during the publication windows.
+         * The default is 15 minutes.
+         *
+         * @param minIntervalMilliseconds The minimum interval in milliseconds.
+         * @return This builder.
+         */
+        public Builder setMinIntervalMilliseconds(long minIntervalMilliseconds) {
+            if(minIntervalMilliseconds < 1)
+                throw new IllegalArgumentException("The interval must be at least 1 millisecond!");
+
+            this.minIntervalMilliseconds = minIntervalMilliseconds;
+
+            return this;
+        }
+
+        /**
+         * Sets the interval which the polling of the unchanging food menus backs off to. The default is 12 hours.
+         *
+         * @param maxIntervalMilliseconds The maximum interval in milliseconds.
+         * @return This builder.
+         */
+        public Builder setMaxIntervalMilliseconds(long maxIntervalMilliseconds) {
+            if(maxIntervalMilliseconds < 1)
+                throw new IllegalArgumentException("The interval must be at least 1 millisecond!");
+
+            this.maxIntervalMilliseconds = maxIntervalMilliseconds;
+
+            return this;
+        }
+
+        /**
+         * Sets how much the intervals are randomly prolonged or shortened. The default is 0.2, i.e. ±20 %.
+         *
+         * @param jitter The jitter, from 0 (none) to 1.
+         * @return This builder.
+         */
+        public Builder setJitter(double jitter) {
+            if(jitter < 0 || jitter > 1)
+                throw new IllegalArgumentException("The jitter must be between 0 and 1!");
+
+            this.jitter = jitter;
+
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of canteens on the same host (e.g. strav.nasejidelna.cz) which are polled at the
+         * same time. The default is 2.
+         *
+         * @param maxConcurrentPollsPerHost The maximum number of concurrent polls per host.
+         * @return This builder.
+         */
+        public Builder setMaxConcurrentPollsPerHost(int maxConcurrentPollsPerHost) {
+            if(maxConcurrentPollsPerHost < 1)
+                throw new IllegalArgumentException("The maximum number of concurrent polls must be at least 1!");
+
+            this.maxConcurrentPollsPerHost = maxConcurrentPollsPerHost;
+
+            return this;
+        }
+
+        /**
+         * Adds a time window of every day (in the system's default time zone), during which the canteens usually
+         * publish their food menus, so they are polled at the minimum interval. There are no publication windows by
+         * default.
+         *
+         * @param start The start of the window.
+         * @param end The end of the window. If it's before the start, the window goes over midnight.
+         * @return This builder.
+         */
+        public Builder addPublicationWindow(LocalTime start, LocalTime end) {
+            publicationWindows.add(new PublicationWindow(start, end));
+
+            return this;
+        }
+
+        // The clock (whose time zone is used for the publication windows) and the random source of the jitter are
+        // only replaced by the tests.
+        Builder setClock(Clock clock) {
+            this.clock = clock;
+
+            return this;
+        }
+
+        Builder setRandom(Random random) {
+            this.random = random;
+
+            return this;
+        }
+
+        /**
+         * Builds a RefreshScheduler with the current settings. It doesn't poll anything until canteens are added to it.
+         *
+         * @return The new scheduler.
+         */
+        public RefreshScheduler build() {
+            if(maxIntervalMilliseconds < minIntervalMilliseconds)
+                throw new IllegalArgumentException("The maximum interval must not be shorter than the minimum one!");
+
+            return new RefreshScheduler(this);
+        }
+    }
+
+    // The polls which are due, but whose host has too many polls running already, wait in a queue.
+    private static final class HostState {
+        private int runningPollCount = 0;
+        private final ArrayDeque<Canteen> waitingCanteens = new ArrayDeque<>();
+    }
+
+    private final ICanteenExtractor extractor;
+    private final ScheduledThreadPoolExecutor executor;
+    private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    private final List<PublicationWindow> publicationWindows;
+    private final long minIntervalMilliseconds;
+    private final long maxIntervalMilliseconds;
+    private final double jitter;
+    private final int maxConcurrentPollsPerHost;
+    private final Clock clock;
+    private final Random random;
+
+    // Guarded by this
+    private final HashMap<String, Canteen> canteens = new HashMap<>();
+    private final HashMap<String, HostState> hostStates = new HashMap<>();
+    private boolean closed = false;
+
+    /**
+     * Instantiates the RefreshScheduler class with the default settings (see Builder).
+     *
+     * @param extractor The extractor used to poll the canteens (with its HTTP transport, cache, timeouts etc.).
+     * @param threadCount The number of the threads which poll the canteens, i.e. the maximum number of concurrent polls.
+     */
+    public RefreshScheduler(ICanteenExtractor extractor, int threadCount) {
+        this(new Builder(extractor, threadCount));
+    }
+
+    private RefreshScheduler(Builder builder) {
+        this.extractor = builder.extractor;
+        this.executor = new ScheduledThreadPoolExecutor(builder.threadCount, new ICanteenExtractor.ExtractorThreadFactory("scheduler"));
+        this.executor.setRemoveOnCancelPolicy(true);
+
+        this.publicationWindows = Collections.unmodifiableList(new ArrayList<>(builder.publicationWindows));
+        this.minIntervalMilliseconds = builder.minIntervalMilliseconds;
+        this.maxIntervalMilliseconds = builder.maxIntervalMilliseconds;
+        this.jitter = builder.jitter;
+        this.maxConcurrentPollsPerHost = builder.maxConcurrentPollsPerHost;
+        this.clock = builder.clock;
+        this.random = builder.random;
+    }
+
+    /**
+     * Adds a subscriber, which receives the food menus polled from now on.
+     *
+     * @param subscriber The subscriber to add.
+     */
+    public void subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * Removes a subscriber.
+     *
+     * @param subscriber The subscriber to remove.
+     */
+    public void unsubscribe(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * Starts polling a canteen, unless it's polled already. The first poll takes place at a random time within the
+     * minimum interval.
+     *
+     * @param url The URL of the canteen's login page.
+     */
+    public synchronized void addCanteen(URL url) {
+        if(closed)
+            throw new IllegalStateException("The scheduler has been closed!");
+
+        String key = url.toString();
+        if(canteens.containsKey(key))
+            return;
+
+        Canteen canteen = new Canteen(url);
+        canteens.put(key, canteen);
+        canteen.schedule((long) (getRandom().nextDouble() * minIntervalMilliseconds));
+    }
+
+    /**
+     * Starts polling multiple canteens (see addCanteen()).
+     *
+     * @param urls The URLs of the canteens' login pages.
+     */
+    public synchronized void addCanteens(Collection<URL> urls) {
+        for(URL url : urls)
+            addCanteen(url);
+    }
+
+    /**
+     * Stops polling a canteen. A poll which is running already is finished, but its result isn't delivered.
+     *
+     * @param url The URL of the canteen's login page.
+     */
+    public synchronized void removeCanteen(URL url) {
+        Canteen canteen = canteens.remove(url.toString());
+        if(canteen != null)
+            canteen.cancel();
+    }
+
+    /**
+     * Gets the URLs of all the polled canteens.
+     *
+     * @return A list of the URLs.
+     */
+    public synchronized List<URL> getCanteens() {
+        List<URL> urls = new ArrayList<>();
+        for(Canteen canteen : canteens.values())
+            urls.add(canteen.url);
+
+        return urls;
+    }
+
+    /**
+     * Gets the latest successfully polled food menu of a canteen.
+     *
+     * @param url The URL of the canteen's login page.
+     * @return A copy of the food menu, or null if the canteen isn't polled or if it hasn't been polled successfully yet.
+     */
+    public FoodMenu getLatestFoodMenu(URL url) {
+        Canteen canteen;
+        synchronized(this) {
+            canteen = canteens.get(url.toString());
+        }
+
+        CompactFoodMenu latestFoodMenu = (canteen != null) ? canteen.latestFoodMenu : null;
+
+        return (latestFoodMenu != null) ? latestFoodMenu.toFoodMenu() : null;
+    }
+
+    /**
+     * Stops polling all the canteens and shuts the scheduler's threads down. The polls which are running already are
+     * finished, but their results aren't delivered.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for(Canteen canteen : canteens.values())
+            canteen.cancel();
+
+        canteens.clear();
+        executor.shutdownNow();
+    }
+
+    // Package-private, so that the tests can check the scheduling without waiting for the polls.
+    long computeDelay(long intervalMilliseconds) {
+        Random random = getRandom();
+        ZonedDateTime now = ZonedDateTime.now(clock);
+
+        for(PublicationWindow publicationWindow : publicationWindows) {
+            if(publicationWindow.contains(now.toLocalTime()))
+                intervalMilliseconds = Math.min(intervalMilliseconds, minIntervalMilliseconds);
+        }
+
+        long delay = Math.round(intervalMilliseconds * (1 + (jitter * (random.nextDouble() * 2 - 1))));
+
+        // The poll mustn't skip over the start of a publication window.
+        for(PublicationWindow publicationWindow : publicationWindows) {
+            ZonedDateTime windowStart = now.with(publicationWindow.start);
+            if(!windowStart.isAfter(now))
+                windowStart = windowStart.plusDays(1);
+
+            long untilWindowStart = now.until(windowStart, ChronoUnit.MILLIS);
+            if(untilWindowStart < delay)
+                delay = untilWindowStart + Math.round(minIntervalMilliseconds * jitter * random.nextDouble());
+        }
+
+        return Math.max(delay, 0);
+    }
+
+    // The current interval of a canteen (before the jitter), or -1 if the canteen isn't polled.
+    synchronized long getIntervalMilliseconds(URL url) {
+        Canteen canteen = canteens.get(url.toString());
+
+        return (canteen != null) ? canteen.intervalMilliseconds : -1;
+    }
+
+    private Random getRandom() {
+        return (random != null) ? random : ThreadLocalRandom.current();
+    }
+
+    private final class Canteen implements Runnable {
+        private final URL url;
+        private final String host;
+
+        // Guarded by RefreshScheduler.this
+        private long intervalMilliseconds;
+        private ScheduledFuture<?> scheduledPoll = null;
+        private boolean cancelled = false;
+
+        // Written only by the thread which polls the canteen (the polls of a canteen never overlap).
+        private volatile CompactFoodMenu latestFoodMenu = null;
+
+        Canteen(URL url) {
+            this.url = url;
+            this.host = url.getHost().toLowerCase(Locale.ROOT);
+            this.intervalMilliseconds = minIntervalMilliseconds;
+        }
+
+        // Must be called with the lock held.
+        void schedule(long delayMilliseconds) {
+            if(!cancelled)
+                scheduledPoll = executor.schedule(this, delayMilliseconds, TimeUnit.MILLISECONDS);
+        }
+
+        // Must be called with the lock held.
+        void cancel() {
+            cancelled = true;
+            if(scheduledPoll != null)
+                scheduledPoll.cancel(false);
+
+            HostState hostState = hostStates.get(host);
+            if(hostState != null)
+                hostState.waitingCanteens.remove(this); // its scheduled poll has fired already, so it wouldn't run again
+        }
+
+        @Override
+        public void run() {
+            HostState hostState;
+            synchronized(RefreshScheduler.this) {
+                if(cancelled) {
+                    // It may have been removed after a finished poll has passed its turn to it.
+                    HostState currentHostState = hostStates.get(host);
+                    if(currentHostState != null && currentHostState.runningPollCount < maxConcurrentPollsPerHost)
+                        runWaitingCanteen(currentHostState);
+
+                    return;
+                }
+
+                hostState = hostStates.computeIfAbsent(host, key -> new HostState());
+                if(hostState.runningPollCount >= maxConcurrentPollsPerHost) {
+                    hostState.waitingCanteens.add(this); // run again once another poll of the host finishes
+                    return;
+                }
+
+                hostState.runningPollCount++;
+            }
+
+            boolean changed = false;
+            try {
+                changed = poll();
+            } finally {
+                synchronized(RefreshScheduler.this) {
+                    intervalMilliseconds = changed ? minIntervalMilliseconds : Math.min(intervalMilliseconds * 2, maxIntervalMilliseconds);
+                    schedule(computeDelay(intervalMilliseconds));
+
+                    hostState.runningPollCount--;
+                    runWaitingCanteen(hostState);
+                }
+            }
+        }
+
+        // Must be called with the lock held. Passes the host's free slot to the next waiting canteen, if there is one.
+        private void runWaitingCanteen(HostState hostState) {
+            Canteen waitingCanteen;
+            do {
+                waitingCanteen = hostState.waitingCanteens.poll();
+            } while(waitingCanteen != null && waitingCanteen.cancelled);
+
+            if(waitingCanteen != null && !closed)
+                executor.execute(waitingCanteen);
+            else if(hostState.runningPollCount == 0 && hostState.waitingCanteens.isEmpty())
+                hostStates.remove(host);
+        }
+
+        // Returns true if the food menu has changed.
+        private boolean poll() {
+            FoodMenu foodMenu;
+            try {
+                foodMenu = extractor.extract(url);
+            } catch (ICanteenExtractorException e) {
+                if(!isCancelled()) {
+                    for(Subscriber subscriber : subscribers)
+                        notifySubscriber(() -> subscriber.extractionFailed(url, e));
+                }
+                return false;
+            }
+
+            CompactFoodMenu previousFoodMenu = latestFoodMenu;
+            FoodMenuDiff diff = FoodMenuDiff.compare((previousFoodMenu != null) ? previousFoodMenu.toFoodMenu() : new FoodMenu(), foodMenu);
+            if(previousFoodMenu != null && diff.isEmpty())
+                return false;
+
+            CompactFoodMenu compactFoodMenu = CompactFoodMenu.of(foodMenu);
+            latestFoodMenu = compactFoodMenu;
+            if(!isCancelled()) {
+                for(Subscriber subscriber : subscribers)
+                    notifySubscriber(() -> subscriber.foodMenuChanged(url, compactFoodMenu.toFoodMenu(), diff));
+            }
+
+            return true;
+        }
+
+        private boolean isCancelled() {
+            synchronized(RefreshScheduler.this) {
+                return cancelled;
+            }
+        }
+
+        private void notifySubscriber(Runnable notification) {
+            try {
+                notification.run();
+            } catch (RuntimeException e) {
+                // A failing subscriber mustn't stop the polling, nor the other subscribers.
+            }
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An HTTPTransport which protects the iCanteen servers (and the extracting threads) from each other, by wrapping
+ * another transport with a circuit breaker and a rate limiter for each host (i.e. each host and port).
+ *
+ * The circuit breaker of a host opens after the specified number of consecutive failed requests (connection failures,
+ * timeouts, cut off bodies and HTTP 5xx responses). While it's open, the requests to the host fail immediately with
+ * CircuitOpenException, instead of each of them waiting for its own timeout. Once the open duration has passed, a
+ * single trial request is let through - if it succeeds, the circuit closes, otherwise it opens again.
+ * The rate limiter is a token bucket - up to the burst size of requests can be sent to a host at once, and then no more
+ * than the specified number of requests per second. A request which exceeds the rate waits for its turn, or fails with
+ * SocketTimeoutException if it would wait longer than its timeout.
+ * Both are disabled by default, and they are set up by the Builder. The states of the hosts are kept for the
+ * transport's whole lifetime.
+ */
+public class ResilientHTTPTransport implements HTTPTransport {
+    /**
+     * Exception thrown when a request is rejected, because the circuit breaker of its host is open.
+     */
+    public static class CircuitOpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Instantiates the CircuitOpenException class.
+         *
+         * @param host The host whose circuit breaker is open.
+         */
+        public CircuitOpenException(String host) {
+            // Thrown instead of connecting to the host, possibly many times a second, so no stack trace is filled in.
+            super("The circuit breaker of the host " + host + " is open!");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    public static final long DEFAULT_OPEN_MILLISECONDS = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * Creates ResilientHTTPTransport instances.
+     */
+    public static final class Builder {
+        private final HTTPTransport transport;
+        private int failureThreshold = 0;
+        private long openMilliseconds = DEFAULT_OPEN_MILLISECONDS;
+        private double requestsPerSecond = 0;
+        private int burstSize = 1;
+
+        /**
+         * Instantiates the Builder class, with both the circuit breakers and the rate limiters disabled.
+         *
+         * @param transport The transport which sends the requests, e.g. PooledHTTPTransport.getSharedInstance().
+         */
+        public Builder(HTTPTransport transport) {
+            this.transport = transport;
+        }
+
+        /**
+         * Sets up the circuit breakers of the hosts.
+         *
+         * @param failureThreshold The number of consecutive failed requests which opens a host's circuit, or 0 to
+         *                         disable the circuit breakers.
+         * @param openMilliseconds How long the circuit stays open before a trial request is let through, in
+         *                         milliseconds.
+         * @return This builder.
+         */
+        public Builder setCircuitBreaker(int failureThreshold, long openMilliseconds) {
+            if(failureThreshold < 0 || openMilliseconds < 0)
+                throw new IllegalArgumentException("The failure threshold and the open duration mustn't be negative!");
+
+            this.failureThreshold = failureThreshold;
+            this.openMilliseconds = openMilliseconds;
+
+            return this;
+        }
+
+        /**
+         * Sets up the rate limiters of the hosts.
+         *
+         * @param requestsPerSecond The maximum long-term rate of requests to a host, or 0 to disable the rate limiters.
+         * @param burstSize The number of requests which can be sent to an idle host at once.
+         * @return This builder.
+         */
+        public Builder setRateLimit(double requestsPerSecond, int burstSize) {
+            if(requestsPerSecond < 0 || burstSize < 1)
+                throw new IllegalArgumentException("The rate mustn't be negative and the burst size must be at least 1!");
+
+            this.requestsPerSecond = requestsPerSecond;
+            this.burstSize = burstSize;
+
+            return this;
+        }
+
+        /**
+         * Builds a ResilientHTTPTransport with the current settings.
+         *
+         * @return The new transport.
+         */
+        public ResilientHTTPTransport build() {
+            return new ResilientHTTPTransport(this);
+        }
+    }
+
+    private final HTTPTransport transport;
+    private final ConcurrentHashMap<String, HostState> hostStates = new ConcurrentHashMap<>();
+
+    private final int failureThreshold;
+    private final long openNanoseconds;
+    private final double requestsPerSecond;
+    private final int burstSize;
+
+    private final LongAdder rejectedRequestCount = new LongAdder();
+    private final LongAdder delayedRequestCount = new LongAdder();
+
+    /**
+     * Instantiates the ResilientHTTPTransport class with both the circuit breakers and the rate limiters disabled (see
+     * Builder).
+     *
+     * @param transport The transport which sends the requests, e.g. PooledHTTPTransport.getSharedInstance().
+     */
+    public ResilientHTTPTransport(HTTPTransport transport) {
+        this(new Builder(transport));
+    }
+
+    private ResilientHTTPTransport(Builder builder) {
+        this.transport = builder.transport;
+        this.failureThreshold = builder.failureThreshold;
+        this.openNanoseconds = TimeUnit.MILLISECONDS.toNanos(builder.openMilliseconds);
+        this.requestsPerSecond = builder.requestsPerSecond;
+        this.burstSize = builder.burstSize;
+    }
+
+    /**
+     * Gets the number of requests which have been rejected, because the circuit of their host was open.
+     *
+     * @return The number of rejected requests.
+     */
+    public long getRejectedRequestCount() {
+        return rejectedRequestCount.sum();
+    }
+
+    /**
+     * Gets the number of requests which had to wait, because they exceeded the rate limit of their host.
+     *
+     * @return The number of delayed requests.
+     */
+    public long getDelayedRequestCount() {
+        return delayedRequestCount.sum();
+    }
+
+    /**
+     * Gets the hosts whose circuits are open at the moment.
+     *
+     * @return A list of the hosts, in the "host:port" format.
+     */
+    public List<String> getOpenCircuits() {
+        long now = System.nanoTime();
+
+        List<String> openCircuits = new ArrayList<>();
+        for(Map.Entry<String, HostState> entry : hostStates.entrySet()) {
+            if(entry.getValue().isCircuitOpen(now))
+                openCircuits.add(entry.getKey());
+        }
+
+        return openCircuits;
+    }
+
+    @Override
+    public Response get(URL url, Map<String, String> requestHeaders, int timeoutMilliseconds) throws IOException {
+        String host = url.getHost().toLowerCase(Locale.ROOT) + ":" + ((url.getPort() != -1) ? url.getPort() : url.getDefaultPort());
+        HostState hostState = hostStates.computeIfAbsent(host, key -> new HostState());
+
+        if(!hostState.allowRequest(System.nanoTime())) {
+            rejectedRequestCount.increment();
+            throw new CircuitOpenException(host);
+        }
+
+        try {
+            hostState.acquireToken(timeoutMilliseconds);
+        } catch (IOException e) {
+            hostState.recordNothing(); // the host hasn't been contacted
+            throw e;
+        }
+
+        Response response;
+        try {
+            response = transport.get(url, requestHeaders, timeoutMilliseconds);
+        } catch (IOException | RuntimeException e) {
+            hostState.recordFailure(System.nanoTime());
+            throw e;
+        }
+
+        // The success is recorded once the body has been read (see ResilientResponse).
+        boolean failed = response.getStatusCode() >= 500;
+        if(failed)
+            hostState.recordFailure(System.nanoTime());
+
+        return new ResilientResponse(response, hostState, failed);
+    }
+
+    private final class HostState {
+        // Circuit breaker
+        private int consecutiveFailureCount = 0;
+        private long openUntil = 0; // System.nanoTime(); valid only if open is true
+        private boolean open = false; // also while half-open
+        private boolean trialRequestInProgress = false;
+
+        // Token bucket
+        private double tokens = burstSize;
+        private long lastRefillTime = System.nanoTime();
+
+        synchronized boolean allowRequest(long now) {
+            if(!open || failureThreshold == 0)
+                return true;
+
+            if(now - openUntil < 0 || trialRequestInProgress)
+                return false;
+
+            trialRequestInProgress = true; // half-open
+            return true;
+        }
+
+        synchronized boolean isCircuitOpen(long now) {
+            return open && failureThreshold != 0 && (now - openUntil < 0 || trialRequestInProgress);
+        }
+
+        synchronized void recordSuccess() {
+            consecutiveFailureCount = 0;
+            open = false;
+            trialRequestInProgress = false;
+        }
+
+        synchronized void recordNothing() {
+            trialRequestInProgress = false; // another trial request can be let through
+        }
+
+        synchronized void recordFailure(long now) {
+            consecutiveFailureCount++;
+
+            if(failureThreshold != 0 && (trialRequestInProgress || consecutiveFailureCount >= failureThreshold)) {
+                open = true;
+                openUntil = now + openNanoseconds;
+                trialRequestInProgress = false;
+            }
+        }
+
+        void acquireToken(int timeoutMilliseconds) throws IOException {
+            long waitNanoseconds = reserveToken(timeoutMilliseconds);
+            if(waitNanoseconds <= 0)
+                return;
+
+            delayedRequestCount.increment();
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanoseconds);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the rate limit of the host!", e);
+            }
+        }
+
+        // The token is taken right away, even if it's not there yet (the bucket goes negative) - the requests then wait
+        // for their turn in the order in which they have come.
+        private synchronized long reserveToken(int timeoutMilliseconds) throws SocketTimeoutException {
+            if(requestsPerSecond == 0)
+                return 0;
+
+            long now = System.nanoTime();
+            tokens = Math.min(tokens + ((now - lastRefillTime) / 1e9 * requestsPerSecond), burstSize);
+            lastRefillTime = now;
+
+            tokens--;
+            if(tokens >= 0)
+                return 0;
+
+            long waitNanoseconds = (long) (-tokens / requestsPerSecond * 1e9);
+            if(timeoutMilliseconds > 0 && waitNanoseconds > TimeUnit.MILLISECONDS.toNanos(timeoutMilliseconds)) {
+                tokens++; // the request isn't sent
+                throw new SocketTimeoutException("Timed out while waiting for the rate limit of the host!");
+            }
+
+            return waitNanoseconds;
+        }
+    }
+
+    // Reports the outcome of the request to the circuit breaker once the body has been read (or has failed to be read),
+    // so that a host which keeps cutting the bodies off opens its circuit too.
+    private static final class ResilientResponse implements Response {
+        private final Response response;
+        private final HostState hostState;
+        private volatile boolean aborted = false;
+        private boolean outcomeRecorded;
+        private InputStream body = null;
+
+        ResilientResponse(Response response, HostState hostState, boolean outcomeRecorded) {
+            this.response = response;
+            this.hostState = hostState;
+            this.outcomeRecorded = outcomeRecorded;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return response.getHeader(name);
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if(body == null)
+                body = new FailureReportingInputStream(response.getBody());
+
+            return body;
+        }
+
+        @Override
+        public long getConnectNanoseconds() {
+            return response.getConnectNanoseconds();
+        }
+
+        @Override
+        public void abort() {
+            aborted = true;
+            response.abort();
+        }
+
+        @Override
+        public void close() {
+            if(!outcomeRecorded) {
+                if(aborted)
+                    hostState.recordNothing(); // the host isn't at fault
+                else
+                    hostState.recordSuccess();
+
+                outcomeRecorded = true;
+            }
+
+            response.close();
+        }
+
+        private final class FailureReportingInputStream extends FilterInputStream {
+            FailureReportingInputStream(InputStream inputStream) {
+                super(inputStream);
+            }
+
+            @Override
+            public int read() throws IOException {
+                try {
+                    return super.read();
+                } catch (IOException e) {
+                    reportFailure();
+                    throw e;
+                }
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                try {
+                    return super.read(bytes, offset, length);
+                } catch (IOException e) {
+                    reportFailure();
+                    throw e;
+                }
+            }
+
+            @Override
+            public long skip(long count) throws IOException {
+                try {
+                    return super.skip(count);
+                } catch (IOException e) {
+                    reportFailure();
+                    throw e;
+                }
+            }
+
+            private void reportFailure() {
+                if(outcomeRecorded || aborted)
+                    return; // close() takes care of the aborted requests
+
+                hostState.recordFailure(System.nanoTime());
+                outcomeRecorded = true;
+            }
+        }
+    }
+}
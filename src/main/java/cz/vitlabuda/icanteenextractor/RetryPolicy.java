@@ -0,0 +1,144 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Specifies how ICanteenExtractor retries the failed fetches of the login pages (see
+ * ICanteenExtractor.Builder.setRetryPolicy()). The class is immutable.
+ *
+ * Only the failures which are likely to be temporary are retried: the connection failures and timeouts, the bodies
+ * cut off by the server, and the HTTP status codes 408, 429, 500, 502, 503 and 504. The other HTTP errors, TLS errors,
+ * unknown hosts, the rejections by an open circuit breaker (see ResilientHTTPTransport), the webpages which are larger
+ * than the maximum size (see ICanteenExtractor.Builder.setMaxBodyBytes()) and the webpages which cannot be parsed are
+ * not retried.
+ * Before each retry, the extraction waits for a random time ("full jitter") between 0 and the backoff, which starts at
+ * the initial backoff and doubles after every failed attempt, up to the maximum backoff - so that many extractions
+ * failing at the same time don't all retry at the same time again.
+ */
+public final class RetryPolicy {
+    /**
+     * The policy which doesn't retry at all, used by default.
+     */
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+
+    private final int maxAttempts;
+    private final long initialBackoffMilliseconds;
+    private final long maxBackoffMilliseconds;
+
+    /**
+     * Instantiates the RetryPolicy class.
+     *
+     * @param maxAttempts The maximum number of attempts to fetch a login page, including the first one.
+     * @param initialBackoffMilliseconds The backoff before the first retry in milliseconds.
+     * @param maxBackoffMilliseconds The maximum backoff in milliseconds.
+     */
+    public RetryPolicy(int maxAttempts, long initialBackoffMilliseconds, long maxBackoffMilliseconds) {
+        if(maxAttempts < 1)
+            throw new IllegalArgumentException("The maximum number of attempts must be at least 1!");
+        if(initialBackoffMilliseconds < 0 || maxBackoffMilliseconds < initialBackoffMilliseconds)
+            throw new IllegalArgumentException("The backoff mustn't be negative and the maximum backoff mustn't be less than the initial one!");
+
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMilliseconds = initialBackoffMilliseconds;
+        this.maxBackoffMilliseconds = maxBackoffMilliseconds;
+    }
+
+    /**
+     * Gets the maximum number of attempts to fetch a login page, including the first one.
+     *
+     * @return The maximum number of attempts.
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Gets the backoff before the first retry.
+     *
+     * @return The initial backoff in milliseconds.
+     */
+    public long getInitialBackoffMilliseconds() {
+        return initialBackoffMilliseconds;
+    }
+
+    /**
+     * Gets the maximum backoff.
+     *
+     * @return The maximum backoff in milliseconds.
+     */
+    public long getMaxBackoffMilliseconds() {
+        return maxBackoffMilliseconds;
+    }
+
+    // The failed attempt is numbered from 1.
+    long computeBackoffMilliseconds(int failedAttempt) {
+        long backoffMilliseconds = initialBackoffMilliseconds;
+        for(int i = 1; i < failedAttempt && backoffMilliseconds < maxBackoffMilliseconds; i++)
+            backoffMilliseconds *= 2;
+
+        backoffMilliseconds = Math.min(backoffMilliseconds, maxBackoffMilliseconds);
+
+        return (backoffMilliseconds > 0) ? ThreadLocalRandom.current().nextLong(backoffMilliseconds + 1) : 0;
+    }
+
+    static boolean isRetryable(ICanteenExtractorException exception) {
+        if(exception instanceof ICanteenExtractorException.HTTPErrorException) {
+            int statusCode = ((ICanteenExtractorException.HTTPErrorException) exception).getStatusCode();
+
+            return statusCode == 408 || statusCode == 429 || statusCode == 500 || statusCode == 502 || statusCode == 503 || statusCode == 504;
+        }
+
+        Throwable carriedError = exception.getCarriedError();
+        if(!(carriedError instanceof IOException))
+            return false; // parser errors and the like
+
+        return !(carriedError instanceof SSLException) && !(carriedError instanceof UnknownHostException) && !(carriedError instanceof ResilientHTTPTransport.CircuitOpenException)
+                && !(carriedError instanceof PageContent.TooLargeException);
+    }
+}
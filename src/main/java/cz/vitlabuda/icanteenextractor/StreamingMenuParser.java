@@ -0,0 +1,681 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.function.Consumer;
+
+/*
+ * Parses the food menu straight from the stream of HTML tokens, without building the webpage's DOM. Only the names of
+ * the open elements are kept (the tree builder's behavior inside .jidelnicekWeb depends on the elements around it, too),
+ * and the text is collected only inside .jidelnicekWeb. Each day is handed over as soon as its element has been closed.
+ * The rest of the webpage is only scanned for markup which would make jsoup fail.
+ *
+ * The parser recognizes all the layouts the DOM-based parsers do, and produces exactly the same days and dishes as they
+ * would. Only the elements whose tree building it models exactly are supported - whenever the webpage contains any
+ * other element, or markup whose DOM it can't be sure about (a table, a misnested or stray tag, nested menu elements,
+ * a layout which changes between the days, ...), it gives up with a FoodMenuParserException and the caller should
+ * fall back to the DOM-based parsers. StreamingMenuParserTest compares the two on mutated webpages.
+ */
+final class StreamingMenuParser implements HTMLTokenizer.Handler {
+    private static final String[] ATTRIBUTE_NAMES = {"id", "class"};
+    private static final int ID_ATTRIBUTE = 0;
+    private static final int CLASS_ATTRIBUTE = 1;
+
+    // The block elements, as jsoup's Element.text() sees them
+    private static final HashSet<String> BLOCK_ELEMENTS = createSet(
+            "html", "head", "body", "frameset", "script", "noscript", "style", "meta", "link", "title", "frame",
+            "noframes", "section", "nav", "aside", "hgroup", "header", "footer", "p", "h1", "h2", "h3", "h4", "h5", "h6",
+            "ul", "ol", "pre", "div", "blockquote", "hr", "address", "figure", "figcaption", "form", "fieldset", "ins",
+            "del", "dl", "dt", "dd", "li", "table", "caption", "thead", "tfoot", "tbody", "colgroup", "col", "tr", "th",
+            "td", "video", "audio", "canvas", "details", "menu", "plaintext", "template", "article", "main",
+            "svg", "math", "center"
+    );
+    private static final HashSet<String> VOID_ELEMENTS = createSet(
+            "area", "base", "basefont", "bgsound", "br", "command", "embed", "hr", "img", "input", "keygen", "link",
+            "meta", "param", "source", "track", "wbr"
+    );
+    // jsoup doesn't normalize (or even decode) the text inside these elements, and the tokenizer doesn't report it.
+    private static final HashSet<String> VERBATIM_TEXT_ELEMENTS = createSet(
+            "iframe", "listing", "noembed", "noframes", "plaintext", "pre", "textarea", "title", "xmp"
+    );
+
+    // The elements which the tree builder inserts as they come, apart from the implied end tags modeled below. All the
+    // others (tables, forms' select elements, ruby annotations, foreign content, ...) make the parser give up.
+    private static final HashSet<String> SUPPORTED_ELEMENTS = createSet(
+            "a", "abbr", "address", "article", "aside", "b", "bdi", "bdo", "big", "blockquote", "br", "button", "center",
+            "cite", "code", "data", "dd", "del", "details", "dfn", "dir", "div", "dl", "dt", "em", "fieldset",
+            "figcaption", "figure", "font", "footer", "form", "h1", "h2", "h3", "h4", "h5", "h6", "header", "hgroup", "hr",
+            "i", "img", "input", "ins", "kbd", "label", "li", "main", "mark", "menu", "nav", "nobr", "ol", "p", "q", "s",
+            "samp", "script", "section", "small", "span", "strike", "strong", "style", "sub", "summary", "sup", "time",
+            "tt", "u", "ul", "var", "wbr"
+    );
+    // The content of the head, allowed only before .jidelnicekWeb, where the text isn't collected.
+    private static final HashSet<String> SUPPORTED_HEAD_ELEMENTS = createSet("base", "link", "meta", "pre", "textarea", "title");
+    // Their start and end tags don't open or close anything before .jidelnicekWeb (the tree builder creates the elements
+    // itself if they're missing).
+    private static final HashSet<String> DOCUMENT_ELEMENTS = createSet("html", "head", "body");
+    // An element of these which is opened while another one is still open closes the other one (or is dropped).
+    private static final HashSet<String> NON_NESTABLE_ELEMENTS = createSet("a", "button", "nobr", "form");
+
+    private static final HashSet<String> P_CLOSING_ELEMENTS = createSet(
+            "address", "article", "aside", "blockquote", "center", "details", "dir", "div", "dl", "fieldset",
+            "figcaption", "figure", "footer", "header", "hgroup", "menu", "nav", "ol", "p", "section", "summary", "ul",
+            "h1", "h2", "h3", "h4", "h5", "h6", "pre", "listing", "form", "plaintext", "hr", "li", "dd", "dt", "xmp"
+    );
+    private static final HashSet<String> HEADING_ELEMENTS = createSet("h1", "h2", "h3", "h4", "h5", "h6");
+    private static final HashSet<String> LIST_ELEMENTS = createSet("ul", "ol");
+    private static final HashSet<String> DEFINITION_LIST_ELEMENTS = createSet("dl");
+
+    // The end tags of these elements close everything which is still open inside them...
+    private static final HashSet<String> CLOSING_EVERYTHING_ELEMENTS = createSet(
+            "address", "article", "aside", "blockquote", "button", "center", "details", "dir", "div", "dl", "fieldset",
+            "figcaption", "figure", "footer", "header", "hgroup", "listing", "menu", "nav", "ol", "pre", "section",
+            "summary", "ul", "p", "li", "dd", "dt", "h1", "h2", "h3", "h4", "h5", "h6"
+    );
+    // ...unless one of these is in the way...
+    private static final HashSet<String> SCOPE_BOUNDARY_ELEMENTS = createSet("applet", "button", "marquee", "object", "ol", "ul");
+    // ...while the end tags of the other elements are ignored if one of these is in the way.
+    private static final HashSet<String> SPECIAL_ELEMENTS = createSet(
+            "address", "applet", "area", "article", "aside", "base", "basefont", "bgsound", "blockquote", "body", "br",
+            "button", "caption", "center", "col", "colgroup", "command", "dd", "details", "dir", "div", "dl", "dt",
+            "embed", "fieldset", "figcaption", "figure", "footer", "form", "frame", "frameset", "h1", "h2", "h3", "h4",
+            "h5", "h6", "head", "header", "hgroup", "hr", "html", "iframe", "img", "input", "isindex", "li", "link",
+            "listing", "marquee", "menu", "meta", "nav", "noembed", "noframes", "noscript", "object", "ol", "p",
+            "param", "plaintext", "pre", "script", "section", "select", "style", "summary", "table", "tbody", "td",
+            "textarea", "tfoot", "th", "thead", "title", "tr", "ul", "wbr", "xmp"
+    );
+    // The tree builder reopens these elements if they're closed by the end tag of another element.
+    private static final HashSet<String> FORMATTING_ELEMENTS = createSet(
+            "a", "b", "big", "code", "em", "font", "i", "nobr", "s", "small", "strike", "strong", "tt", "u"
+    );
+
+    private enum DayLayout {
+        TOP, // the new extended and the simple layout, with a .jidelnicekTop element
+        OLD
+    }
+
+    private final Consumer<FoodMenu.Day> dayConsumer;
+
+    // All the open elements, except for html, head and body
+    private final ArrayList<String> openElements = new ArrayList<>();
+    private final ArrayList<TextCollector> activeTextCollectors = new ArrayList<>();
+    private int menuIndex = -1; // the index of .jidelnicekWeb in openElements, once it has been opened
+    private boolean finished = false; // .jidelnicekWeb has been closed
+    private boolean formOpened = false; // the tree builder ignores the next form, unless the previous one has been closed by </form>
+
+    private DayLayout dayLayout = null; // determined by the first day
+    private int jidelnicekItemsPerDish = 0; // determined by the first dish of the TOP layout - 3 (new extended) or 2 (simple)
+    private DayState dayState = null;
+
+    private StreamingMenuParser(Consumer<FoodMenu.Day> dayConsumer) {
+        this.dayConsumer = dayConsumer;
+    }
+
+    // The reader isn't closed.
+    static FoodMenu parse(Reader reader) throws IOException, FoodMenuParserBase.FoodMenuParserException {
+        FoodMenu foodMenu = new FoodMenu();
+        parse(reader, foodMenu.getDays()::add);
+
+        return foodMenu;
+    }
+
+    // The reader isn't closed. Exceptions thrown by the consumer are propagated.
+    static void parse(Reader reader, Consumer<FoodMenu.Day> dayConsumer) throws IOException, FoodMenuParserBase.FoodMenuParserException {
+        StreamingMenuParser streamingMenuParser = new StreamingMenuParser(dayConsumer);
+        new HTMLTokenizer(reader, ATTRIBUTE_NAMES).tokenize(streamingMenuParser);
+
+        if(streamingMenuParser.menuIndex == -1)
+            throw new FoodMenuParserBase.FoodMenuParserException("The iCanteen webpage doesn't contain the expected element! (.jidelnicekWeb)");
+
+        // The webpage has ended inside .jidelnicekWeb - the tree builder closes all the elements.
+        while(!streamingMenuParser.finished)
+            streamingMenuParser.closeElement();
+    }
+
+    @Override
+    public void startTag(String tagName, String[] attributeValues, boolean selfClosing) throws FoodMenuParserBase.FoodMenuParserException {
+        // jsoup fails on an <isindex> tag without any attributes, wherever it is, and so would the DOM-based parsers.
+        if(tagName.equals("isindex"))
+            throw unsupportedMarkup(tagName);
+
+        if(finished)
+            return;
+
+        boolean insideMenu = (menuIndex != -1);
+        if(!insideMenu && DOCUMENT_ELEMENTS.contains(tagName))
+            return;
+
+        if(!SUPPORTED_ELEMENTS.contains(tagName) && (insideMenu || !SUPPORTED_HEAD_ELEMENTS.contains(tagName)))
+            throw unsupportedMarkup(tagName);
+
+        if(NON_NESTABLE_ELEMENTS.contains(tagName) && openElements.contains(tagName))
+            throw unsupportedMarkup(tagName);
+
+        if(tagName.equals("form")) {
+            if(formOpened)
+                throw unsupportedMarkup(tagName);
+
+            formOpened = true;
+        }
+
+        closeImplicitlyClosedElements(tagName);
+        if(finished) // the tag has closed .jidelnicekWeb, e.g. a <div> inside <p class="jidelnicekWeb">
+            return;
+
+        int index = openElements.size();
+        openElements.add(tagName);
+
+        if(insideMenu) {
+            elementStarted(tagName, index, attributeValues);
+        } else if(hasClass(attributeValues[CLASS_ATTRIBUTE], "jidelnicekWeb")) {
+            if(hasClass(attributeValues[CLASS_ATTRIBUTE], "jidelnicekDen"))
+                throw unsupportedMarkup(tagName);
+
+            menuIndex = index;
+        }
+
+        if(selfClosing || VOID_ELEMENTS.contains(tagName))
+            closeElement(); // a void .jidelnicekWeb element is an empty food menu
+    }
+
+    @Override
+    public void endTag(String tagName) throws FoodMenuParserBase.FoodMenuParserException {
+        if(finished || (menuIndex == -1 && DOCUMENT_ELEMENTS.contains(tagName)))
+            return;
+
+        int lastIndex = openElements.size() - 1;
+        if(FORMATTING_ELEMENTS.contains(tagName) || tagName.equals("form")) {
+            // The adoption agency algorithm would have to be run for a formatting element, and the tree builder removes
+            // just the form element from the stack, leaving the elements inside it open.
+            if(lastIndex == -1 || !openElements.get(lastIndex).equals(tagName))
+                throw unsupportedMarkup(tagName);
+
+            if(tagName.equals("form"))
+                formOpened = false;
+
+            closeElement();
+            return;
+        }
+
+        boolean closesEverything = CLOSING_EVERYTHING_ELEMENTS.contains(tagName);
+        boolean closesAnyHeading = HEADING_ELEMENTS.contains(tagName);
+        for(int i = lastIndex; i >= 0; i--) {
+            String openElement = openElements.get(i);
+            if(openElement.equals(tagName) || (closesAnyHeading && HEADING_ELEMENTS.contains(openElement))) {
+                while(openElements.size() > i)
+                    closeElement();
+                return;
+            }
+
+            // The tree builder would ignore the end tag if a special element is in the way.
+            if(FORMATTING_ELEMENTS.contains(openElement) || (closesEverything && SCOPE_BOUNDARY_ELEMENTS.contains(openElement))
+                    || (!closesEverything && SPECIAL_ELEMENTS.contains(openElement)))
+                throw unsupportedMarkup(tagName);
+        }
+
+        // A stray end tag - it's either ignored, or it creates a new element (e.g. </p> or </br>).
+        throw unsupportedMarkup(tagName);
+    }
+
+    @Override
+    public void text(String text) throws FoodMenuParserBase.FoodMenuParserException {
+        int parentIndex = openElements.size() - 1;
+        for(TextCollector textCollector : activeTextCollectors)
+            textCollector.text(text, parentIndex);
+    }
+
+    @Override
+    public void comment() {
+        for(TextCollector textCollector : activeTextCollectors)
+            textCollector.comment();
+    }
+
+    @Override
+    public void cdataSection() throws FoodMenuParserBase.FoodMenuParserException {
+        if(!activeTextCollectors.isEmpty())
+            throw unsupportedMarkup("CDATA");
+    }
+
+    @Override
+    public boolean wantsText() {
+        return !activeTextCollectors.isEmpty();
+    }
+
+    @Override
+    public boolean isFinished() {
+        return false; // the rest of the webpage is checked for <isindex> tags
+    }
+
+    private void closeImplicitlyClosedElements(String tagName) throws FoodMenuParserBase.FoodMenuParserException {
+        if(P_CLOSING_ELEMENTS.contains(tagName))
+            closeImplicitlyClosedElement("p", null);
+
+        if(tagName.equals("li")) {
+            closeImplicitlyClosedElement("li", LIST_ELEMENTS);
+        } else if(tagName.equals("dd") || tagName.equals("dt")) {
+            closeImplicitlyClosedElement("dd", DEFINITION_LIST_ELEMENTS);
+            closeImplicitlyClosedElement("dt", DEFINITION_LIST_ELEMENTS);
+        }
+
+        int lastIndex = openElements.size() - 1;
+        if(lastIndex >= 0 && HEADING_ELEMENTS.contains(tagName) && HEADING_ELEMENTS.contains(openElements.get(lastIndex)))
+            closeElement();
+    }
+
+    // Only the innermost open element is closed - if the element is open further up, it's up to the tree builder's
+    // scoping rules what happens, so the parser gives up.
+    private void closeImplicitlyClosedElement(String elementName, HashSet<String> scopeBoundaries) throws FoodMenuParserBase.FoodMenuParserException {
+        for(int i = openElements.size() - 1; i >= 0; i--) {
+            String openElement = openElements.get(i);
+            if(scopeBoundaries != null && scopeBoundaries.contains(openElement))
+                return;
+
+            if(openElement.equals(elementName)) {
+                if(i != openElements.size() - 1)
+                    throw unsupportedMarkup(elementName);
+
+                closeElement();
+                return;
+            }
+        }
+    }
+
+    private void closeElement() throws FoodMenuParserBase.FoodMenuParserException {
+        int index = openElements.size() - 1;
+        String tagName = openElements.remove(index);
+
+        elementEnded(tagName, index);
+    }
+
+    private void elementStarted(String tagName, int index, String[] attributeValues) throws FoodMenuParserBase.FoodMenuParserException {
+        for(TextCollector textCollector : activeTextCollectors)
+            textCollector.elementStarted(tagName, index);
+
+        if(VERBATIM_TEXT_ELEMENTS.contains(tagName) && !activeTextCollectors.isEmpty())
+            throw unsupportedMarkup(tagName);
+
+        String classAttribute = attributeValues[CLASS_ATTRIBUTE];
+        if(dayState == null) {
+            if(!hasClass(classAttribute, "jidelnicekDen"))
+                return;
+
+            dayState = new DayState(index, dayLayout);
+        } else if(hasClass(classAttribute, "jidelnicekDen")) {
+            throw unsupportedMarkup(tagName); // nested days
+        }
+
+        String idAttribute = (attributeValues[ID_ATTRIBUTE] != null) ? attributeValues[ID_ATTRIBUTE] : "";
+        DayState day = dayState;
+
+        // The selectors used by the DOM-based parsers match the day's element itself as well, so it's checked too.
+        if(day.topId == null && hasClass(classAttribute, "jidelnicekTop"))
+            day.topId = idAttribute;
+
+        if(day.collectsTopLayout) {
+            if(hasClass(classAttribute, "container")) {
+                if(day.containerIndex != -1)
+                    throw unsupportedMarkup(tagName); // nested containers
+
+                day.containerIndex = index;
+                day.containerItems = new ArrayList<>(3);
+            }
+
+            if(day.containerIndex != -1 && hasClass(classAttribute, "jidelnicekItem")) {
+                if(day.itemCollector != null)
+                    throw unsupportedMarkup(tagName); // nested items
+
+                day.itemCollector = startTextCollector(index, false);
+            }
+        }
+
+        if(day.collectsOldLayout) {
+            if(index == day.index + 1) { // a child of the day's element
+                if(day.childCount == 0)
+                    day.firstChildId = idAttribute;
+                else if(day.childCount == 1)
+                    day.secondChildIndex = index;
+
+                day.childCount++;
+            }
+
+            if(day.secondChildIndex != -1) {
+                if(hasClass(classAttribute, "smallBoldTitle"))
+                    day.secondChildHasTitle = true;
+
+                if(index == day.secondChildIndex + 1) // a dish
+                    day.dish = new OldLayoutDish(index, startTextCollector(index, true));
+            }
+
+            OldLayoutDish dish = day.dish;
+            if(dish != null) {
+                if(index == dish.index + 1) { // a child of the dish's element
+                    if(dish.childCount == 1)
+                        dish.placeCollector = startTextCollector(index, false);
+
+                    dish.childCount++;
+                }
+
+                if(dish.nameCollector == null && hasClass(classAttribute, "smallBoldTitle"))
+                    dish.nameCollector = startTextCollector(index, false);
+            }
+        }
+    }
+
+    private void elementEnded(String tagName, int index) throws FoodMenuParserBase.FoodMenuParserException {
+        for(int i = activeTextCollectors.size() - 1; i >= 0; i--) {
+            TextCollector textCollector = activeTextCollectors.get(i);
+            if(textCollector.rootIndex == index) {
+                textCollector.finish();
+                activeTextCollectors.remove(i);
+            } else {
+                textCollector.elementEnded(tagName);
+            }
+        }
+
+        if(index <= menuIndex) {
+            if(index == menuIndex)
+                finished = true; // .jidelnicekWeb has been closed, maybe together with the elements around it
+
+            return;
+        }
+
+        DayState day = dayState;
+        if(day == null)
+            return;
+
+        if(day.collectsTopLayout) {
+            if(day.itemCollector != null && index == day.itemCollector.rootIndex) {
+                day.containerItems.add(day.itemCollector.getText());
+                day.itemCollector = null;
+            }
+
+            if(index == day.containerIndex) {
+                day.containers.add(day.containerItems);
+                day.containerIndex = -1;
+                day.containerItems = null;
+            }
+        }
+
+        if(day.collectsOldLayout) {
+            if(day.dish != null && index == day.dish.index) {
+                day.dishes.add(day.dish);
+                day.dish = null;
+            }
+
+            if(index == day.secondChildIndex)
+                day.secondChildIndex = -1;
+        }
+
+        if(index == day.index) {
+            dayState = null;
+            dayConsumer.accept(createDay(day));
+        }
+    }
+
+    private FoodMenu.Day createDay(DayState day) throws FoodMenuParserBase.FoodMenuParserException {
+        boolean hasTop = (day.topId != null);
+
+        if(dayLayout == null) {
+            // The DOM-based layout detection would pick the old parser for such a day.
+            if(hasTop && day.containers.isEmpty() && day.childCount >= 2 && day.secondChildHasTitle)
+                throw new FoodMenuParserBase.FoodMenuParserException("The layout of the iCanteen webpage is ambiguous!");
+
+            dayLayout = (hasTop ? DayLayout.TOP : DayLayout.OLD);
+        } else if(hasTop != (dayLayout == DayLayout.TOP)) {
+            throw new FoodMenuParserBase.FoodMenuParserException("The layout of the iCanteen webpage changes between the days!");
+        }
+
+        if(dayLayout == DayLayout.TOP) {
+            FoodMenu.Day foodMenuDay = new FoodMenu.Day(FoodMenuParserBase.parseDateString(day.topId));
+
+            for(ArrayList<String> jidelnicekItems : day.containers) {
+                if(jidelnicekItemsPerDish == 0) {
+                    if(jidelnicekItems.size() < 2)
+                        throw new FoodMenuParserBase.FoodMenuParserException("The iCanteen webpage doesn't contain enough expected elements! (.jidelnicekItem)");
+
+                    jidelnicekItemsPerDish = Math.min(jidelnicekItems.size(), 3);
+                } else if(jidelnicekItems.size() < jidelnicekItemsPerDish) {
+                    // The DOM-based parsers would end up with the simple parser for the whole webpage.
+                    throw new FoodMenuParserBase.FoodMenuParserException("The layout of the iCanteen webpage changes between the dishes!");
+                }
+
+                FoodMenu.Dish dish = (jidelnicekItemsPerDish == 3)
+                        ? new FoodMenu.Dish(jidelnicekItems.get(0), jidelnicekItems.get(1), jidelnicekItems.get(2))
+                        : new FoodMenu.Dish(jidelnicekItems.get(0), "", jidelnicekItems.get(1));
+                foodMenuDay.getDishes().add(dish);
+            }
+
+            return foodMenuDay;
+        }
+
+        if(day.childCount < 2)
+            throw new FoodMenuParserBase.FoodMenuParserException("The iCanteen day element doesn't contain the date and the dishes!");
+
+        FoodMenu.Day foodMenuDay = new FoodMenu.Day(FoodMenuParserBase.parseDateString(day.firstChildId));
+
+        for(OldLayoutDish dish : day.dishes) {
+            if(dish.childCount < 2)
+                throw new FoodMenuParserBase.FoodMenuParserException("The iCanteen dish element doesn't contain the name and the place!");
+            if(dish.nameCollector == null)
+                throw new FoodMenuParserBase.FoodMenuParserException("The iCanteen webpage doesn't contain the expected element! (.smallBoldTitle)");
+
+            String dishDescription = DishDescriptionNormalizer.stripLeadingDashes(dish.ownTextCollector.getText());
+            foodMenuDay.getDishes().add(new FoodMenu.Dish(dish.nameCollector.getText(), dish.placeCollector.getText(), dishDescription));
+        }
+
+        return foodMenuDay;
+    }
+
+    private TextCollector startTextCollector(int rootIndex, boolean ownTextOnly) throws FoodMenuParserBase.FoodMenuParserException {
+        for(int i = 0; i < rootIndex; i++) {
+            if(VERBATIM_TEXT_ELEMENTS.contains(openElements.get(i)))
+                throw unsupportedMarkup(openElements.get(i));
+        }
+
+        TextCollector textCollector = new TextCollector(rootIndex, ownTextOnly);
+        activeTextCollectors.add(textCollector);
+
+        return textCollector;
+    }
+
+    private static FoodMenuParserBase.FoodMenuParserException unsupportedMarkup(String tagName) {
+        return new FoodMenuParserBase.FoodMenuParserException("The iCanteen webpage contains markup unsupported by the streaming parser! (" + tagName + ")");
+    }
+
+    // The same matching as jsoup's Element.hasClass() does - case-insensitive, separated by any whitespace.
+    static boolean hasClass(String classAttribute, String className) {
+        if(classAttribute == null)
+            return false;
+
+        int start = -1;
+        for(int i = 0; i <= classAttribute.length(); i++) {
+            if(i == classAttribute.length() || Character.isWhitespace(classAttribute.charAt(i))) {
+                if(start != -1 && i - start == className.length() && classAttribute.regionMatches(true, start, className, 0, className.length()))
+                    return true;
+
+                start = -1;
+            } else if(start == -1) {
+                start = i;
+            }
+        }
+
+        return false;
+    }
+
+    private static HashSet<String> createSet(String... elements) {
+        return new HashSet<>(Arrays.asList(elements));
+    }
+
+    // Builds the same string as jsoup's Element.text() (or Element.ownText()) would for the element.
+    private static final class TextCollector {
+        private final int rootIndex;
+        private final boolean ownTextOnly;
+        private final StringBuilder textBuilder = new StringBuilder();
+        private boolean blockElementJustEnded = false;
+        private String text = null;
+
+        private TextCollector(int rootIndex, boolean ownTextOnly) {
+            this.rootIndex = rootIndex;
+            this.ownTextOnly = ownTextOnly;
+        }
+
+        private void elementStarted(String tagName, int index) {
+            blockElementJustEnded = false;
+
+            if(ownTextOnly) {
+                if(index == rootIndex + 1 && tagName.equals("br"))
+                    appendSpace();
+            } else if(textBuilder.length() > 0 && (BLOCK_ELEMENTS.contains(tagName) || tagName.equals("br"))) {
+                appendSpace();
+            }
+        }
+
+        private void elementEnded(String tagName) {
+            // A space is added only if the block element is followed by a text node.
+            blockElementJustEnded = (!ownTextOnly && BLOCK_ELEMENTS.contains(tagName));
+        }
+
+        private void text(String text, int parentIndex) {
+            if(ownTextOnly && parentIndex != rootIndex)
+                return;
+
+            if(blockElementJustEnded) {
+                appendSpace();
+                blockElementJustEnded = false;
+            }
+
+            appendNormalizedWhitespace(text);
+        }
+
+        // The same as jsoup's StringUtil.appendNormalisedWhitespace(), which isn't a public API.
+        private void appendNormalizedWhitespace(String text) {
+            boolean stripLeading = endsWithSpace();
+            boolean lastWasWhitespace = false;
+            boolean reachedNonWhitespace = false;
+
+            int codePoint;
+            for(int i = 0; i < text.length(); i += Character.charCount(codePoint)) {
+                codePoint = text.codePointAt(i);
+                if(codePoint == ' ' || codePoint == '\t' || codePoint == '\n' || codePoint == '\f' || codePoint == '\r' || codePoint == 160) {
+                    if((stripLeading && !reachedNonWhitespace) || lastWasWhitespace)
+                        continue;
+
+                    textBuilder.append(' ');
+                    lastWasWhitespace = true;
+                } else if(codePoint != 8203 && codePoint != 173) { // zero width space and soft hyphen are dropped
+                    textBuilder.appendCodePoint(codePoint);
+                    lastWasWhitespace = false;
+                    reachedNonWhitespace = true;
+                }
+            }
+        }
+
+        private void comment() {
+            blockElementJustEnded = false;
+        }
+
+        private void appendSpace() {
+            if(!endsWithSpace())
+                textBuilder.append(' ');
+        }
+
+        private boolean endsWithSpace() {
+            return (textBuilder.length() != 0 && textBuilder.charAt(textBuilder.length() - 1) == ' ');
+        }
+
+        private void finish() {
+            text = textBuilder.toString().trim();
+        }
+
+        private String getText() {
+            return text;
+        }
+    }
+
+    private static final class OldLayoutDish {
+        private final int index;
+        private final TextCollector ownTextCollector;
+        private TextCollector nameCollector = null;
+        private TextCollector placeCollector = null;
+        private int childCount = 0;
+
+        private OldLayoutDish(int index, TextCollector ownTextCollector) {
+            this.index = index;
+            this.ownTextCollector = ownTextCollector;
+        }
+    }
+
+    private static final class DayState {
+        private final int index;
+        private final boolean collectsTopLayout;
+        private final boolean collectsOldLayout;
+        private String topId = null;
+
+        // The TOP layout
+        private final ArrayList<ArrayList<String>> containers = new ArrayList<>();
+        private int containerIndex = -1;
+        private ArrayList<String> containerItems = null;
+        private TextCollector itemCollector = null;
+
+        // The OLD layout
+        private int childCount = 0;
+        private String firstChildId = null;
+        private int secondChildIndex = -1;
+        private boolean secondChildHasTitle = false;
+        private final ArrayList<OldLayoutDish> dishes = new ArrayList<>();
+        private OldLayoutDish dish = null;
+
+        // Until the first day is parsed, both of the layouts are collected.
+        private DayState(int index, DayLayout dayLayout) {
+            this.index = index;
+            this.collectsTopLayout = (dayLayout != DayLayout.OLD);
+            this.collectsOldLayout = (dayLayout != DayLayout.TOP);
+        }
+    }
+}
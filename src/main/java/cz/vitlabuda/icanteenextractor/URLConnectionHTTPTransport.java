@@ -0,0 +1,200 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * An HTTPTransport using java.net.HttpURLConnection, i.e. the JDK's own HTTP client (including its proxy settings and
+ * its built-in keep-alive cache). It doesn't provide any connection statistics.
+ */
+public class URLConnectionHTTPTransport implements HTTPTransport {
+    private static final class URLConnectionResponse implements Response {
+        private final HttpURLConnection connection;
+        private final int statusCode;
+        private InputStream body = null;
+
+        URLConnectionResponse(HttpURLConnection connection, int statusCode) {
+            this.connection = connection;
+            this.statusCode = statusCode;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return connection.getHeaderField(name);
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if(body == null) {
+                body = connection.getInputStream();
+
+                long contentLength = connection.getContentLengthLong();
+                if(contentLength >= 0)
+                    body = new LengthCheckingInputStream(body, contentLength);
+            }
+
+            return body;
+        }
+
+        @Override
+        public void abort() {
+            connection.disconnect();
+        }
+
+        @Override
+        public void close() {
+            if(body == null) {
+                // The body hasn't been read (e.g. an HTTP error or 304), so the connection has to be released explicitly.
+                try {
+                    InputStream errorStream = connection.getErrorStream();
+                    if(errorStream != null)
+                        errorStream.close();
+                } catch (IOException ignored) {
+                } finally {
+                    connection.disconnect();
+                }
+                return;
+            }
+
+            // Closing just the stream (and not disconnecting) lets HttpURLConnection reuse the connection.
+            try {
+                body.close();
+            } catch (IOException e) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    // HttpURLConnection reports a body cut off by the server as a regular end of the stream, so the truncated webpage
+    // would be parsed as if it were complete.
+    private static final class LengthCheckingInputStream extends FilterInputStream {
+        private long remainingLength;
+
+        LengthCheckingInputStream(InputStream inputStream, long contentLength) {
+            super(inputStream);
+            this.remainingLength = contentLength;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int readByte = super.read();
+            if(readByte == -1)
+                checkEnd();
+            else
+                remainingLength--;
+
+            return readByte;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int readLength = super.read(bytes, offset, length);
+            if(readLength == -1)
+                checkEnd();
+            else
+                remainingLength -= readLength;
+
+            return readLength;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            long skippedCount = super.skip(count);
+            remainingLength -= skippedCount;
+
+            return skippedCount;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false; // the remaining length couldn't be reset
+        }
+
+        private void checkEnd() throws EOFException {
+            if(remainingLength > 0)
+                throw new EOFException("The connection has been closed before the whole body has been received!");
+        }
+    }
+
+    /**
+     * Instantiates the URLConnectionHTTPTransport class.
+     */
+    public URLConnectionHTTPTransport() {}
+
+    @Override
+    public Response get(URL url, Map<String, String> requestHeaders, int timeoutMilliseconds) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setInstanceFollowRedirects(false);
+        connection.setUseCaches(false);
+        connection.setDoOutput(false);
+        connection.setDoInput(true);
+
+        for(Map.Entry<String, String> requestHeader : requestHeaders.entrySet())
+            connection.setRequestProperty(requestHeader.getKey(), requestHeader.getValue());
+
+        if(timeoutMilliseconds > 0) {
+            connection.setConnectTimeout(timeoutMilliseconds);
+            connection.setReadTimeout(timeoutMilliseconds);
+        }
+
+        try {
+            return new URLConnectionResponse(connection, connection.getResponseCode());
+        } catch (IOException | RuntimeException e) {
+            connection.disconnect();
+            throw e;
+        }
+    }
+}
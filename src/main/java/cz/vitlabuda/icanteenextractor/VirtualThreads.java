@@ -0,0 +1,120 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+// The library is compiled for Java 8, so the virtual threads (Java 21+) are created using reflection. On older Java
+// versions (and on Java 19 and 20 without --enable-preview), isSupported() returns false.
+final class VirtualThreads {
+    private static final Method THREAD_OF_VIRTUAL; // Thread.ofVirtual()
+    private static final Method BUILDER_NAME; // Thread.Builder.name(String, long)
+    private static final Method BUILDER_FACTORY; // Thread.Builder.factory()
+    private static final Method EXECUTORS_NEW_THREAD_PER_TASK_EXECUTOR; // Executors.newThreadPerTaskExecutor(ThreadFactory)
+
+    static {
+        Method threadOfVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+        Method executorsNewThreadPerTaskExecutor = null;
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            threadOfVirtual = Thread.class.getMethod("ofVirtual");
+            builderName = builderClass.getMethod("name", String.class, long.class);
+            builderFactory = builderClass.getMethod("factory");
+            executorsNewThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+
+            threadOfVirtual.invoke(null); // throws if the virtual threads are a disabled preview feature
+
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            threadOfVirtual = null;
+        }
+
+        THREAD_OF_VIRTUAL = threadOfVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_FACTORY = builderFactory;
+        EXECUTORS_NEW_THREAD_PER_TASK_EXECUTOR = executorsNewThreadPerTaskExecutor;
+    }
+
+    private VirtualThreads() {}
+
+    static boolean isSupported() {
+        return THREAD_OF_VIRTUAL != null;
+    }
+
+    // The threads are named the same way as the ones of ICanteenExtractor.ExtractorThreadFactory (virtual threads are always daemons).
+    static ThreadFactory newThreadFactory(String purpose) {
+        checkSupported();
+
+        try {
+            Object builder = THREAD_OF_VIRTUAL.invoke(null);
+            builder = BUILDER_NAME.invoke(builder, "icanteen-extractor-" + purpose + "-", 1L);
+
+            return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new UnsupportedOperationException("Failed to create a factory of virtual threads!", e);
+        }
+    }
+
+    // Starts a new virtual thread for each task.
+    static ExecutorService newExecutor(String purpose) {
+        ThreadFactory threadFactory = newThreadFactory(purpose);
+
+        try {
+            return (ExecutorService) EXECUTORS_NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new UnsupportedOperationException("Failed to create an executor of virtual threads!", e);
+        }
+    }
+
+    static void checkSupported() {
+        if(!isSupported())
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or newer!");
+    }
+}
@@ -62,6 +62,12 @@ public class Test {
     public static final String TEST_USER_AGENT = "ICanteenExtractor-Test/" + ICanteenExtractor.LIBRARY_VERSION_STRING;
     public static final int TEST_TIMEOUT = 2000; // in milliseconds
 
+    // A single extractor is shared by all the tests, the same way an application would share it.
+    private static final ICanteenExtractor EXTRACTOR = new ICanteenExtractor.Builder()
+            .setUserAgent(TEST_USER_AGENT)
+            .setTimeoutMilliseconds(TEST_TIMEOUT)
+            .build();
+
     public static void main(String[] args) throws ICanteenExtractorException {
         for(String url : TEST_URLS)
             testURL(url);
@@ -71,11 +77,7 @@ public class Test {
         System.out.printf("URL: %s\n", url);
 
 
-        ICanteenExtractor extractor = new ICanteenExtractor();
-        extractor.setUserAgent(TEST_USER_AGENT);
-        extractor.setTimeoutMilliseconds(TEST_TIMEOUT);
-
-        FoodMenu foodMenu = extractor.extract(url);
+        FoodMenu foodMenu = EXTRACTOR.extract(url);
 
         for(FoodMenu.Day day : foodMenu.getDays()) {
             System.out.println(DATE_FORMATTER.format(day.getDate()));
@@ -0,0 +1,252 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static cz.vitlabuda.icanteenextractor.TestFoodMenus.createFoodMenu;
+import static cz.vitlabuda.icanteenextractor.TestFoodMenus.describe;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Writes food menus using BinaryFoodMenuWriter and checks that BinaryFoodMenuReader reads back exactly the same ones,
+ * and that it rejects truncated and corrupted streams with an IOException.
+ */
+public class BinaryFoodMenuFormatTest {
+    @Test
+    public void roundTripsMultipleFoodMenus() throws IOException {
+        List<FoodMenu> foodMenus = Arrays.asList(
+                createFoodMenu(LocalDate.of(2021, 10, 18), 5, 3),
+                new FoodMenu(), // no days at all
+                createFoodMenu(LocalDate.of(1999, 12, 31), 1, 1), // the days go back in time
+                createFoodMenu(LocalDate.of(2021, 10, 25), 2, 4)
+        );
+        // A day without any dishes, and one far from the previous one
+        foodMenus.get(3).getDays().add(1, new FoodMenu.Day(LocalDate.of(2021, 10, 26)));
+        foodMenus.get(3).getDays().add(new FoodMenu.Day(LocalDate.of(-5000, 1, 1)));
+
+        assertEquals(describe(foodMenus), describe(readAll(write(foodMenus, 8192), 8192)));
+        assertEquals(describe(foodMenus), describe(readAll(write(foodMenus, 16), 16))); // the smallest buffers
+    }
+
+    @Test
+    public void roundTripsDayByDay() throws IOException {
+        FoodMenu foodMenu = createFoodMenu(LocalDate.of(2021, 10, 18), 3, 2);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (BinaryFoodMenuWriter writer = new BinaryFoodMenuWriter(outputStream)) {
+            for(FoodMenu.Day day : foodMenu.getDays())
+                writer.writeDay(day);
+            writer.endFoodMenu();
+            writer.writeFoodMenu(foodMenu);
+        }
+
+        try (BinaryFoodMenuReader reader = new BinaryFoodMenuReader(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            FoodMenu firstFoodMenu = new FoodMenu();
+            FoodMenu.Day day;
+            while((day = reader.readDay()) != null)
+                firstFoodMenu.getDays().add(day);
+
+            assertEquals(describe(foodMenu), describe(firstFoodMenu));
+            assertEquals(describe(foodMenu), describe(reader.readFoodMenu()));
+            assertNull(reader.readFoodMenu());
+        }
+    }
+
+    @Test
+    public void writesRepeatedStringsOnlyOnce() throws IOException {
+        String description = "Polévka hovězí s nudlemi, svíčková na smetaně, houskový knedlík, čaj";
+
+        FoodMenu foodMenu = new FoodMenu();
+        for(int i = 0; i < 100; i++) {
+            FoodMenu.Day day = new FoodMenu.Day(LocalDate.of(2021, 1, 1).plusDays(i));
+            day.getDishes().add(new FoodMenu.Dish("Oběd 1", "Jídelna", description));
+            day.getDishes().add(new FoodMenu.Dish("Oběd 2", "Jídelna", new String(description.toCharArray()))); // an equal, but distinct string
+            foodMenu.getDays().add(day);
+        }
+
+        // 8 bytes per day (the dish count, the date and 6 references), the description itself is 77 bytes long
+        byte[] bytes = write(Arrays.asList(foodMenu, foodMenu), 8192);
+        assertTrue("The repeated strings have been written again (" + bytes.length + " bytes)", bytes.length < 2000);
+
+        List<FoodMenu> readFoodMenus = readAll(bytes, 8192);
+        assertEquals(describe(Arrays.asList(foodMenu, foodMenu)), describe(readFoodMenus));
+
+        // The names and places are interned when read back.
+        FoodMenu.Dish firstDish = readFoodMenus.get(0).getDays().get(0).getDishes().get(0);
+        FoodMenu.Dish lastDish = readFoodMenus.get(1).getDays().get(99).getDishes().get(0);
+        assertTrue(firstDish.getDishName() == lastDish.getDishName());
+        assertTrue(firstDish.getDishPlace() == lastDish.getDishPlace());
+    }
+
+    @Test
+    public void roundTripsMoreStringsThanTheDictionaryHolds() throws IOException {
+        int stringCount = BinaryFoodMenuFormat.MAX_DICTIONARY_SIZE + 5000;
+
+        FoodMenu foodMenu = new FoodMenu();
+        FoodMenu.Day day = new FoodMenu.Day(LocalDate.of(2021, 10, 18));
+        for(int i = 0; i < stringCount; i++)
+            day.getDishes().add(new FoodMenu.Dish("Oběd", "", "Jídlo " + i));
+        foodMenu.getDays().add(day);
+
+        // The second food menu refers both to the strings in the dictionary and to the ones which didn't fit in.
+        FoodMenu repeatedFoodMenu = new FoodMenu();
+        FoodMenu.Day repeatedDay = new FoodMenu.Day(LocalDate.of(2021, 10, 19));
+        for(int i = 0; i < stringCount; i += 97)
+            repeatedDay.getDishes().add(new FoodMenu.Dish("Oběd", "", "Jídlo " + i));
+        repeatedDay.getDishes().add(new FoodMenu.Dish("Oběd", "", "Jídlo " + (stringCount - 1)));
+        repeatedFoodMenu.getDays().add(repeatedDay);
+
+        List<FoodMenu> foodMenus = Arrays.asList(foodMenu, repeatedFoodMenu);
+        assertEquals(describe(foodMenus), describe(readAll(write(foodMenus, 8192), 8192)));
+        assertEquals(describe(foodMenus), describe(readAll(write(foodMenus, 8192), 16)));
+    }
+
+    @Test
+    public void roundTripsLongStrings() throws IOException {
+        char[] characters = new char[100000];
+        Arrays.fill(characters, 'ř');
+        String description = new String(characters);
+
+        FoodMenu foodMenu = new FoodMenu();
+        FoodMenu.Day day = new FoodMenu.Day(LocalDate.of(2021, 10, 18));
+        day.getDishes().add(new FoodMenu.Dish("Oběd 1", "", description));
+        day.getDishes().add(new FoodMenu.Dish("Oběd 2", "", description.substring(1)));
+        foodMenu.getDays().add(day);
+
+        List<FoodMenu> foodMenus = Arrays.asList(foodMenu, foodMenu);
+        assertEquals(describe(foodMenus), describe(readAll(write(foodMenus, 8192), 8192)));
+        assertEquals(describe(foodMenus), describe(readAll(write(foodMenus, 16), 64)));
+    }
+
+    @Test
+    public void rejectsTruncatedStreams() throws IOException {
+        List<FoodMenu> foodMenus = Arrays.asList(
+                createFoodMenu(LocalDate.of(2021, 10, 18), 3, 2),
+                createFoodMenu(LocalDate.of(2021, 10, 25), 2, 3)
+        );
+        byte[] bytes = write(foodMenus, 8192);
+        String description = describe(foodMenus);
+
+        for(int length = 0; length < bytes.length; length++) {
+            try {
+                String readDescription = describe(readAll(Arrays.copyOf(bytes, length), 16));
+
+                // A stream cut off right after a food menu is just shorter.
+                assertTrue("A stream truncated to " + length + " bytes has been read as " + readDescription,
+                        readDescription.length() < description.length() && description.startsWith(readDescription));
+            } catch (EOFException | StreamCorruptedException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void rejectsCorruptedStreams() throws IOException {
+        byte[] bytes = write(Arrays.asList(createFoodMenu(LocalDate.of(2021, 10, 18), 3, 2)), 8192);
+
+        assertRejected(new byte[] {'I', 'C', 'F', 'X', 1, 0});
+        assertRejected(new byte[] {'I', 'C', 'F', 'M', 2, 0}); // an unsupported version
+        assertRejected(new byte[] {'I', 'C', 'F', 'M', 1, 2, 0, 1}); // a reference to a nonexistent string
+        assertRejected(new byte[] {'I', 'C', 'F', 'M', 1, 2, 0, 0, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x10}); // a too long string
+        assertRejected(new byte[] {'I', 'C', 'F', 'M', 1, 1, (byte) 0xFE, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x7F}); // an invalid date
+        assertRejected(new byte[] {'I', 'C', 'F', 'M', 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0}); // an invalid number
+
+        // Any damage must be either detected, or result in some (different) food menus - but no other exceptions.
+        Random random = new Random(TestFoodMenus.SEED);
+        for(int i = 0; i < 10000; i++) {
+            byte[] corruptedBytes = bytes.clone();
+            corruptedBytes[random.nextInt(corruptedBytes.length)] ^= (byte) (1 << random.nextInt(8));
+
+            try {
+                readAll(corruptedBytes, 16);
+            } catch (EOFException | StreamCorruptedException expected) {
+            }
+        }
+    }
+
+    private static void assertRejected(byte[] bytes) throws IOException {
+        try {
+            readAll(bytes, 8192);
+            fail("A corrupted stream has been read: " + Arrays.toString(bytes));
+        } catch (StreamCorruptedException expected) {
+        }
+    }
+
+    private static byte[] write(List<FoodMenu> foodMenus, int bufferSize) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (BinaryFoodMenuWriter writer = new BinaryFoodMenuWriter(outputStream, bufferSize)) {
+            for(FoodMenu foodMenu : foodMenus)
+                writer.writeFoodMenu(foodMenu);
+        }
+
+        return outputStream.toByteArray();
+    }
+
+    private static List<FoodMenu> readAll(byte[] bytes, int bufferSize) throws IOException {
+        List<FoodMenu> foodMenus = new ArrayList<>();
+        try (BinaryFoodMenuReader reader = new BinaryFoodMenuReader(new ByteArrayInputStream(bytes), bufferSize)) {
+            FoodMenu foodMenu;
+            while((foodMenu = reader.readFoodMenu()) != null)
+                foodMenus.add(foodMenu);
+        }
+
+        return foodMenus;
+    }
+}
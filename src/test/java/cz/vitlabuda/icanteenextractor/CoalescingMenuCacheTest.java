@@ -0,0 +1,220 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static cz.vitlabuda.icanteenextractor.TestFoodMenus.describe;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the concurrent extractions of the same canteen share a single fetch, and how long CoalescingMenuCache
+ * keeps the extracted food menus.
+ */
+public class CoalescingMenuCacheTest {
+    private static final int THREAD_COUNT = 16;
+
+    private final String html;
+
+    public CoalescingMenuCacheTest() throws Exception {
+        html = TestFoodMenus.loadFixture("2.17.20", "small");
+    }
+
+    @Test
+    public void sharesTheConcurrentExtractions() throws Exception {
+        CountDownLatch released = new CountDownLatch(1);
+        FakeHTTPTransport transport = new FakeHTTPTransport((url, requestHeaders) -> {
+            await(released);
+            return FakeHTTPTransport.FakeResponse.html(html);
+        });
+        CoalescingMenuCache cache = new CoalescingMenuCache(10, 60000);
+        ICanteenExtractor extractor = new ICanteenExtractor.Builder().setHTTPTransport(transport).setCoalescingMenuCache(cache).build();
+
+        // The URLs differ, but they are the same canteen.
+        URL[] urls = new URL[] {new URL("http://icanteen.example/login"), new URL("http://ICANTEEN.example:80/login#top")};
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            List<Future<FoodMenu>> futures = new ArrayList<>();
+            for(int i = 0; i < THREAD_COUNT; i++) {
+                URL url = urls[i % urls.length];
+                futures.add(executor.submit(() -> extractor.extract(url)));
+            }
+
+            // All the threads but the one which fetches the login page wait for it.
+            while(cache.getCoalescedCount() < THREAD_COUNT - 1)
+                Thread.sleep(1);
+            released.countDown();
+
+            String expectedFoodMenu = describe(futures.get(0).get(1, TimeUnit.MINUTES));
+            for(Future<FoodMenu> future : futures) {
+                FoodMenu foodMenu = future.get(1, TimeUnit.MINUTES);
+                assertEquals(expectedFoodMenu, describe(foodMenu));
+                foodMenu.getDays().clear(); // each of the threads has its own copy
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, transport.getRequestCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(describe(extractor.extract(urls[0])), describe(new ICanteenExtractor.Builder().setHTTPTransport(transport).build().extract(urls[0])));
+    }
+
+    @Test
+    public void sharesTheAsynchronousAndBatchExtractions() throws Exception {
+        FakeHTTPTransport transport = FakeHTTPTransport.serving(html);
+        CoalescingMenuCache cache = new CoalescingMenuCache(10, 60000);
+        ICanteenExtractor extractor = new ICanteenExtractor.Builder().setHTTPTransport(transport).setCoalescingMenuCache(cache).build();
+        URL url = new URL("http://icanteen.example/login");
+
+        List<ExtractionResult> results = extractor.extractAll(Arrays.asList(url, url, url, url), 4);
+        for(ExtractionResult result : results)
+            assertTrue(result.isSuccessful());
+        assertEquals(1, transport.getRequestCount());
+
+        extractor.extractAsync(url).get(1, TimeUnit.MINUTES);
+        assertEquals(1, transport.getRequestCount());
+    }
+
+    @Test
+    public void doesNotFailTheWaitingExtractionsWhenTheSharedOneIsCancelled() throws Exception {
+        CountDownLatch firstRequestSent = new CountDownLatch(1);
+        CountDownLatch firstRequestReleased = new CountDownLatch(1);
+        FakeHTTPTransport transport = new FakeHTTPTransport((url, requestHeaders) -> {
+            if(firstRequestSent.getCount() != 0) {
+                firstRequestSent.countDown();
+                await(firstRequestReleased);
+            }
+
+            return FakeHTTPTransport.FakeResponse.html(html);
+        });
+        CoalescingMenuCache cache = new CoalescingMenuCache(10, 60000);
+        ICanteenExtractor extractor = new ICanteenExtractor.Builder().setHTTPTransport(transport).setCoalescingMenuCache(cache).build();
+        URL url = new URL("http://icanteen.example/login");
+
+        CompletableFuture<FoodMenu> cancelledFuture = extractor.extractAsync(url);
+        assertTrue(firstRequestSent.await(1, TimeUnit.MINUTES));
+        CompletableFuture<FoodMenu> waitingFuture = extractor.extractAsync(url);
+        while(cache.getCoalescedCount() < 1)
+            Thread.sleep(1);
+
+        cancelledFuture.cancel(true);
+        firstRequestReleased.countDown();
+
+        assertTrue(waitingFuture.get(1, TimeUnit.MINUTES).getDays().size() > 0);
+        assertEquals(2, transport.getRequestCount());
+    }
+
+    @Test
+    public void keepsTheFoodMenusForTheTimeToLive() throws Exception {
+        FakeHTTPTransport transport = FakeHTTPTransport.serving(html);
+        CoalescingMenuCache cache = new CoalescingMenuCache(10, 200);
+        ICanteenExtractor extractor = new ICanteenExtractor.Builder().setHTTPTransport(transport).setCoalescingMenuCache(cache).build();
+        URL url = new URL("http://icanteen.example/login");
+
+        extractor.extract(url);
+        extractor.extract(url);
+        assertEquals(1, transport.getRequestCount());
+        assertEquals(1, cache.getHitCount());
+
+        Thread.sleep(300);
+        extractor.extract(url);
+        assertEquals(2, transport.getRequestCount());
+
+        // Without a time to live, only the concurrent extractions are shared.
+        FakeHTTPTransport uncachedTransport = FakeHTTPTransport.serving(html);
+        ICanteenExtractor uncachedExtractor = new ICanteenExtractor.Builder()
+                .setHTTPTransport(uncachedTransport)
+                .setCoalescingMenuCache(new CoalescingMenuCache(10, 0))
+                .build();
+        uncachedExtractor.extract(url);
+        uncachedExtractor.extract(url);
+        assertEquals(2, uncachedTransport.getRequestCount());
+    }
+
+    @Test
+    public void discardsTheOldestFoodMenusWhenFull() throws Exception {
+        FakeHTTPTransport transport = FakeHTTPTransport.serving(html);
+        CoalescingMenuCache cache = new CoalescingMenuCache(2, 60000);
+        ICanteenExtractor extractor = new ICanteenExtractor.Builder().setHTTPTransport(transport).setCoalescingMenuCache(cache).build();
+        URL urlA = new URL("http://icanteen.example/a/login");
+        URL urlB = new URL("http://icanteen.example/b/login");
+        URL urlC = new URL("http://icanteen.example/c/login");
+
+        extractor.extract(urlA);
+        extractor.extract(urlB);
+        extractor.extract(urlC);
+        assertEquals(2, cache.size());
+        assertEquals(3, transport.getRequestCount());
+
+        extractor.extract(urlC);
+        assertEquals(3, transport.getRequestCount());
+        extractor.extract(urlA); // discarded
+        assertEquals(4, transport.getRequestCount());
+        extractor.extract(urlB); // discarded by A
+        assertEquals(5, transport.getRequestCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+
+import static cz.vitlabuda.icanteenextractor.TestFoodMenus.createFoodMenu;
+import static cz.vitlabuda.icanteenextractor.TestFoodMenus.describe;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that CompactFoodMenu keeps the whole content of the food menus, shares the repeating strings and can't be
+ * modified.
+ */
+public class CompactFoodMenuTest {
+    private static final LocalDate FIRST_DATE = LocalDate.of(2021, 10, 18);
+
+    @Test
+    public void keepsTheContentOfTheFoodMenu() {
+        FoodMenu foodMenu = createFoodMenu(FIRST_DATE, 7, 4);
+        foodMenu.getDays().add(new FoodMenu.Day(LocalDate.of(1969, 12, 31))); // a negative epoch day, without dishes
+        String expectedFoodMenu = describe(foodMenu);
+
+        CompactFoodMenu compactFoodMenu = CompactFoodMenu.of(foodMenu);
+        assertEquals(expectedFoodMenu, describe(foodMenu)); // left untouched
+        assertEquals(expectedFoodMenu, describe(compactFoodMenu.toFoodMenu()));
+
+        assertEquals(8, compactFoodMenu.getDayCount());
+        for(int i = 0; i < foodMenu.getDays().size(); i++) {
+            FoodMenu.Day day = foodMenu.getDays().get(i);
+            CompactFoodMenu.Day compactDay = compactFoodMenu.getDay(i);
+
+            assertSame(compactDay, compactFoodMenu.getDays().get(i));
+            assertEquals(day.getLocalDate(), compactDay.getLocalDate());
+            assertEquals(day.getLocalDate().toEpochDay(), compactDay.getEpochDay());
+            assertEquals(day.getDishes().size(), compactDay.getDishCount());
+            assertEquals(day.getContentHash(), compactDay.getContentHash());
+            for(int j = 0; j < compactDay.getDishCount(); j++)
+                assertSame(compactDay.getDish(j), compactDay.getDishes().get(j));
+        }
+        assertEquals(-1, compactFoodMenu.getDay(7).getEpochDay());
+        assertTrue(compactFoodMenu.getDay(7).getDishes().isEmpty());
+
+        // Every FoodMenu is a new copy, which can be modified without affecting the compact one.
+        FoodMenu copy = compactFoodMenu.toFoodMenu();
+        assertNotSame(copy.getDays().get(0), compactFoodMenu.toFoodMenu().getDays().get(0));
+        copy.getDays().get(0).getDishes().clear();
+        copy.getDays().remove(1);
+        assertEquals(expectedFoodMenu, describe(compactFoodMenu.toFoodMenu()));
+
+        // Nor does modifying the original food menu.
+        foodMenu.getDays().get(0).getDishes().clear();
+        assertEquals(expectedFoodMenu, describe(compactFoodMenu.toFoodMenu()));
+    }
+
+    @Test
+    public void sharesTheDishNamesAndPlaces() throws Exception {
+        // Two food menus built from separate string instances.
+        FoodMenu foodMenu = createFoodMenu(FIRST_DATE, 2, 2);
+        FoodMenu otherFoodMenu = new FoodMenu();
+        FoodMenu.Day otherDay = new FoodMenu.Day(FIRST_DATE.plusDays(7));
+        for(FoodMenu.Dish dish : foodMenu.getDays().get(0).getDishes())
+            otherDay.getDishes().add(new FoodMenu.Dish(new String(dish.getDishName()), new String(dish.getDishPlace()), "Knedlíky"));
+        otherFoodMenu.getDays().add(otherDay);
+        assertNotSame(foodMenu.getDays().get(0).getDishes().get(1).getDishPlace(), otherDay.getDishes().get(1).getDishPlace());
+
+        CompactFoodMenu compactFoodMenu = CompactFoodMenu.of(foodMenu);
+        CompactFoodMenu otherCompactFoodMenu = CompactFoodMenu.of(otherFoodMenu);
+        for(int i = 0; i < 2; i++) {
+            FoodMenu.Dish dish = compactFoodMenu.getDay(0).getDish(i);
+            assertSame(dish.getDishName(), compactFoodMenu.getDay(1).getDish(i).getDishName());
+            assertSame(dish.getDishPlace(), compactFoodMenu.getDay(1).getDish(i).getDishPlace());
+            assertSame(dish.getDishName(), otherCompactFoodMenu.getDay(0).getDish(i).getDishName());
+            assertSame(dish.getDishPlace(), otherCompactFoodMenu.getDay(0).getDish(i).getDishPlace());
+        }
+
+        // Deserialization creates new strings, which are shared again.
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+            objectOutputStream.writeObject(compactFoodMenu);
+        }
+        CompactFoodMenu deserializedFoodMenu;
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            deserializedFoodMenu = (CompactFoodMenu) objectInputStream.readObject();
+        }
+
+        assertEquals(describe(compactFoodMenu.toFoodMenu()), describe(deserializedFoodMenu.toFoodMenu()));
+        assertSame(compactFoodMenu.getDay(0).getDish(1).getDishName(), deserializedFoodMenu.getDay(0).getDish(1).getDishName());
+        assertSame(compactFoodMenu.getDay(0).getDish(1).getDishPlace(), deserializedFoodMenu.getDay(0).getDish(1).getDishPlace());
+    }
+
+    @Test
+    public void cannotBeModified() {
+        CompactFoodMenu compactFoodMenu = CompactFoodMenu.of(createFoodMenu(FIRST_DATE, 3, 2));
+        String expectedFoodMenu = describe(compactFoodMenu.toFoodMenu());
+
+        List<CompactFoodMenu.Day> days = compactFoodMenu.getDays();
+        assertUnsupported(() -> days.set(0, days.get(1)));
+        assertUnsupported(() -> days.add(days.get(1)));
+        assertUnsupported(() -> days.remove(0));
+        assertUnsupported(days::clear);
+
+        List<FoodMenu.Dish> dishes = compactFoodMenu.getDay(0).getDishes();
+        assertUnsupported(() -> dishes.set(0, dishes.get(1)));
+        assertUnsupported(() -> dishes.add(dishes.get(1)));
+        assertUnsupported(() -> dishes.remove(0));
+        assertUnsupported(() -> dishes.sort(Comparator.comparing(FoodMenu.Dish::getDishName).reversed()));
+
+        assertEquals(expectedFoodMenu, describe(compactFoodMenu.toFoodMenu()));
+    }
+
+    @Test
+    public void boundsTheStringPool() {
+        StringInterner stringInterner = new StringInterner(2);
+        String a = new String("Oběd 1");
+        String b = new String("Jídelna");
+
+        assertSame(a, stringInterner.intern(a));
+        assertSame(a, stringInterner.intern(new String("Oběd 1")));
+        assertSame(b, stringInterner.intern(b));
+        assertTrue(stringInterner.isInterned(a));
+        assertFalse(stringInterner.isInterned(new String("Oběd 1")));
+
+        // Once the pool is full, the new strings are returned as they are.
+        String c = new String("Oběd 2");
+        assertSame(c, stringInterner.intern(c));
+        assertFalse(stringInterner.isInterned(c));
+        assertEquals(2, stringInterner.size());
+        assertSame(a, stringInterner.intern(new String("Oběd 1")));
+    }
+
+    private static void assertUnsupported(Runnable modification) {
+        try {
+            modification.run();
+            fail("The modification has been allowed");
+        } catch (UnsupportedOperationException expected) {}
+    }
+}
@@ -0,0 +1,158 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static cz.vitlabuda.icanteenextractor.TestFoodMenus.SEED;
+import static cz.vitlabuda.icanteenextractor.TestFoodMenus.VERSIONS;
+import static cz.vitlabuda.icanteenextractor.TestFoodMenus.loadFixture;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares DishDescriptionNormalizer with the regex-based code it has replaced, which must produce exactly the same
+ * results - on all the dish descriptions from the fixtures, on the edge cases and on random strings.
+ */
+public class DishDescriptionNormalizerTest {
+    private static final String[] EDGE_CASES = new String[] {
+        "",
+        "   ",
+        "*",
+        "-- Polévka",
+        " -- --  -- Polévka -- hovězí",
+        "--",
+        "-",
+        "- -- Polévka",
+        "Polévka,knedlík ,  zelí , , ,",
+        ",,, ,a",
+        "* ,*, *",
+        "Rizoto *1,3,7*\n\t\tokurka\r\n",
+        "Svíčková na smetaně , knedlík",
+        // trim() removes all the characters up to U+0020, while \s only matches [ \t\n\u000b\f\r]
+        "\u0001 *Guláš\u0001",
+        "a\u000bb\fc",
+        "\u001f,\u001f",
+        "a \u0001, b",
+        "\u0000-- Polévka",
+        " \u0002 -- Polévka",
+        // neither of them treats the non-ASCII spaces as whitespace
+        "\u00a0Polévka , knedlík",
+        "Polévka\u2003,\u3000knedlík",
+    };
+
+    // The characters which the normalizer treats specially, and a few ordinary ones.
+    private static final char[] RANDOM_CHARACTERS = new char[] {' ', '\t', '\n', '\r', '\u000b', '\f', '\u0001', '\u001f', '\u00a0', '*', ',', '-', 'a', 'ě'};
+
+    @Test
+    public void matchesTheOldCodeOnTheFixtures() throws IOException {
+        int descriptionCount = 0;
+        for(String version : VERSIONS) {
+            boolean oldLayout = version.startsWith("2.14.");
+
+            for(Element jidelnicekDen : Jsoup.parse(loadFixture(version, "typical")).select(".jidelnicekDen")) {
+                if(oldLayout) {
+                    for(Element dishDiv : jidelnicekDen.child(1).children()) {
+                        assertNormalizedLikeTheOldCode(dishDiv.ownText(), true);
+                        descriptionCount++;
+                    }
+                } else {
+                    for(Element container : jidelnicekDen.select(".container")) {
+                        assertNormalizedLikeTheOldCode(container.select(".jidelnicekItem").last().text(), false);
+                        descriptionCount++;
+                    }
+                }
+            }
+        }
+
+        assertTrue(descriptionCount > 100);
+    }
+
+    @Test
+    public void matchesTheOldCodeOnTheEdgeCases() {
+        for(String edgeCase : EDGE_CASES) {
+            assertNormalizedLikeTheOldCode(edgeCase, false);
+            assertNormalizedLikeTheOldCode(edgeCase, true);
+        }
+    }
+
+    @Test
+    public void matchesTheOldCodeOnRandomStrings() {
+        Random random = new Random(SEED);
+        char[] characters = new char[16];
+        for(int i = 0; i < 200000; i++) {
+            int length = random.nextInt(characters.length + 1);
+            for(int j = 0; j < length; j++)
+                characters[j] = RANDOM_CHARACTERS[random.nextInt(RANDOM_CHARACTERS.length)];
+
+            assertNormalizedLikeTheOldCode(new String(characters, 0, length), random.nextBoolean());
+        }
+    }
+
+    private static void assertNormalizedLikeTheOldCode(String dishDescription, boolean stripLeadingDashes) {
+        String normalizedDescription = stripLeadingDashes ? DishDescriptionNormalizer.stripLeadingDashes(dishDescription) : dishDescription;
+        normalizedDescription = DishDescriptionNormalizer.normalize(normalizedDescription);
+
+        assertEquals("\"" + dishDescription + "\" (" + stripLeadingDashes + ")", normalizeUsingRegexes(dishDescription, stripLeadingDashes), normalizedDescription);
+    }
+
+    // The code used by FoodMenu.Dish and OldExtendedMenuParser before DishDescriptionNormalizer.
+    private static String normalizeUsingRegexes(String dishDescription, boolean stripLeadingDashes) {
+        if(stripLeadingDashes)
+            dishDescription = dishDescription.replaceAll("^(\\s*--)+", "");
+
+        dishDescription = dishDescription.trim();
+        dishDescription = dishDescription.replace("*", "");
+        dishDescription = dishDescription.replace(",", ", ");
+        dishDescription = dishDescription.replaceAll("\\s+,", ",");
+        dishDescription = dishDescription.replaceAll("\\s+", " ");
+
+        return dishDescription.trim();
+    }
+}
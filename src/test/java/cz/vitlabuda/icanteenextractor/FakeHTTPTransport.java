@@ -0,0 +1,179 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// An HTTPTransport which answers the requests using a handler supplied by the test, without any network. It counts the
+// requests and remembers the headers of the last one.
+final class FakeHTTPTransport implements HTTPTransport {
+    interface Handler {
+        FakeResponse handle(URL url, Map<String, String> requestHeaders) throws IOException;
+    }
+
+    static final class FakeResponse implements HTTPTransport.Response {
+        private final int statusCode;
+        private final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private final byte[] body;
+        private final int cutOffLength;
+        private volatile boolean aborted = false;
+        private volatile boolean closed = false;
+
+        FakeResponse(int statusCode, byte[] body) {
+            this(statusCode, body, -1);
+        }
+
+        // The body fails with an IOException after cutOffLength bytes, like a connection closed by the server.
+        FakeResponse(int statusCode, byte[] body, int cutOffLength) {
+            this.statusCode = statusCode;
+            this.body = body;
+            this.cutOffLength = cutOffLength;
+        }
+
+        static FakeResponse html(String html) {
+            return new FakeResponse(200, html.getBytes(StandardCharsets.UTF_8)).withHeader("Content-Type", "text/html; charset=utf-8");
+        }
+
+        FakeResponse withHeader(String name, String value) {
+            headers.put(name, value);
+
+            return this;
+        }
+
+        boolean isAborted() {
+            return aborted;
+        }
+
+        boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return headers.get(name);
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new FilterInputStream(new ByteArrayInputStream(body)) {
+                private int position = 0;
+
+                @Override
+                public int read() throws IOException {
+                    byte[] buffer = new byte[1];
+
+                    return (read(buffer, 0, 1) == -1) ? -1 : (buffer[0] & 0xFF);
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    if(aborted)
+                        throw new IOException("The response has been aborted!");
+                    if(cutOffLength >= 0 && position >= cutOffLength)
+                        throw new IOException("The connection has been closed by the server!");
+
+                    int read = super.read(buffer, offset, (cutOffLength >= 0) ? Math.min(length, cutOffLength - position) : length);
+                    if(read > 0)
+                        position += read;
+
+                    return read;
+                }
+            };
+        }
+
+        @Override
+        public void abort() {
+            aborted = true;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private final Handler handler;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private volatile Map<String, String> lastRequestHeaders = Collections.emptyMap();
+
+    FakeHTTPTransport(Handler handler) {
+        this.handler = handler;
+    }
+
+    // Serves the same webpage to every request.
+    static FakeHTTPTransport serving(String html) {
+        return new FakeHTTPTransport((url, requestHeaders) -> FakeResponse.html(html));
+    }
+
+    int getRequestCount() {
+        return requestCount.get();
+    }
+
+    Map<String, String> getLastRequestHeaders() {
+        return lastRequestHeaders;
+    }
+
+    @Override
+    public Response get(URL url, Map<String, String> requestHeaders, int timeoutMilliseconds) throws IOException {
+        requestCount.incrementAndGet();
+        lastRequestHeaders = new LinkedHashMap<>(requestHeaders);
+
+        return handler.handle(url, requestHeaders);
+    }
+}
@@ -0,0 +1,238 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static cz.vitlabuda.icanteenextractor.TestFoodMenus.SEED;
+import static cz.vitlabuda.icanteenextractor.TestFoodMenus.createFoodMenu;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares changed versions of the generated food menus using FoodMenuDiff, and checks the days' content hashes it
+ * relies on.
+ */
+public class FoodMenuDiffTest {
+    private static final LocalDate FIRST_DATE = LocalDate.of(2021, 10, 18);
+
+    @Test
+    public void findsNoDifferencesBetweenEqualFoodMenus() {
+        FoodMenuDiff diff = FoodMenuDiff.compare(createFoodMenu(FIRST_DATE, 5, 3), createFoodMenu(FIRST_DATE, 5, 3));
+
+        assertTrue(diff.isEmpty());
+        assertTrue(diff.getChangedDays().isEmpty());
+    }
+
+    @Test
+    public void matchesTheDaysByTheirDates() {
+        FoodMenu oldFoodMenu = createFoodMenu(FIRST_DATE, 5, 3);
+        FoodMenu newFoodMenu = createFoodMenu(FIRST_DATE.plusDays(2), 5, 3); // the food menu has moved by two days
+
+        FoodMenuDiff diff = FoodMenuDiff.compare(oldFoodMenu, newFoodMenu);
+
+        assertFalse(diff.isEmpty());
+        assertEquals(2, diff.getRemovedDays().size());
+        assertEquals(FIRST_DATE, diff.getRemovedDays().get(0).getLocalDate());
+        assertEquals(FIRST_DATE.plusDays(1), diff.getRemovedDays().get(1).getLocalDate());
+        assertEquals(2, diff.getAddedDays().size());
+        assertEquals(FIRST_DATE.plusDays(5), diff.getAddedDays().get(0).getLocalDate());
+        assertEquals(FIRST_DATE.plusDays(6), diff.getAddedDays().get(1).getLocalDate());
+        assertTrue(diff.getChangedDays().isEmpty()); // the days in both food menus are the same
+    }
+
+    @Test
+    public void matchesTheDishesByTheirNamesAndPlaces() {
+        FoodMenu oldFoodMenu = createFoodMenu(FIRST_DATE, 3, 3);
+        FoodMenu newFoodMenu = createFoodMenu(FIRST_DATE, 3, 3);
+        FoodMenu.Day newDay = newFoodMenu.getDays().get(1);
+        FoodMenu.Dish oldDish = newDay.getDishes().get(1);
+        newDay.getDishes().set(1, new FoodMenu.Dish(oldDish.getDishName(), oldDish.getDishPlace(), "Svíčková"));
+        newDay.getDishes().remove(2);
+        newDay.getDishes().add(new FoodMenu.Dish("Oběd 4", "Jídelna", "Knedlíky"));
+
+        FoodMenuDiff diff = FoodMenuDiff.compare(oldFoodMenu, newFoodMenu);
+
+        assertEquals(1, diff.getChangedDays().size());
+        FoodMenuDiff.DayChange dayChange = diff.getChangedDays().get(0);
+        assertEquals(FIRST_DATE.plusDays(1), dayChange.getLocalDate());
+        assertSame(oldFoodMenu.getDays().get(1), dayChange.getOldDay());
+        assertSame(newDay, dayChange.getNewDay());
+
+        assertEquals(1, dayChange.getChangedDishes().size());
+        FoodMenuDiff.DishChange dishChange = dayChange.getChangedDishes().get(0);
+        assertEquals("Svíčková", dishChange.getNewDish().getDishDescription());
+        assertTrue(dishChange.isDescriptionChanged());
+        assertFalse(dishChange.isNameChanged());
+        assertFalse(dishChange.isPlaceChanged());
+
+        assertEquals(1, dayChange.getAddedDishes().size());
+        assertEquals("Oběd 4", dayChange.getAddedDishes().get(0).getDishName());
+        assertEquals(1, dayChange.getRemovedDishes().size());
+        assertEquals("Oběd 3", dayChange.getRemovedDishes().get(0).getDishName());
+    }
+
+    @Test
+    public void detectsTheRenamedAndMovedDishes() {
+        FoodMenu oldFoodMenu = createFoodMenu(FIRST_DATE, 1, 3);
+        FoodMenu newFoodMenu = createFoodMenu(FIRST_DATE, 1, 3);
+        FoodMenu.Day newDay = newFoodMenu.getDays().get(0);
+        FoodMenu.Dish renamedDish = newDay.getDishes().get(1);
+        FoodMenu.Dish movedDish = newDay.getDishes().get(2);
+        newDay.getDishes().set(1, new FoodMenu.Dish("Oběd 5", renamedDish.getDishPlace(), renamedDish.getDishDescription()));
+        newDay.getDishes().set(2, new FoodMenu.Dish(movedDish.getDishName(), "Výdejna", movedDish.getDishDescription()));
+
+        FoodMenuDiff.DayChange dayChange = FoodMenuDiff.compare(oldFoodMenu, newFoodMenu).getChangedDays().get(0);
+
+        assertTrue(dayChange.getAddedDishes().isEmpty());
+        assertTrue(dayChange.getRemovedDishes().isEmpty());
+        assertEquals(2, dayChange.getChangedDishes().size());
+
+        FoodMenuDiff.DishChange renaming = dayChange.getChangedDishes().get(0);
+        assertEquals("Oběd 2", renaming.getOldDish().getDishName());
+        assertEquals("Oběd 5", renaming.getNewDish().getDishName());
+        assertTrue(renaming.isNameChanged());
+        assertFalse(renaming.isPlaceChanged());
+        assertFalse(renaming.isDescriptionChanged());
+
+        FoodMenuDiff.DishChange move = dayChange.getChangedDishes().get(1);
+        assertEquals("Jídelna", move.getOldDish().getDishPlace());
+        assertEquals("Výdejna", move.getNewDish().getDishPlace());
+        assertFalse(move.isNameChanged());
+        assertTrue(move.isPlaceChanged());
+    }
+
+    @Test
+    public void comparesOnlyTheFirstOfTheDaysWithTheSameDate() {
+        FoodMenu oldFoodMenu = createFoodMenu(FIRST_DATE, 2, 2);
+        FoodMenu newFoodMenu = createFoodMenu(FIRST_DATE, 2, 2);
+
+        // The duplicates differ from the first days, but they're ignored.
+        FoodMenu.Day oldDuplicate = new FoodMenu.Day(FIRST_DATE);
+        oldDuplicate.getDishes().add(new FoodMenu.Dish("Oběd 1", "", "Staré"));
+        oldFoodMenu.getDays().add(oldDuplicate);
+        FoodMenu.Day newDuplicate = new FoodMenu.Day(FIRST_DATE.plusDays(1));
+        newFoodMenu.getDays().add(newDuplicate);
+        assertTrue(FoodMenuDiff.compare(oldFoodMenu, newFoodMenu).isEmpty());
+
+        // A duplicate placed first is the one which is compared.
+        newFoodMenu.getDays().add(0, newDuplicate);
+        FoodMenuDiff diff = FoodMenuDiff.compare(oldFoodMenu, newFoodMenu);
+        assertEquals(1, diff.getChangedDays().size());
+        assertSame(newDuplicate, diff.getChangedDays().get(0).getNewDay());
+        assertEquals(2, diff.getChangedDays().get(0).getRemovedDishes().size());
+        assertTrue(diff.getAddedDays().isEmpty());
+        assertTrue(diff.getRemovedDays().isEmpty());
+    }
+
+    @Test
+    public void keepsTheContentHashesStable() {
+        FoodMenu.Day day = new FoodMenu.Day(FIRST_DATE);
+        day.getDishes().add(new FoodMenu.Dish("Oběd 1", "Jídelna", "Polévka, kuřecí řízek 🍲"));
+        day.getDishes().add(new FoodMenu.Dish("Oběd 2", "", "Špagety"));
+
+        // The hashes may be persisted (e.g. to detect changes between program runs), so they mustn't ever change.
+        assertEquals(0x534e43706561da22L, day.getContentHash());
+        assertEquals(day.getContentHash(), FoodMenuDiff.hashDay(FIRST_DATE.toEpochDay(), day.getDishes()));
+
+        // The hash follows the current dishes.
+        day.getDishes().remove(1);
+        assertNotEquals(0x534e43706561da22L, day.getContentHash());
+    }
+
+    @Test
+    public void separatesTheHashedStrings() {
+        assertHashesDiffer(dishes("ab", "c", ""), dishes("a", "bc", ""));
+        assertHashesDiffer(dishes("", "ab", "c"), dishes("", "a", "bc"));
+        assertHashesDiffer(dishes("abcd", "", ""), dishes("abc", "d", ""));
+        assertHashesDiffer(dishes("a", "", "", "b", "", ""), dishes("b", "", "", "a", "", "")); // the order of the dishes
+        assertHashesDiffer(dishes("a", "", ""), dishes("a", "", "", "", "", "")); // an empty dish
+        assertHashesDiffer(dishes("a", "b", ""), dishes("a", "", "b")); // the place vs. the description
+
+        assertNotEquals(FoodMenuDiff.hashDay(0, dishes("a", "", "")), FoodMenuDiff.hashDay(1, dishes("a", "", "")));
+    }
+
+    @Test
+    public void resistsCollisionsOfSimilarDays() {
+        // Days differing in a few characters of a single dish, like successive versions of a food menu.
+        Random random = new Random(SEED);
+        HashMap<Long, String> daysByHash = new HashMap<>();
+        for(int i = 0; i < 20000; i++) {
+            char[] description = "Polévka, kuřecí řízek, brambory".toCharArray();
+            description[random.nextInt(description.length)] = (char) ('a' + random.nextInt(26));
+            description[random.nextInt(description.length)] = (char) ('a' + random.nextInt(26));
+
+            FoodMenu.Day day = new FoodMenu.Day(FIRST_DATE.plusDays(random.nextInt(5)));
+            day.getDishes().add(new FoodMenu.Dish("Oběd 1", "", new String(description)));
+
+            String content = day.getLocalDate() + " " + new String(description);
+            String collidingContent = daysByHash.putIfAbsent(day.getContentHash(), content);
+            if(collidingContent != null)
+                assertEquals("A hash collision", collidingContent, content);
+        }
+    }
+
+    // The names, places and descriptions of the dishes.
+    private static List<FoodMenu.Dish> dishes(String... fields) {
+        List<FoodMenu.Dish> dishes = new ArrayList<>();
+        for(int i = 0; i < fields.length; i += 3)
+            dishes.add(new FoodMenu.Dish(fields[i], fields[i + 1], fields[i + 2]));
+
+        return dishes;
+    }
+
+    private static void assertHashesDiffer(List<FoodMenu.Dish> dishes, List<FoodMenu.Dish> otherDishes) {
+        long epochDay = FIRST_DATE.toEpochDay();
+        assertNotEquals(FoodMenuDiff.hashDay(epochDay, dishes), FoodMenuDiff.hashDay(epochDay, otherDishes));
+    }
+}
@@ -0,0 +1,119 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the hand-written parser of the iCanteen date strings ("day-YYYY-MM-DD"), which all the parsers share.
+ */
+public class FoodMenuParserBaseTest {
+    private static final int THREAD_COUNT = 8;
+
+    @Test
+    public void parsesTheDateStrings() throws FoodMenuParserBase.FoodMenuParserException {
+        assertEquals(LocalDate.of(2021, 10, 18), FoodMenuParserBase.parseDateString("day-2021-10-18"));
+        assertEquals(LocalDate.of(2020, 2, 29), FoodMenuParserBase.parseDateString("day-2020-02-29"));
+        assertEquals(LocalDate.of(1999, 12, 31), FoodMenuParserBase.parseDateString("day-1999-12-31"));
+        assertEquals(LocalDate.of(2021, 1, 1), FoodMenuParserBase.parseDateString(" \tday-2021-01-01\n ")); // like String.trim()
+    }
+
+    @Test
+    public void rejectsTheInvalidDateStrings() {
+        String[] dateStrings = new String[] {
+                "", "day-", "2021-10-18", "dny-2021-10-18", "Day-2021-10-18", "xday-2021-10-18", // the prefix
+                "day-2021-1-18", "day-2021-10-8", "day-21-10-18", "day-02021-10-18", "day-2021-10-180", // the padding
+                "day-2021-02-30", "day-2021-02-29", "day-2021-13-01", "day-2021-00-10", "day-2021-10-00", "day-2021-04-31", // impossible dates
+                "day-2021/10/18", "day-2021-1a-18", "day-+021-10-18", "day-2021--1-18", "day-2021 10-18", // the other characters
+        };
+
+        for(String dateString : dateStrings) {
+            try {
+                FoodMenuParserBase.parseDateString(dateString);
+                fail("\"" + dateString + "\" has been accepted");
+            } catch (FoodMenuParserBase.FoodMenuParserException expected) {}
+        }
+    }
+
+    @Test
+    public void parsesTheDateStringsConcurrently() throws Exception {
+        List<LocalDate> dates = new ArrayList<>();
+        for(LocalDate date = LocalDate.of(2020, 1, 1); date.getYear() < 2024; date = date.plusDays(1))
+            dates.add(date);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for(int i = 0; i < THREAD_COUNT; i++) {
+                int offset = i * 97; // the threads parse different dates at the same time
+                futures.add(executor.submit(() -> {
+                    for(int repetition = 0; repetition < 20; repetition++) {
+                        for(int j = 0; j < dates.size(); j++) {
+                            LocalDate date = dates.get((offset + j) % dates.size());
+                            assertEquals(date, FoodMenuParserBase.parseDateString("day-" + date));
+                        }
+                    }
+
+                    return null;
+                }));
+            }
+
+            for(Future<?> future : futures)
+                future.get(1, TimeUnit.MINUTES); // rethrows the failed assertions
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
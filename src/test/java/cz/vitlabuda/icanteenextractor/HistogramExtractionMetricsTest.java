@@ -0,0 +1,175 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the bucket arithmetic of HistogramExtractionMetrics.Histogram and how HistogramExtractionMetrics aggregates
+ * the measurements.
+ */
+public class HistogramExtractionMetricsTest {
+    @Test
+    public void countsTheSmallValuesExactly() {
+        for(long value = 0; value < 32; value++)
+            assertEquals(value, getUpperBound(value));
+    }
+
+    @Test
+    public void splitsTheBucketsAtThePowersOfTwo() {
+        assertEquals(31, getUpperBound(31));
+        assertEquals(33, getUpperBound(32)); // the first bucket with 2 values
+        assertEquals(33, getUpperBound(33));
+        assertEquals(35, getUpperBound(34));
+        assertEquals(63, getUpperBound(62));
+        assertEquals(63, getUpperBound(63));
+        assertEquals(67, getUpperBound(64)); // the first bucket with 4 values
+        assertEquals(67, getUpperBound(67));
+        assertEquals(71, getUpperBound(68));
+        assertEquals((1L << 62) + (1L << 58) - 1, getUpperBound(1L << 62));
+        assertEquals(Long.MAX_VALUE, getUpperBound(Long.MAX_VALUE - (1L << 58) + 1)); // the last bucket
+        assertEquals(Long.MAX_VALUE, getUpperBound(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void keepsThePercentilesWithinTheAccuracy() {
+        Random random = new Random(TestFoodMenus.SEED);
+        for(int i = 0; i < 100000; i++) {
+            long value = Math.max(random.nextLong() >>> (1 + random.nextInt(58)), 32); // of all the magnitudes
+            long upperBound = getUpperBound(value);
+
+            assertTrue(value + " -> " + upperBound, upperBound >= value && (upperBound - value) / (double) value < 0.0625);
+        }
+
+        HistogramExtractionMetrics.Histogram histogram = new HistogramExtractionMetrics.Histogram();
+        for(long value = 1000; value >= 1; value--) // the order doesn't matter
+            histogram.record(value);
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500.5, histogram.getMean(), 0);
+        assertEquals(1000, histogram.getMax());
+        assertEquals(1, histogram.getPercentile(0));
+        assertWithinAccuracy(500, histogram.getPercentile(50));
+        assertWithinAccuracy(900, histogram.getPercentile(90));
+        assertWithinAccuracy(990, histogram.getPercentile(99));
+        assertEquals(1000, histogram.getPercentile(100)); // never above the maximum
+    }
+
+    @Test
+    public void ignoresTheNegativeValues() {
+        HistogramExtractionMetrics.Histogram histogram = new HistogramExtractionMetrics.Histogram();
+        histogram.record(-1);
+        histogram.record(Long.MIN_VALUE);
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean(), 0);
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(50));
+
+        histogram.record(10);
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(10, histogram.getPercentile(0));
+    }
+
+    @Test
+    public void countsTheReusedConnections() throws Exception {
+        URL url = new URL("http://icanteen.example/login");
+        HistogramExtractionMetrics metrics = new HistogramExtractionMetrics();
+
+        metrics.responseReceived(url, 200, 0, 1000); // a reused connection
+        metrics.responseReceived(url, 200, 0, 2000);
+        metrics.responseReceived(url, 200, -1, 3000); // unknown
+        metrics.responseReceived(url, 304, 500, 4000);
+
+        assertEquals(2, metrics.getReusedConnectionCount());
+        assertEquals(1, metrics.getConnectTimes().getCount());
+        assertEquals(500, metrics.getConnectTimes().getMax());
+        assertEquals(4, metrics.getTimesToFirstByte().getCount());
+    }
+
+    @Test
+    public void ordersTheCanteensByTheirExtractionTimes() throws Exception {
+        HistogramExtractionMetrics metrics = new HistogramExtractionMetrics();
+        URL fast = new URL("https://strav.nasejidelna.cz/0001/login");
+        URL slow = new URL("https://strav.nasejidelna.cz/0002/login");
+        URL medium = new URL("https://icanteen.example/login?ignored=1");
+        URL sometimesSlow = new URL("http://icanteen.example:8080/login");
+
+        for(int i = 0; i < 100; i++) {
+            metrics.extractionFinished(fast, 1000, null);
+            metrics.extractionFinished(slow, 100000, null);
+            metrics.extractionFinished(medium, 10000, null);
+            metrics.extractionFinished(sometimesSlow, (i == 0) ? 1000000 : 100, null);
+        }
+
+        assertEquals(4, metrics.getCanteenExtractionTimes().size());
+        assertEquals(400, metrics.getExtractionTimes().getCount());
+        assertEquals(Arrays.asList("strav.nasejidelna.cz/0002/login", "icanteen.example/login"), metrics.getSlowestCanteens(50, 2));
+        assertEquals(Arrays.asList("strav.nasejidelna.cz/0002/login", "icanteen.example/login", "strav.nasejidelna.cz/0001/login", "icanteen.example:8080/login"),
+                metrics.getSlowestCanteens(50, 10));
+        assertEquals("icanteen.example:8080/login", metrics.getSlowestCanteens(100, 1).get(0));
+        assertTrue(metrics.getSlowestCanteens(50, 0).isEmpty());
+    }
+
+    // The percentile of the first value's bucket is its upper bound (the second value is larger than any bound).
+    private static long getUpperBound(long value) {
+        HistogramExtractionMetrics.Histogram histogram = new HistogramExtractionMetrics.Histogram();
+        histogram.record(value);
+        histogram.record(Long.MAX_VALUE);
+
+        return histogram.getPercentile(50);
+    }
+
+    private static void assertWithinAccuracy(long expectedPercentile, long percentile) {
+        assertTrue(expectedPercentile + " -> " + percentile, percentile >= expectedPercentile && percentile <= expectedPercentile * 1.0625);
+    }
+}
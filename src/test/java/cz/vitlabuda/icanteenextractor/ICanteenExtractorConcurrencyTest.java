@@ -0,0 +1,154 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static cz.vitlabuda.icanteenextractor.TestFoodMenus.SIZES;
+import static cz.vitlabuda.icanteenextractor.TestFoodMenus.VERSIONS;
+import static cz.vitlabuda.icanteenextractor.TestFoodMenus.describe;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that a single ICanteenExtractor instance can be shared by many threads: the threads extract the food menus
+ * of all the fixtures at once, using extract(), extractDays() and extractAsync() at random, through a shared MenuCache
+ * and HistogramExtractionMetrics. A bounded version of the benchmarks' ConcurrencyStressTest, which uses a real HTTP
+ * server and can run much longer.
+ */
+public class ICanteenExtractorConcurrencyTest {
+    private static final int THREAD_COUNT = 64;
+    private static final int EXTRACTIONS_PER_THREAD = 4;
+
+    @Test
+    public void canBeSharedByManyThreads() throws Exception {
+        Map<String, byte[]> pages = new HashMap<>();
+        for(String version : VERSIONS) {
+            for(String size : SIZES)
+                pages.put("/" + version + "/" + size + "/login", TestFoodMenus.loadFixtureBytes(version, size));
+        }
+        FakeHTTPTransport transport = new FakeHTTPTransport((url, requestHeaders) -> new FakeHTTPTransport.FakeResponse(200, pages.get(url.getPath())));
+
+        // The expected food menus, extracted by a single thread
+        Map<URL, String> expectedFoodMenus = new LinkedHashMap<>();
+        for(String path : pages.keySet()) {
+            URL url = new URL("http://icanteen.example" + path);
+            expectedFoodMenus.put(url, describe(new ICanteenExtractor.Builder().setHTTPTransport(transport).build().extract(url)));
+        }
+        List<URL> urls = new ArrayList<>(expectedFoodMenus.keySet());
+
+        HistogramExtractionMetrics metrics = new HistogramExtractionMetrics();
+        ICanteenExtractor extractor = new ICanteenExtractor.Builder()
+                .setHTTPTransport(transport)
+                .setMenuCache(new MenuCache(urls.size()))
+                .setMetrics(metrics)
+                .setCompressionEnabled(false) // so that the received bytes can be checked
+                .build();
+
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+        AtomicLong expectedReceivedBytes = new AtomicLong();
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>(THREAD_COUNT);
+        for(int i = 0; i < THREAD_COUNT; i++) {
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    startLatch.await();
+                    for(int j = 0; j < EXTRACTIONS_PER_THREAD; j++) {
+                        URL url = urls.get(random.nextInt(urls.size()));
+                        FoodMenu foodMenu = extract(extractor, url, random.nextInt(3));
+                        expectedReceivedBytes.addAndGet(pages.get(url.getPath()).length);
+
+                        if(!describe(foodMenu).equals(expectedFoodMenus.get(url)))
+                            failures.add("A different food menu has been extracted from " + url);
+
+                        foodMenu.getDays().clear(); // mustn't affect the other threads' food menus
+                    }
+                } catch (Exception e) {
+                    failures.add(e.toString());
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        startLatch.countDown();
+        for(Thread thread : threads)
+            thread.join();
+
+        assertEquals(new ArrayList<String>(), new ArrayList<>(failures));
+        assertEquals(THREAD_COUNT * EXTRACTIONS_PER_THREAD, metrics.getExtractionTimes().getCount());
+        assertEquals(0, metrics.getFailureCount());
+        assertEquals(expectedReceivedBytes.get(), extractor.getReceivedBodyBytes());
+        assertEquals(expectedReceivedBytes.get(), extractor.getDecodedBodyBytes());
+        assertEquals(expectedReceivedBytes.get(), metrics.getReceivedBytes());
+    }
+
+    private static FoodMenu extract(ICanteenExtractor extractor, URL url, int method) throws Exception {
+        switch(method) {
+            case 0:
+                return extractor.extract(url);
+
+            case 1:
+                FoodMenu foodMenu = new FoodMenu();
+                extractor.extractDays(url, day -> foodMenu.getDays().add(day));
+                return foodMenu;
+
+            default:
+                return extractor.extractAsync(url).get(1, TimeUnit.MINUTES);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static cz.vitlabuda.icanteenextractor.TestFoodMenus.describe;
+import static cz.vitlabuda.icanteenextractor.TestFoodMenus.loadFixture;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Extracts the food menus from the fixtures served by FakeHTTPTransport, and checks how the extractor handles the
+ * responses which the fixtures alone don't cover.
+ */
+public class ICanteenExtractorTest {
+    private static final String URL_STRING = "http://icanteen.example/login";
+
+    @Test
+    public void checksTheRememberedParserAgainstTheLayout() throws Exception {
+        // 2.17.15 has the 2-item layout (SimpleMenuParser), 2.17.20 the 3-item one (NewExtendedMenuParser).
+        AtomicReference<String> html = new AtomicReference<>(withoutStreaming(loadFixture("2.17.15", "small")));
+        FakeHTTPTransport transport = new FakeHTTPTransport((url, requestHeaders) -> FakeHTTPTransport.FakeResponse.html(html.get()));
+        ICanteenExtractor extractor = new ICanteenExtractor.Builder().setHTTPTransport(transport).build();
+
+        assertEquals("", extractor.extract(URL_STRING).getDays().get(0).getDishes().get(0).getDishPlace());
+
+        // The canteen's iCanteen has been updated - the places mustn't end up in the descriptions.
+        html.set(withoutStreaming(loadFixture("2.17.20", "small")));
+        FoodMenu foodMenu = extractor.extract(URL_STRING);
+        FoodMenu expectedFoodMenu = new ICanteenExtractor.Builder().setHTTPTransport(transport).build().extract(URL_STRING);
+
+        assertFalse(expectedFoodMenu.getDays().get(0).getDishes().get(0).getDishPlace().isEmpty());
+        assertEquals(describe(expectedFoodMenu), describe(foodMenu));
+    }
+
+    @Test
+    public void rejectsBodiesLargerThanTheMaximum() throws Exception {
+        byte[] html = TestFoodMenus.loadFixtureBytes("2.17.20", "small");
+        FakeHTTPTransport transport = new FakeHTTPTransport((url, requestHeaders) -> new FakeHTTPTransport.FakeResponse(200, html));
+
+        // A body of exactly the maximum size is fine, whether it's read at once or streamed day by day.
+        ICanteenExtractor extractor = new ICanteenExtractor.Builder().setHTTPTransport(transport).setMaxBodyBytes(html.length).build();
+        assertFalse(extractor.extract(URL_STRING).getDays().isEmpty());
+        List<FoodMenu.Day> days = new ArrayList<>();
+        extractor.extractDays(URL_STRING, days::add);
+        assertFalse(days.isEmpty());
+
+        ICanteenExtractor smallerExtractor = new ICanteenExtractor.Builder().setHTTPTransport(transport).setMaxBodyBytes(html.length - 1).build();
+        assertTooLarge(() -> smallerExtractor.extract(URL_STRING));
+        assertTooLarge(() -> smallerExtractor.extractDays(URL_STRING, day -> {}));
+    }
+
+    @Test
+    public void rejectsCompressedBodiesExpandingPastTheDefaultMaximum() throws Exception {
+        // 32 MiB of zeros are compressed to about 32 KiB.
+        ByteArrayOutputStream compressedBody = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressedBody)) {
+            byte[] zeros = new byte[1048576];
+            for(int i = 0; i < 32; i++)
+                gzipOutputStream.write(zeros);
+        }
+
+        FakeHTTPTransport transport = new FakeHTTPTransport((url, requestHeaders) ->
+                new FakeHTTPTransport.FakeResponse(200, compressedBody.toByteArray()).withHeader("Content-Encoding", "gzip"));
+        ICanteenExtractor extractor = new ICanteenExtractor.Builder()
+                .setHTTPTransport(transport)
+                .setRetryPolicy(new RetryPolicy(3, 0, 0))
+                .build();
+
+        assertTooLarge(() -> extractor.extract(URL_STRING));
+        assertTooLarge(() -> extractor.extractDays(URL_STRING, day -> {}));
+        assertEquals("A too large body has been retried", 2, transport.getRequestCount());
+    }
+
+    @Test
+    public void interruptsTheCancelledExtractionsWaitingInTheTransport() throws Exception {
+        // The transport waits like PooledHTTPTransport for a free connection, before there's any response to abort.
+        CountDownLatch waiting = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        FakeHTTPTransport transport = new FakeHTTPTransport((url, requestHeaders) -> {
+            try {
+                waiting.countDown();
+                new CountDownLatch(1).await();
+                throw new AssertionError("Unreachable");
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw new InterruptedIOException("Interrupted while waiting for a free connection!");
+            }
+        });
+        ICanteenExtractor extractor = new ICanteenExtractor.Builder().setHTTPTransport(transport).build();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<FoodMenu> future = extractor.extractAsync(new URL(URL_STRING), executor);
+            assertTrue(waiting.await(1, TimeUnit.MINUTES));
+
+            future.cancel(true);
+            assertTrue("The transport hasn't been interrupted", interrupted.await(1, TimeUnit.MINUTES));
+
+            // The interrupt mustn't be left to the executor's next task.
+            assertFalse(executor.submit(() -> Thread.currentThread().isInterrupted()).get(1, TimeUnit.MINUTES));
+            assertEquals(1, transport.getRequestCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // A stray </br> makes the streaming parser give up, so that the webpage is parsed using the DOM.
+    private static String withoutStreaming(String html) {
+        int firstDish = html.indexOf("<div", html.indexOf("jidelnicekDen"));
+
+        return html.substring(0, firstDish) + "</br>" + html.substring(firstDish);
+    }
+
+    private interface Extraction {
+        void run() throws ICanteenExtractorException;
+    }
+
+    private static void assertTooLarge(Extraction extraction) {
+        try {
+            extraction.run();
+            fail("A too large body has been accepted");
+        } catch (ICanteenExtractorException e) {
+            assertTrue(e.getMessage(), e.getCarriedError() instanceof PageContent.TooLargeException);
+        }
+    }
+}
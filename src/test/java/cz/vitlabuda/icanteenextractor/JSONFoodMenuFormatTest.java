@@ -0,0 +1,226 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static cz.vitlabuda.icanteenextractor.TestFoodMenus.createFoodMenu;
+import static cz.vitlabuda.icanteenextractor.TestFoodMenus.describe;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Writes food menus using JSONFoodMenuWriter and checks that JSONFoodMenuReader reads back exactly the same ones, that
+ * the output is valid JSON Lines, and that the reader handles JSON written by others.
+ */
+public class JSONFoodMenuFormatTest {
+    // All the control characters, the characters which have to be escaped, the line separators which JavaScript doesn't
+    // allow in strings, non-BMP characters (i.e. surrogate pairs) and non-ASCII ones
+    private static final String SPECIAL_CHARACTERS;
+    static {
+        StringBuilder specialCharacters = new StringBuilder("x");
+        for(char character = 0; character < 0x20; character++)
+            specialCharacters.append(character);
+        specialCharacters.append("\"quoted\" \\back\\slash\\ /slash/ \u2028\u2029 \u007F \uD83C\uDF72 \uD834\uDD1E Příliš žluťoučký kůň x");
+
+        SPECIAL_CHARACTERS = specialCharacters.toString();
+    }
+
+    @Test
+    public void roundTripsMultipleFoodMenus() throws IOException {
+        List<FoodMenu> foodMenus = Arrays.asList(
+                createFoodMenu(LocalDate.of(2021, 10, 18), 5, 3),
+                new FoodMenu(), // no days at all
+                createFoodMenu(LocalDate.of(2021, 10, 25), 2, 4)
+        );
+        // A day without any dishes, and dates which need the expanded ISO 8601 format
+        foodMenus.get(2).getDays().add(1, new FoodMenu.Day(LocalDate.of(2021, 10, 26)));
+        foodMenus.get(2).getDays().add(new FoodMenu.Day(LocalDate.of(-5000, 1, 1)));
+        foodMenus.get(2).getDays().add(new FoodMenu.Day(LocalDate.of(10000, 1, 1)));
+
+        String json = write(foodMenus);
+        assertEquals(foodMenus.size(), json.split("\n").length); // JSON Lines
+        assertEquals(describe(foodMenus), describe(readAll(json)));
+    }
+
+    @Test
+    public void roundTripsSpecialCharacters() throws IOException {
+        FoodMenu foodMenu = new FoodMenu();
+        FoodMenu.Day day = new FoodMenu.Day(LocalDate.of(2021, 10, 18));
+        day.getDishes().add(new FoodMenu.Dish(SPECIAL_CHARACTERS, SPECIAL_CHARACTERS, SPECIAL_CHARACTERS));
+        foodMenu.getDays().add(day);
+
+        String json = write(Arrays.asList(foodMenu));
+        for(char character : json.substring(0, json.length() - 1).toCharArray()) {
+            if(character < 0x20 || character == '\u2028' || character == '\u2029')
+                fail("An unescaped character " + (int) character + " in the JSON: " + json);
+        }
+        assertTrue(json, json.contains("\\\"quoted\\\" \\\\back\\\\slash\\\\"));
+        assertTrue(json, json.contains("\\u0000\\u0001") && json.contains("\\b\\t\\n\\u000b\\f\\r") && json.contains("\\u2028\\u2029"));
+        assertTrue(json, json.contains("\uD83C\uDF72"));
+
+        assertEquals(describe(foodMenu), describe(readAll(json).get(0)));
+        assertTrue(readAll(json).get(0).getDays().get(0).getDishes().get(0).getDishName().equals(SPECIAL_CHARACTERS.trim()));
+
+        // Through UTF-8 bytes
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (JSONFoodMenuWriter writer = new JSONFoodMenuWriter(outputStream)) {
+            writer.writeFoodMenu(foodMenu);
+        }
+        assertEquals(json, new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+
+        try (JSONFoodMenuReader reader = new JSONFoodMenuReader(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            assertEquals(describe(foodMenu), describe(reader.readFoodMenu()));
+            assertNull(reader.readFoodMenu());
+        }
+    }
+
+    @Test
+    public void roundTripsStringsLongerThanTheBuffers() throws IOException {
+        StringBuilder description = new StringBuilder();
+        while(description.length() < 30000)
+            description.append(SPECIAL_CHARACTERS); // the escape sequences and the surrogate pairs cross the buffers' boundaries
+
+        FoodMenu foodMenu = createFoodMenu(LocalDate.of(2021, 10, 18), 3, 2);
+        foodMenu.getDays().get(1).getDishes().add(new FoodMenu.Dish("Oběd 3", "", description.toString()));
+
+        List<FoodMenu> foodMenus = Arrays.asList(foodMenu, foodMenu);
+        assertEquals(describe(foodMenus), describe(readAll(write(foodMenus))));
+    }
+
+    @Test
+    public void roundTripsDayByDay() throws IOException {
+        FoodMenu foodMenu = createFoodMenu(LocalDate.of(2021, 10, 18), 3, 2);
+
+        StringWriter stringWriter = new StringWriter();
+        try (JSONFoodMenuWriter writer = new JSONFoodMenuWriter(stringWriter)) {
+            writer.beginFoodMenu();
+            for(FoodMenu.Day day : foodMenu.getDays())
+                writer.writeDay(day);
+            writer.endFoodMenu();
+            writer.writeFoodMenu(foodMenu);
+        }
+
+        try (JSONFoodMenuReader reader = new JSONFoodMenuReader(new StringReader(stringWriter.toString()))) {
+            FoodMenu firstFoodMenu = new FoodMenu();
+            FoodMenu.Day day;
+            while((day = reader.readDay()) != null)
+                firstFoodMenu.getDays().add(day);
+
+            assertEquals(describe(foodMenu), describe(firstFoodMenu));
+            assertEquals(describe(foodMenu), describe(reader.readFoodMenu()));
+            assertNull(reader.readFoodMenu());
+        }
+    }
+
+    @Test
+    public void readsJSONWrittenByOthers() throws IOException {
+        String json = " {\"version\": 1, \"days\": [\n" +
+                "  {\"dishes\": [{\"description\": \"Pol\\u00e9vka \\ud83c\\udf72, \\\"ho\\/v\\u011bz\\u00ed\\\"\", \"name\": \"Ob\u011bd 1\", \"extra\": [1, -2.5e3, true, null, {\"a\": []}]}],\n" +
+                "   \"date\": \"2021-10-18\", \"weekday\": \"Monday\"},\n" +
+                "  {\"date\": \"2021-10-19\"}\n" +
+                " ], \"source\": {\"url\": \"https://example.com/\"}}\r\n" +
+                "{}\t{\"days\": []}\n";
+
+        List<FoodMenu> foodMenus = readAll(json);
+        assertEquals("2021-10-18\nOběd 1 |  | Polévka \uD83C\uDF72, \"ho/vězí\"\n2021-10-19\n--\n--\n--\n", describe(foodMenus));
+    }
+
+    @Test
+    public void rejectsInvalidJSON() {
+        String[] invalidJSONs = new String[] {
+                "{\"days\": [{\"date\": \"2021-10-18\", \"dishes\": [{\"name\": \"Oběd 1}]}]}", // an unterminated string
+                "{\"days\": [{\"date\": \"2021-10-18\", \"dishes\": [{\"name\": \"Oběd\n1\"}]}]}", // a control character
+                "{\"days\": [{\"date\": \"2021-10-18\", \"dishes\": [{\"name\": \"Oběd \\x31\"}]}]}", // an invalid escape
+                "{\"days\": [{\"date\": \"2021-10-18\", \"dishes\": [{\"name\": \"Oběd \\u31\"}]}]}",
+                "{\"days\": [{\"dishes\": []}]}", // a day without a date
+                "{\"days\": [{\"date\": \"2021-02-30\"}]}", // an invalid date
+                "{\"days\": [{\"date\": \"2021-10-18\"} {\"date\": \"2021-10-19\"}]}", // a missing comma
+                "{\"days\": [{\"date\": \"2021-10-18\"}", // a truncated food menu
+                "[]",
+        };
+
+        for(String invalidJSON : invalidJSONs) {
+            try {
+                readAll(invalidJSON);
+                fail("Invalid JSON has been read: " + invalidJSON);
+            } catch (IOException expected) {
+            }
+        }
+    }
+
+    private static String write(List<FoodMenu> foodMenus) throws IOException {
+        StringWriter stringWriter = new StringWriter();
+        try (JSONFoodMenuWriter writer = new JSONFoodMenuWriter(stringWriter)) {
+            for(FoodMenu foodMenu : foodMenus)
+                writer.writeFoodMenu(foodMenu);
+        }
+
+        return stringWriter.toString();
+    }
+
+    private static List<FoodMenu> readAll(String json) throws IOException {
+        List<FoodMenu> foodMenus = new ArrayList<>();
+        try (JSONFoodMenuReader reader = new JSONFoodMenuReader(new StringReader(json))) {
+            FoodMenu foodMenu;
+            while((foodMenu = reader.readFoodMenu()) != null)
+                foodMenus.add(foodMenu);
+        }
+
+        return foodMenus;
+    }
+}
@@ -0,0 +1,237 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static cz.vitlabuda.icanteenextractor.TestFoodMenus.createFoodMenu;
+import static cz.vitlabuda.icanteenextractor.TestFoodMenus.describe;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Stores food menus in a MenuArchive and checks what is read back, also after reopening the archive and after a crash.
+ */
+public class MenuArchiveTest {
+    private static final LocalDate FIRST_DATE = LocalDate.of(2021, 10, 18);
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final URL canteenA;
+    private final URL canteenB;
+
+    public MenuArchiveTest() throws IOException {
+        canteenA = new URL("https://icanteen.example/a/login");
+        canteenB = new URL("https://icanteen.example/b/login");
+    }
+
+    @Test
+    public void storesAndDeduplicatesTheDays() throws IOException {
+        try (MenuArchive archive = new MenuArchive(temporaryFolder.getRoot().toPath())) {
+            FoodMenu foodMenu = createFoodMenu(FIRST_DATE, 5, 3);
+            assertEquals(5, archive.store(canteenA, foodMenu));
+            assertEquals(0, archive.store(canteenA, foodMenu));
+            assertEquals(5, archive.store(canteenB, foodMenu)); // the canteens are kept apart
+
+            // Only the changed day is stored again, and it replaces the older version.
+            FoodMenu changedFoodMenu = createFoodMenu(FIRST_DATE, 5, 3);
+            changedFoodMenu.getDays().get(2).getDishes().remove(0);
+            assertEquals(1, archive.store(canteenA, changedFoodMenu));
+
+            assertEquals(describe(changedFoodMenu), describe(archive.getDays(canteenA, FIRST_DATE, FIRST_DATE.plusDays(4))));
+            assertEquals(describe(foodMenu), describe(archive.getDays(canteenB, FIRST_DATE, FIRST_DATE.plusDays(4))));
+            assertNull(archive.getDay(canteenA, FIRST_DATE.minusDays(1)));
+            assertNull(archive.getDay(new URL("https://icanteen.example/c/login"), FIRST_DATE));
+            assertEquals(Arrays.asList(canteenA.toString(), canteenB.toString()), archive.getCanteenURLs());
+        }
+    }
+
+    @Test
+    public void looksUpTheDateRanges() throws IOException {
+        try (MenuArchive archive = new MenuArchive(temporaryFolder.getRoot().toPath())) {
+            FoodMenu foodMenu = createFoodMenu(FIRST_DATE, 20, 2);
+            archive.store(canteenB, createFoodMenu(FIRST_DATE, 20, 1));
+
+            // A part of the days is in the index file, the rest only in the in-memory index.
+            archive.store(canteenA, days(foodMenu, 0, 10));
+            archive.flush();
+            archive.store(canteenA, days(foodMenu, 10, 20));
+
+            assertEquals(describe(days(foodMenu, 5, 15)), describe(archive.getDays(canteenA, FIRST_DATE.plusDays(5), FIRST_DATE.plusDays(14))));
+            assertEquals(describe(foodMenu), describe(archive.getDays(canteenA, FIRST_DATE.minusDays(100), FIRST_DATE.plusDays(100))));
+            assertEquals(describe(days(foodMenu, 10, 11)), describe(archive.getDays(canteenA, FIRST_DATE.plusDays(10), FIRST_DATE.plusDays(10))));
+            assertEquals("", describe(archive.getDays(canteenA, FIRST_DATE.plusDays(14), FIRST_DATE.plusDays(5))));
+            assertEquals("", describe(archive.getDays(canteenA, FIRST_DATE.plusDays(20), FIRST_DATE.plusDays(30))));
+        }
+    }
+
+    @Test
+    public void keepsTheDaysAfterReopening() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        FoodMenu foodMenu = createFoodMenu(FIRST_DATE, 7, 3);
+
+        try (MenuArchive archive = new MenuArchive(directory)) {
+            archive.store(canteenA, foodMenu);
+            archive.store(canteenB, days(foodMenu, 0, 1));
+        }
+
+        try (MenuArchive archive = new MenuArchive(directory)) {
+            assertEquals(Arrays.asList(canteenA.toString(), canteenB.toString()), archive.getCanteenURLs());
+            assertEquals(describe(foodMenu), describe(archive.getDays(canteenA, FIRST_DATE, FIRST_DATE.plusDays(6))));
+            assertEquals(describe(days(foodMenu, 0, 1)), describe(archive.getDays(canteenB, FIRST_DATE, FIRST_DATE.plusDays(6))));
+            assertEquals(0, archive.store(canteenA, foodMenu));
+        }
+    }
+
+    @Test
+    public void recoversTheDaysAfterACrash() throws IOException {
+        Path directory = temporaryFolder.newFolder("archive").toPath();
+        Path crashedDirectory = temporaryFolder.newFolder("crashed").toPath();
+        FoodMenu foodMenu = createFoodMenu(FIRST_DATE, 10, 3);
+
+        try (MenuArchive archive = new MenuArchive(directory)) {
+            archive.store(canteenA, days(foodMenu, 0, 5));
+            archive.flush();
+            archive.store(canteenA, days(foodMenu, 5, 10)); // not merged into the index file yet
+            archive.store(canteenB, foodMenu);
+
+            // The files as they would be left on the disk if the program crashed now.
+            try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory)) {
+                for(Path path : paths)
+                    Files.copy(path, crashedDirectory.resolve(path.getFileName()));
+            }
+        }
+
+        // The crash has also interrupted writing the next record.
+        long completeDataLength = Files.size(crashedDirectory.resolve("days.dat"));
+        try (FileChannel dataChannel = FileChannel.open(crashedDirectory.resolve("days.dat"), StandardOpenOption.APPEND)) {
+            dataChannel.write(ByteBuffer.wrap(new byte[] {0, 0, 1, 0, 0, 0, 0, 0, 0, 0}));
+        }
+
+        try (MenuArchive archive = new MenuArchive(crashedDirectory)) {
+            assertEquals(completeDataLength, Files.size(crashedDirectory.resolve("days.dat")));
+            assertEquals(describe(foodMenu), describe(archive.getDays(canteenA, FIRST_DATE, FIRST_DATE.plusDays(9))));
+            assertEquals(describe(foodMenu), describe(archive.getDays(canteenB, FIRST_DATE, FIRST_DATE.plusDays(9))));
+
+            // New days are appended after the recovered ones.
+            FoodMenu nextFoodMenu = createFoodMenu(FIRST_DATE.plusDays(10), 1, 1);
+            assertEquals(1, archive.store(canteenA, nextFoodMenu));
+            assertEquals(describe(nextFoodMenu), describe(archive.getDays(canteenA, FIRST_DATE.plusDays(10), FIRST_DATE.plusDays(10))));
+        }
+
+        try (MenuArchive archive = new MenuArchive(crashedDirectory)) {
+            assertEquals(11, archive.getDays(canteenA, FIRST_DATE, FIRST_DATE.plusDays(10)).getDays().size());
+            assertEquals(describe(foodMenu), describe(archive.getDays(canteenB, FIRST_DATE, FIRST_DATE.plusDays(9))));
+        }
+    }
+
+    @Test
+    public void neverReplacesTheCurrentIndexFile() throws IOException {
+        Path directory = temporaryFolder.newFolder("archive").toPath();
+        Path savedIndexPath = temporaryFolder.getRoot().toPath().resolve("saved-index.dat");
+        FoodMenu foodMenu = createFoodMenu(FIRST_DATE, 10, 2);
+
+        try (MenuArchive archive = new MenuArchive(directory)) {
+            archive.store(canteenA, days(foodMenu, 0, 5));
+            archive.flush();
+            assertEquals(Arrays.asList("canteens.dat", "days.dat", "index-1.dat"), listFiles(directory));
+            Files.copy(directory.resolve("index-1.dat"), savedIndexPath);
+
+            archive.store(canteenA, days(foodMenu, 5, 10));
+        }
+        assertEquals(Arrays.asList("canteens.dat", "days.dat", "index-2.dat"), listFiles(directory));
+
+        // An old index file which couldn't be deleted (e.g. on Windows), and an interrupted merge.
+        Files.copy(savedIndexPath, directory.resolve("index-1.dat"));
+        Files.write(directory.resolve("index-3.dat.tmp"), new byte[] {1, 2, 3});
+
+        try (MenuArchive archive = new MenuArchive(directory)) {
+            assertEquals(Arrays.asList("canteens.dat", "days.dat", "index-2.dat"), listFiles(directory));
+            assertEquals(describe(foodMenu), describe(archive.getDays(canteenA, FIRST_DATE, FIRST_DATE.plusDays(9))));
+
+            archive.store(canteenB, foodMenu);
+        }
+        assertEquals(Arrays.asList("canteens.dat", "days.dat", "index-3.dat"), listFiles(directory));
+
+        try (MenuArchive archive = new MenuArchive(directory)) {
+            assertEquals(describe(foodMenu), describe(archive.getDays(canteenB, FIRST_DATE, FIRST_DATE.plusDays(9))));
+        }
+    }
+
+    private static List<String> listFiles(Path directory) throws IOException {
+        List<String> fileNames = new ArrayList<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory)) {
+            for(Path path : paths)
+                fileNames.add(path.getFileName().toString());
+        }
+        Collections.sort(fileNames);
+
+        return fileNames;
+    }
+
+    // The days in [from, to), as a new food menu.
+    private static FoodMenu days(FoodMenu foodMenu, int from, int to) {
+        FoodMenu days = new FoodMenu();
+        days.getDays().addAll(foodMenu.getDays().subList(from, to));
+
+        return days;
+    }
+}
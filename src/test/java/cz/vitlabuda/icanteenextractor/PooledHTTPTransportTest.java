@@ -0,0 +1,222 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks PooledHTTPTransport against a minimal HTTP server running in the same process.
+ */
+public class PooledHTTPTransportTest {
+    private static final int TIMEOUT_MILLISECONDS = 10000;
+
+    private ServerSocket serverSocket;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private volatile String response = "HTTP/1.1 200 OK\r\nContent-Length: 5\r\n\r\nhello";
+
+    @Before
+    public void startServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+
+        Thread acceptingThread = new Thread(() -> {
+            try {
+                while(true) {
+                    Socket socket = serverSocket.accept();
+                    Thread connectionThread = new Thread(() -> serve(socket));
+                    connectionThread.setDaemon(true);
+                    connectionThread.start();
+                }
+            } catch (IOException ignored) {} // the server socket has been closed
+        });
+        acceptingThread.setDaemon(true);
+        acceptingThread.start();
+    }
+
+    @After
+    public void stopServer() throws IOException {
+        serverSocket.close();
+    }
+
+    @Test
+    public void acceptsRepeatedIdenticalContentLengths() throws IOException {
+        PooledHTTPTransport transport = new PooledHTTPTransport();
+
+        response = "HTTP/1.1 200 OK\r\nContent-Length: 5\r\nContent-Length: 5\r\n\r\nhello";
+        assertEquals("hello", get(transport, Collections.emptyMap()));
+
+        response = "HTTP/1.1 200 OK\r\nContent-Length: 5, 5\r\n\r\nhello";
+        assertEquals("hello", get(transport, Collections.emptyMap()));
+
+        response = "HTTP/1.1 200 OK\r\nContent-Length: 5\r\nContent-Length: 6\r\n\r\nhello!";
+        try {
+            get(transport, Collections.emptyMap());
+            fail("Conflicting Content-Length headers must be rejected!");
+        } catch (IOException expected) {}
+    }
+
+    @Test
+    public void rejectsInvalidChunkSizes() throws IOException {
+        PooledHTTPTransport transport = new PooledHTTPTransport();
+
+        response = "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n5;name=value\r\nhello\r\n0\r\n\r\n";
+        assertEquals("hello", get(transport, Collections.emptyMap()));
+
+        for(String chunkSize : new String[] {"-1", "+5", "0x5", "", "10000000000000000"}) {
+            response = "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n" + chunkSize + "\r\nhello\r\n0\r\n\r\n";
+            try {
+                get(transport, Collections.emptyMap());
+                fail("The chunk size \"" + chunkSize + "\" must be rejected!");
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid chunk size"));
+            }
+        }
+    }
+
+    @Test
+    public void rejectsLineBreaksInRequestHeaders() throws IOException {
+        PooledHTTPTransport transport = new PooledHTTPTransport();
+
+        for(String value : new String[] {"\"tag\"\r\nX-Injected: 1", "\"tag\"\nX-Injected: 1", "\"tag\"\u0000"}) {
+            try {
+                get(transport, Collections.singletonMap("If-None-Match", value));
+                fail("An invalid header value must be rejected!");
+            } catch (IOException expected) {}
+        }
+
+        assertEquals(0, requestCount.get());
+        assertEquals("hello", get(transport, Collections.singletonMap("If-None-Match", "\"tag\"")));
+
+        for(String userAgent : new String[] {"Agent\nX-Injected: 1", "Agent\u0000"}) {
+            try {
+                new ICanteenExtractor.Builder().setUserAgent(userAgent);
+                fail("An invalid User-Agent must be rejected!");
+            } catch (IllegalArgumentException expected) {}
+        }
+    }
+
+    @Test
+    public void limitsTheWaitingForAFreeConnection() throws IOException {
+        PooledHTTPTransport transport = new PooledHTTPTransport(1, PooledHTTPTransport.DEFAULT_IDLE_TIMEOUT_MILLISECONDS);
+        URL url = getURL();
+
+        HTTPTransport.Response heldResponse = transport.get(url, Collections.emptyMap(), TIMEOUT_MILLISECONDS);
+        try {
+            transport.get(url, Collections.emptyMap(), 200);
+            fail("The request must time out while the only connection is in use!");
+        } catch (SocketTimeoutException expected) {}
+
+        readFully(heldResponse.getBody());
+        heldResponse.close();
+
+        assertEquals("hello", get(transport, Collections.emptyMap()));
+        assertEquals(1, transport.getConnectionsOpened());
+    }
+
+    private String get(PooledHTTPTransport transport, Map<String, String> requestHeaders) throws IOException {
+        try (HTTPTransport.Response response = transport.get(getURL(), requestHeaders, TIMEOUT_MILLISECONDS)) {
+            return readFully(response.getBody());
+        }
+    }
+
+    private URL getURL() throws IOException {
+        return new URL("http://127.0.0.1:" + serverSocket.getLocalPort() + "/login");
+    }
+
+    private static String readFully(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while((read = inputStream.read(buffer)) != -1)
+            outputStream.write(buffer, 0, read);
+
+        return new String(outputStream.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    // Answers every request on the connection with the current response (keep-alive).
+    private void serve(Socket socket) {
+        try {
+            InputStream inputStream = socket.getInputStream();
+            OutputStream outputStream = socket.getOutputStream();
+
+            while(true) {
+                // The request has no body, so it ends with an empty line.
+                int matched = 0;
+                int currentByte;
+                while(matched < 4 && (currentByte = inputStream.read()) != -1)
+                    matched = (currentByte == "\r\n\r\n".charAt(matched)) ? matched + 1 : (currentByte == '\r' ? 1 : 0);
+                if(matched < 4)
+                    return;
+
+                requestCount.incrementAndGet();
+                outputStream.write(response.getBytes(StandardCharsets.ISO_8859_1));
+                outputStream.flush();
+            }
+        } catch (IOException ignored) {
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ignored) {}
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.junit.Test;
+
+import java.net.URL;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Polls canteens served by FakeHTTPTransport, to check the scheduling which is hard to observe on real servers.
+ */
+public class RefreshSchedulerTest {
+    private static final long MIN_INTERVAL_MILLISECONDS = 50;
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    // Always returns the same "random" number.
+    private static final class FixedRandom extends Random {
+        private static final long serialVersionUID = 1L;
+
+        private final double value;
+
+        FixedRandom(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public double nextDouble() {
+            return value;
+        }
+    }
+
+    @Test
+    public void backsOffWhileTheFoodMenuIsUnchangedAndResetsWhenItChanges() throws Exception {
+        String html = TestFoodMenus.loadFixture("2.17.20", "small");
+        String changedHTML = TestFoodMenus.loadFixture("2.17.15", "small");
+        URL canteen = new URL("http://icanteen.example/login");
+
+        // The interval is read at the start of every poll, i.e. after the previous polls have updated it.
+        AtomicReference<RefreshScheduler> schedulerReference = new AtomicReference<>();
+        List<Long> intervals = new ArrayList<>();
+        CountDownLatch polled = new CountDownLatch(8);
+        FakeHTTPTransport transport = new FakeHTTPTransport((url, requestHeaders) -> {
+            synchronized(intervals) {
+                intervals.add(schedulerReference.get().getIntervalMilliseconds(canteen));
+                polled.countDown();
+
+                return FakeHTTPTransport.FakeResponse.html((intervals.size() >= 6) ? changedHTML : html);
+            }
+        });
+
+        ICanteenExtractor extractor = new ICanteenExtractor.Builder().setHTTPTransport(transport).build();
+        try (RefreshScheduler scheduler = new RefreshScheduler.Builder(extractor, 1)
+                .setMinIntervalMilliseconds(10)
+                .setMaxIntervalMilliseconds(80)
+                .setJitter(0)
+                .build()) {
+            schedulerReference.set(scheduler);
+            scheduler.addCanteen(canteen);
+
+            assertTrue(polled.await(1, TimeUnit.MINUTES));
+        }
+
+        // The first poll is a change, the 2nd to the 5th aren't, the 6th is, and the 7th isn't again.
+        synchronized(intervals) {
+            assertEquals(Arrays.asList(10L, 10L, 20L, 40L, 80L, 80L, 10L, 20L), intervals.subList(0, 8));
+        }
+    }
+
+    @Test
+    public void backsOffAfterFailedPolls() throws Exception {
+        URL canteen = new URL("http://icanteen.example/login");
+        AtomicReference<RefreshScheduler> schedulerReference = new AtomicReference<>();
+        List<Long> intervals = new ArrayList<>();
+        CountDownLatch polled = new CountDownLatch(4);
+        FakeHTTPTransport transport = new FakeHTTPTransport((url, requestHeaders) -> {
+            synchronized(intervals) {
+                intervals.add(schedulerReference.get().getIntervalMilliseconds(canteen));
+                polled.countDown();
+
+                return new FakeHTTPTransport.FakeResponse(503, new byte[0]);
+            }
+        });
+
+        ICanteenExtractor extractor = new ICanteenExtractor.Builder().setHTTPTransport(transport).setRetryPolicy(RetryPolicy.NONE).build();
+        try (RefreshScheduler scheduler = new RefreshScheduler.Builder(extractor, 1)
+                .setMinIntervalMilliseconds(10)
+                .setMaxIntervalMilliseconds(1000)
+                .setJitter(0)
+                .build()) {
+            schedulerReference.set(scheduler);
+            scheduler.addCanteen(canteen);
+
+            assertTrue(polled.await(1, TimeUnit.MINUTES));
+        }
+
+        synchronized(intervals) {
+            assertEquals(Arrays.asList(10L, 20L, 40L, 80L), intervals.subList(0, 4));
+        }
+    }
+
+    @Test
+    public void pollsAtTheMinimumIntervalDuringThePublicationWindows() {
+        try (RefreshScheduler scheduler = createScheduler(at(10, 0), 0, 0.5)) {
+            assertEquals(15 * MINUTE, scheduler.computeDelay(12 * HOUR)); // inside the 9:00-11:00 window
+            assertEquals(5 * MINUTE, scheduler.computeDelay(5 * MINUTE)); // an even shorter interval is kept
+        }
+
+        try (RefreshScheduler scheduler = createScheduler(at(23, 30), 0, 0.5)) {
+            assertEquals(15 * MINUTE, scheduler.computeDelay(12 * HOUR)); // inside the 22:00-1:00 window
+        }
+
+        try (RefreshScheduler scheduler = createScheduler(at(12, 0), 0, 0.5)) {
+            assertEquals(HOUR, scheduler.computeDelay(HOUR)); // outside the windows
+        }
+    }
+
+    @Test
+    public void movesThePollsWhichWouldSkipOverAWindowStart() {
+        try (RefreshScheduler scheduler = createScheduler(at(7, 0), 0, 0.5)) {
+            assertEquals(2 * HOUR, scheduler.computeDelay(12 * HOUR)); // to 9:00
+            assertEquals(HOUR, scheduler.computeDelay(HOUR));
+        }
+
+        try (RefreshScheduler scheduler = createScheduler(at(20, 0), 0, 0.5)) {
+            assertEquals(2 * HOUR, scheduler.computeDelay(12 * HOUR)); // to 22:00
+        }
+
+        // The moved polls are spread over the first minimum interval of the window.
+        try (RefreshScheduler scheduler = createScheduler(at(7, 0), 0.2, 0.5)) {
+            assertEquals(2 * HOUR + (long) (15 * MINUTE * 0.2 * 0.5), scheduler.computeDelay(12 * HOUR));
+        }
+    }
+
+    @Test
+    public void keepsTheJitterWithinItsBounds() {
+        try (RefreshScheduler scheduler = createScheduler(at(12, 0), 0.2, 0)) {
+            assertEquals(800, scheduler.computeDelay(1000));
+        }
+        try (RefreshScheduler scheduler = createScheduler(at(12, 0), 0.2, 0.5)) {
+            assertEquals(1000, scheduler.computeDelay(1000));
+        }
+        try (RefreshScheduler scheduler = createScheduler(at(12, 0), 0.2, Math.nextDown(1.0))) {
+            assertEquals(1200, scheduler.computeDelay(1000));
+        }
+
+        ICanteenExtractor extractor = new ICanteenExtractor.Builder().setHTTPTransport(FakeHTTPTransport.serving("")).build();
+        try (RefreshScheduler scheduler = new RefreshScheduler.Builder(extractor, 1)
+                .setJitter(0.2)
+                .setClock(Clock.fixed(at(12, 0).toInstant(ZoneOffset.UTC), ZoneOffset.UTC))
+                .setRandom(new Random(TestFoodMenus.SEED))
+                .build()) {
+            long shortestDelay = Long.MAX_VALUE;
+            long longestDelay = Long.MIN_VALUE;
+            for(int i = 0; i < 10000; i++) {
+                long delay = scheduler.computeDelay(1000);
+                shortestDelay = Math.min(shortestDelay, delay);
+                longestDelay = Math.max(longestDelay, delay);
+            }
+
+            assertTrue(shortestDelay >= 800 && shortestDelay < 810);
+            assertTrue(longestDelay <= 1200 && longestDelay > 1190);
+        }
+    }
+
+    @Test
+    public void limitsTheConcurrentPollsPerHost() throws Exception {
+        String html = TestFoodMenus.loadFixture("2.17.20", "small");
+        List<URL> canteens = new ArrayList<>();
+        for(int i = 0; i < 6; i++) {
+            canteens.add(new URL("http://a.icanteen.example/" + i + "/login"));
+            canteens.add(new URL("http://B.ICANTEEN.example/" + i + "/login")); // the host names are case-insensitive
+        }
+
+        ConcurrentHashMap<String, AtomicInteger> runningPollCounts = new ConcurrentHashMap<>();
+        ConcurrentHashMap<String, Integer> maxRunningPollCounts = new ConcurrentHashMap<>();
+        CountDownLatch polled = new CountDownLatch(canteens.size());
+        FakeHTTPTransport transport = new FakeHTTPTransport((url, requestHeaders) -> {
+            String host = url.getHost().toLowerCase(Locale.ROOT);
+            AtomicInteger runningPollCount = runningPollCounts.computeIfAbsent(host, key -> new AtomicInteger());
+            maxRunningPollCounts.merge(host, runningPollCount.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                runningPollCount.decrementAndGet();
+                polled.countDown();
+            }
+
+            return FakeHTTPTransport.FakeResponse.html(html);
+        });
+
+        // All the first polls are due at once, and there are enough threads for all of them.
+        ICanteenExtractor extractor = new ICanteenExtractor.Builder().setHTTPTransport(transport).build();
+        try (RefreshScheduler scheduler = new RefreshScheduler.Builder(extractor, canteens.size())
+                .setMinIntervalMilliseconds(HOUR)
+                .setMaxConcurrentPollsPerHost(2)
+                .setRandom(new FixedRandom(0))
+                .build()) {
+            scheduler.addCanteens(canteens);
+
+            assertTrue(polled.await(1, TimeUnit.MINUTES));
+        }
+
+        assertEquals(2, maxRunningPollCounts.size());
+        for(int maxRunningPollCount : maxRunningPollCounts.values())
+            assertEquals(2, maxRunningPollCount);
+    }
+
+    @Test
+    public void passesTheHostSlotOnWhenTheWaitingCanteensAreRemoved() throws Exception {
+        String html = TestFoodMenus.loadFixture("2.17.20", "small");
+        URL canteenA = new URL("http://icanteen.example/a/login");
+        URL canteenB = new URL("http://icanteen.example/b/login");
+        URL canteenC = new URL("http://icanteen.example/c/login");
+
+        CountDownLatch canteenAPolled = new CountDownLatch(1);
+        CountDownLatch canteenAReleased = new CountDownLatch(1);
+        CountDownLatch canteenCPolled = new CountDownLatch(1);
+        FakeHTTPTransport transport = new FakeHTTPTransport((url, requestHeaders) -> {
+            if(url.equals(canteenA)) {
+                canteenAPolled.countDown();
+                try {
+                    canteenAReleased.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            } else if(url.equals(canteenC)) {
+                canteenCPolled.countDown();
+            }
+
+            return FakeHTTPTransport.FakeResponse.html(html);
+        });
+
+        ICanteenExtractor extractor = new ICanteenExtractor.Builder().setHTTPTransport(transport).build();
+        try (RefreshScheduler scheduler = new RefreshScheduler.Builder(extractor, 4)
+                .setMinIntervalMilliseconds(MIN_INTERVAL_MILLISECONDS)
+                .setMaxConcurrentPollsPerHost(1)
+                .build()) {
+            scheduler.addCanteen(canteenA);
+            assertTrue(canteenAPolled.await(5, TimeUnit.SECONDS));
+
+            // B and then C wait for A's poll to finish (their first polls take place within the minimum interval).
+            scheduler.addCanteen(canteenB);
+            Thread.sleep(MIN_INTERVAL_MILLISECONDS * 4);
+            scheduler.addCanteen(canteenC);
+            Thread.sleep(MIN_INTERVAL_MILLISECONDS * 4);
+
+            scheduler.removeCanteen(canteenA);
+            scheduler.removeCanteen(canteenB);
+            canteenAReleased.countDown();
+
+            assertTrue("C has never been polled", canteenCPolled.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    // A scheduler with the publication windows 9:00-11:00 and 22:00-1:00, the minimum interval of 15 minutes, and
+    // a fixed clock (in UTC) and random number.
+    private static RefreshScheduler createScheduler(LocalDateTime now, double jitter, double randomNumber) {
+        ICanteenExtractor extractor = new ICanteenExtractor.Builder().setHTTPTransport(FakeHTTPTransport.serving("")).build();
+
+        return new RefreshScheduler.Builder(extractor, 1)
+                .setMinIntervalMilliseconds(15 * MINUTE)
+                .setJitter(jitter)
+                .addPublicationWindow(LocalTime.of(9, 0), LocalTime.of(11, 0))
+                .addPublicationWindow(LocalTime.of(22, 0), LocalTime.of(1, 0))
+                .setClock(Clock.fixed(now.toInstant(ZoneOffset.UTC), ZoneOffset.UTC))
+                .setRandom(new FixedRandom(randomNumber))
+                .build();
+    }
+
+    private static LocalDateTime at(int hour, int minute) {
+        return LocalDateTime.of(2021, 10, 18, hour, minute);
+    }
+}
@@ -0,0 +1,257 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Drives the circuit breaker and the rate limiter of ResilientHTTPTransport through all their states, using a
+ * FakeHTTPTransport which fails on demand.
+ */
+public class ResilientHTTPTransportTest {
+    private static final long OPEN_MILLISECONDS = 100;
+
+    // What the fake transport does with the next requests
+    private final AtomicReference<FakeHTTPTransport.Handler> handler = new AtomicReference<>(ResilientHTTPTransportTest::respondOK);
+    private final FakeHTTPTransport transport = new FakeHTTPTransport((url, requestHeaders) -> handler.get().handle(url, requestHeaders));
+    private final URL url;
+
+    public ResilientHTTPTransportTest() throws IOException {
+        url = new URL("http://ICanteen.example/login");
+    }
+
+    @Test
+    public void opensAfterTheConsecutiveFailures() throws Exception {
+        ResilientHTTPTransport resilientTransport = buildCircuitBreaker(3, 60000);
+
+        handler.set(ResilientHTTPTransportTest::refuseConnection);
+        assertConnectionFails(resilientTransport);
+        assertConnectionFails(resilientTransport);
+
+        // A success resets the count.
+        handler.set(ResilientHTTPTransportTest::respondOK);
+        readAndClose(resilientTransport.get(url, Collections.emptyMap(), 0));
+
+        handler.set(ResilientHTTPTransportTest::refuseConnection);
+        assertConnectionFails(resilientTransport);
+        assertConnectionFails(resilientTransport);
+        assertEquals(Collections.emptyList(), resilientTransport.getOpenCircuits());
+        assertConnectionFails(resilientTransport);
+        assertEquals(Collections.singletonList("icanteen.example:80"), resilientTransport.getOpenCircuits());
+
+        // The host isn't contacted while the circuit is open.
+        int requestCount = transport.getRequestCount();
+        assertRejected(resilientTransport);
+        assertEquals(requestCount, transport.getRequestCount());
+        assertEquals(1, resilientTransport.getRejectedRequestCount());
+    }
+
+    @Test
+    public void countsServerErrorsAndCutOffBodiesAsFailures() throws Exception {
+        ResilientHTTPTransport resilientTransport = buildCircuitBreaker(3, 60000);
+
+        // The client errors are the client's fault.
+        handler.set((url, requestHeaders) -> new FakeHTTPTransport.FakeResponse(404, new byte[0]));
+        for(int i = 0; i < 5; i++)
+            readAndClose(resilientTransport.get(url, Collections.emptyMap(), 0));
+        assertEquals(Collections.emptyList(), resilientTransport.getOpenCircuits());
+
+        handler.set((url, requestHeaders) -> new FakeHTTPTransport.FakeResponse(503, new byte[0]));
+        readAndClose(resilientTransport.get(url, Collections.emptyMap(), 0));
+        readAndClose(resilientTransport.get(url, Collections.emptyMap(), 0));
+
+        handler.set((url, requestHeaders) -> new FakeHTTPTransport.FakeResponse(200, new byte[100], 50));
+        try (HTTPTransport.Response response = resilientTransport.get(url, Collections.emptyMap(), 0)) {
+            readAndClose(response);
+            fail("The cut off body has been read");
+        } catch (IOException expected) {
+        }
+
+        assertRejected(resilientTransport);
+    }
+
+    @Test
+    public void closesAfterASuccessfulTrialRequest() throws Exception {
+        ResilientHTTPTransport resilientTransport = openCircuit(buildCircuitBreaker(2, OPEN_MILLISECONDS));
+        assertRejected(resilientTransport);
+        Thread.sleep(OPEN_MILLISECONDS * 2);
+
+        // Half-open: only the trial request is let through.
+        handler.set(ResilientHTTPTransportTest::respondOK);
+        HTTPTransport.Response trialResponse = resilientTransport.get(url, Collections.emptyMap(), 0);
+        assertRejected(resilientTransport);
+        readAndClose(trialResponse);
+
+        // Closed: a single failure doesn't open it again.
+        handler.set(ResilientHTTPTransportTest::refuseConnection);
+        assertConnectionFails(resilientTransport);
+        handler.set(ResilientHTTPTransportTest::respondOK);
+        readAndClose(resilientTransport.get(url, Collections.emptyMap(), 0));
+        assertEquals(Collections.emptyList(), resilientTransport.getOpenCircuits());
+    }
+
+    @Test
+    public void opensAgainAfterAFailedTrialRequest() throws Exception {
+        ResilientHTTPTransport resilientTransport = openCircuit(buildCircuitBreaker(2, OPEN_MILLISECONDS));
+        Thread.sleep(OPEN_MILLISECONDS * 2);
+
+        // A single failed trial request is enough, whether it fails to connect or with a server error.
+        assertConnectionFails(resilientTransport);
+        assertRejected(resilientTransport);
+        Thread.sleep(OPEN_MILLISECONDS * 2);
+
+        handler.set((url, requestHeaders) -> new FakeHTTPTransport.FakeResponse(500, new byte[0]));
+        readAndClose(resilientTransport.get(url, Collections.emptyMap(), 0));
+        assertRejected(resilientTransport);
+    }
+
+    @Test
+    public void letsAnotherTrialRequestThroughAfterAnAbortedOne() throws Exception {
+        ResilientHTTPTransport resilientTransport = openCircuit(buildCircuitBreaker(2, OPEN_MILLISECONDS));
+        Thread.sleep(OPEN_MILLISECONDS * 2);
+
+        // The trial request is cancelled while its body is being read - the host isn't at fault, but it isn't known
+        // to be healthy either.
+        handler.set((url, requestHeaders) -> new FakeHTTPTransport.FakeResponse(200, new byte[100]));
+        HTTPTransport.Response abortedResponse = resilientTransport.get(url, Collections.emptyMap(), 0);
+        abortedResponse.abort();
+        try {
+            readAndClose(abortedResponse);
+            fail("The aborted body has been read");
+        } catch (IOException expected) {
+        }
+
+        // Still half-open: the next request is a new trial, and the requests sent while it's running are rejected.
+        HTTPTransport.Response trialResponse = resilientTransport.get(url, Collections.emptyMap(), 0);
+        assertRejected(resilientTransport);
+        readAndClose(trialResponse);
+        assertEquals(Collections.emptyList(), resilientTransport.getOpenCircuits());
+    }
+
+    @Test
+    public void delaysAndTimesOutTheRequestsExceedingTheRate() throws Exception {
+        ResilientHTTPTransport resilientTransport = new ResilientHTTPTransport.Builder(transport)
+                .setCircuitBreaker(1, 60000)
+                .setRateLimit(5, 2)
+                .build();
+
+        // The burst
+        readAndClose(resilientTransport.get(url, Collections.emptyMap(), 100));
+        readAndClose(resilientTransport.get(url, Collections.emptyMap(), 100));
+        assertEquals(0, resilientTransport.getDelayedRequestCount());
+
+        // The next token arrives in 200 ms.
+        try {
+            resilientTransport.get(url, Collections.emptyMap(), 100);
+            fail("The request hasn't timed out");
+        } catch (SocketTimeoutException expected) {
+        }
+        assertEquals(2, transport.getRequestCount());
+        assertEquals(Collections.emptyList(), resilientTransport.getOpenCircuits()); // the timeout isn't the host's fault
+
+        long startTime = System.nanoTime();
+        readAndClose(resilientTransport.get(url, Collections.emptyMap(), 1000)); // the timed out request hasn't taken the token
+        long waitMilliseconds = (System.nanoTime() - startTime) / 1000000;
+        assertTrue("Waited " + waitMilliseconds + " ms", waitMilliseconds > 100 && waitMilliseconds < 500);
+        assertEquals(1, resilientTransport.getDelayedRequestCount());
+    }
+
+    private ResilientHTTPTransport buildCircuitBreaker(int failureThreshold, long openMilliseconds) {
+        return new ResilientHTTPTransport.Builder(transport).setCircuitBreaker(failureThreshold, openMilliseconds).build();
+    }
+
+    private ResilientHTTPTransport openCircuit(ResilientHTTPTransport resilientTransport) {
+        handler.set(ResilientHTTPTransportTest::refuseConnection);
+        while(resilientTransport.getOpenCircuits().isEmpty())
+            assertConnectionFails(resilientTransport);
+
+        return resilientTransport;
+    }
+
+    private void assertConnectionFails(ResilientHTTPTransport resilientTransport) {
+        try {
+            resilientTransport.get(url, Collections.emptyMap(), 0).close();
+            fail("The request hasn't failed");
+        } catch (ResilientHTTPTransport.CircuitOpenException e) {
+            fail("The request has been rejected");
+        } catch (IOException expected) {
+        }
+    }
+
+    private void assertRejected(ResilientHTTPTransport resilientTransport) throws IOException {
+        try {
+            resilientTransport.get(url, Collections.emptyMap(), 0).close();
+            fail("The request hasn't been rejected");
+        } catch (ResilientHTTPTransport.CircuitOpenException expected) {
+        }
+    }
+
+    private static void readAndClose(HTTPTransport.Response response) throws IOException {
+        try (InputStream body = response.getBody()) {
+            ContentEncoding.drain(body);
+        } finally {
+            response.close();
+        }
+    }
+
+    private static FakeHTTPTransport.FakeResponse respondOK(URL url, Map<String, String> requestHeaders) {
+        return new FakeHTTPTransport.FakeResponse(200, new byte[100]);
+    }
+
+    private static FakeHTTPTransport.FakeResponse refuseConnection(URL url, Map<String, String> requestHeaders) throws IOException {
+        throw new IOException("Connection refused");
+    }
+}
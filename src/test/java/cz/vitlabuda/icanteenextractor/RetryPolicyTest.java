@@ -0,0 +1,137 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.junit.Test;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks which failures RetryPolicy retries, its backoff, and the retries done by ICanteenExtractor.
+ */
+public class RetryPolicyTest {
+    private static final String URL_STRING = "http://icanteen.example/login";
+
+    @Test
+    public void retriesOnlyTheTemporaryFailures() {
+        for(int statusCode : new int[] {408, 429, 500, 502, 503, 504})
+            assertTrue(String.valueOf(statusCode), RetryPolicy.isRetryable(new ICanteenExtractorException.HTTPErrorException("", statusCode)));
+        for(int statusCode : new int[] {304, 400, 403, 404, 501, 505})
+            assertFalse(String.valueOf(statusCode), RetryPolicy.isRetryable(new ICanteenExtractorException.HTTPErrorException("", statusCode)));
+
+        assertTrue(RetryPolicy.isRetryable(new ICanteenExtractorException("", new IOException())));
+        assertTrue(RetryPolicy.isRetryable(new ICanteenExtractorException("", new SocketTimeoutException())));
+
+        assertFalse(RetryPolicy.isRetryable(new ICanteenExtractorException("", new SSLException(""))));
+        assertFalse(RetryPolicy.isRetryable(new ICanteenExtractorException("", new UnknownHostException())));
+        assertFalse(RetryPolicy.isRetryable(new ICanteenExtractorException("", new ResilientHTTPTransport.CircuitOpenException("icanteen.example:80"))));
+        assertFalse(RetryPolicy.isRetryable(new ICanteenExtractorException("", new PageContent.TooLargeException(1))));
+        assertFalse(RetryPolicy.isRetryable(new ICanteenExtractorException("", new IllegalStateException()))); // e.g. a parser error
+        assertFalse(RetryPolicy.isRetryable(new ICanteenExtractorException.NoFoodMenuException("")));
+    }
+
+    @Test
+    public void doublesTheBackoffUpToTheMaximum() {
+        RetryPolicy retryPolicy = new RetryPolicy(10, 100, 1000);
+
+        long[] maxBackoffs = new long[] {100, 200, 400, 800, 1000, 1000, 1000};
+        for(int attempt = 1; attempt <= maxBackoffs.length; attempt++) {
+            long longestBackoff = 0;
+            for(int i = 0; i < 1000; i++) {
+                long backoff = retryPolicy.computeBackoffMilliseconds(attempt);
+                assertTrue("Attempt " + attempt + ": " + backoff + " ms", backoff >= 0 && backoff <= maxBackoffs[attempt - 1]);
+                longestBackoff = Math.max(longestBackoff, backoff);
+            }
+
+            assertTrue("Attempt " + attempt + ": no jitter", longestBackoff > maxBackoffs[attempt - 1] / 2);
+        }
+
+        assertEquals(0, RetryPolicy.NONE.computeBackoffMilliseconds(1));
+    }
+
+    @Test
+    public void retriesTheFailedFetches() throws Exception {
+        String html = TestFoodMenus.loadFixture("2.17.20", "small");
+        AtomicInteger failureCount = new AtomicInteger(2);
+        FakeHTTPTransport transport = new FakeHTTPTransport((url, requestHeaders) -> {
+            if(failureCount.getAndDecrement() > 0)
+                return new FakeHTTPTransport.FakeResponse(503, new byte[0]);
+
+            return FakeHTTPTransport.FakeResponse.html(html);
+        });
+
+        ICanteenExtractor extractor = new ICanteenExtractor.Builder().setHTTPTransport(transport).setRetryPolicy(new RetryPolicy(3, 1, 10)).build();
+        assertFalse(extractor.extract(URL_STRING).getDays().isEmpty());
+        assertEquals(3, transport.getRequestCount());
+
+        // Out of attempts
+        failureCount.set(3);
+        try {
+            extractor.extract(URL_STRING);
+            fail("The fetch hasn't failed");
+        } catch (ICanteenExtractorException.HTTPErrorException e) {
+            assertEquals(503, e.getStatusCode());
+        }
+        assertEquals(6, transport.getRequestCount());
+
+        // Not retryable
+        FakeHTTPTransport notFoundTransport = new FakeHTTPTransport((url, requestHeaders) -> new FakeHTTPTransport.FakeResponse(404, new byte[0]));
+        try {
+            new ICanteenExtractor.Builder().setHTTPTransport(notFoundTransport).setRetryPolicy(new RetryPolicy(3, 1, 10)).build().extract(URL_STRING);
+            fail("The fetch hasn't failed");
+        } catch (ICanteenExtractorException.HTTPErrorException e) {
+            assertEquals(404, e.getStatusCode());
+        }
+        assertEquals(1, notFoundTransport.getRequestCount());
+    }
+}
@@ -0,0 +1,201 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static cz.vitlabuda.icanteenextractor.TestFoodMenus.SIZES;
+import static cz.vitlabuda.icanteenextractor.TestFoodMenus.VERSIONS;
+import static cz.vitlabuda.icanteenextractor.TestFoodMenus.describe;
+import static cz.vitlabuda.icanteenextractor.TestFoodMenus.loadFixture;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Compares the streaming parser with the DOM-based parsers. Whenever the streaming parser accepts a webpage, it must
+ * produce exactly the same food menu as jsoup and the DOM-based parsers do (or fail where they fail) - otherwise it has
+ * to give up, so that ICanteenExtractor falls back to the DOM.
+ */
+public class StreamingMenuParserTest {
+    private static final int MUTATION_COUNT = 4000;
+
+    // Inserted at the tag boundaries of the fixtures by the mutations; the tags are mostly left unclosed or stray.
+    private static final String[] SNIPPETS = new String[] {
+            "<div>", "</div>", "<span>", "</span>", "<p>", "</p>", "<br>", "</br>", "<br/>", "<b>", "</b>", "<i>", "</i>",
+            "<a>", "</a>", "<font>", "</font>", "<strong>", "</strong>", "<nobr>", "<button>", "</button>", "<form>",
+            "</form>", "<li>", "</li>", "<ul>", "</ul>", "<ol>", "<dl>", "<dd>", "<dt>", "<h1>", "</h1>", "<h2>", "</h5>",
+            "<section>", "</section>", "<article>", "</article>", "<center>", "<main>", "<label>", "</label>", "<sup>",
+            "<img>", "<hr>", "<input>", "<wbr>", "<pre>", "</pre>", "<listing>", "<xmp>", "<textarea>", "<title>",
+            "<ruby>", "<rb>", "<rt>", "</rt>", "<rp>", "</rp>", "</ruby>", "<select>", "</select>", "<option>", "<optgroup>",
+            "<table>", "</table>", "<tr>", "<td>", "<th>", "<tbody>", "<caption>", "<col>", "<isindex>", "<image>",
+            "<object>", "</object>", "<applet>", "<marquee>", "<template>", "</template>", "<svg>", "<math>", "<frameset>",
+            "<html>", "</html>", "<body>", "</body>", "<head>", "</head>", "<meta>", "<link>", "<base>", "<noscript>",
+            "<iframe>", "<noembed>", "<noframes>", "<plaintext>", "<style>x</style>", "<script>y</script>", "<embed>",
+            "<param>", "<foo>", "</foo>", "<!-- c -->", "<![CDATA[z]]>", "<?pi?>", "</>", "&amp;", "&nbsp;", " x ",
+            "<div class=\"jidelnicekDen\">", "<div class=\"container\">", "<span class=\"jidelnicekItem\">",
+            "<div class=\"jidelnicekItem\">x</div>", "<span class=\"smallBoldTitle\">t</span>", "<p class=\"jidelnicekWeb\">"
+    };
+
+    @Test
+    public void parsesTheFixturesLikeTheDOMBasedParsers() throws Exception {
+        for(String version : VERSIONS) {
+            for(String size : SIZES) {
+                String html = loadFixture(version, size);
+                String streamedFoodMenu = parseStreaming(html);
+
+                assertTrue("The streaming parser has given up on " + version + "-" + size, streamedFoodMenu != null);
+                assertEquals(version + "-" + size, parseDOM(html), streamedFoodMenu);
+            }
+        }
+    }
+
+    @Test
+    public void givesUpOnMarkupItDoesNotModel() throws Exception {
+        String html = loadFixture("2.14.18", "small");
+        int menuStart = html.lastIndexOf('<', html.indexOf("jidelnicekWeb"));
+        int firstDish = html.indexOf("<div", html.indexOf("jidelnicekDen"));
+        int menuEnd = html.indexOf("<footer");
+
+        // jsoup creates a <br> element for a stray </br>, and a <p> element for a stray </p>.
+        assertNull(parseStreaming(insert(html, firstDish, "</br>")));
+        assertNull(parseStreaming(insert(html, firstDish, "</p>")));
+        // The implied end tags of the ruby annotations
+        assertNull(parseStreaming(insert(html, firstDish, "<ruby>a<rt>b<rp>c</ruby>")));
+        // The tree builder ignores the markup inside an unclosed <select>.
+        assertNull(parseStreaming(insert(html, menuStart, "<select>")));
+        // jsoup fails on an <isindex> tag without attributes, even after the food menu.
+        assertNull(parseStreaming(insert(html, menuEnd, "<isindex>")));
+    }
+
+    @Test
+    public void matchesTheDOMBasedParsersOnMutatedFixtures() throws Exception {
+        Random random = new Random(TestFoodMenus.SEED);
+        int acceptedCount = 0;
+
+        for(int i = 0; i < MUTATION_COUNT; i++) {
+            String html = loadFixture(VERSIONS[random.nextInt(VERSIONS.length)], "small");
+            String mutatedHTML = mutate(html, random);
+
+            String streamedFoodMenu = parseStreaming(mutatedHTML);
+            if(streamedFoodMenu == null)
+                continue; // the webpage would be parsed using the DOM
+
+            acceptedCount++;
+            String domFoodMenu = parseDOM(mutatedHTML);
+            if(!streamedFoodMenu.equals(domFoodMenu))
+                fail("The streaming parser's output differs from the DOM-based parsers' one after mutation #" + i + ":\n" + mutatedHTML);
+        }
+
+        // Otherwise the test would pass even if the streaming parser gave up on everything.
+        assertTrue("Only " + acceptedCount + " mutated webpages have been accepted", acceptedCount > MUTATION_COUNT / 10);
+    }
+
+    // Inserts, removes or duplicates up to 3 tags at random tag boundaries (from the beginning of the webpage, or from
+    // .jidelnicekWeb, where most of them matter).
+    private static String mutate(String html, Random random) {
+        int start = (random.nextInt(3) == 0) ? 0 : html.lastIndexOf('<', html.indexOf("jidelnicekWeb"));
+
+        List<Integer> tagBoundaries = new ArrayList<>();
+        for(int i = html.indexOf('<', start); i != -1; i = html.indexOf('<', i + 1))
+            tagBoundaries.add(i);
+
+        List<Integer> positions = new ArrayList<>();
+        int mutationCount = 1 + random.nextInt(3);
+        for(int i = 0; i < mutationCount; i++)
+            positions.add(tagBoundaries.get(random.nextInt(tagBoundaries.size())));
+        positions.sort(Collections.reverseOrder()); // the earlier positions aren't shifted by the later mutations
+
+        StringBuilder mutatedHTML = new StringBuilder(html);
+        for(int position : positions) {
+            int tagEnd = mutatedHTML.indexOf(">", position) + 1;
+            int operation = random.nextInt(10);
+
+            if(operation < 6)
+                mutatedHTML.insert(position, SNIPPETS[random.nextInt(SNIPPETS.length)]);
+            else if(operation < 8)
+                mutatedHTML.delete(position, tagEnd);
+            else
+                mutatedHTML.insert(position, mutatedHTML.substring(position, tagEnd));
+        }
+
+        return mutatedHTML.toString();
+    }
+
+    private static String insert(String html, int position, String snippet) {
+        return html.substring(0, position) + snippet + html.substring(position);
+    }
+
+    // Returns null if the streaming parser has given up.
+    private static String parseStreaming(String html) throws IOException {
+        try (Reader reader = new StringReader(html)) {
+            return describe(StreamingMenuParser.parse(reader));
+        } catch (FoodMenuParserBase.FoodMenuParserException e) {
+            return null;
+        }
+    }
+
+    // A new extractor is used every time, so that the parser remembered for the canteen doesn't carry over.
+    private static String parseDOM(String html) throws IOException {
+        PageContent content = PageContent.read(new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8)), -1, "UTF-8");
+
+        try {
+            return describe(new ICanteenExtractor().parseHTMLToFoodMenuUsingDOM(content, new URL("http://localhost/login"), "localhost/login", System.nanoTime(), 0));
+        } catch (ICanteenExtractorException e) {
+            return "The DOM-based parsers have failed: " + e.getMessage();
+        }
+    }
+}
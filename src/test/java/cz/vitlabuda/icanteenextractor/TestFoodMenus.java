@@ -0,0 +1,121 @@
+package cz.vitlabuda.icanteenextractor;
+
+/*
+SPDX-License-Identifier: BSD-3-Clause
+
+Copyright (c) 2021 Vít Labuda. All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+following conditions are met:
+ 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+    disclaimer.
+ 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+    following disclaimer in the documentation and/or other materials provided with the distribution.
+ 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+    products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+
+
+--- Jsoup ---
+SPDX-License-Identifier: MIT
+
+Copyright (c) 2009 - 2021 Jonathan Hedley (https://jsoup.org/)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+persons to whom the Software is furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+// The food menus, fixtures and descriptions shared by the tests.
+final class TestFoodMenus {
+    // The same versions as the benchmarks' Fixtures.VERSIONS, whose class isn't on the tests' classpath.
+    static final String[] VERSIONS = new String[] {"2.17.20", "2.17.15", "2.17.14", "2.14.18"};
+    static final String[] SIZES = new String[] {"small", "typical", "large"};
+
+    // Seeds the randomized tests, so that their failures can be reproduced.
+    static final long SEED = 20211018L;
+
+    private TestFoodMenus() {}
+
+    static FoodMenu createFoodMenu(LocalDate firstDate, int dayCount, int dishCount) {
+        FoodMenu foodMenu = new FoodMenu();
+        for(int i = 0; i < dayCount; i++) {
+            LocalDate date = firstDate.plusDays(i);
+            FoodMenu.Day day = new FoodMenu.Day(date);
+
+            for(int j = 1; j <= dishCount; j++)
+                day.getDishes().add(new FoodMenu.Dish("Oběd " + j, (j == 1) ? "" : "Jídelna",
+                        "Polévka \"" + date + "\", jídlo č. " + j + " 🍲"));
+
+            foodMenu.getDays().add(day);
+        }
+
+        return foodMenu;
+    }
+
+    // Describes the food menus as text, so that assertEquals() shows where they differ.
+    static String describe(List<FoodMenu> foodMenus) {
+        StringBuilder description = new StringBuilder();
+        for(FoodMenu foodMenu : foodMenus)
+            description.append(describe(foodMenu)).append("--\n");
+
+        return description.toString();
+    }
+
+    static String describe(FoodMenu foodMenu) {
+        StringBuilder description = new StringBuilder();
+        for(FoodMenu.Day day : foodMenu.getDays()) {
+            description.append(day.getLocalDate()).append('\n');
+
+            for(FoodMenu.Dish dish : day.getDishes())
+                description.append(dish.getDishName()).append(" | ").append(dish.getDishPlace()).append(" | ").append(dish.getDishDescription()).append('\n');
+        }
+
+        return description.toString();
+    }
+
+    static byte[] loadFixtureBytes(String version, String size) throws IOException {
+        String resourceName = "/fixtures/icanteen-" + version + "-" + size + ".html";
+
+        try (InputStream inputStream = TestFoodMenus.class.getResourceAsStream(resourceName)) {
+            if(inputStream == null)
+                throw new IOException("No such fixture: " + resourceName);
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while((read = inputStream.read(buffer)) != -1)
+                outputStream.write(buffer, 0, read);
+
+            return outputStream.toByteArray();
+        }
+    }
+
+    static String loadFixture(String version, String size) throws IOException {
+        return new String(loadFixtureBytes(version, size), StandardCharsets.UTF_8);
+    }
+}